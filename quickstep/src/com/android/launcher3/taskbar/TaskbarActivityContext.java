@@ -913,6 +913,11 @@ public class TaskbarActivityContext extends BaseTaskbarContext {
         return mControllers.taskbarPopupController.getPopupDataProvider();
     }
 
+    @Override
+    public boolean hasSharedPopupDataProvider() {
+        return true;
+    }
+
     @NonNull
     @Override
     public LauncherBindableItemsContainer getContent() {
@@ -137,6 +137,11 @@ public class TaskbarOverlayContext extends BaseTaskbarContext {
         return mTaskbarContext.getPopupDataProvider();
     }
 
+    @Override
+    public boolean hasSharedPopupDataProvider() {
+        return mTaskbarContext.hasSharedPopupDataProvider();
+    }
+
     @Override
     public void startSplitSelection(SplitSelectSource splitSelectSource) {
         mUiController.startSplitSelection(splitSelectSource);
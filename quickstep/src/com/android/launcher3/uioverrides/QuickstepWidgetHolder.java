@@ -183,11 +183,20 @@ public final class QuickstepWidgetHolder extends LauncherWidgetHolder {
         return view;
     }
 
+    @NonNull
+    @Override
+    protected LauncherAppWidgetHostView newHostView() {
+        return new LauncherAppWidgetHostView(mContext);
+    }
+
     @NonNull
     @Override
     protected LauncherAppWidgetHostView createViewInternal(
             int appWidgetId, @NonNull LauncherAppWidgetProviderInfo appWidget) {
-        LauncherAppWidgetHostView widgetView = new LauncherAppWidgetHostView(mContext);
+        LauncherAppWidgetHostView widgetView = pollPrewarmedHostView();
+        if (widgetView == null) {
+            widgetView = newHostView();
+        }
         widgetView.setAppWidget(appWidgetId, appWidget);
         widgetView.updateAppWidget(getHolderListener(appWidgetId).addHolder(mUpdateHandler));
         return widgetView;
@@ -17,8 +17,6 @@
 package com.android.launcher3;
 
 import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
-import static com.android.launcher3.LauncherSettings.Favorites.TABLE_NAME;
-import static com.android.launcher3.provider.LauncherDbUtils.itemIdMatch;
 import static com.android.launcher3.util.UserIconInfo.TYPE_CLONED;
 import static com.android.launcher3.util.UserIconInfo.TYPE_WORK;
 
@@ -33,6 +31,7 @@ import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.content.res.Resources.NotFoundException;
 import android.content.res.XmlResourceParser;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.os.Bundle;
 import android.os.Process;
@@ -53,6 +52,7 @@ import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.LauncherAppWidgetInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
 import com.android.launcher3.qsb.QsbContainerView;
 import com.android.launcher3.shortcuts.ShortcutKey;
 import com.android.launcher3.util.ApiWrapper;
@@ -66,8 +66,12 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -188,6 +192,17 @@ public class AutoInstallsLayout {
     final ContentValues mValues;
     protected final String mRootTag;
 
+    // Items parsed from the layout, by id in insertion order, written to the db once the whole
+    // layout is parsed
+    private final Map<Integer, ContentValues> mPendingItems = new LinkedHashMap<>();
+    // App widget ids bound while parsing the layout, deleted if the layout is not written
+    private final IntArray mBoundAppWidgetIds = new IntArray();
+    // Broadcasts of the items parsed from the layout, sent once the layout is written
+    private final List<Intent> mPendingBroadcasts = new ArrayList<>();
+    // Launcher activities of the main user, queried once for all the app shortcuts in the layout
+    @Nullable
+    private Map<ComponentName, LauncherActivityInfo> mLauncherActivities;
+
     protected SQLiteDatabase mDb;
 
     public AutoInstallsLayout(Context context, LauncherWidgetHolder appWidgetHolder,
@@ -229,15 +244,103 @@ public class AutoInstallsLayout {
 
     /**
      * Loads the layout in the db and returns the number of entries added on the desktop.
+     *
+     * The whole layout is parsed before anything is written, and all the items are then inserted
+     * in a single transaction, so that a partially parsed layout never ends up in the db. The app
+     * widget ids bound while parsing are deleted if the layout is not written, and the broadcasts
+     * for its items are only sent once it is written.
      */
     public int loadLayout(SQLiteDatabase db) {
         mDb = db;
+        mPendingItems.clear();
+        mBoundAppWidgetIds.clear();
+        mPendingBroadcasts.clear();
+        int count;
         try {
-            return parseLayout(mInitialLayoutSupplier.get());
+            count = parseLayout(mInitialLayoutSupplier.get());
         } catch (Exception e) {
             Log.e(TAG, "Error parsing layout: ", e);
+            deleteBoundAppWidgetIds();
+            mPendingBroadcasts.clear();
+            return -1;
+        } finally {
+            mLauncherActivities = null;
+        }
+
+        boolean committed = false;
+        try (SQLiteTransaction t = new SQLiteTransaction(db)) {
+            if (!mCallback.insertAll(db, mPendingItems.values())) {
+                Log.e(TAG, "Unable to insert layout items");
+                return -1;
+            }
+            t.commit();
+            committed = true;
+            return count;
+        } catch (SQLException e) {
+            Log.e(TAG, "Error inserting layout: ", e);
             return -1;
+        } finally {
+            mPendingItems.clear();
+            if (committed) {
+                mBoundAppWidgetIds.clear();
+                mPendingBroadcasts.forEach(mContext::sendBroadcast);
+            } else {
+                deleteBoundAppWidgetIds();
+            }
+            mPendingBroadcasts.clear();
+        }
+    }
+
+    /**
+     * Records an app widget id bound for an item of the layout, so that it is deleted if the
+     * layout fails to load.
+     */
+    protected void addBoundAppWidgetId(int appWidgetId) {
+        mBoundAppWidgetIds.add(appWidgetId);
+    }
+
+    /**
+     * Sends {@param intent} for an item of the layout once the layout is written, so that it is
+     * never sent for an item which is not in the db.
+     */
+    protected void sendBroadcastOnceLoaded(Intent intent) {
+        mPendingBroadcasts.add(intent);
+    }
+
+    private void deleteBoundAppWidgetIds() {
+        for (int i = 0; i < mBoundAppWidgetIds.size(); i++) {
+            mAppWidgetHolder.deleteAppWidgetId(mBoundAppWidgetIds.get(i));
+        }
+        mBoundAppWidgetIds.clear();
+    }
+
+    /**
+     * Adds a copy of {@param values} to the items inserted once the layout is parsed, and returns
+     * its id.
+     */
+    protected int insertAndCheck(ContentValues values) {
+        Integer id = values.getAsInteger(Favorites._ID);
+        if (id == null) {
+            throw new RuntimeException("Error: attempting to add item without specifying an id");
         }
+        mPendingItems.put(id, new ContentValues(values));
+        return id;
+    }
+
+    /**
+     * Returns the launcher activity for {@param cn} in the main user, or null if it is not a
+     * launcher activity.
+     */
+    @Nullable
+    private LauncherActivityInfo getLauncherActivity(ComponentName cn) {
+        if (mLauncherActivities == null) {
+            mLauncherActivities = new HashMap<>();
+            for (LauncherActivityInfo info : mContext.getSystemService(LauncherApps.class)
+                    .getActivityList(null, Process.myUserHandle())) {
+                mLauncherActivities.put(info.getComponentName(), info);
+            }
+        }
+        return mLauncherActivities.get(cn);
     }
 
     /**
@@ -341,11 +444,7 @@ public class AutoInstallsLayout {
             }
         }
 
-        if (mCallback.insertAndCheck(mDb, mValues) < 0) {
-            return -1;
-        } else {
-            return id;
-        }
+        return insertAndCheck(mValues);
     }
 
     protected ArrayMap<String, TagParser> getFolderElementsMap() {
@@ -387,17 +486,25 @@ public class AutoInstallsLayout {
             final String className = getAttributeValue(parser, ATTR_CLASS_NAME);
             addProfileId(parser);
             if (!TextUtils.isEmpty(packageName) && !TextUtils.isEmpty(className)) {
-                ActivityInfo info;
                 try {
-                    ComponentName cn;
-                    try {
-                        cn = new ComponentName(packageName, className);
-                        info = mPackageManager.getActivityInfo(cn, 0);
-                    } catch (PackageManager.NameNotFoundException nnfe) {
-                        String[] packages = mPackageManager.currentToCanonicalPackageNames(
-                                new String[]{packageName});
-                        cn = new ComponentName(packages[0], className);
-                        info = mPackageManager.getActivityInfo(cn, 0);
+                    ComponentName cn = new ComponentName(packageName, className);
+                    CharSequence label;
+                    LauncherActivityInfo launcherInfo = getLauncherActivity(cn);
+                    if (launcherInfo != null) {
+                        label = launcherInfo.getLabel();
+                    } else {
+                        // Not a launcher activity of an installed package, fallback to querying
+                        // the component directly which also handles renamed packages
+                        ActivityInfo info;
+                        try {
+                            info = mPackageManager.getActivityInfo(cn, 0);
+                        } catch (PackageManager.NameNotFoundException nnfe) {
+                            String[] packages = mPackageManager.currentToCanonicalPackageNames(
+                                    new String[]{packageName});
+                            cn = new ComponentName(packages[0], className);
+                            info = mPackageManager.getActivityInfo(cn, 0);
+                        }
+                        label = info.loadLabel(mPackageManager);
                     }
                     final Intent intent = new Intent(Intent.ACTION_MAIN, null)
                             .addCategory(Intent.CATEGORY_LAUNCHER)
@@ -405,8 +512,7 @@ public class AutoInstallsLayout {
                             .setFlags(Intent.FLAG_ACTIVITY_NEW_TASK
                                     | Intent.FLAG_ACTIVITY_RESET_TASK_IF_NEEDED);
 
-                    return addShortcut(info.loadLabel(mPackageManager).toString(),
-                            intent, ITEM_TYPE_APPLICATION);
+                    return addShortcut(label.toString(), intent, ITEM_TYPE_APPLICATION);
                 } catch (PackageManager.NameNotFoundException e) {
                     Log.e(TAG, "Favorite not found: " + packageName + "/" + className);
                 }
@@ -542,12 +648,7 @@ public class AutoInstallsLayout {
                 mValues.put(Favorites.INTENT, new Intent().putExtras(extras).toUri(0));
             }
 
-            int insertedId = mCallback.insertAndCheck(mDb, mValues);
-            if (insertedId < 0) {
-                return -1;
-            } else {
-                return insertedId;
-            }
+            return insertAndCheck(mValues);
         }
     }
 
@@ -596,11 +697,7 @@ public class AutoInstallsLayout {
             mValues.put(Favorites.SPANX, 1);
             mValues.put(Favorites.SPANY, 1);
             mValues.put(Favorites._ID, mCallback.generateNewItemId());
-            int folderId = mCallback.insertAndCheck(mDb, mValues);
-            if (folderId < 0) {
-                if (LOGD) Log.e(TAG, "Unable to add folder");
-                return -1;
-            }
+            int folderId = insertAndCheck(mValues);
 
             final ContentValues myValues = new ContentValues(mValues);
             IntArray folderItems = new IntArray();
@@ -636,21 +733,18 @@ public class AutoInstallsLayout {
             // failed to add, and less than 2 were actually added
             if (folderItems.size() < 2) {
                 // Delete the folder
-                mDb.delete(TABLE_NAME, itemIdMatch(folderId), null);
+                mPendingItems.remove(folderId);
                 addedId = -1;
 
                 // If we have a single item, promote it to where the folder
                 // would have been.
                 if (folderItems.size() == 1) {
-                    final ContentValues childValues = new ContentValues();
+                    addedId = folderItems.get(0);
+                    final ContentValues childValues = mPendingItems.get(addedId);
                     copyInteger(myValues, childValues, Favorites.CONTAINER);
                     copyInteger(myValues, childValues, Favorites.SCREEN);
                     copyInteger(myValues, childValues, Favorites.CELLX);
                     copyInteger(myValues, childValues, Favorites.CELLY);
-
-                    addedId = folderItems.get(0);
-                    mDb.update(TABLE_NAME, childValues,
-                            Favorites._ID + "=" + addedId, null);
                 }
             }
             return addedId;
@@ -716,6 +810,19 @@ public class AutoInstallsLayout {
         int generateNewItemId();
 
         int insertAndCheck(SQLiteDatabase db, ContentValues values);
+
+        /**
+         * Inserts all the {@param items} parsed from a layout, returns false if any of them could
+         * not be inserted. Called within a transaction.
+         */
+        default boolean insertAll(SQLiteDatabase db, Collection<ContentValues> items) {
+            for (ContentValues values : items) {
+                if (insertAndCheck(db, values) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 
     @Thunk
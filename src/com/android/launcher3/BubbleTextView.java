@@ -66,6 +66,7 @@ import android.util.TypedValue;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewDebug;
 import android.view.accessibility.AccessibilityNodeInfo;
 import android.widget.TextView;
@@ -93,6 +94,7 @@ import com.android.launcher3.model.data.ItemInfoWithIcon;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.popup.PopupContainerWithArrow;
 import com.android.launcher3.search.StringMatcherUtility;
+import com.android.launcher3.shortcuts.DeepShortcutCache;
 import com.android.launcher3.util.CancellableTask;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.MultiTranslateDelegate;
@@ -103,6 +105,7 @@ import com.android.launcher3.views.ActivityContext;
 import com.android.launcher3.views.FloatingIconViewCompanion;
 
 import java.text.NumberFormat;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Objects;
@@ -211,6 +214,8 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
     protected int mDisplay;
 
     private final CheckLongPressHelper mLongPressHelper;
+    private float mLongPressTimeoutFactor = CheckLongPressHelper.DEFAULT_LONG_PRESS_TIMEOUT_FACTOR;
+    private final Runnable mPrefetchDeepShortcuts = this::prefetchDeepShortcuts;
 
     private boolean mLayoutHorizontal;
     private final boolean mIsRtl;
@@ -231,6 +236,9 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
 
     @ViewDebug.ExportedProperty(category = "launcher")
     private DotInfo mDotInfo;
+    // Item for which this view is registered for dot updates, while it is attached
+    @Nullable
+    private ItemInfo mDotViewItem;
     private DotRenderer mDotRenderer;
     @ViewDebug.ExportedProperty(category = "launcher", deepExport = true)
     protected DotRenderer.DrawParams mDotParams;
@@ -275,6 +283,8 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
     private CancellableTask mIconLoadRequest;
 
     private boolean mHighResUpdateInProgress = false;
+    // Whether the high-res icon should only be loaded through requestHighResIfNeeded
+    private boolean mHighResLoadDeferred = false;
 
     public BubbleTextView(Context context) {
         this(context, null, 0);
@@ -663,6 +673,7 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
      * Overrides the default long press timeout.
      */
     public void setLongPressTimeoutFactor(float longPressTimeoutFactor) {
+        mLongPressTimeoutFactor = longPressTimeoutFactor;
         mLongPressHelper.setLongPressTimeoutFactor(longPressTimeoutFactor);
     }
 
@@ -695,6 +706,17 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
             return false;
         }
         if (isLongClickable()) {
+            switch (event.getAction()) {
+                case MotionEvent.ACTION_DOWN:
+                    // Only prefetch for touches held half way to a long press, not for taps
+                    postDelayed(mPrefetchDeepShortcuts, (long) (ViewConfiguration
+                            .getLongPressTimeout() * mLongPressTimeoutFactor / 2));
+                    break;
+                case MotionEvent.ACTION_UP:
+                case MotionEvent.ACTION_CANCEL:
+                    removeCallbacks(mPrefetchDeepShortcuts);
+                    break;
+            }
             super.onTouchEvent(event);
             mLongPressHelper.onTouchEvent(event);
             // Keep receiving the rest of the events
@@ -704,6 +726,18 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
         }
     }
 
+    /**
+     * Starts loading the shortcuts of the popup which a long-press would open, so that it is shown
+     * with its shortcuts already loaded.
+     */
+    private void prefetchDeepShortcuts() {
+        if (getTag() instanceof ItemInfo info
+                && mActivity.getPopupDataProvider().getShortcutCountForItem(info) > 0) {
+            DeepShortcutCache.INSTANCE.get(getContext())
+                    .prefetch(info.getTargetComponent(), info.user);
+        }
+    }
+
     /**
      * Returns true if the touch down at the provided position be ignored
      */
@@ -1210,6 +1244,7 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
     public void cancelLongPress() {
         super.cancelLongPress();
         mLongPressHelper.cancelLongPress();
+        removeCallbacks(mPrefetchDeepShortcuts);
     }
 
     /** Applies the given progress level to the this icon's progress bar. */
@@ -1269,7 +1304,37 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
     }
 
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (getTag() instanceof ItemInfo info) {
+            registerDotView(info);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mDotViewItem != null) {
+            mDotViewItem = null;
+            mActivity.getPopupDataProvider().unregisterDotView(this);
+        }
+    }
+
+    /**
+     * Registers this view to get updated when the notifications of {@param info} change, if it is
+     * attached and not already registered for this item.
+     */
+    private void registerDotView(ItemInfo info) {
+        if (info != mDotViewItem && isAttachedToWindow()
+                && mActivity.hasSharedPopupDataProvider()) {
+            mDotViewItem = info;
+            mActivity.getPopupDataProvider().registerDotView(this, Collections.singletonList(info));
+        }
+    }
+
     public void applyDotState(ItemInfo itemInfo, boolean animate) {
+        registerDotView(itemInfo);
         if (mIcon != null) {
             boolean wasDotted = mDotInfo != null;
             mDotInfo = mActivity.getDotInfoForItem(itemInfo);
@@ -1428,10 +1493,41 @@ public class BubbleTextView extends TextView implements ItemInfoUpdateReceiver,
         }
     }
 
+    /**
+     * Sets whether the high-res icon load should be deferred when an item is applied, in which
+     * case the low-res icon is kept until {@link #requestHighResIfNeeded()} is called.
+     */
+    public void setHighResLoadDeferred(boolean deferred) {
+        mHighResLoadDeferred = deferred;
+    }
+
+    /**
+     * Posts a request to load the high-res icon if it is not loaded or being loaded already.
+     */
+    public void requestHighResIfNeeded() {
+        if (mIconLoadRequest == null) {
+            loadHighResIfNeeded();
+        }
+    }
+
+    /**
+     * Returns true if a request to load the high-res icon is in progress.
+     */
+    @VisibleForTesting
+    public boolean isHighResLoadPending() {
+        return mIconLoadRequest != null;
+    }
+
     /**
      * Verifies that the current icon is high-res otherwise posts a request to load the icon.
      */
     public void verifyHighRes() {
+        if (!mHighResLoadDeferred) {
+            loadHighResIfNeeded();
+        }
+    }
+
+    private void loadHighResIfNeeded() {
         if (getTag() instanceof ItemInfoWithIcon info && !mHighResUpdateInProgress
                 && info.getMatchingLookupFlag().useLowRes()) {
             if (mIconLoadRequest != null) {
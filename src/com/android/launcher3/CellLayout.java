@@ -65,6 +65,7 @@ import com.android.launcher3.celllayout.ItemConfiguration;
 import com.android.launcher3.celllayout.ReorderAlgorithm;
 import com.android.launcher3.celllayout.ReorderParameters;
 import com.android.launcher3.celllayout.ReorderPreviewAnimation;
+import com.android.launcher3.celllayout.ReorderSolutionCache;
 import com.android.launcher3.config.FeatureFlags;
 import com.android.launcher3.dragndrop.DraggableView;
 import com.android.launcher3.folder.PreviewBackground;
@@ -204,6 +205,7 @@ public class CellLayout extends ViewGroup {
     public final int[] mDirectionVector = new int[2];
 
     ItemConfiguration mPreviousSolution = null;
+    private final ReorderSolutionCache mReorderSolutionCache = new ReorderSolutionCache();
 
     private final Rect mTempRect = new Rect();
 
@@ -1586,6 +1588,14 @@ public class CellLayout extends ViewGroup {
         return swapSolution.isSolution;
     }
 
+    /**
+     * Returns the cache of the reorder solutions found for the current layout state, which is kept
+     * across the drag over events.
+     */
+    public ReorderSolutionCache getReorderSolutionCache() {
+        return mReorderSolutionCache;
+    }
+
     public ReorderAlgorithm createReorderAlgorithm() {
         return new ReorderAlgorithm(this);
     }
@@ -1794,6 +1804,7 @@ public class CellLayout extends ViewGroup {
 
         // Invalidate the drag data
         mPreviousSolution = null;
+        mReorderSolutionCache.clear();
         mDragCell[0] = mDragCell[1] = -1;
         mDragCellSpan[0] = mDragCellSpan[1] = -1;
         mDragOutlineAnims[mDragOutlineCurrent].animateOut();
@@ -282,22 +282,20 @@ public class DefaultLayoutParser extends AutoInstallsLayout {
                     return -1;
                 }
 
+                addBoundAppWidgetId(appWidgetId);
+
                 mValues.put(Favorites.APPWIDGET_ID, appWidgetId);
                 mValues.put(Favorites.APPWIDGET_PROVIDER, cn.flattenToString());
                 mValues.put(Favorites._ID, mCallback.generateNewItemId());
-                insertedId = mCallback.insertAndCheck(mDb, mValues);
-                if (insertedId < 0) {
-                    mAppWidgetHolder.deleteAppWidgetId(appWidgetId);
-                    return insertedId;
-                }
+                insertedId = insertAndCheck(mValues);
 
-                // Send a broadcast to configure the widget
+                // Send a broadcast to configure the widget, once it is in the db
                 if (!extras.isEmpty()) {
                     Intent intent = new Intent(ACTION_APPWIDGET_DEFAULT_WORKSPACE_CONFIGURE);
                     intent.setComponent(cn);
                     intent.putExtras(extras);
                     intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, appWidgetId);
-                    mContext.sendBroadcast(intent);
+                    sendBroadcastOnceLoaded(intent);
                 }
             } catch (RuntimeException ex) {
                 Log.e(TAG, "Problem allocating appWidgetId", ex);
@@ -1279,6 +1279,10 @@ public class Launcher extends StatefulActivity<LauncherState>
             getRotationHelper().setCurrentStateRequest(REQUEST_NONE);
         }
 
+        if (ALL_APPS.equals(state)) {
+            getAppsView().getAppsStore().onAllAppsOpened();
+        }
+
         if (ALL_APPS.equals(mPrevLauncherState) && !ALL_APPS.equals(state)
                 // Making sure mAllAppsSessionLogId is not null to avoid double logging.
                 && mAllAppsSessionLogId != null) {
@@ -2174,6 +2178,9 @@ public class Launcher extends StatefulActivity<LauncherState>
     @Override
     public void onTrimMemory(int level) {
         super.onTrimMemory(level);
+        if (mAppsView != null) {
+            mAppsView.getAppsStore().onTrimMemory(level);
+        }
         if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
             // The widget preview db can result in holding onto over
             // 3MB of memory for caching which isn't necessary.
@@ -2526,6 +2533,14 @@ public class Launcher extends StatefulActivity<LauncherState>
         mModelCallbacks.bindItemsUpdated(updates);
     }
 
+    /**
+     * See {@code LauncherBindingDelegate}
+     */
+    @Override
+    public void bindItemsReplaced(List<ItemInfo> items) {
+        mModelCallbacks.bindItemsReplaced(items);
+    }
+
     /**
      * See {@code LauncherBindingDelegate}
      */
@@ -2923,6 +2938,11 @@ public class Launcher extends StatefulActivity<LauncherState>
         return mPopupDataProvider;
     }
 
+    @Override
+    public boolean hasSharedPopupDataProvider() {
+        return true;
+    }
+
     @NonNull
     @Override
     public WidgetPickerDataProvider getWidgetPickerDataProvider() {
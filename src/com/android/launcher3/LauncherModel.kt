@@ -34,6 +34,7 @@ import com.android.launcher3.model.CacheDataUpdatedTask
 import com.android.launcher3.model.ItemInstallQueue
 import com.android.launcher3.model.LoaderTask
 import com.android.launcher3.model.LoaderTask.LoaderTaskFactory
+import com.android.launcher3.model.ModelBindScheduler
 import com.android.launcher3.model.ModelDbController
 import com.android.launcher3.model.ModelDelegate
 import com.android.launcher3.model.ModelInitializer
@@ -87,6 +88,7 @@ constructor(
     private val binderFactory: BaseLauncherBinderFactory,
     private val spaceFinderFactory: Provider<WorkspaceItemSpaceFinder>,
     val modelDbController: ModelDbController,
+    private val bindScheduler: ModelBindScheduler,
 ) {
 
     private val mCallbacksList = ArrayList<BgDataModel.Callbacks>(1)
@@ -467,6 +469,7 @@ constructor(
         }
         modelDelegate.dump(prefix, fd, writer, args)
         mBgDataModel.dump(prefix, fd, writer, args)
+        bindScheduler.dump(prefix ?: "", writer)
     }
 
     /** Returns true if there are any callbacks attached to the model */
@@ -289,6 +289,9 @@ constructor(@ApplicationContext private val encryptedContext: Context) {
         @JvmField
         val IS_FIRST_LOAD_AFTER_RESTORE =
             nonRestorableItem(FIRST_LOAD_AFTER_RESTORE_KEY, false, EncryptionType.ENCRYPTED)
+        @JvmField
+        val RESTORE_CHECKPOINT =
+            nonRestorableItem(RestoreDbTask.RESTORE_CHECKPOINT_KEY, 0, EncryptionType.ENCRYPTED)
         @JvmField val APP_WIDGET_IDS = backedUpItem(RestoreDbTask.APPWIDGET_IDS, "")
         @JvmField val OLD_APP_WIDGET_IDS = backedUpItem(RestoreDbTask.APPWIDGET_OLD_IDS, "")
 
@@ -40,6 +40,7 @@ import com.android.launcher3.util.LayoutImportExportHelper;
 import com.android.launcher3.widget.LauncherWidgetHolder;
 
 import java.io.FileDescriptor;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -51,6 +52,8 @@ public class LauncherProvider extends ContentProvider {
     // Method API For Provider#call method.
     private static final String METHOD_EXPORT_LAYOUT_XML = "EXPORT_LAYOUT_XML";
     private static final String METHOD_IMPORT_LAYOUT_XML = "IMPORT_LAYOUT_XML";
+    private static final String METHOD_EXPORT_LAYOUT_BINARY = "EXPORT_LAYOUT_BINARY";
+    private static final String METHOD_IMPORT_LAYOUT_BINARY = "IMPORT_LAYOUT_BINARY";
     private static final String KEY_RESULT = "KEY_RESULT";
     private static final String KEY_LAYOUT = "KEY_LAYOUT";
     private static final String SUCCESS = "success";
@@ -181,6 +184,41 @@ public class LauncherProvider extends ContentProvider {
                 LayoutImportExportHelper.INSTANCE.importModelFromXml(getContext(), arg);
                 b.putString(KEY_RESULT, SUCCESS);
                 return b;
+
+            case METHOD_EXPORT_LAYOUT_BINARY:
+                if (getContext().checkCallingOrSelfPermission(getReadPermission())
+                        != PackageManager.PERMISSION_GRANTED) {
+                    throw new SecurityException("Caller doesn't have read permission");
+                }
+
+                try {
+                    b.putByteArray(KEY_LAYOUT, LayoutImportExportHelper.INSTANCE
+                            .exportModelDbAsBinaryFuture(getContext()).get());
+                    b.putString(KEY_RESULT, SUCCESS);
+                } catch (ExecutionException | InterruptedException e) {
+                    b.putString(KEY_RESULT, FAILURE);
+                }
+                return b;
+
+            case METHOD_IMPORT_LAYOUT_BINARY:
+                if (getContext().checkCallingOrSelfPermission(getWritePermission())
+                        != PackageManager.PERMISSION_GRANTED) {
+                    throw new SecurityException("Caller doesn't have write permission");
+                }
+
+                byte[] layout = extras == null ? null : extras.getByteArray(KEY_LAYOUT);
+                if (layout == null) {
+                    b.putString(KEY_RESULT, FAILURE);
+                    return b;
+                }
+                try {
+                    LayoutImportExportHelper.INSTANCE.importModelFromBinary(getContext(), layout);
+                    b.putString(KEY_RESULT, SUCCESS);
+                } catch (IOException e) {
+                    Log.e(TAG, "Invalid binary layout", e);
+                    b.putString(KEY_RESULT, FAILURE);
+                }
+                return b;
             default:
                 return null;
         }
@@ -370,6 +370,11 @@ public class LauncherSettings {
         public static final String LAYOUT_DIGEST_LABEL = "launcher-layout";
         public static final String LAYOUT_DIGEST_TAG = "ignore";
         public static final String BLOB_KEY_PREFIX = "blob://";
+        /**
+         * Value of {@link #LAYOUT_PROVIDER_KEY} to load the binary layout stored in
+         * {@link LauncherFiles#BINARY_LAYOUT}
+         */
+        public static final String BINARY_LAYOUT_PROVIDER = "file://" + LauncherFiles.BINARY_LAYOUT;
 
         /**
          * Creates a key to be used for {@link #LAYOUT_PROVIDER_KEY}
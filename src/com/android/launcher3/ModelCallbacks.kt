@@ -21,6 +21,7 @@ import com.android.launcher3.popup.PopupContainerWithArrow
 import com.android.launcher3.util.ComponentKey
 import com.android.launcher3.util.IntArray as LIntArray
 import com.android.launcher3.util.IntSet as LIntSet
+import com.android.launcher3.util.ItemInfoMatcher
 import com.android.launcher3.util.PackageUserKey
 import com.android.launcher3.util.Preconditions
 import com.android.launcher3.util.RunnableList
@@ -222,6 +223,32 @@ class ModelCallbacks(private var launcher: Launcher) : BgDataModel.Callbacks {
         PopupContainerWithArrow.dismissInvalidPopup(launcher)
     }
 
+    /**
+     * Gives the [items] to the bound views of the same ids and updates them, like when the items
+     * loaded from the DB replace the persisted ones. The items without such a view are bound again.
+     */
+    override fun bindItemsReplaced(items: List<ItemInfo>) {
+        val itemsById = items.associateBy { it.id }
+        val replaced = LinkedHashSet<ItemInfo>()
+        launcher.workspace.mapOverItems { info, v ->
+            val item = info?.let { itemsById[it.id] }
+            if (item != null && item.javaClass == info.javaClass) {
+                v.tag = item
+                replaced.add(item)
+            }
+            // Iterate all items
+            false
+        }
+        val unmatched = items.filter { it !in replaced }
+        if (unmatched.isNotEmpty()) {
+            val ids = LIntSet()
+            unmatched.forEach { ids.add(it.id) }
+            bindWorkspaceComponentsRemoved(ItemInfoMatcher.ofItemIds(ids))
+            launcher.bindItems(unmatched, false)
+        }
+        bindItemsUpdated(replaced)
+    }
+
     /**
      * A package was uninstalled/updated. We take both the super set of packageNames in addition to
      * specific applications to remove, the reason being that this can be called when a package is
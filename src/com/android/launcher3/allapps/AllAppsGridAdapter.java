@@ -155,15 +155,8 @@ public class AllAppsGridAdapter<T extends Context & ActivityContext> extends
          * which should not be counted towards the collection info.
          */
         private int getRowsNotForAccessibility(int adapterPosition) {
-            List<AdapterItem> items = mApps.getAdapterItems();
-            adapterPosition = Math.max(adapterPosition, items.size() - 1);
-            int extraRows = 0;
-            for (int i = 0; i <= adapterPosition && i < items.size(); i++) {
-                if (!isViewType(items.get(i).viewType, VIEW_TYPE_MASK_ICON)) {
-                    extraRows++;
-                }
-            }
-            return extraRows;
+            return mApps.getNonIconItemCount(
+                    Math.max(adapterPosition, mApps.getAdapterItems().size() - 1));
         }
 
         @Override
@@ -43,11 +43,13 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.constraintlayout.widget.ConstraintLayout;
 import androidx.constraintlayout.widget.ConstraintSet;
 import androidx.core.util.Consumer;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.android.launcher3.BubbleTextView;
 import com.android.launcher3.DeviceProfile;
 import com.android.launcher3.ExtendedEditText;
 import com.android.launcher3.FastScrollRecyclerView;
@@ -74,7 +76,11 @@ public class AllAppsRecyclerView extends FastScrollRecyclerView {
     protected final int mNumAppsPerRow;
     private final AllAppsFastScrollHelper mFastScrollHelper;
     private int mCumulativeVerticalScroll;
+    // Whether the high-res icon loads are deferred because the list is scrolling fast
+    private boolean mHighResLoadDeferred;
     private ConstraintLayout mLetterList;
+    // Version of the fast scroller sections which the letter list was last built from
+    private int mLetterListSectionsVersion = -1;
 
     protected AlphabeticalAppsList<?> mApps;
 
@@ -173,6 +179,7 @@ public class AllAppsRecyclerView extends FastScrollRecyclerView {
                 mgr.logger().sendToInteractionJankMonitor(
                         LAUNCHER_ALLAPPS_VERTICAL_SWIPE_END, this);
                 logCumulativeVerticalScroll();
+                setHighResLoadDeferred(false, 0);
                 break;
         }
     }
@@ -181,6 +188,48 @@ public class AllAppsRecyclerView extends FastScrollRecyclerView {
     public void onScrolled(int dx, int dy) {
         super.onScrolled(dx, dy);
         mCumulativeVerticalScroll += dy;
+        // Icons which would be scrolled away before their high-res icon is loaded only keep
+        // their low-res icon
+        int fastScrollThreshold = ActivityContext.lookupContext(getContext())
+                .getDeviceProfile().allAppsCellHeightPx / 2;
+        setHighResLoadDeferred(getScrollState() != SCROLL_STATE_IDLE
+                && Math.abs(dy) > fastScrollThreshold, dy);
+    }
+
+    /**
+     * Updates whether high-res icons are loaded when icons are bound. When the loads are no longer
+     * deferred, the visible icons are upgraded starting from the edge the list is scrolling
+     * towards, which is where the user is looking.
+     */
+    @VisibleForTesting
+    void setHighResLoadDeferred(boolean deferred, int dy) {
+        if (mHighResLoadDeferred == deferred) {
+            return;
+        }
+        mHighResLoadDeferred = deferred;
+        if (getAdapter() instanceof BaseAllAppsAdapter<?> adapter) {
+            adapter.setHighResLoadDeferred(deferred);
+        }
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            if (getChildAt(i) instanceof BubbleTextView icon) {
+                icon.setHighResLoadDeferred(deferred);
+            }
+        }
+        if (deferred) {
+            return;
+        }
+        // Requests are processed in order, so start with the visible icons from the leading
+        // edge, followed by the icons laid out outside of the visible area
+        for (boolean visible : new boolean[] {true, false}) {
+            for (int i = 0; i < childCount; i++) {
+                View child = getChildAt(dy > 0 ? childCount - 1 - i : i);
+                if (child instanceof BubbleTextView icon
+                        && (child.getBottom() > 0 && child.getTop() < getHeight()) == visible) {
+                    icon.requestHighResIfNeeded();
+                }
+            }
+        }
     }
 
     /**
@@ -246,7 +295,8 @@ public class AllAppsRecyclerView extends FastScrollRecyclerView {
         }
 
         // TODO(gyc)
-        if (true/*Flags.letterFastScroller()*/ && !mScrollbar.isDraggingThumb()) {
+        if (true/*Flags.letterFastScroller()*/ && !mScrollbar.isDraggingThumb()
+                && !isLetterListUpToDate()) {
             setLettersToScrollLayout(mApps.getFastScrollerSections());
         }
         // Only show the scrollbar if there is height to be scrolled
@@ -311,6 +361,11 @@ public class AllAppsRecyclerView extends FastScrollRecyclerView {
         if (mChildAttachedConsumer != null) {
             mChildAttachedConsumer.accept(child);
         }
+        if (!mHighResLoadDeferred && child instanceof BubbleTextView icon) {
+            // The view might have been bound while scrolling fast and reattached from the cache
+            icon.setHighResLoadDeferred(false);
+            icon.requestHighResIfNeeded();
+        }
         super.onChildAttachedToWindow(child);
     }
 
@@ -370,6 +425,21 @@ public class AllAppsRecyclerView extends FastScrollRecyclerView {
         mLetterList.setVisibility(VISIBLE);
         // Set the alpha to 0 to avoid the letter list being shown when it shouldn't be.
         mLetterList.setAlpha(0);
+        mLetterList.setTag(this);
+        mLetterListSectionsVersion = mApps.getFastScrollerSectionsVersion();
+    }
+
+    /**
+     * Returns true if the letter list was built by this view from the current sections, so that
+     * it doesn't need to be inflated again on every scroll.
+     */
+    private boolean isLetterListUpToDate() {
+        // The letter list is shared with the other tabs of all apps
+        return mLetterList != null && mLetterList.getTag() == this
+                && mLetterList.getChildCount() > 0
+                && mLetterListSectionsVersion == mApps.getFastScrollerSectionsVersion()
+                && mLetterList.getPaddingTop() == getScrollBarTop()
+                && mLetterList.getPaddingBottom() == getScrollBarMarginBottom();
     }
 
     private void constraintTextViewsVertically(ConstraintLayout constraintLayout,
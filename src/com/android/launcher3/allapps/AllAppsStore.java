@@ -45,7 +45,6 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 
 /**
  * A utility class to maintain the collection of all apps.
@@ -60,7 +59,6 @@ public class AllAppsStore<T extends Context & ActivityContext> {
     // Defer updates flag used to defer all apps updates by a test's request.
     public static final int DEFER_UPDATES_TEST = 1 << 1;
 
-    private PackageUserKey mTempKey = new PackageUserKey(null, null);
     private AppInfo mTempInfo = new AppInfo();
 
     private @NonNull AppInfo[] mApps = EMPTY_ARRAY;
@@ -119,6 +117,20 @@ public class AllAppsStore<T extends Context & ActivityContext> {
         return mAllAppsRecyclerViewPool;
     }
 
+    /**
+     * Called when all apps has finished opening.
+     */
+    public void onAllAppsOpened() {
+        mAllAppsRecyclerViewPool.onAllAppsOpened();
+    }
+
+    /**
+     * Called when the system asks the app to trim its memory.
+     */
+    public void onTrimMemory(int level) {
+        mAllAppsRecyclerViewPool.onTrimMemory(level);
+    }
+
     /**
      * Look up for Uid using package name and user handle for the current set of apps.
      */
@@ -215,17 +227,6 @@ public class AllAppsStore<T extends Context & ActivityContext> {
         mIconContainers.remove(container);
     }
 
-    public void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
-        updateAllIcons((child) -> {
-            if (child.getTag() instanceof ItemInfo) {
-                ItemInfo info = (ItemInfo) child.getTag();
-                if (mTempKey.updateFromItemInfo(info) && updatedDots.test(mTempKey)) {
-                    child.applyDotState(info, true /* animate */);
-                }
-            }
-        });
-    }
-
     /**
      * Sets the AppInfo's associated icon's progress bar.
      *
@@ -25,6 +25,8 @@ import static com.android.launcher3.allapps.SectionDecorationInfo.ROUND_NOTHING;
 import static com.android.launcher3.icons.BitmapInfo.FLAG_NO_BADGE;
 import static com.android.launcher3.logging.StatsLogManager.LauncherEvent.LAUNCHER_PRIVATE_SPACE_PREINSTALLED_APPS_COUNT;
 import static com.android.launcher3.logging.StatsLogManager.LauncherEvent.LAUNCHER_PRIVATE_SPACE_USER_INSTALLED_APPS_COUNT;
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
 
 import android.content.Context;
 import android.text.Spannable;
@@ -41,6 +43,7 @@ import com.android.launcher3.R;
 import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.LabelComparator;
 import com.android.launcher3.views.ActivityContext;
 
@@ -107,22 +110,28 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
     private final ArrayList<AdapterItem> mAdapterItems = new ArrayList<>();
     // The set of sections that we allow fast-scrolling to (includes non-merged sections)
     private final List<FastScrollSectionInfo> mFastScrollerSections = new ArrayList<>();
+    // Sorted positions of the adapter items which are not app icons (headers, dividers, etc.)
+    private int[] mNonIconPositions = new int[0];
+    // Incremented every time the fast scroller sections change
+    private int mFastScrollerSectionsVersion;
 
     // The of ordered component names as a result of a search query
     private final ArrayList<AdapterItem> mSearchResults = new ArrayList<>();
     private final SpannableString mPrivateProfileAppScrollerBadge;
     private final SpannableString mPrivateProfileDividerBadge;
     private BaseAllAppsAdapter<T> mAdapter;
-    private AppInfoComparator mAppNameComparator;
+    private final SortedAppList mSortedApps;
     private int mNumAppsPerRowAllApps;
     private int mNumAppRowsInAdapter;
     private Predicate<ItemInfo> mItemFilter;
+    // Incremented on every adapter items update, to drop the outdated background diffs
+    private int mAdapterItemsGeneration;
 
     public AlphabeticalAppsList(Context context, @Nullable AllAppsStore<T> appsStore,
             WorkProfileManager workProfileManager, PrivateProfileManager privateProfileManager) {
         mAllAppsStore = appsStore;
         mActivityContext = ActivityContext.lookupContext(context);
-        mAppNameComparator = new AppInfoComparator(context);
+        mSortedApps = new SortedAppList(context);
         mWorkProviderManager = workProfileManager;
         mPrivateProviderManager = privateProfileManager;
         mNumAppsPerRowAllApps = mActivityContext.getDeviceProfile().numShownAllAppsColumns;
@@ -164,6 +173,22 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
         return mFastScrollerSections;
     }
 
+    /**
+     * Returns a version number of the fast scroller sections, which changes every time the
+     * sections are updated.
+     */
+    public int getFastScrollerSectionsVersion() {
+        return mFastScrollerSectionsVersion;
+    }
+
+    /**
+     * Removes the fast scroller section at {@param index}.
+     */
+    public void removeFastScrollerSection(int index) {
+        mFastScrollerSections.remove(index);
+        mFastScrollerSectionsVersion++;
+    }
+
     /**
      * Returns the current filtered list of applications broken down into their sections.
      */
@@ -171,6 +196,33 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
         return mAdapterItems;
     }
 
+    /**
+     * Removes the adapter item at {@param position}, without notifying the adapter.
+     */
+    public void removeAdapterItem(int position) {
+        mAdapterItems.remove(position);
+        updateNonIconPositions();
+    }
+
+    /**
+     * Returns the number of adapter items up to and including {@param position} which are not
+     * app icons.
+     */
+    public int getNonIconItemCount(int position) {
+        // Binary search for the number of positions which are less than or equal to position
+        int low = 0;
+        int high = mNonIconPositions.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mNonIconPositions[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     /**
      * Returns the child adapter item with IME launch focus.
      */
@@ -185,9 +237,9 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
      * Returns the index of the child with IME launch focus.
      */
     public int getFocusedChildIndex() {
-        for (AdapterItem item : mAdapterItems) {
-            if (item.isCountedForAccessibility()) {
-                return mAdapterItems.indexOf(item);
+        for (int i = 0; i < mAdapterItems.size(); i++) {
+            if (mAdapterItems.get(i).isCountedForAccessibility()) {
+                return i;
             }
         }
         return -1;
@@ -207,6 +259,27 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
         return mAccessibilityResultsCount;
     }
 
+    /**
+     * Returns the number of apps of the apps store shown in this list, which unlike
+     * {@link #getNumFilteredApps()} does not depend on the current search results.
+     */
+    public int getNumApps() {
+        if (mAllAppsStore == null) {
+            return 0;
+        }
+        AppInfo[] apps = mAllAppsStore.getApps();
+        if (mItemFilter == null) {
+            return apps.length;
+        }
+        int count = 0;
+        for (AppInfo app : apps) {
+            if (mItemFilter.test(app)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Returns whether there are search results which will hide the A-Z list.
      */
@@ -240,12 +313,14 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
                 mPrivateProviderManager.getAnimationRunning())) {
             return;
         }
-        // Sort the list of apps
+        // Update the sorted list of apps, only the apps which changed are sorted again
         mApps.clear();
         mPrivateApps.clear();
+        mSortedApps.setApps(mAllAppsStore.getApps());
+        List<AppInfo> sortedApps = mSortedApps.getApps();
 
-        Stream<AppInfo> appSteam = Stream.of(mAllAppsStore.getApps());
-        Stream<AppInfo> privateAppStream = Stream.of(mAllAppsStore.getApps());
+        Stream<AppInfo> appSteam = sortedApps.stream();
+        Stream<AppInfo> privateAppStream = sortedApps.stream();
 
         if (!hasSearchResults() && mItemFilter != null) {
             appSteam = appSteam.filter(mItemFilter);
@@ -254,8 +329,6 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
                         .filter(mPrivateProviderManager.getItemInfoMatcher());
             }
         }
-        appSteam = appSteam.sorted(mAppNameComparator);
-        privateAppStream = privateAppStream.sorted(mAppNameComparator);
 
         // As a special case for some languages (currently only Simplified Chinese), we may need to
         // coalesce sections
@@ -277,7 +350,7 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
         privateAppStream.forEachOrdered(mPrivateApps::add);
         // Recompose the set of adapter items from the current set of apps
         if (mSearchResults.isEmpty()) {
-            updateAdapterItems();
+            updateAdapterItems(true /* diffInBackground */);
         }
     }
 
@@ -286,57 +359,68 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
      * mCachedSectionNames to have been calculated for the set of all apps in mApps.
      */
     public void updateAdapterItems() {
-        List<AdapterItem> oldItems = new ArrayList<>(mAdapterItems);
+        updateAdapterItems(false /* diffInBackground */);
+    }
+
+    /**
+     * Recomputes the adapter items. If {@param diffInBackground} is true, the diff with the
+     * current items is computed on a background thread, and the current items are kept until the
+     * diff is ready to be dispatched to the adapter.
+     */
+    private void updateAdapterItems(boolean diffInBackground) {
         // Prepare to update the list of sections, filtered apps, etc.
-        mFastScrollerSections.clear();
+        ArrayList<AdapterItem> items = new ArrayList<>();
+        ArrayList<FastScrollSectionInfo> sections = new ArrayList<>();
         Log.d(TAG, "Clearing FastScrollerSections.");
-        mAdapterItems.clear();
-        mAccessibilityResultsCount = 0;
+
+        // The private space header notifies the adapter as soon as it is added, so the update
+        // can't be deferred in that case
+        boolean notifiesAdapter = Flags.enablePrivateSpace() && mPrivateProviderManager != null
+                && !mPrivateProviderManager.isPrivateSpaceHidden() && !mPrivateApps.isEmpty();
 
         // Recreate the filtered and sectioned apps (for convenience for the grid layout) from the
         // ordered set of sections
         if (hasSearchResults()) {
-            mAdapterItems.addAll(mSearchResults);
+            items.addAll(mSearchResults);
         } else {
             int position = 0;
             boolean addApps = true;
             if (mWorkProviderManager != null) {
-                position += mWorkProviderManager.addWorkItems(mAdapterItems);
+                position += mWorkProviderManager.addWorkItems(items);
                 addApps = mWorkProviderManager.shouldShowWorkApps();
             }
             if (addApps) {
                 if (/* education card was added */ position == 1) {
                     // Add work educard section with "info icon" at 0th position.
-                    mFastScrollerSections.add(new FastScrollSectionInfo(
+                    sections.add(new FastScrollSectionInfo(
                             mActivityContext.getResources().getString(
                                     R.string.work_profile_edu_section), 0));
                     Log.d(TAG, "Adding FastScrollSection for work edu card.");
                 }
-                position = addAppsWithSections(mApps, position);
+                position = addAppsWithSections(items, sections, mApps, position);
             }
             if (Flags.enablePrivateSpace()) {
-                position = addPrivateSpaceItems(position);
+                position = addPrivateSpaceItems(items, sections, position);
             }
-            if (!mFastScrollerSections.isEmpty()) {
+            if (!sections.isEmpty()) {
                 // After all the adapterItems are added, add a view to the bottom so that user can
                 // scroll all the way down.
-                mAdapterItems.add(new AdapterItem(VIEW_TYPE_BOTTOM_VIEW_TO_SCROLL_TO));
-                mFastScrollerSections.add(new FastScrollSectionInfo(
-                        mFastScrollerSections.get(mFastScrollerSections.size() - 1).sectionName,
+                items.add(new AdapterItem(VIEW_TYPE_BOTTOM_VIEW_TO_SCROLL_TO));
+                sections.add(new FastScrollSectionInfo(
+                        sections.get(sections.size() - 1).sectionName,
                         position++));
                 Log.d(TAG, "Adding FastScrollSection duplicate to scroll to the bottom.");
             }
         }
-        mAccessibilityResultsCount = (int) mAdapterItems.stream()
-                .filter(AdapterItem::isCountedForAccessibility).count();
 
+        int rowCount = mNumAppRowsInAdapter;
         if (mNumAppsPerRowAllApps != 0) {
             // Update the number of rows in the adapter after we do all the merging (otherwise, we
             // would have to shift the values again)
             int numAppsInSection = 0;
             int numAppsInRow = 0;
             int rowIndex = -1;
-            for (AdapterItem item : mAdapterItems) {
+            for (AdapterItem item : items) {
                 item.rowIndex = 0;
                 if (BaseAllAppsAdapter.isDividerViewType(item.viewType)
                         || BaseAllAppsAdapter.isPrivateSpaceHeaderView(item.viewType)
@@ -353,23 +437,70 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
                     numAppsInRow++;
                 }
             }
-            mNumAppRowsInAdapter = rowIndex + 1;
+            rowCount = rowIndex + 1;
+        }
+
+        final int numAppRows = rowCount;
+        int generation = ++mAdapterItemsGeneration;
+        if (mAdapter == null) {
+            applyAdapterItems(items, sections, numAppRows, null);
+            return;
         }
+        List<AdapterItem> oldItems = new ArrayList<>(mAdapterItems);
+        if (!diffInBackground || notifiesAdapter || oldItems.isEmpty()) {
+            applyAdapterItems(items, sections, numAppRows,
+                    DiffUtil.calculateDiff(new MyDiffCallback(oldItems, items), false));
+            return;
+        }
+        UI_HELPER_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult diff =
+                    DiffUtil.calculateDiff(new MyDiffCallback(oldItems, items), false);
+            MAIN_EXECUTOR.execute(() -> {
+                // Drop the diff if the items were updated since, as it was computed against
+                // outdated items
+                if (generation == mAdapterItemsGeneration) {
+                    applyAdapterItems(items, sections, numAppRows, diff);
+                }
+            });
+        });
+    }
 
-        if (mAdapter != null) {
-            DiffUtil.calculateDiff(new MyDiffCallback(oldItems, mAdapterItems), false)
-                    .dispatchUpdatesTo(mAdapter);
+    private void applyAdapterItems(List<AdapterItem> items,
+            List<FastScrollSectionInfo> sections, int numAppRows,
+            @Nullable DiffUtil.DiffResult diff) {
+        mAdapterItems.clear();
+        mAdapterItems.addAll(items);
+        mFastScrollerSections.clear();
+        mFastScrollerSections.addAll(sections);
+        mFastScrollerSectionsVersion++;
+        mAccessibilityResultsCount = (int) mAdapterItems.stream()
+                .filter(AdapterItem::isCountedForAccessibility).count();
+        mNumAppRowsInAdapter = numAppRows;
+        updateNonIconPositions();
+        if (diff != null && mAdapter != null) {
+            diff.dispatchUpdatesTo(mAdapter);
+        }
+    }
+
+    private void updateNonIconPositions() {
+        IntArray positions = new IntArray();
+        for (int i = 0; i < mAdapterItems.size(); i++) {
+            if (!BaseAllAppsAdapter.isIconViewType(mAdapterItems.get(i).viewType)) {
+                positions.add(i);
+            }
         }
+        mNonIconPositions = positions.toArray();
     }
 
-    int addPrivateSpaceItems(int position) {
+    int addPrivateSpaceItems(ArrayList<AdapterItem> items,
+            List<FastScrollSectionInfo> sections, int position) {
         if (mPrivateProviderManager != null
                 && !mPrivateProviderManager.isPrivateSpaceHidden()
                 && !mPrivateApps.isEmpty()) {
             // Always add PS Header if Space is present and visible.
-            position = mPrivateProviderManager.addPrivateSpaceHeader(mAdapterItems);
+            position = mPrivateProviderManager.addPrivateSpaceHeader(items);
             Log.d(TAG, "Adding FastScrollSection for Private Space header. ");
-            mFastScrollerSections.add(new FastScrollSectionInfo(
+            sections.add(new FastScrollSectionInfo(
                     mPrivateProfileAppScrollerBadge, position));
             int privateSpaceState = mPrivateProviderManager.getCurrentState();
             switch (privateSpaceState) {
@@ -378,17 +509,18 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
                     break;
                 case PrivateProfileManager.STATE_ENABLED:
                     // Add PS Apps only in Enabled State.
-                    position = addPrivateSpaceApps(position);
+                    position = addPrivateSpaceApps(items, sections, position);
                     break;
             }
         }
         return position;
     }
 
-    private int addPrivateSpaceApps(int position) {
+    private int addPrivateSpaceApps(ArrayList<AdapterItem> items,
+            List<FastScrollSectionInfo> sections, int position) {
         // Add Install Apps Button first.
         if (Flags.privateSpaceAppInstallerButton() && !enableMovingContentIntoPrivateSpace()) {
-            mPrivateProviderManager.addPrivateSpaceInstallAppButton(mAdapterItems);
+            mPrivateProviderManager.addPrivateSpaceInstallAppButton(items);
             position++;
         }
 
@@ -411,25 +543,25 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
                 .log(LAUNCHER_PRIVATE_SPACE_PREINSTALLED_APPS_COUNT);
 
         // Add user installed apps
-        position = addAppsWithSections(split.get(true), position);
+        position = addAppsWithSections(items, sections, split.get(true), position);
         // Add system apps separator.
         if (Flags.privateSpaceSysAppsSeparation()) {
-            position = mPrivateProviderManager.addSystemAppsDivider(mAdapterItems);
+            position = mPrivateProviderManager.addSystemAppsDivider(items);
             if (Flags.letterFastScroller()) {
                 FastScrollSectionInfo sectionInfo =
                         new FastScrollSectionInfo(mPrivateProfileDividerBadge, position);
-                mFastScrollerSections.add(sectionInfo);
+                sections.add(sectionInfo);
             }
         }
         // Add system apps.
-        position = addAppsWithSections(split.get(false), position);
+        position = addAppsWithSections(items, sections, split.get(false), position);
 
         if (enableMovingContentIntoPrivateSpace()) {
             // Look for the private space app via package and move it after header.
             int headerIndex = -1;
             int privateSpaceAppIndex = -1;
-            for (int i = 0; i < mAdapterItems.size(); i++) {
-                BaseAllAppsAdapter.AdapterItem currentItem = mAdapterItems.get(i);
+            for (int i = 0; i < items.size(); i++) {
+                BaseAllAppsAdapter.AdapterItem currentItem = items.get(i);
                 if (currentItem.viewType == VIEW_TYPE_MASK_PRIVATE_SPACE_HEADER) {
                     headerIndex = i;
                 }
@@ -443,16 +575,16 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
                 }
             }
             if (headerIndex != -1 && privateSpaceAppIndex != -1) {
-                BaseAllAppsAdapter.AdapterItem movedItem =
-                        mAdapterItems.remove(privateSpaceAppIndex);
+                BaseAllAppsAdapter.AdapterItem movedItem = items.remove(privateSpaceAppIndex);
                 // Move the icon after the header.
-                mAdapterItems.add(headerIndex + 1, movedItem);
+                items.add(headerIndex + 1, movedItem);
             }
         }
         return position;
     }
 
-    private int addAppsWithSections(List<AppInfo> appList, int startPosition) {
+    private int addAppsWithSections(List<AdapterItem> items,
+            List<FastScrollSectionInfo> sections, List<AppInfo> appList, int startPosition) {
         String lastSectionName = null;
         boolean hasPrivateApps = false;
         int position = startPosition;
@@ -465,11 +597,11 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
             AppInfo info = appList.get(i);
             // Apply decorator to private apps.
             if (hasPrivateApps) {
-                mAdapterItems.add(AdapterItem.asAppWithDecorationInfo(info,
+                items.add(AdapterItem.asAppWithDecorationInfo(info,
                         new SectionDecorationInfo(mActivityContext,
                                 getRoundRegions(i, appList.size()), true /* decorateTogether */)));
             } else {
-                mAdapterItems.add(AdapterItem.asApp(info));
+                items.add(AdapterItem.asApp(info));
             }
 
             String sectionName = info.sectionName;
@@ -483,7 +615,7 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
                 FastScrollSectionInfo sectionInfo = new FastScrollSectionInfo(
                         usePrivateAppScrollerBadge ?
                                 mPrivateProfileAppScrollerBadge : sectionName, position);
-                mFastScrollerSections.add(sectionInfo);
+                sections.add(sectionInfo);
             }
             position++;
         }
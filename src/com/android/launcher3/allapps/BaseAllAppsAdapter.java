@@ -171,6 +171,8 @@ public abstract class BaseAllAppsAdapter<T extends Context & ActivityContext> ex
     protected final OnClickListener mOnIconClickListener;
     protected final OnLongClickListener mOnIconLongClickListener;
     protected OnFocusChangeListener mIconFocusListener;
+    // Whether the high-res icons should not be loaded when icons are bound
+    private boolean mHighResLoadDeferred;
 
     public BaseAllAppsAdapter(T activityContext, LayoutInflater inflater,
             AlphabeticalAppsList<T> apps, SearchAdapterProvider<?> adapterProvider) {
@@ -184,6 +186,14 @@ public abstract class BaseAllAppsAdapter<T extends Context & ActivityContext> ex
         mAdapterProvider = adapterProvider;
     }
 
+    /**
+     * Sets whether the icons bound from now on should keep their low-res icon until they are
+     * explicitly upgraded, used while scrolling fast.
+     */
+    public void setHighResLoadDeferred(boolean deferred) {
+        mHighResLoadDeferred = deferred;
+    }
+
     /** Checks if the passed viewType represents all apps divider. */
     public static boolean isDividerViewType(int viewType) {
         return isViewType(viewType, VIEW_TYPE_MASK_DIVIDER);
@@ -262,6 +272,7 @@ public abstract class BaseAllAppsAdapter<T extends Context & ActivityContext> ex
                 AdapterItem adapterItem = mApps.getAdapterItems().get(position);
                 BubbleTextView icon = (BubbleTextView) holder.itemView;
                 icon.reset();
+                icon.setHighResLoadDeferred(mHighResLoadDeferred);
                 icon.applyFromApplicationInfo(adapterItem.itemInfo);
                 icon.setOnFocusChangeListener(mIconFocusListener);
                 PrivateProfileManager privateProfileManager = mApps.getPrivateProfileManager();
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.UserHandle;
+import android.text.TextUtils;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.util.ComponentKey;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * List of apps kept in the order of {@link AppInfoComparator}, which is updated incrementally.
+ *
+ * The collation key of each title is computed once, when the app is added or its title changes,
+ * so that sorting doesn't need to go through the {@link Collator} for every comparison. Apps which
+ * are unchanged between two updates keep their position, and only the added or renamed apps are
+ * inserted with a binary search.
+ */
+public class SortedAppList {
+
+    // Above this number of changes, sorting the whole list is cheaper than inserting one by one
+    private static final int MAX_INCREMENTAL_INSERTIONS = 32;
+
+    private static final Comparator<Entry> ENTRY_COMPARATOR = (a, b) -> {
+        // Ensure that we de-prioritize any titles that don't start with a linguistic letter or
+        // digit
+        if (a.mStartsWithLetter != b.mStartsWithLetter) {
+            return a.mStartsWithLetter ? -1 : 1;
+        }
+        // Order by the title in the current locale
+        int result = a.mCollationKey.compareTo(b.mCollationKey);
+        if (result != 0) {
+            return result;
+        }
+        // If labels are same, compare component names
+        result = a.mInfo.componentName.compareTo(b.mInfo.componentName);
+        if (result != 0) {
+            return result;
+        }
+        return Long.compare(a.mUserRank, b.mUserRank);
+    };
+
+    private final Collator mCollator = Collator.getInstance();
+    private final UserCache mUserCache;
+    private final UserHandle mMyUser;
+
+    private final ArrayList<Entry> mEntries = new ArrayList<>();
+    private final HashMap<ComponentKey, Entry> mEntriesByKey = new HashMap<>();
+
+    private int mLastInsertionCount;
+
+    public SortedAppList(Context context) {
+        mUserCache = UserCache.INSTANCE.get(context);
+        mMyUser = Process.myUserHandle();
+    }
+
+    /**
+     * Updates the list to contain exactly {@param apps}.
+     */
+    public void setApps(AppInfo[] apps) {
+        HashSet<ComponentKey> seen = new HashSet<>(apps.length * 2);
+        ArrayList<Entry> added = new ArrayList<>();
+        boolean hasRemovals = false;
+        for (AppInfo app : apps) {
+            ComponentKey key = new ComponentKey(app.componentName, app.user);
+            if (!seen.add(key)) {
+                // Duplicate apps can't be tracked by key, fall back to sorting everything
+                rebuild(apps);
+                return;
+            }
+            String title = getSortingTitle(app);
+            Entry entry = mEntriesByKey.get(key);
+            if (entry != null && entry.mTitle.equals(title)) {
+                // The position of the app doesn't change, only update the info
+                entry.mInfo = app;
+                continue;
+            }
+            if (entry != null) {
+                entry.mRemoved = true;
+                hasRemovals = true;
+            }
+            Entry newEntry = newEntry(app, title);
+            mEntriesByKey.put(key, newEntry);
+            added.add(newEntry);
+        }
+        if (mEntriesByKey.size() > seen.size()) {
+            hasRemovals = true;
+            mEntriesByKey.entrySet().removeIf(e -> {
+                if (!seen.contains(e.getKey())) {
+                    e.getValue().mRemoved = true;
+                    return true;
+                }
+                return false;
+            });
+        }
+        if (hasRemovals) {
+            mEntries.removeIf(e -> e.mRemoved);
+        }
+
+        mLastInsertionCount = added.size();
+        if (added.size() > MAX_INCREMENTAL_INSERTIONS) {
+            mEntries.addAll(added);
+            mEntries.sort(ENTRY_COMPARATOR);
+        } else {
+            for (Entry entry : added) {
+                int index = Collections.binarySearch(mEntries, entry, ENTRY_COMPARATOR);
+                mEntries.add(index < 0 ? -(index + 1) : index, entry);
+            }
+        }
+    }
+
+    /**
+     * Returns the sorted apps.
+     */
+    public List<AppInfo> getApps() {
+        ArrayList<AppInfo> result = new ArrayList<>(mEntries.size());
+        for (Entry entry : mEntries) {
+            result.add(entry.mInfo);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of apps which were inserted in the list during the last update.
+     */
+    @VisibleForTesting
+    public int getLastInsertionCount() {
+        return mLastInsertionCount;
+    }
+
+    private void rebuild(AppInfo[] apps) {
+        mEntries.clear();
+        mEntriesByKey.clear();
+        for (AppInfo app : apps) {
+            Entry entry = newEntry(app, getSortingTitle(app));
+            mEntries.add(entry);
+            mEntriesByKey.put(new ComponentKey(app.componentName, app.user), entry);
+        }
+        mEntries.sort(ENTRY_COMPARATOR);
+        mLastInsertionCount = apps.length;
+    }
+
+    private Entry newEntry(AppInfo info, String title) {
+        long userRank = mMyUser.equals(info.user)
+                ? Long.MIN_VALUE : mUserCache.getSerialNumberForUser(info.user);
+        return new Entry(info, title, mCollator.getCollationKey(title), userRank);
+    }
+
+    private static String getSortingTitle(AppInfo info) {
+        if (!TextUtils.isEmpty(info.appTitle)) {
+            return info.appTitle.toString();
+        }
+        if (info.title != null) {
+            return info.title.toString();
+        }
+        return "";
+    }
+
+    private static class Entry {
+
+        final String mTitle;
+        final boolean mStartsWithLetter;
+        final CollationKey mCollationKey;
+        final long mUserRank;
+
+        AppInfo mInfo;
+        boolean mRemoved;
+
+        Entry(AppInfo info, String title, CollationKey collationKey, long userRank) {
+            mInfo = info;
+            mTitle = title;
+            mStartsWithLetter =
+                    title.length() > 0 && Character.isLetterOrDigit(title.codePointAt(0));
+            mCollationKey = collationKey;
+            mUserRank = userRank;
+        }
+    }
+}
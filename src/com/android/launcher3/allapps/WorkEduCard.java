@@ -102,9 +102,9 @@ public class WorkEduCard extends FrameLayout implements
         } else {
             AllAppsRecyclerView rv = mActivityContext.getAppsView().mAH.get(
                     ActivityAllAppsContainerView.AdapterHolder.WORK).mRecyclerView;
-            rv.getApps().getAdapterItems().remove(mPosition);
+            rv.getApps().removeAdapterItem(mPosition);
             // Remove the educard fast scroll section.
-            rv.getApps().getFastScrollerSections().remove(0);
+            rv.getApps().removeFastScrollerSection(0);
             rv.getAdapter().notifyItemRemoved(mPosition);
         }
     }
@@ -16,9 +16,11 @@
 package com.android.launcher3.celllayout;
 
 import android.graphics.Rect;
+import android.os.SystemClock;
 import android.view.View;
 
 import com.android.launcher3.CellLayout;
+import com.android.launcher3.ShortcutAndWidgetContainer;
 import com.android.launcher3.util.CellAndSpan;
 import com.android.launcher3.util.GridOccupancy;
 
@@ -74,11 +76,16 @@ public class ReorderAlgorithm {
      */
     public ItemConfiguration findReorderSolution(ReorderParameters reorderParameters,
             int[] direction, boolean decX) {
-        return findReorderSolutionRecursive(reorderParameters.getPixelX(),
+        long startTime = SystemClock.elapsedRealtimeNanos();
+        ReorderSolutionCache cache = mCellLayout.getReorderSolutionCache();
+        cache.validate(mCellLayout);
+        ItemConfiguration solution = findReorderSolutionRecursive(reorderParameters.getPixelX(),
                 reorderParameters.getPixelY(), reorderParameters.getMinSpanX(),
                 reorderParameters.getMinSpanY(), reorderParameters.getSpanX(),
                 reorderParameters.getSpanY(), direction,
                 reorderParameters.getDragView(), decX, reorderParameters.getSolution());
+        cache.onSolveFinished(SystemClock.elapsedRealtimeNanos() - startTime);
+        return solution;
     }
 
     private ItemConfiguration findReorderSolutionRecursive(int pixelX, int pixelY, int minSpanX,
@@ -127,7 +134,6 @@ public class ReorderAlgorithm {
         // Return early if get invalid cell positions
         if (cellX < 0 || cellY < 0) return false;
 
-        ArrayList<View> intersectingViews = new ArrayList<>();
         Rect occupiedRect = new Rect(cellX, cellY, cellX + spanX, cellY + spanY);
 
         // Mark the desired location of the view currently being dragged.
@@ -138,7 +144,50 @@ public class ReorderAlgorithm {
                 c.cellY = cellY;
             }
         }
-        Rect r0 = new Rect(cellX, cellY, cellX + spanX, cellY + spanY);
+
+        // The rearrangements are memoized for the current layout state, as the same target region
+        // is usually solved again on every drag over event.
+        ShortcutAndWidgetContainer children = mCellLayout.getShortcutsAndWidgets();
+        ReorderSolutionCache.Region region = mCellLayout.getReorderSolutionCache().getRegion(
+                cellX, cellY, spanX, spanY, children.indexOfChild(ignoreView));
+        if (!region.blocked && region.intersectingViews == null) {
+            ArrayList<View> intersectingViews =
+                    findIntersectingViews(occupiedRect, ignoreView, solution);
+            if (intersectingViews == null) {
+                region.blocked = true;
+            } else {
+                region.intersectingViews = intersectingViews.stream()
+                        .mapToInt(children::indexOfChild).toArray();
+            }
+        }
+        if (region.blocked) {
+            return false;
+        }
+
+        ArrayList<View> intersectingViews = new ArrayList<>();
+        for (int index : region.intersectingViews) {
+            intersectingViews.add(children.getChildAt(index));
+        }
+        solution.intersectingViews = intersectingViews;
+
+        Boolean cachedSuccess = region.applyRearrangement(direction, solution, children);
+        if (cachedSuccess != null) {
+            return cachedSuccess;
+        }
+        int[] initialDirection = direction.clone();
+        boolean success = pushIntersectingViews(intersectingViews, occupiedRect, direction,
+                ignoreView, solution);
+        region.putRearrangement(initialDirection, direction, success, solution, children);
+        return success;
+    }
+
+    /**
+     * Returns the views which intersect the given region, or null if one of them can't be
+     * reordered.
+     */
+    private ArrayList<View> findIntersectingViews(Rect r0, View ignoreView,
+            ItemConfiguration solution) {
+        ArrayList<View> intersectingViews = new ArrayList<>();
         Rect r1 = new Rect();
         // The views need to be sorted so that the results are deterministic on the views positions
         // and not by the views hash which is "random".
@@ -159,14 +208,16 @@ public class ReorderAlgorithm {
             r1.set(c.cellX, c.cellY, c.cellX + c.spanX, c.cellY + c.spanY);
             if (Rect.intersects(r0, r1)) {
                 if (!lp.canReorder) {
-                    return false;
+                    return null;
                 }
                 intersectingViews.add(child);
             }
         }
+        return intersectingViews;
+    }
 
-        solution.intersectingViews = intersectingViews;
-
+    private boolean pushIntersectingViews(ArrayList<View> intersectingViews, Rect occupiedRect,
+            int[] direction, View ignoreView, ItemConfiguration solution) {
         // First we try to find a solution which respects the push mechanic. That is,
         // we try to find a solution such that no displaced item travels through another item
         // without also displacing that item.
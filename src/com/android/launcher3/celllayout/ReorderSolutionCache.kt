@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.celllayout
+
+import android.util.Log
+import android.view.ViewGroup
+import com.android.launcher3.CellLayout
+
+/**
+ * Memoizes the rearrangements found by [ReorderAlgorithm] across the drag-over events of a
+ * [CellLayout].
+ *
+ * Drag-over events are delivered much more often than the target cell of the dragged item changes,
+ * and every event searches for a reorder starting from the same layout state. Rearrangements are
+ * keyed by the target cell, the span of the dragged item and the direction the items are pushed in,
+ * and are only valid for the layout state they were computed from: they are dropped as soon as the
+ * occupied cells or the position of any child change.
+ *
+ * The views intersecting a target region don't depend on the direction, so they are computed once
+ * per region and only the push itself is solved again when the direction changes.
+ *
+ * Results are stored by child index rather than by view, so views that are only added for the
+ * duration of a solve, like the seam of [MulticellReorderAlgorithm], don't prevent their reuse.
+ */
+class ReorderSolutionCache {
+
+    private var layoutState = IntArray(0)
+    private val regions = HashMap<RegionKey, Region>()
+
+    /** Number of rearrangements served from the cache */
+    var hitCount = 0
+        private set
+
+    /** Number of rearrangements that had to be solved */
+    var missCount = 0
+        private set
+
+    /** Duration of the last reorder solve, in nanoseconds */
+    var lastSolveDurationNanos = 0L
+        private set
+
+    /** Clears the cached rearrangements if the layout state of [cellLayout] has changed */
+    fun validate(cellLayout: CellLayout) {
+        val state = computeLayoutState(cellLayout)
+        if (!state.contentEquals(layoutState)) {
+            layoutState = state
+            regions.clear()
+        }
+    }
+
+    /** Clears all the cached rearrangements */
+    fun clear() {
+        layoutState = IntArray(0)
+        regions.clear()
+    }
+
+    /**
+     * Returns the cached data of the region at ([cellX], [cellY]) of the given span, for the child
+     * at [dragViewIndex] being dragged.
+     */
+    fun getRegion(cellX: Int, cellY: Int, spanX: Int, spanY: Int, dragViewIndex: Int): Region =
+        regions.getOrPut(RegionKey(cellX, cellY, spanX, spanY, dragViewIndex)) { Region() }
+
+    /** Records the duration of a full reorder solve */
+    fun onSolveFinished(durationNanos: Long) {
+        lastSolveDurationNanos = durationNanos
+        if (DEBUG) {
+            Log.d(
+                TAG,
+                "Reorder solved in ${durationNanos / 1000}us, hits: $hitCount, misses: $missCount",
+            )
+        }
+    }
+
+    private fun computeLayoutState(cellLayout: CellLayout): IntArray {
+        val countX = cellLayout.countX
+        val countY = cellLayout.countY
+        val children = cellLayout.shortcutsAndWidgets
+        val occupiedCells = cellLayout.occupied.cells
+        val occupiedSize = (countX * countY + Int.SIZE_BITS - 1) / Int.SIZE_BITS
+        val state = IntArray(2 + occupiedSize + children.childCount * CHILD_STATE_SIZE)
+        state[0] = countX
+        state[1] = countY
+        for (x in 0 until countX) {
+            for (y in 0 until countY) {
+                if (occupiedCells[x][y]) {
+                    val bit = x * countY + y
+                    state[2 + bit / Int.SIZE_BITS] =
+                        state[2 + bit / Int.SIZE_BITS] or (1 shl (bit % Int.SIZE_BITS))
+                }
+            }
+        }
+        var index = 2 + occupiedSize
+        for (i in 0 until children.childCount) {
+            val lp = children.getChildAt(i).layoutParams as CellLayoutLayoutParams
+            state[index++] = lp.cellX
+            state[index++] = lp.cellY
+            state[index++] = lp.cellHSpan
+            state[index++] = lp.cellVSpan
+            state[index++] = if (lp.canReorder) 1 else 0
+        }
+        return state
+    }
+
+    private data class RegionKey(
+        val cellX: Int,
+        val cellY: Int,
+        val spanX: Int,
+        val spanY: Int,
+        val dragViewIndex: Int,
+    )
+
+    /** Rearrangements found for a target region, one per push direction */
+    inner class Region {
+
+        /** Whether the region intersects a view which can't be reordered */
+        @JvmField var blocked = false
+
+        /** Indices of the children intersecting the region, null until computed */
+        @JvmField var intersectingViews: IntArray? = null
+
+        private val rearrangements = arrayOfNulls<Rearrangement>(DIRECTION_COUNT)
+
+        /**
+         * Applies the rearrangement cached for [direction] to [solution] and returns whether it
+         * succeeded, or returns null if it wasn't solved yet. [direction] is updated the same way
+         * the push updated it.
+         */
+        fun applyRearrangement(
+            direction: IntArray,
+            solution: ItemConfiguration,
+            children: ViewGroup,
+        ): Boolean? {
+            val slot = directionSlot(direction)
+            val rearrangement = (if (slot >= 0) rearrangements[slot] else null)
+            if (rearrangement == null) {
+                missCount++
+                return null
+            }
+            hitCount++
+            for (i in 0 until children.childCount) {
+                solution.map[children.getChildAt(i)]?.let {
+                    it.cellX = rearrangement.cells[i * 4]
+                    it.cellY = rearrangement.cells[i * 4 + 1]
+                    it.spanX = rearrangement.cells[i * 4 + 2]
+                    it.spanY = rearrangement.cells[i * 4 + 3]
+                }
+            }
+            direction[0] = rearrangement.resultDirection[0]
+            direction[1] = rearrangement.resultDirection[1]
+            return rearrangement.success
+        }
+
+        /**
+         * Stores the result of pushing the intersecting views in [initialDirection], where
+         * [direction] is the direction after the push.
+         */
+        fun putRearrangement(
+            initialDirection: IntArray,
+            direction: IntArray,
+            success: Boolean,
+            solution: ItemConfiguration,
+            children: ViewGroup,
+        ) {
+            val slot = directionSlot(initialDirection)
+            if (slot < 0) return
+            val cells = IntArray(children.childCount * 4) { -1 }
+            for (i in 0 until children.childCount) {
+                solution.map[children.getChildAt(i)]?.let {
+                    cells[i * 4] = it.cellX
+                    cells[i * 4 + 1] = it.cellY
+                    cells[i * 4 + 2] = it.spanX
+                    cells[i * 4 + 3] = it.spanY
+                }
+            }
+            rearrangements[slot] = Rearrangement(success, cells, direction.copyOf())
+        }
+    }
+
+    private class Rearrangement(
+        val success: Boolean,
+        val cells: IntArray,
+        val resultDirection: IntArray,
+    )
+
+    companion object {
+        private const val TAG = "ReorderSolutionCache"
+        private const val DEBUG = false
+
+        private const val CHILD_STATE_SIZE = 5
+        private const val DIRECTION_COUNT = 9
+
+        /** Returns the index of a direction with both components in [-1, 1], -1 otherwise */
+        private fun directionSlot(direction: IntArray): Int {
+            if (direction[0] !in -1..1 || direction[1] !in -1..1) return -1
+            return (direction[0] + 1) * 3 + direction[1] + 1
+        }
+    }
+}
@@ -21,7 +21,9 @@ import androidx.annotation.NonNull;
 import com.android.launcher3.notification.NotificationKeyData;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Contains data to be used for a notification dot.
@@ -76,6 +78,24 @@ public class DotInfo {
         return removed;
     }
 
+    /**
+     * Removes the notifications whose key is not in {@param notificationKeys}.
+     * Returns whether any notification was removed.
+     */
+    public boolean retainNotificationKeys(Set<String> notificationKeys) {
+        boolean removed = false;
+        Iterator<NotificationKeyData> iterator = mNotificationKeys.iterator();
+        while (iterator.hasNext()) {
+            NotificationKeyData key = iterator.next();
+            if (!notificationKeys.contains(key.notificationKey)) {
+                iterator.remove();
+                mTotalCount -= key.count;
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
     public List<NotificationKeyData> getNotificationKeys() {
         return mNotificationKeys;
     }
@@ -483,6 +483,27 @@ public class FolderIcon extends FrameLayout implements FloatingIconViewCompanion
         );
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        registerDotView();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mActivity != null && mActivity.hasSharedPopupDataProvider()) {
+            mActivity.getPopupDataProvider().unregisterDotView(this);
+        }
+    }
+
+    /** Registers this icon to get updated when the notifications of its contents change */
+    private void registerDotView() {
+        if (mInfo != null && isAttachedToWindow() && mActivity.hasSharedPopupDataProvider()) {
+            mActivity.getPopupDataProvider().registerDotView(this, mInfo.getContents());
+        }
+    }
+
     /** Keep the notification dot up to date with the sum of all the content's dots. */
     public void updateDotInfo() {
         boolean hadDot = mDotInfo.hasDot();
@@ -663,6 +684,12 @@ public class FolderIcon extends FrameLayout implements FloatingIconViewCompanion
         return mPreviewItemManager.verifyDrawable(who) || super.verifyDrawable(who);
     }
 
+    @Override
+    public void invalidateDrawable(@NonNull Drawable drawable) {
+        mPreviewItemManager.onDrawableInvalidated(drawable);
+        super.invalidateDrawable(drawable);
+    }
+
     private void updatePreviewItems(boolean animate) {
         mPreviewItemManager.updatePreviewItems(animate);
         mCurrentPreviewItems.clear();
@@ -678,6 +705,7 @@ public class FolderIcon extends FrameLayout implements FloatingIconViewCompanion
 
     public void onItemsChanged(boolean animate) {
         updatePreviewItems(false);
+        registerDotView();
         updateDotInfo();
         setContentDescription(getAccessiblityTitle(mInfo.title));
         updatePreviewItems(animate);
@@ -27,6 +27,7 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
 import com.android.launcher3.LauncherAppState;
@@ -46,12 +47,7 @@ import com.android.launcher3.util.Preconditions;
 import com.android.launcher3.util.ResourceBasedOverride;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Locates provider for the folder name.
@@ -67,7 +63,11 @@ public class FolderNameProvider implements ResourceBasedOverride {
      */
     public static final int SUGGEST_MAX = 4;
     protected IntSparseArrayMap<CollectionInfo> mCollectionInfos;
-    protected List<AppInfo> mAppInfos;
+    /**
+     * The apps of the model, indexed by package and kept up to date by the model tasks. It should
+     * only be read on the model thread.
+     */
+    protected AllAppsList mApps;
 
     /**
      * Retrieve instance of this object that can be overridden in runtime based on the build
@@ -82,12 +82,12 @@ public class FolderNameProvider implements ResourceBasedOverride {
         return fnp;
     }
 
-    public static FolderNameProvider newInstance(Context context, List<AppInfo> appInfos,
+    public static FolderNameProvider newInstance(Context context, AllAppsList apps,
             IntSparseArrayMap<CollectionInfo> folderInfos) {
         Preconditions.assertWorkerThread();
         FolderNameProvider fnp = Overrides.getObject(FolderNameProvider.class,
                 context.getApplicationContext(), R.string.folder_name_provider_class);
-        fnp.load(appInfos, folderInfos);
+        fnp.load(apps, folderInfos);
 
         return fnp;
     }
@@ -97,13 +97,13 @@ public class FolderNameProvider implements ResourceBasedOverride {
                 new FolderNameWorker());
     }
 
-    private void load(List<AppInfo> appInfos, IntSparseArrayMap<CollectionInfo> folderInfos) {
-        mAppInfos = appInfos;
+    void load(AllAppsList apps, IntSparseArrayMap<CollectionInfo> folderInfos) {
+        mApps = apps;
         mCollectionInfos = folderInfos;
     }
 
     /**
-     * Generate and rank the suggested Folder names.
+     * Generate and rank the suggested Folder names, in time linear in the number of items.
      */
     @WorkerThread
     public void getSuggestedFolderName(Context context,
@@ -114,27 +114,41 @@ public class FolderNameProvider implements ResourceBasedOverride {
             Log.d(TAG, "getSuggestedFolderName:" + nameInfos.toString());
         }
 
+        UserHandle user = null;
+        boolean hasSingleUser = true;
+        String packageName = null;
+        boolean hasSinglePackage = true;
+        for (WorkspaceItemInfo info : workspaceItemInfos) {
+            if (user == null) {
+                user = info.user;
+            } else if (!user.equals(info.user)) {
+                hasSingleUser = false;
+            }
+            ComponentName cn = info.getTargetComponent();
+            if (cn == null) {
+                continue;
+            }
+            if (packageName == null) {
+                packageName = cn.getPackageName();
+            } else if (!packageName.equals(cn.getPackageName())) {
+                hasSinglePackage = false;
+            }
+        }
+
         // If all the icons are from work profile,
         // Then, suggest "Work" as the folder name
-        Set<UserHandle> users = workspaceItemInfos.stream().map(w -> w.user)
-                .collect(Collectors.toSet());
-        if (users.size() == 1 && !users.contains(Process.myUserHandle())) {
+        if (user != null && hasSingleUser && !user.equals(Process.myUserHandle())) {
             setAsLastSuggestion(nameInfos, getWorkFolderName(context));
         }
 
         // If all the icons are from same package (e.g., main icon, shortcut, shortcut)
         // Then, suggest the package's title as the folder name
-        Set<String> packageNames = workspaceItemInfos.stream()
-                .map(WorkspaceItemInfo::getTargetComponent)
-                .filter(Objects::nonNull)
-                .map(ComponentName::getPackageName)
-                .collect(Collectors.toSet());
-
-        if (packageNames.size() == 1) {
-            Optional<AppInfo> info = getAppInfoByPackageName(packageNames.iterator().next());
-            // Place it as first viable suggestion and shift everything else
-            info.ifPresent(i -> setAsFirstSuggestion(
-                    nameInfos, i.title == null ? "" : i.title.toString()));
+        if (packageName != null && hasSinglePackage) {
+            AppInfo info = getAppInfoByPackageName(packageName, workspaceItemInfos);
+            if (info != null) {
+                // Place it as first viable suggestion and shift everything else
+                setAsFirstSuggestion(nameInfos, info.title == null ? "" : info.title.toString());
+            }
         }
         if (DEBUG) {
             Log.d(TAG, "getSuggestedFolderName:" + nameInfos.toString());
@@ -152,14 +166,22 @@ public class FolderNameProvider implements ResourceBasedOverride {
                         context.getString(R.string.work_folder_name));
     }
 
-    private Optional<AppInfo> getAppInfoByPackageName(String packageName) {
-        if (mAppInfos == null || mAppInfos.isEmpty()) {
-            return Optional.empty();
+    /**
+     * Returns an app of {@param packageName}, preferably for the user of one of {@param items}
+     */
+    @Nullable
+    private AppInfo getAppInfoByPackageName(String packageName, List<WorkspaceItemInfo> items) {
+        if (mApps == null) {
+            return null;
+        }
+        for (WorkspaceItemInfo item : items) {
+            AppInfo info = item.user == null
+                    ? null : mApps.findAppInfoForPackage(packageName, item.user);
+            if (info != null) {
+                return info;
+            }
         }
-        return mAppInfos.stream()
-                .filter(info -> info.componentName != null)
-                .filter(info -> info.componentName.getPackageName().equals(packageName))
-                .findAny();
+        return null;
     }
 
     private void setAsFirstSuggestion(FolderNameInfos nameInfos, CharSequence label) {
@@ -201,14 +223,14 @@ public class FolderNameProvider implements ResourceBasedOverride {
         public void execute(@NonNull ModelTaskController taskController,
                 @NonNull BgDataModel dataModel, @NonNull AllAppsList apps) {
             mCollectionInfos = getCollectionForSuggestions(dataModel);
-            mAppInfos = Arrays.asList(apps.copyData());
+            mApps = apps;
         }
     }
 
     public static IntSparseArrayMap<CollectionInfo> getCollectionForSuggestions(
             BgDataModel dataModel) {
         IntSparseArrayMap<CollectionInfo> result = new IntSparseArrayMap<>();
-        dataModel.itemsIdMap.stream()
+        dataModel.getWorkspaceSnapshot().stream()
                 .filter(item -> item.itemType == ITEM_TYPE_FOLDER)
                 .forEach(item -> result.put(item.id, (FolderInfo) item));
         return result;
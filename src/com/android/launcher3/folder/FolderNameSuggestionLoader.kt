@@ -40,7 +40,7 @@ constructor(
             folderNameProvider = folderNameProviderFactory.get()
             model.enqueueModelUpdateTask { _, dataModel, appList ->
                 folderNameProvider?.load(
-                    appList.copyData().asList(),
+                    appList,
                     FolderNameProvider.getCollectionForSuggestions(dataModel),
                 )
             }
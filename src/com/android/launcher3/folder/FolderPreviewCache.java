@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.folder;
+
+import static com.android.launcher3.util.Executors.MAIN_EXECUTOR;
+import static com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.icons.BitmapRenderer;
+import com.android.launcher3.util.CancellableTask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Caches the preview items of a closed {@link FolderIcon} in a hardware bitmap, so that drawing
+ * the folder only draws a single bitmap instead of every preview item.
+ *
+ * The bitmap is rendered in the background once the preview items stop changing, and is dropped
+ * whenever the items, their drawables or the icon size change. The items are drawn directly while
+ * the preview is animating or the bitmap is not ready.
+ */
+class FolderPreviewCache {
+
+    // Wait for the preview to settle before rendering it, so that animations don't keep rendering
+    // bitmaps which are dropped on the next frame
+    @VisibleForTesting
+    static final long RENDER_DELAY_MS = 200;
+
+    private final View mIcon;
+    private final PreviewItemManager mManager;
+    private final Runnable mRenderRunnable = this::startRender;
+
+    @Nullable
+    private Bitmap mBitmap;
+    private float mBitmapLeft;
+    private float mBitmapTop;
+
+    // Incremented every time the preview changes, to drop bitmaps rendered for an older preview
+    private int mGeneration;
+    @Nullable
+    private CancellableTask<Bitmap> mRenderTask;
+
+    FolderPreviewCache(View icon, PreviewItemManager manager) {
+        mIcon = icon;
+        mManager = manager;
+    }
+
+    /**
+     * Draws the cached preview items at the given preview offset, returns false if there is no
+     * cached bitmap and the items need to be drawn directly.
+     */
+    boolean draw(Canvas canvas, float offsetX, float offsetY) {
+        // Hardware bitmaps can't be drawn on software canvases, like the ones used for drag views
+        if (mBitmap == null || !canvas.isHardwareAccelerated()) {
+            return false;
+        }
+        canvas.drawBitmap(mBitmap, offsetX + mBitmapLeft, offsetY + mBitmapTop, null);
+        return true;
+    }
+
+    /** Drops the cached bitmap and renders a new one once the preview stops changing */
+    void invalidate() {
+        mGeneration++;
+        mBitmap = null;
+        if (mRenderTask != null) {
+            mRenderTask.cancel();
+            mRenderTask = null;
+        }
+        mIcon.removeCallbacks(mRenderRunnable);
+        mIcon.postDelayed(mRenderRunnable, RENDER_DELAY_MS);
+    }
+
+    @VisibleForTesting
+    boolean hasBitmap() {
+        return mBitmap != null;
+    }
+
+    private void startRender() {
+        List<PreviewItemDrawingParams> params = mManager.getCacheableParams();
+        if (params == null) {
+            // Rendered once the preview settles, which invalidates the cache again
+            return;
+        }
+        Snapshot snapshot = Snapshot.create(
+                mIcon.getResources(), params, mManager.getIntrinsicIconSize());
+        if (snapshot == null) {
+            return;
+        }
+        int generation = mGeneration;
+        mRenderTask = new CancellableTask<>(snapshot::render, MAIN_EXECUTOR, bitmap -> {
+            if (generation != mGeneration) {
+                return;
+            }
+            mRenderTask = null;
+            mBitmap = bitmap;
+            mBitmapLeft = snapshot.mBounds.left;
+            mBitmapTop = snapshot.mBounds.top;
+            mIcon.invalidate();
+        });
+        UI_HELPER_EXECUTOR.execute(mRenderTask);
+    }
+
+    /**
+     * Copy of the preview items at rest, which can be rendered on a background thread while the
+     * original drawables keep being used on the main thread.
+     */
+    @VisibleForTesting
+    static class Snapshot {
+
+        private final List<Drawable> mDrawables;
+        private final List<PreviewItemDrawingParams> mParams;
+        private final float mIntrinsicIconSize;
+        final Rect mBounds;
+
+        private Snapshot(List<Drawable> drawables, List<PreviewItemDrawingParams> params,
+                float intrinsicIconSize, Rect bounds) {
+            mDrawables = drawables;
+            mParams = params;
+            mIntrinsicIconSize = intrinsicIconSize;
+            mBounds = bounds;
+        }
+
+        /**
+         * Returns a snapshot of {@param params} in drawing order, or null if a drawable can't be
+         * copied.
+         */
+        @Nullable
+        static Snapshot create(Resources res, List<PreviewItemDrawingParams> params,
+                float intrinsicIconSize) {
+            List<Drawable> drawables = new ArrayList<>(params.size());
+            List<PreviewItemDrawingParams> copies = new ArrayList<>(params.size());
+            RectF bounds = new RectF();
+            // The first item is drawn last (ie. on top of later items)
+            for (int i = params.size() - 1; i >= 0; i--) {
+                PreviewItemDrawingParams p = params.get(i);
+                Drawable.ConstantState state = p.drawable.getConstantState();
+                if (state == null) {
+                    return null;
+                }
+                Drawable d = state.newDrawable(res);
+                d.setBounds(p.drawable.getBounds());
+                drawables.add(d);
+                copies.add(new PreviewItemDrawingParams(p.transX, p.transY, p.scale));
+
+                float size = intrinsicIconSize * p.scale;
+                bounds.union(p.transX, p.transY, p.transX + size, p.transY + size);
+            }
+            Rect outBounds = new Rect();
+            bounds.roundOut(outBounds);
+            if (outBounds.isEmpty()) {
+                return null;
+            }
+            return new Snapshot(drawables, copies, intrinsicIconSize, outBounds);
+        }
+
+        @WorkerThread
+        Bitmap render() {
+            return BitmapRenderer.createHardwareBitmap(mBounds.width(), mBounds.height(), c -> {
+                c.translate(-mBounds.left, -mBounds.top);
+                for (int i = 0; i < mDrawables.size(); i++) {
+                    PreviewItemDrawingParams p = mParams.get(i);
+                    PreviewItemManager.drawPreviewDrawable(c, mDrawables.get(i),
+                            p.transX, p.transY, p.scale, mIntrinsicIconSize);
+                }
+            });
+        }
+    }
+}
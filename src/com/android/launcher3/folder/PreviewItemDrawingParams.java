@@ -31,6 +31,8 @@ class PreviewItemDrawingParams {
     public boolean hidden;
     public Drawable drawable;
     public ItemInfo item;
+    // Whether the drawable invalidated itself, in which case it can't be cached
+    boolean isDrawableDynamic;
 
     PreviewItemDrawingParams(float transX, float transY, float scale) {
         this.transX = transX;
@@ -40,6 +40,7 @@ import android.util.FloatProperty;
 import android.view.View;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.BubbleTextView;
@@ -49,6 +50,7 @@ import com.android.launcher3.Utilities;
 import com.android.launcher3.apppairs.AppPairIcon;
 import com.android.launcher3.apppairs.AppPairIconDrawingParams;
 import com.android.launcher3.apppairs.AppPairIconGraphic;
+import com.android.launcher3.graphics.PreloadIconDrawable;
 import com.android.launcher3.model.data.AppPairInfo;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.ItemInfoWithIcon;
@@ -104,6 +106,8 @@ public class PreviewItemManager {
     private float mCurrentPageItemsTransX = 0;
     private boolean mShouldSlideInFirstPage;
 
+    private final FolderPreviewCache mPreviewCache;
+
     static final int INITIAL_ITEM_ANIMATION_DURATION = 350;
     private static final int FINAL_ITEM_ANIMATION_DURATION = 200;
 
@@ -117,6 +121,7 @@ public class PreviewItemManager {
         mIconSize = ActivityContext.lookupContext(
                 mContext).getDeviceProfile().folderChildIconSizePx;
         mClipThreshold = Utilities.dpToPx(1f);
+        mPreviewCache = new FolderPreviewCache(icon, this);
     }
 
     /**
@@ -202,9 +207,13 @@ public class PreviewItemManager {
      * Draws the preview items on {@param canvas}.
      */
     public void draw(Canvas canvas) {
-        int saveCount = canvas.getSaveCount();
         // The items are drawn in coordinates relative to the preview offset
         PreviewBackground bg = mIcon.getFolderBackground();
+        if (mPreviewCache.draw(canvas, bg.basePreviewOffsetX, bg.basePreviewOffsetY)) {
+            return;
+        }
+
+        int saveCount = canvas.getSaveCount();
         Path clipPath = bg.getClipPath();
         float firstPageItemsTransX = 0;
         if (mShouldSlideInFirstPage) {
@@ -223,9 +232,40 @@ public class PreviewItemManager {
     }
 
     public void onParamsChanged() {
+        mPreviewCache.invalidate();
         mIcon.invalidate();
     }
 
+    /**
+     * Returns the preview items if they are at rest and can be drawn from a cached bitmap, or null
+     * if they need to be drawn directly.
+     */
+    @Nullable
+    List<PreviewItemDrawingParams> getCacheableParams() {
+        if (!mCurrentPageParams.isEmpty() || mIntrinsicIconSize <= 0) {
+            return null;
+        }
+        for (PreviewItemDrawingParams p : mFirstPageParams) {
+            // Exiting items are clipped, and drawables which update themselves (like pending
+            // icons showing their progress or clocks) would be frozen in the bitmap
+            if (p.anim != null || p.hidden || p.index == EXIT_INDEX || p.drawable == null
+                    || p.drawable instanceof PreloadIconDrawable || p.isDrawableDynamic) {
+                return null;
+            }
+        }
+        return mFirstPageParams;
+    }
+
+    /** Called when a preview item drawable invalidates itself */
+    void onDrawableInvalidated(@NonNull Drawable who) {
+        for (PreviewItemDrawingParams p : mFirstPageParams) {
+            if (p.drawable == who && !p.isDrawableDynamic) {
+                p.isDrawableDynamic = true;
+                mPreviewCache.invalidate();
+            }
+        }
+    }
+
     /**
      * Draws each preview item.
      *
@@ -239,21 +279,28 @@ public class PreviewItemManager {
         if (shouldClipPath) {
             canvas.clipPath(clipPath);
         }
-        canvas.translate(offset.x + params.transX, offset.y + params.transY);
-        canvas.scale(params.scale, params.scale);
-        Drawable d = params.drawable;
-
-        if (d != null) {
-            Rect bounds = d.getBounds();
-            canvas.save();
-            canvas.translate(-bounds.left, -bounds.top);
-            canvas.scale(mIntrinsicIconSize / bounds.width(), mIntrinsicIconSize / bounds.height());
-            d.draw(canvas);
-            canvas.restore();
+        if (params.drawable != null) {
+            drawPreviewDrawable(canvas, params.drawable, offset.x + params.transX,
+                    offset.y + params.transY, params.scale, mIntrinsicIconSize);
         }
         canvas.restore();
     }
 
+    /**
+     * Draws {@param d} scaled to {@param intrinsicIconSize} * {@param scale} at the given position.
+     */
+    static void drawPreviewDrawable(Canvas canvas, Drawable d, float transX, float transY,
+            float scale, float intrinsicIconSize) {
+        canvas.save();
+        canvas.translate(transX, transY);
+        canvas.scale(scale, scale);
+        Rect bounds = d.getBounds();
+        canvas.translate(-bounds.left, -bounds.top);
+        canvas.scale(intrinsicIconSize / bounds.width(), intrinsicIconSize / bounds.height());
+        d.draw(canvas);
+        canvas.restore();
+    }
+
     public void hidePreviewItem(int index, boolean hidden) {
         // If there are more params than visible in the preview, they are used for enter/exit
         // animation purposes and they were added to the front of the list.
@@ -264,6 +311,7 @@ public class PreviewItemManager {
                 mFirstPageParams.get(index) : null;
         if (params != null) {
             params.hidden = hidden;
+            mPreviewCache.invalidate();
         }
     }
 
@@ -274,6 +322,9 @@ public class PreviewItemManager {
         while (items.size() < params.size()) {
             params.remove(params.size() - 1);
         }
+        if (params == mFirstPageParams) {
+            mPreviewCache.invalidate();
+        }
         while (items.size() > params.size()) {
             params.add(new PreviewItemDrawingParams(0, 0, 0));
         }
@@ -458,6 +509,8 @@ public class PreviewItemManager {
         }
 
         p.item = item;
+        p.isDrawableDynamic = false;
+        mPreviewCache.invalidate();
         // Set the callback to FolderIcon as it is responsible to drawing the icon. The
         // callback will be released when the folder is opened.
         p.drawable.setCallback(mIcon);
@@ -548,8 +548,9 @@ public class LauncherPreviewRenderer extends BaseContext
 
         Map<ComponentKey, AppWidgetProviderInfo>[] widgetsMap = new Map[] { widgetProviderInfoMap};
 
-        // Separate the items that are on the current screen, and the other remaining items.
-        dataModel.itemsIdMap.stream()
+        // Separate the items that are on the current screen, and the other remaining items. The
+        // snapshot is read without locking the model, which may still be updated in the background
+        dataModel.getWorkspaceSnapshot().stream()
                 .filter(currentScreenContentFilter(IntSet.wrap(mWorkspaceScreens.keySet())))
                 .forEach(itemInfo -> {
                     switch (itemInfo.itemType) {
@@ -586,7 +587,7 @@ public class LauncherPreviewRenderer extends BaseContext
 
         IntArray ranks = missingHotseatRank.getArray();
         FixedContainerItems hotseatPredictions =
-                dataModel.extraItems.get(CONTAINER_HOTSEAT_PREDICTION);
+                dataModel.readLocked(() -> dataModel.extraItems.get(CONTAINER_HOTSEAT_PREDICTION));
         List<ItemInfo> predictions = hotseatPredictions == null
                 ? Collections.emptyList() : hotseatPredictions.items;
         int count = Math.min(ranks.size(), predictions.size());
@@ -22,6 +22,7 @@ import static android.view.Display.DEFAULT_DISPLAY;
 
 import static com.android.launcher3.Flags.extendibleThemeManager;
 import static com.android.launcher3.LauncherPrefs.GRID_NAME;
+import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
 import static com.android.launcher3.WorkspaceLayoutManager.FIRST_SCREEN_ID;
 import static com.android.launcher3.WorkspaceLayoutManager.SECOND_SCREEN_ID;
 import static com.android.launcher3.graphics.ThemeManager.PREF_ICON_SHAPE;
@@ -66,18 +67,23 @@ import com.android.launcher3.LauncherSettings;
 import com.android.launcher3.dagger.LauncherComponentProvider;
 import com.android.launcher3.graphics.LauncherPreviewRenderer.PreviewAppComponent;
 import com.android.launcher3.graphics.LauncherPreviewRenderer.PreviewContext;
+import com.android.launcher3.icons.IconCache;
 import com.android.launcher3.model.BgDataModel;
 import com.android.launcher3.model.BgDataModel.Callbacks;
 import com.android.launcher3.model.LoaderTask;
 import com.android.launcher3.model.ModelDbController;
 import com.android.launcher3.model.UserManagerState;
+import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.RunnableList;
 import com.android.launcher3.util.Themes;
 import com.android.launcher3.widget.LocalColorExtractor;
 import com.android.systemui.shared.Flags;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -97,6 +103,8 @@ public class PreviewSurfaceRenderer {
     private static final String KEY_DARK_MODE = "use_dark_mode";
     private static final String KEY_LAYOUT_XML = "layout_xml";
     public static final String KEY_SKIP_ANIMATIONS = "skip_animations";
+    // Number of loaded (grid, layout) previews kept around while the picker is open
+    private static final int MAX_CACHED_PREVIEWS = 3;
 
     private final Context mContext;
     private SparseIntArray mPreviewColorOverride;
@@ -121,6 +129,13 @@ public class PreviewSurfaceRenderer {
     private final RunnableList mLifeCycleTracker;
     private final SurfaceControlViewHost mSurfaceControlViewHost;
 
+    // Loaded preview models keyed by grid and layout, only accessed on MODEL_EXECUTOR
+    private final LinkedHashMap<String, LoadedPreview> mLoadedPreviews =
+            new LinkedHashMap<>(MAX_CACHED_PREVIEWS + 1, 0.75f, true);
+    // Preview contexts which are no longer cached, destroyed once their views are replaced on the
+    // surface. Only accessed on the main thread
+    private final ArrayList<PreviewContext> mRetiredPreviewContexts = new ArrayList<>();
+
     public PreviewSurfaceRenderer(Context context, RunnableList lifecycleTracker, Bundle bundle,
             int callingPid) throws Exception {
         mContext = context;
@@ -157,6 +172,7 @@ public class PreviewSurfaceRenderer {
                         mLifeCycleTracker))
                 .get(5, TimeUnit.SECONDS);
         mLifeCycleTracker.add(this::destroy);
+        mLifeCycleTracker.add(() -> MODEL_EXECUTOR.execute(this::clearLoadedPreviews));
     }
 
     public int getDisplayId() {
@@ -265,6 +281,8 @@ public class PreviewSurfaceRenderer {
      */
     public void previewColor(Bundle bundle) {
         updateColorOverrides(bundle);
+        // Loaded previews are bound to the inflation context of the old colors
+        MODEL_EXECUTOR.execute(this::clearLoadedPreviews);
         loadAsync();
     }
 
@@ -348,44 +366,12 @@ public class PreviewSurfaceRenderer {
         if (!mGridName.equals(LauncherPrefs.INSTANCE.get(mContext).get(GRID_NAME))
                 || !mShapeKey.equals(LauncherPrefs.INSTANCE.get(mContext).get(PREF_ICON_SHAPE))
                 || !TextUtils.isEmpty(mLayoutXml)) {
-
-            boolean isCustomLayout = extendibleThemeManager() &&  !TextUtils.isEmpty(mLayoutXml);
-            int widgetHostId = isCustomLayout ? APPWIDGET_HOST_ID + mCallingPid : APPWIDGET_HOST_ID;
-
-            // Start the migration
-            PreviewContext previewContext = new PreviewContext(
-                    inflationContext, mGridName, mShapeKey, widgetHostId, mLayoutXml);
-            PreviewAppComponent appComponent =
-                    (PreviewAppComponent) LauncherComponentProvider.get(previewContext);
-
-            if (extendibleThemeManager() && isCustomLayout && !mDeletingHostOnExit) {
-                mDeletingHostOnExit = true;
-                mLifeCycleTracker.add(() -> {
-                    AppWidgetHost host = new AppWidgetHost(mContext, widgetHostId);
-                    // Start listening here, so that any previous active host is disabled
-                    host.startListening();
-                    host.stopListening();
-                    host.deleteHost();
-                });
+            LoadedPreview preview = getOrLoadPreview(inflationContext);
+            if (mShapeKey.equals(preview.shapeKey)) {
+                MAIN_EXECUTOR.execute(() -> renderPreview(preview));
+            } else {
+                updatePreviewShape(preview, mShapeKey);
             }
-
-            LoaderTask task = appComponent.getLoaderTaskFactory().newLoaderTask(
-                    appComponent.getBaseLauncherBinderFactory().createBinder(new Callbacks[0]),
-                    new UserManagerState());
-
-            InvariantDeviceProfile idp = appComponent.getIDP();
-            DeviceProfile deviceProfile = idp.getDeviceProfile(previewContext);
-            String query = deviceProfile.isTwoPanels
-                    ? selectionForWorkspaceScreen(FIRST_SCREEN_ID, SECOND_SCREEN_ID)
-                    : selectionForWorkspaceScreen(FIRST_SCREEN_ID);
-            Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap = new HashMap<>();
-            task.loadWorkspaceForPreview(query, widgetProviderInfoMap);
-            final SparseArray<Size> spanInfo = getLoadedLauncherWidgetInfo();
-            MAIN_EXECUTOR.execute(() -> {
-                renderView(previewContext, appComponent.getDataModel(), widgetHostId,
-                        widgetProviderInfoMap, spanInfo, idp);
-                mLifeCycleTracker.add(previewContext::onDestroy);
-            });
         } else {
             LauncherAppState.getInstance(inflationContext).getModel().loadAsync(dataModel -> {
                 if (dataModel != null) {
@@ -399,6 +385,119 @@ public class PreviewSurfaceRenderer {
         }
     }
 
+    /**
+     * Returns the loaded preview for the current grid and layout, reusing a previously loaded one
+     * so that switching between options in the picker does not query and migrate the DB again.
+     */
+    @WorkerThread
+    private LoadedPreview getOrLoadPreview(Context inflationContext) {
+        String key = mGridName + "," + mLayoutXml;
+        LoadedPreview preview = mLoadedPreviews.get(key);
+        if (preview != null) {
+            return preview;
+        }
+
+        boolean isCustomLayout = extendibleThemeManager() &&  !TextUtils.isEmpty(mLayoutXml);
+        int widgetHostId = isCustomLayout ? APPWIDGET_HOST_ID + mCallingPid : APPWIDGET_HOST_ID;
+
+        // Start the migration
+        PreviewContext previewContext = new PreviewContext(
+                inflationContext, mGridName, mShapeKey, widgetHostId, mLayoutXml);
+        PreviewAppComponent appComponent =
+                (PreviewAppComponent) LauncherComponentProvider.get(previewContext);
+
+        if (extendibleThemeManager() && isCustomLayout && !mDeletingHostOnExit) {
+            mDeletingHostOnExit = true;
+            mLifeCycleTracker.add(() -> {
+                AppWidgetHost host = new AppWidgetHost(mContext, widgetHostId);
+                // Start listening here, so that any previous active host is disabled
+                host.startListening();
+                host.stopListening();
+                host.deleteHost();
+            });
+        }
+
+        LoaderTask task = appComponent.getLoaderTaskFactory().newLoaderTask(
+                appComponent.getBaseLauncherBinderFactory().createBinder(new Callbacks[0]),
+                new UserManagerState());
+
+        InvariantDeviceProfile idp = appComponent.getIDP();
+        DeviceProfile deviceProfile = idp.getDeviceProfile(previewContext);
+        String query = deviceProfile.isTwoPanels
+                ? selectionForWorkspaceScreen(FIRST_SCREEN_ID, SECOND_SCREEN_ID)
+                : selectionForWorkspaceScreen(FIRST_SCREEN_ID);
+        Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap = new HashMap<>();
+        task.loadWorkspaceForPreview(query, widgetProviderInfoMap);
+
+        preview = new LoadedPreview(previewContext, appComponent, mShapeKey, widgetHostId,
+                widgetProviderInfoMap, getLoadedLauncherWidgetInfo(), idp);
+        mLoadedPreviews.put(key, preview);
+        if (mLoadedPreviews.size() > MAX_CACHED_PREVIEWS) {
+            Map.Entry<String, LoadedPreview> eldest = mLoadedPreviews.entrySet().iterator().next();
+            mLoadedPreviews.remove(eldest.getKey());
+            destroyPreviewContext(eldest.getValue().previewContext);
+        }
+        return preview;
+    }
+
+    /**
+     * Regenerates the icons of a loaded preview with a new shape and renders it. The workspace of
+     * the preview is kept, so that changing the shape does not query and migrate the DB again.
+     */
+    @WorkerThread
+    private void updatePreviewShape(LoadedPreview preview, String shapeKey) {
+        preview.shapeKey = shapeKey;
+        LauncherPrefs.get(preview.previewContext).put(PREF_ICON_SHAPE, shapeKey);
+        // The theme manager of the preview is notified of the pref change on the main thread
+        MAIN_EXECUTOR.execute(() -> {
+            PreviewAppComponent appComponent = preview.appComponent;
+            IconCache iconCache = appComponent.getLauncherAppState().getIconCache();
+            appComponent.getIconPool().clear();
+            // Clears the icons of the previous shape before the icons below are reloaded
+            iconCache.updateIconParams(preview.idp.fillResIconDpi, preview.idp.iconBitmapSize);
+            MODEL_EXECUTOR.execute(() -> {
+                for (ItemInfo item : appComponent.getDataModel().itemsIdMap) {
+                    if (item instanceof WorkspaceItemInfo info
+                            && info.itemType == ITEM_TYPE_APPLICATION) {
+                        iconCache.getTitleAndIcon(info, info.getMatchingLookupFlag());
+                    }
+                }
+                MAIN_EXECUTOR.execute(() -> renderPreview(preview));
+            });
+        });
+    }
+
+    @WorkerThread
+    private void clearLoadedPreviews() {
+        mLoadedPreviews.values().forEach(p -> destroyPreviewContext(p.previewContext));
+        mLoadedPreviews.clear();
+    }
+
+    private void destroyPreviewContext(PreviewContext previewContext) {
+        MAIN_EXECUTOR.execute(() -> {
+            if (mDestroyed) {
+                previewContext.onDestroy();
+            } else {
+                // Views of the preview context may still be attached, destroy after they are
+                // replaced
+                mRetiredPreviewContexts.add(previewContext);
+            }
+        });
+    }
+
+    @UiThread
+    private void destroyRetiredPreviewContexts() {
+        mRetiredPreviewContexts.forEach(PreviewContext::onDestroy);
+        mRetiredPreviewContexts.clear();
+    }
+
+    @UiThread
+    private void renderPreview(LoadedPreview preview) {
+        renderView(preview.previewContext, preview.appComponent.getDataModel(),
+                preview.widgetHostId, preview.widgetProviderInfoMap, preview.spanInfo,
+                preview.idp);
+    }
+
     @UiThread
     private void renderView(Context inflationContext, BgDataModel dataModel, int widgetHostId,
             Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap,
@@ -448,6 +547,7 @@ public class PreviewSurfaceRenderer {
                     view.getMeasuredWidth(),
                     view.getMeasuredHeight()
             );
+            destroyRetiredPreviewContexts();
             return;
         }
 
@@ -473,6 +573,33 @@ public class PreviewSurfaceRenderer {
             mViewRoot.removeAllViews();
             mViewRoot.addView(view);
         }
+        destroyRetiredPreviewContexts();
+    }
+
+    /** Model and widget data loaded for a particular grid and layout */
+    private static class LoadedPreview {
+
+        final PreviewContext previewContext;
+        final PreviewAppComponent appComponent;
+        // Shape of the loaded icons, only accessed on MODEL_EXECUTOR
+        String shapeKey;
+        final int widgetHostId;
+        final Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap;
+        @Nullable final SparseArray<Size> spanInfo;
+        final InvariantDeviceProfile idp;
+
+        LoadedPreview(PreviewContext previewContext, PreviewAppComponent appComponent,
+                String shapeKey, int widgetHostId,
+                Map<ComponentKey, AppWidgetProviderInfo> widgetProviderInfoMap,
+                @Nullable SparseArray<Size> spanInfo, InvariantDeviceProfile idp) {
+            this.previewContext = previewContext;
+            this.appComponent = appComponent;
+            this.shapeKey = shapeKey;
+            this.widgetHostId = widgetHostId;
+            this.widgetProviderInfoMap = widgetProviderInfoMap;
+            this.spanInfo = spanInfo;
+            this.idp = idp;
+        }
     }
 
     private static class MySurfaceControlViewHost extends SurfaceControlViewHost {
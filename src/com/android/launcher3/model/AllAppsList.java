@@ -43,14 +43,20 @@ import com.android.launcher3.pm.PackageInstallInfo;
 import com.android.launcher3.pm.UserCache;
 import com.android.launcher3.util.ApiWrapper;
 import com.android.launcher3.util.ApplicationInfoWrapper;
+import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.FlagOp;
 import com.android.launcher3.util.PackageManagerHelper;
+import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.SafeCloseable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -69,9 +75,17 @@ public class AllAppsList {
 
     public static final int DEFAULT_APPLICATIONS_NUMBER = 42;
 
-    /** The list off all apps. */
+    /**
+     * The list off all apps. It should only be modified through this class, so that it stays in
+     * sync with the indexes below.
+     */
     public final ArrayList<AppInfo> data = new ArrayList<>(DEFAULT_APPLICATIONS_NUMBER);
 
+    // Apps in data by package and user, and by component and user, so that package events don't
+    // need to go through all the apps
+    private final HashMap<PackageUserKey, List<AppInfo>> mAppsByPackage = new HashMap<>();
+    private final HashMap<ComponentKey, AppInfo> mAppsByComponent = new HashMap<>();
+
     @NonNull
     private final IconCache mIconCache;
 
@@ -162,7 +176,7 @@ public class AllAppsList {
             info.title = "";
         }
 
-        data.add(info);
+        addToData(info);
         mDataChanged = true;
     }
 
@@ -188,7 +202,7 @@ public class AllAppsList {
             promiseAppInfo.title = "";
         }
 
-        data.add(promiseAppInfo);
+        addToData(promiseAppInfo);
         mDataChanged = true;
 
         return promiseAppInfo;
@@ -203,8 +217,8 @@ public class AllAppsList {
     public List<AppInfo> updatePromiseInstallInfo(PackageInstallInfo installInfo) {
         List<AppInfo> updatedAppInfos = new ArrayList<>();
         UserHandle user = installInfo.user;
-        for (int i = data.size() - 1; i >= 0; i--) {
-            final AppInfo appInfo = data.get(i);
+        List<AppInfo> removedApps = new ArrayList<>();
+        for (AppInfo appInfo : getAppsForPackage(installInfo.packageName, user)) {
             final ComponentName tgtComp = appInfo.getTargetComponent();
             if (tgtComp != null && tgtComp.getPackageName().equals(installInfo.packageName)
                     && appInfo.user.equals(user)) {
@@ -232,23 +246,61 @@ public class AllAppsList {
                                 + " package=" + appInfo.getTargetPackage()
                                 + ", user=" + user);
                     }
-                    removeApp(i);
+                    removedApps.add(appInfo);
                 }
             }
         }
+        removeApps(removedApps);
         return updatedAppInfos;
     }
 
-    private void removeApp(int index) {
-        AppInfo removed = data.remove(index);
-        if (removed != null) {
+    private void addToData(AppInfo info) {
+        data.add(info);
+        mAppsByPackage.computeIfAbsent(
+                new PackageUserKey(info.componentName.getPackageName(), info.user),
+                k -> new ArrayList<>(1)).add(info);
+        mAppsByComponent.putIfAbsent(new ComponentKey(info.componentName, info.user), info);
+    }
+
+    /**
+     * Removes {@param apps} from the list. The list is only compacted once, so that removing all
+     * the apps of a package is linear in the number of apps.
+     */
+    private void removeApps(List<AppInfo> apps) {
+        if (apps.isEmpty()) {
+            return;
+        }
+        Set<AppInfo> removed = new HashSet<>(apps);
+        data.removeIf(removed::contains);
+        for (AppInfo info : apps) {
+            PackageUserKey packageKey =
+                    new PackageUserKey(info.componentName.getPackageName(), info.user);
+            List<AppInfo> packageApps = mAppsByPackage.get(packageKey);
+            if (packageApps != null) {
+                packageApps.remove(info);
+                if (packageApps.isEmpty()) {
+                    mAppsByPackage.remove(packageKey);
+                }
+            }
+            mAppsByComponent.remove(new ComponentKey(info.componentName, info.user), info);
             mDataChanged = true;
-            mRemoveListener.accept(removed);
+            mRemoveListener.accept(info);
         }
     }
 
+    /**
+     * Returns a copy of the apps of {@param packageName} for {@param user}, which can be iterated
+     * while apps are removed.
+     */
+    private List<AppInfo> getAppsForPackage(String packageName, UserHandle user) {
+        List<AppInfo> apps = mAppsByPackage.get(new PackageUserKey(packageName, user));
+        return apps == null ? Collections.emptyList() : new ArrayList<>(apps);
+    }
+
     public void clear() {
         data.clear();
+        mAppsByPackage.clear();
+        mAppsByComponent.clear();
         mDataChanged = false;
         // Reset the index as locales might have changed
         mIndex = new AlphabeticIndexCompat(LocaleList.getDefault());
@@ -273,13 +325,7 @@ public class AllAppsList {
      * Remove the apps for the given apk identified by packageName.
      */
     public void removePackage(String packageName, UserHandle user) {
-        final List<AppInfo> data = this.data;
-        for (int i = data.size() - 1; i >= 0; i--) {
-            AppInfo info = data.get(i);
-            if (info.user.equals(user) && packageName.equals(info.componentName.getPackageName())) {
-                removeApp(i);
-            }
-        }
+        removeApps(getAppsForPackage(packageName, user));
     }
 
     /**
@@ -296,9 +342,30 @@ public class AllAppsList {
         }
     }
 
+    /**
+     * Updates the disabled flags of the apps of {@param packages} for {@param user} based on
+     * {@param op}.
+     */
+    public void updateDisabledFlags(Collection<String> packages, UserHandle user, FlagOp op) {
+        for (String packageName : packages) {
+            List<AppInfo> apps = mAppsByPackage.get(new PackageUserKey(packageName, user));
+            if (apps == null) {
+                continue;
+            }
+            for (AppInfo info : apps) {
+                info.runtimeStatusFlags = op.apply(info.runtimeStatusFlags);
+                mDataChanged = true;
+            }
+        }
+    }
+
     public void updateIconsAndLabels(HashSet<String> packages, UserHandle user) {
-        for (AppInfo info : data) {
-            if (info.user.equals(user) && packages.contains(info.componentName.getPackageName())) {
+        for (String packageName : packages) {
+            List<AppInfo> apps = mAppsByPackage.get(new PackageUserKey(packageName, user));
+            if (apps == null) {
+                continue;
+            }
+            for (AppInfo info : apps) {
                 mIconCache.updateTitleAndIcon(info);
                 info.sectionName = mIndex.computeSectionName(info.title);
                 mDataChanged = true;
@@ -319,20 +386,18 @@ public class AllAppsList {
         if (matches.size() > 0) {
             // Find disabled/removed activities and remove them from data and add them
             // to the removed list.
-            for (int i = data.size() - 1; i >= 0; i--) {
-                final AppInfo applicationInfo = data.get(i);
-                if (user.equals(applicationInfo.user)
-                        && packageName.equals(applicationInfo.componentName.getPackageName())) {
-                    if (!findActivity(matches, applicationInfo.componentName)) {
-                        if (DEBUG) {
-                            Log.w(TAG, "Changing shortcut target due to app component name change."
-                                    + " component=" + applicationInfo.componentName
-                                    + ", user=" + user);
-                        }
-                        removeApp(i);
+            List<AppInfo> removedApps = new ArrayList<>();
+            for (AppInfo applicationInfo : getAppsForPackage(packageName, user)) {
+                if (!findActivity(matches, applicationInfo.componentName)) {
+                    if (DEBUG) {
+                        Log.w(TAG, "Changing shortcut target due to app component name change."
+                                + " component=" + applicationInfo.componentName
+                                + ", user=" + user);
                     }
+                    removedApps.add(applicationInfo);
                 }
             }
+            removeApps(removedApps);
 
             // Find enabled activities and add them to the adapter
             // Also updates existing activities with new labels/icons
@@ -358,14 +423,11 @@ public class AllAppsList {
                         + " removing any AppInfo with package=" + packageName
                         + ", user=" + user);
             }
-            for (int i = data.size() - 1; i >= 0; i--) {
-                final AppInfo applicationInfo = data.get(i);
-                if (user.equals(applicationInfo.user)
-                        && packageName.equals(applicationInfo.componentName.getPackageName())) {
-                    mIconCache.remove(applicationInfo.componentName, user);
-                    removeApp(i);
-                }
+            List<AppInfo> removedApps = getAppsForPackage(packageName, user);
+            for (AppInfo applicationInfo : removedApps) {
+                mIconCache.remove(applicationInfo.componentName, user);
             }
+            removeApps(removedApps);
         }
 
         return matches;
@@ -391,12 +453,16 @@ public class AllAppsList {
      */
     public @Nullable AppInfo findAppInfo(@NonNull ComponentName componentName,
                                           @NonNull UserHandle user) {
-        for (AppInfo info: data) {
-            if (componentName.equals(info.componentName) && user.equals(info.user)) {
-                return info;
-            }
-        }
-        return null;
+        return mAppsByComponent.get(new ComponentKey(componentName, user));
+    }
+
+    /**
+     * Returns an app of {@param packageName} for {@param user}, or null if the package has no app
+     */
+    public @Nullable AppInfo findAppInfoForPackage(@NonNull String packageName,
+            @NonNull UserHandle user) {
+        List<AppInfo> apps = mAppsByPackage.get(new PackageUserKey(packageName, user));
+        return apps == null || apps.isEmpty() ? null : apps.get(0);
     }
 
     public AppInfo[] copyData() {
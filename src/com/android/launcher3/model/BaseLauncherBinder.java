@@ -20,6 +20,7 @@ import static com.android.launcher3.BuildConfig.WIDGETS_ENABLED;
 import static com.android.launcher3.Flags.enableSmartspaceRemovalToggle;
 import static com.android.launcher3.Flags.enableWorkspaceInflation;
 import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP;
+import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_HOTSEAT;
 import static com.android.launcher3.model.ItemInstallQueue.FLAG_LOADER_RUNNING;
 import static com.android.launcher3.model.ModelUtils.WIDGET_FILTER;
 import static com.android.launcher3.model.ModelUtils.currentScreenContentFilter;
@@ -30,9 +31,11 @@ import android.content.Context;
 import android.os.Trace;
 import android.util.Log;
 import android.util.Pair;
+import android.util.SparseArray;
 import android.view.View;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.android.launcher3.InvariantDeviceProfile;
 import com.android.launcher3.LauncherModel;
@@ -45,16 +48,19 @@ import com.android.launcher3.model.BgDataModel.Callbacks;
 import com.android.launcher3.model.BgDataModel.FixedContainerItems;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.LauncherAppWidgetInfo;
+import com.android.launcher3.model.data.WorkspaceData.MutableWorkspaceData;
+import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.IntSet;
 import com.android.launcher3.util.IntSparseArrayMap;
 import com.android.launcher3.util.ItemInflater;
+import com.android.launcher3.util.ItemInfoMatcher;
 import com.android.launcher3.util.LooperExecutor;
 import com.android.launcher3.util.LooperIdleLock;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.RunnableList;
-import com.android.launcher3.widget.model.WidgetsListBaseEntriesBuilder;
 import com.android.launcher3.widget.model.WidgetsListBaseEntry;
 
 import dagger.assisted.Assisted;
@@ -87,11 +93,18 @@ public class BaseLauncherBinder {
     private final LauncherModel mModel;
     protected final BgDataModel mBgDataModel;
     private final AllAppsList mBgAllAppsList;
+    private final ModelBindScheduler mBindScheduler;
 
     final Callbacks[] mCallbacksList;
 
     private int mMyBindingId;
 
+    // Items bound by bindWorkspaceItems, which the next bindWorkspace replaces
+    @Nullable
+    private SparseArray<ItemInfo> mPersistedItems;
+    @Nullable
+    private IntArray mPersistedScreenIds;
+
     @AssistedInject
     public BaseLauncherBinder(
             @ApplicationContext Context context,
@@ -99,6 +112,7 @@ public class BaseLauncherBinder {
             LauncherModel model,
             BgDataModel dataModel,
             AllAppsList allAppsList,
+            ModelBindScheduler bindScheduler,
             @Assisted Callbacks[] callbacksList) {
         mUiExecutor = MAIN_EXECUTOR;
         mContext = context;
@@ -106,6 +120,7 @@ public class BaseLauncherBinder {
         mModel = model;
         mBgDataModel = dataModel;
         mBgAllAppsList = allAppsList;
+        mBindScheduler = bindScheduler;
         mCallbacksList = callbacksList;
     }
 
@@ -114,6 +129,10 @@ public class BaseLauncherBinder {
      */
     public void bindWorkspace(boolean incrementBindId, boolean isBindSync) {
         Trace.beginSection("BaseLauncherBinder#bindWorkspace");
+        SparseArray<ItemInfo> persistedItems = mPersistedItems;
+        IntArray persistedScreenIds = mPersistedScreenIds;
+        mPersistedItems = null;
+        mPersistedScreenIds = null;
         try {
             // Save a copy of all the bg-thread collections
             IntSparseArrayMap<ItemInfo> itemsIdMap;
@@ -132,8 +151,13 @@ public class BaseLauncherBinder {
                 workspaceItemCount = mBgDataModel.itemsIdMap.size();
             }
 
+            if (persistedItems != null && orderedScreenIds.equals(persistedScreenIds)) {
+                bindChangesFromPersistedItems(
+                        persistedItems, itemsIdMap, extraItems, orderedScreenIds);
+                return;
+            }
             for (Callbacks cb : mCallbacksList) {
-                new UnifiedWorkspaceBinder(cb, itemsIdMap, extraItems, orderedScreenIds)
+                new UnifiedWorkspaceBinder(cb, itemsIdMap, extraItems, orderedScreenIds, true)
                         .bind(isBindSync, workspaceItemCount);
             }
         } finally {
@@ -141,6 +165,121 @@ public class BaseLauncherBinder {
         }
     }
 
+    /**
+     * Binds {@param items} which are not part of the model, like the workspace persisted by a
+     * previous process. The model is left untouched, and the next {@link #bindWorkspace} replaces
+     * these items, only binding the differences when the pages are the same.
+     */
+    public void bindWorkspaceItems(SparseArray<ItemInfo> items) {
+        Trace.beginSection("BaseLauncherBinder#bindWorkspaceItems");
+        try {
+            IntSparseArrayMap<ItemInfo> itemsIdMap = new IntSparseArrayMap<>();
+            for (int i = 0; i < items.size(); i++) {
+                itemsIdMap.put(items.keyAt(i), items.valueAt(i));
+            }
+            MutableWorkspaceData workspaceData = new MutableWorkspaceData();
+            workspaceData.replaceDataMap(items);
+            final IntArray orderedScreenIds = workspaceData.collectWorkspaceScreens();
+            synchronized (mBgDataModel) {
+                // The load id is not updated, so that model writes made on these items are dropped
+                mBgDataModel.lastBindId++;
+                mMyBindingId = mBgDataModel.lastBindId;
+            }
+            mPersistedItems = items;
+            mPersistedScreenIds = orderedScreenIds;
+
+            for (Callbacks cb : mCallbacksList) {
+                new UnifiedWorkspaceBinder(
+                        cb, itemsIdMap, new ArrayList<>(), orderedScreenIds, false)
+                        .bind(false /* isBindSync */, itemsIdMap.size());
+            }
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Binds the differences between {@param persistedItems}, bound by {@link #bindWorkspaceItems},
+     * and the items loaded in the model. The views of the icons and widgets which didn't move are
+     * kept and given the loaded items, the other persisted items are removed and bound again.
+     */
+    private void bindChangesFromPersistedItems(SparseArray<ItemInfo> persistedItems,
+            IntSparseArrayMap<ItemInfo> itemsIdMap, ArrayList<FixedContainerItems> extraItems,
+            IntArray orderedScreenIds) {
+        IntSet removedIds = new IntSet();
+        List<ItemInfo> replacedItems = new ArrayList<>();
+        for (int i = 0; i < persistedItems.size(); i++) {
+            ItemInfo persisted = persistedItems.valueAt(i);
+            if (persisted.container != CONTAINER_DESKTOP
+                    && persisted.container != CONTAINER_HOTSEAT) {
+                // Folder contents are bound along with their folder
+                continue;
+            }
+            ItemInfo loaded = itemsIdMap.get(persisted.id);
+            if (loaded != null && canReplaceInPlace(persisted, loaded)) {
+                replacedItems.add(loaded);
+            } else {
+                removedIds.add(persisted.id);
+            }
+        }
+        ArrayList<ItemInfo> addedItems = new ArrayList<>();
+        itemsIdMap.forEach(item -> {
+            if ((item.container == CONTAINER_DESKTOP || item.container == CONTAINER_HOTSEAT)
+                    && (persistedItems.get(item.id) == null || removedIds.contains(item.id))) {
+                addedItems.add(item);
+            }
+        });
+        sortWorkspaceItemsSpatially(addedItems);
+        StringCache cacheClone = mBgDataModel.stringCache.clone();
+
+        executeCallbacksTask(c -> {
+            // The remaining persisted items are not bound anymore, they are replaced below
+            c.clearPendingBinds();
+            if (!removedIds.isEmpty()) {
+                c.bindWorkspaceComponentsRemoved(ItemInfoMatcher.ofItemIds(removedIds));
+            }
+            if (!replacedItems.isEmpty()) {
+                c.bindItemsReplaced(replacedItems);
+            }
+            if (!addedItems.isEmpty()) {
+                c.bindItems(addedItems, false);
+            }
+        }, mUiExecutor);
+        extraItems.forEach(item ->
+                executeCallbacksTask(c -> c.bindExtraContainerItems(item), mUiExecutor));
+        executeCallbacksTask(c -> {
+            c.bindStringCache(cacheClone);
+            c.finishBindingItems(c.getPagesToBindSynchronously(orderedScreenIds));
+        }, mUiExecutor);
+        mUiExecutor.execute(() -> {
+            if (mMyBindingId == mBgDataModel.lastBindId) {
+                ItemInstallQueue.INSTANCE.get(mContext).resumeModelPush(FLAG_LOADER_RUNNING);
+            }
+        });
+    }
+
+    /**
+     * Returns whether the view bound for {@param persisted} can show {@param loaded} by only being
+     * updated, which requires both to be the same icon or widget at the same position.
+     */
+    private static boolean canReplaceInPlace(ItemInfo persisted, ItemInfo loaded) {
+        if (persisted.getClass() != loaded.getClass()
+                || persisted.itemType != loaded.itemType
+                || persisted.container != loaded.container
+                || persisted.screenId != loaded.screenId
+                || persisted.cellX != loaded.cellX || persisted.cellY != loaded.cellY
+                || persisted.spanX != loaded.spanX || persisted.spanY != loaded.spanY) {
+            return false;
+        }
+        if (loaded instanceof LauncherAppWidgetInfo loadedWidget) {
+            LauncherAppWidgetInfo persistedWidget = (LauncherAppWidgetInfo) persisted;
+            return loadedWidget.appWidgetId == persistedWidget.appWidgetId
+                    && loadedWidget.restoreStatus == persistedWidget.restoreStatus
+                    && Objects.equals(loadedWidget.providerName, persistedWidget.providerName);
+        }
+        return loaded instanceof WorkspaceItemInfo;
+    }
+
     /**
      * BindDeepShortcuts is abstract because it is a no-op for the go launcher.
      */
@@ -148,10 +287,9 @@ public class BaseLauncherBinder {
         if (!WIDGETS_ENABLED) {
             return;
         }
-        final HashMap<ComponentKey, Integer> shortcutMapCopy;
-        synchronized (mBgDataModel) {
-            shortcutMapCopy = new HashMap<>(mBgDataModel.deepShortcutMap);
-        }
+        // The map is replaced on every change, so it doesn't need a lock
+        final HashMap<ComponentKey, Integer> shortcutMapCopy =
+                new HashMap<>(mBgDataModel.getDeepShortcutMap());
         executeCallbacksTask(c -> c.bindDeepShortcutMap(shortcutMapCopy), mUiExecutor);
     }
 
@@ -177,8 +315,8 @@ public class BaseLauncherBinder {
         if (!WIDGETS_ENABLED) {
             return;
         }
-        List<WidgetsListBaseEntry> widgets = new WidgetsListBaseEntriesBuilder(mContext)
-                .build(mBgDataModel.widgetsModel.getWidgetsByPackageItemForPicker());
+        List<WidgetsListBaseEntry> widgets =
+                mBgDataModel.widgetsModel.getWidgetsListForPicker();
         executeCallbacksTask(c -> c.bindAllWidgets(widgets), mUiExecutor);
     }
 
@@ -228,7 +366,11 @@ public class BaseLauncherBinder {
     }
 
     protected void executeCallbacksTask(CallbackTask task, Executor executor) {
+        long bindBarrier = mBindScheduler.addBarrier();
         executor.execute(() -> {
+            // Run the pending binds of model tasks which were scheduled before this bind first, in
+            // case they were deferred to a later frame
+            mBindScheduler.flush(bindBarrier);
             if (mMyBindingId != mBgDataModel.lastBindId) {
                 Log.d(TAG, "Too many consecutive reloads, skipping obsolete data-bind");
                 return;
@@ -258,16 +400,22 @@ public class BaseLauncherBinder {
         private final IntSparseArrayMap<ItemInfo> mItemIdMap;
         private final IntArray mOrderedScreenIds;
         private final ArrayList<FixedContainerItems> mExtraItems;
+        // Whether the items are the ones of the model, rather than a preview of them
+        private final boolean mIsModelBind;
+        // Id of this bind, as the binder can bind the model after binding persisted items
+        private final int mBindId = mMyBindingId;
 
         UnifiedWorkspaceBinder(
                 Callbacks callbacks,
                 IntSparseArrayMap<ItemInfo> itemIdMap,
                 ArrayList<FixedContainerItems> extraItems,
-                IntArray orderedScreenIds) {
+                IntArray orderedScreenIds,
+                boolean isModelBind) {
             mCallbacks = callbacks;
             mItemIdMap = itemIdMap;
             mExtraItems = extraItems;
             mOrderedScreenIds = orderedScreenIds;
+            mIsModelBind = isModelBind;
         }
 
         private void bind(boolean isBindSync, int workspaceItemCount) {
@@ -313,8 +461,18 @@ public class BaseLauncherBinder {
                 inflateAsyncAndBind(currentWorkspaceItems, inflater, mUiExecutor);
                 inflateAsyncAndBind(currentAppWidgets, inflater, mUiExecutor);
             } else {
+                if (inflater != null) {
+                    // Look up the providers and create the host views of the widgets here, so
+                    // that binding them on the main thread only needs to apply them
+                    inflater.prepareAppWidgets(currentAppWidgets);
+                }
                 bindItemsInChunks(currentWorkspaceItems, ITEMS_CHUNK, mUiExecutor);
                 bindItemsInChunks(currentAppWidgets, 1, mUiExecutor);
+                if (inflater != null) {
+                    // Don't keep the providers of widgets which were not bound, even when this
+                    // bind is obsolete
+                    mUiExecutor.execute(inflater::clearPreparedAppWidgets);
+                }
             }
             mExtraItems.forEach(item ->
                     executeCallbacksTask(c -> c.bindExtraContainerItems(item), mUiExecutor));
@@ -355,8 +513,10 @@ public class BaseLauncherBinder {
             executeCallbacksTask(c -> c.bindStringCache(cacheClone), pendingExecutor);
 
             executeCallbacksTask(c -> c.finishBindingItems(currentScreenIds), pendingExecutor);
-            pendingExecutor.execute(() -> ItemInstallQueue.INSTANCE.get(mContext)
-                    .resumeModelPush(FLAG_LOADER_RUNNING));
+            if (mIsModelBind) {
+                pendingExecutor.execute(() -> ItemInstallQueue.INSTANCE.get(mContext)
+                        .resumeModelPush(FLAG_LOADER_RUNNING));
+            }
         }
 
         /**
@@ -365,7 +525,7 @@ public class BaseLauncherBinder {
          */
         private void inflateAsyncAndBind(
                 List<ItemInfo> items, @NonNull ItemInflater inflater, Executor executor) {
-            if (mMyBindingId != mBgDataModel.lastBindId) {
+            if (mBindId != mBgDataModel.lastBindId) {
                 Log.d(TAG, "Too many consecutive reloads, skipping obsolete view inflation");
                 return;
             }
@@ -393,7 +553,7 @@ public class BaseLauncherBinder {
 
         protected void executeCallbacksTask(CallbackTask task, Executor executor) {
             executor.execute(() -> {
-                if (mMyBindingId != mBgDataModel.lastBindId) {
+                if (mBindId != mBgDataModel.lastBindId) {
                     Log.d(TAG, "Too many consecutive reloads, skipping obsolete data-bind");
                     return;
                 }
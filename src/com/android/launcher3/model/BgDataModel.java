@@ -60,6 +60,7 @@ import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.IntSet;
 import com.android.launcher3.util.IntSparseArrayMap;
+import com.android.launcher3.util.ItemInfoMatcher;
 import com.android.launcher3.util.ItemInflater;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.RunnableList;
@@ -440,6 +441,17 @@ public class BgDataModel {
         default void bindItemsUpdated(Set<ItemInfo> updates) { }
         default void bindWorkspaceComponentsRemoved(Predicate<ItemInfo> matcher) { }
 
+        /**
+         * Replaces the bound items having the same ids as {@param items}, keeping their views when
+         * possible. By default, the bound items are removed and {@param items} are bound instead.
+         */
+        default void bindItemsReplaced(List<ItemInfo> items) {
+            IntSet ids = new IntSet();
+            items.forEach(item -> ids.add(item.id));
+            bindWorkspaceComponentsRemoved(ItemInfoMatcher.ofItemIds(ids));
+            bindItems(items, false);
+        }
+
         /**
          * Binds the app widgets to the providers that share widgets with the UI.
          */
@@ -36,11 +36,14 @@ import com.android.launcher3.model.data.AppInfo
 import com.android.launcher3.model.data.ItemInfo
 import com.android.launcher3.model.data.LauncherAppWidgetInfo
 import com.android.launcher3.model.data.PredictedContainerInfo
+import com.android.launcher3.model.data.SharedItemMap
+import com.android.launcher3.model.data.WorkspaceChangeEvent
 import com.android.launcher3.model.data.WorkspaceChangeEvent.AddEvent
 import com.android.launcher3.model.data.WorkspaceChangeEvent.RemoveEvent
 import com.android.launcher3.model.data.WorkspaceChangeEvent.UpdateEvent
 import com.android.launcher3.model.data.WorkspaceData
 import com.android.launcher3.model.data.WorkspaceData.MutableWorkspaceData
+import com.android.launcher3.model.data.WorkspaceData.SharedWorkspaceData
 import com.android.launcher3.model.data.WorkspaceItemInfo
 import com.android.launcher3.model.repository.HomeScreenRepository
 import com.android.launcher3.pm.UserCache
@@ -49,12 +52,16 @@ import com.android.launcher3.shortcuts.ShortcutRequest
 import com.android.launcher3.util.ComponentKey
 import com.android.launcher3.util.DaggerSingletonTracker
 import com.android.launcher3.util.Executors
+import com.android.launcher3.util.IntSet
 import com.android.launcher3.util.IntSparseArrayMap
 import com.android.launcher3.util.ItemInfoMatcher
 import com.android.launcher3.util.PackageUserKey
 import com.android.launcher3.widget.model.WidgetsListBaseEntry
 import java.io.PrintWriter
 import java.util.Collections
+import java.util.concurrent.TimeUnit.NANOSECONDS
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Consumer
 import java.util.function.Predicate
 import javax.inject.Inject
 import javax.inject.Provider
@@ -64,6 +71,9 @@ import javax.inject.Provider
  *
  * All the static data should be accessed on the background thread, A lock should be acquired on
  * this object when accessing any data from this model.
+ *
+ * Readers which only need a consistent view of the workspace items can use [workspaceSnapshot]
+ * instead, which is published after every change and can be read from any thread without locking.
  */
 @LauncherAppSingleton
 class BgDataModel
@@ -72,6 +82,7 @@ constructor(
     /** Entire list of widgets. */
     @JvmField val widgetsModel: WidgetsModel,
     private val repo: Provider<HomeScreenRepository>,
+    private val snapshotStore: ModelSnapshotStore,
     dumpManager: DumpManager,
     lifeCycle: DaggerSingletonTracker,
 ) : LauncherDumpable {
@@ -84,12 +95,37 @@ constructor(
      */
     @JvmField val itemsIdMap: WorkspaceData = mutableWorkspaceData
 
+    /**
+     * Immutable version of [itemsIdMap], updated after every change of the model. This can be read
+     * from any thread without acquiring a lock on the model. Note that only the set of items is
+     * immutable, the items themselves are shared with the model.
+     */
+    @Volatile
+    private var publishedSnapshot: WorkspaceData =
+        SharedWorkspaceData(
+            mutableWorkspaceData.version,
+            mutableWorkspaceData.modificationId,
+            SharedItemMap.EMPTY,
+        )
+
+    /** Items of [publishedSnapshot], updated along with [itemsIdMap] while holding the lock */
+    private var sharedItems = SharedItemMap.EMPTY
+
+    /** Index of [itemsIdMap] by package and user */
+    private val packageIndex = PackageUserIndex()
+
+    private val metrics = SnapshotMetrics()
+
     /** Extra container based items */
     @Deprecated("Use independent repository for each extra item")
     @JvmField
     val extraItems = IntSparseArrayMap<FixedContainerItems>()
 
-    /** Maps all launcher activities to counts of their shortcuts. */
+    /**
+     * Maps all launcher activities to counts of their shortcuts. The map is replaced on every
+     * change, so it can be read without acquiring a lock on the model.
+     */
+    @Volatile
     var deepShortcutMap: Map<ComponentKey, Int> = emptyMap()
         private set
 
@@ -107,6 +143,27 @@ constructor(
         lifeCycle.addCloseable(dumpManager.register(this))
     }
 
+    /** Latest published version of [itemsIdMap], which can be accessed from any thread */
+    @get:AnyThread
+    val workspaceSnapshot: WorkspaceData
+        get() {
+            metrics.snapshotReads.incrementAndGet()
+            return publishedSnapshot
+        }
+
+    /**
+     * Runs [reader] while holding the lock on the model, recording how long it waited for the
+     * lock. Prefer [workspaceSnapshot] for readers which don't need the other model data.
+     */
+    @AnyThread
+    fun <T> readLocked(reader: () -> T): T {
+        val startTime = System.nanoTime()
+        synchronized(this) {
+            metrics.onLockAcquired(System.nanoTime() - startTime)
+            return reader.invoke()
+        }
+    }
+
     /** Clears all the data */
     @Synchronized
     fun clear() {
@@ -114,15 +171,15 @@ constructor(
         extraItems.clear()
     }
 
-    @Synchronized
     override fun dump(prefix: String, writer: PrintWriter, args: Array<String>?) {
         writer.println(prefix + "Data Model:")
         writer.println("$prefix ---- items id map ")
-        itemsIdMap.forEach { writer.println("$prefix\t$it") }
+        workspaceSnapshot.forEach { writer.println("$prefix\t$it") }
         writer.println("$prefix ---- extra items ")
-        extraItems.forEach { writer.println("$prefix\t$it") }
+        readLocked { extraItems.toList() }.forEach { writer.println("$prefix\t$it") }
         if (args?.getOrNull(0) == "--all")
             writer.println(prefix + "shortcut counts: ${deepShortcutMap.values.joinToString()}")
+        metrics.dump(prefix, writer)
     }
 
     @Synchronized
@@ -134,6 +191,7 @@ constructor(
     @JvmOverloads
     fun removeItem(context: Context, items: Collection<ItemInfo>, owner: Any? = null) {
         if (BuildConfig.IS_STUDIO_BUILD) {
+            val removedIds = IntSet().apply { items.forEach { add(it.id) } }
             items
                 .asSequence()
                 .filter { it.itemType == ITEM_TYPE_FOLDER || it.itemType == ITEM_TYPE_APP_PAIR }
@@ -142,7 +200,7 @@ constructor(
                     // We are deleting a collection which still contains items that think they are
                     // contained by that collection.
                     itemsIdMap
-                        .filter { it.container == item.id && !items.contains(it) }
+                        .filter { it.container == item.id && !removedIds.contains(it.id) }
                         .forEach { info: ItemInfo ->
                             Log.e(
                                 TAG,
@@ -153,15 +211,11 @@ constructor(
         }
 
         mutableWorkspaceData.modifyItems { items.forEach { remove(it.id) } }
-
-        if (Flags.modelRepository()) {
-            repo
-                .get()
-                .dispatchWorkspaceDataChange(
-                    mutableWorkspaceData.copy(),
-                    RemoveEvent(ItemInfoMatcher.ofItems(items), owner),
-                )
+        items.forEach {
+            packageIndex.remove(it.id)
+            sharedItems = sharedItems.remove(it.id)
         }
+        publishSnapshot { RemoveEvent(ItemInfoMatcher.ofItems(items), owner) }
 
         items
             .asSequence()
@@ -179,12 +233,11 @@ constructor(
     @JvmOverloads
     fun addItems(context: Context, items: List<ItemInfo>, owner: Any? = null) {
         mutableWorkspaceData.modifyItems { items.forEach { put(it.id, it) } }
-
-        if (Flags.modelRepository()) {
-            repo
-                .get()
-                .dispatchWorkspaceDataChange(mutableWorkspaceData.copy(), AddEvent(items, owner))
+        items.forEach {
+            packageIndex.add(it)
+            sharedItems = sharedItems.put(it)
         }
+        publishSnapshot { AddEvent(items, owner) }
         items
             .filter { it.itemType == ITEM_TYPE_DEEP_SHORTCUT }
             .map { it.user }
@@ -195,31 +248,54 @@ constructor(
     @Synchronized
     fun updateAndDispatchItem(item: ItemInfo, owner: Any?) {
         mutableWorkspaceData.modifyItems { put(item.id, item) }
-        if (Flags.modelRepository()) {
-            repo
-                .get()
-                .dispatchWorkspaceDataChange(
-                    mutableWorkspaceData.copy(),
-                    UpdateEvent(listOf(item), owner),
-                )
-        }
+        packageIndex.add(item)
+        sharedItems = sharedItems.put(item)
+        publishSnapshot { UpdateEvent(listOf(item), owner) }
     }
 
     @Synchronized
     fun updateItems(items: List<ItemInfo>, owner: Any?) {
         mutableWorkspaceData.modifyItems {}
-        if (Flags.modelRepository()) {
-            repo
-                .get()
-                .dispatchWorkspaceDataChange(mutableWorkspaceData.copy(), UpdateEvent(items, owner))
-        }
+        // The items may have been updated to target a different package
+        items.forEach { packageIndex.add(it) }
+        publishSnapshot { UpdateEvent(items, owner) }
     }
 
     @Synchronized
     fun dataLoadComplete(allItems: SparseArray<ItemInfo>) {
         mutableWorkspaceData.replaceDataMap(allItems)
+        packageIndex.rebuild(mutableWorkspaceData)
+        sharedItems = SharedItemMap.of(mutableWorkspaceData.itemsIdMap)
+        publishSnapshot { null }
+    }
+
+    /**
+     * Deletes the workspace persisted by the last load, called when items are changed in the DB
+     * without going through the model, like when they are moved.
+     */
+    fun invalidatePersistedSnapshot() {
+        snapshotStore.invalidate()
+    }
+
+    /**
+     * Publishes a new [workspaceSnapshot] after a change of [itemsIdMap] and dispatches it to the
+     * repository along with the [change]. Must be called while holding the lock on the model, after
+     * [sharedItems] is updated.
+     */
+    private inline fun publishSnapshot(change: () -> WorkspaceChangeEvent?) {
+        val startTime = System.nanoTime()
+        val snapshot =
+            SharedWorkspaceData(
+                mutableWorkspaceData.version,
+                mutableWorkspaceData.modificationId,
+                sharedItems,
+            )
+        publishedSnapshot = snapshot
+        metrics.onSnapshotPublished(System.nanoTime() - startTime)
+        // The persisted copy no longer matches the DB, until the next load writes it again
+        snapshotStore.invalidate()
         if (Flags.modelRepository()) {
-            repo.get().dispatchWorkspaceDataChange(mutableWorkspaceData.copy(), null)
+            repo.get().dispatchWorkspaceDataChange(snapshot, change.invoke())
         }
     }
 
@@ -380,29 +456,131 @@ constructor(
         widgetItemOp: ((LauncherAppWidgetInfo) -> Boolean)? = null,
     ): List<ItemInfo> =
         itemsIdMap
-            .filter {
-                when {
-                    it is WorkspaceItemInfo && userHandle == it.user -> workspaceItemOp.invoke(it)
-                    widgetItemOp != null && it is LauncherAppWidgetInfo && userHandle == it.user ->
-                        widgetItemOp.invoke(it)
-                    it is PredictedContainerInfo -> {
-                        // Do not use filter or any as we want to run the update on every item. If
-                        // any
-                        // single item was updated, we add the container to the list of updates
-                        it.getContents().count { predictedItem ->
-                            predictedItem is WorkspaceItemInfo &&
-                                predictedItem.user == userHandle &&
-                                workspaceItemOp.invoke(predictedItem)
-                        } > 0
-                    }
-                    else -> false
-                }
+            .filter { updateItem(it, userHandle, null, workspaceItemOp, widgetItemOp) }
+            .apply {
+                // Dispatch an update
+                if (isNotEmpty()) updateItems(this, null)
             }
+
+    /**
+     * Same as [updateAndCollectWorkspaceItemInfos], but only calls the ops for the items targeting
+     * one of the [packages]. The items are looked up in the package index, so the cost only
+     * depends on the number of affected items rather than on the size of the model.
+     */
+    @JvmOverloads
+    @Synchronized
+    fun updateAndCollectWorkspaceItemInfos(
+        packages: Collection<String>,
+        userHandle: UserHandle,
+        workspaceItemOp: (WorkspaceItemInfo) -> Boolean,
+        widgetItemOp: ((LauncherAppWidgetInfo) -> Boolean)? = null,
+    ): List<ItemInfo> =
+        packageIndex
+            .getItemIds(packages, userHandle)
+            .mapNotNull { itemsIdMap[it] }
+            .filter { updateItem(it, userHandle, packages, workspaceItemOp, widgetItemOp) }
             .apply {
                 // Dispatch an update
                 if (isNotEmpty()) updateItems(this, null)
             }
 
+    /** Returns the items targeting one of the [packages] for [userHandle] */
+    @Synchronized
+    fun getItemsForPackages(packages: Collection<String>, userHandle: UserHandle): List<ItemInfo> =
+        packageIndex.getItemIds(packages, userHandle).mapNotNull { itemsIdMap[it] }
+
+    /**
+     * Calls [op] for the workspace items targeting one of the [packages] for [userHandle],
+     * including the matching contents of predicted containers. The items are looked up in the
+     * package index. Note the call is not synchronized over the model, that should be handled by
+     * the caller.
+     */
+    fun forAllWorkspaceItemInfos(
+        packages: Collection<String>,
+        userHandle: UserHandle,
+        op: Consumer<WorkspaceItemInfo>,
+    ) {
+        packageIndex.getItemIds(packages, userHandle).forEach { id ->
+            when (val item = itemsIdMap[id]) {
+                is WorkspaceItemInfo -> if (userHandle == item.user) op.accept(item)
+                is PredictedContainerInfo ->
+                    item.getContents().forEach {
+                        if (
+                            it is WorkspaceItemInfo &&
+                                userHandle == it.user &&
+                                packages.contains(it.targetPackage)
+                        ) {
+                            op.accept(it)
+                        }
+                    }
+            }
+        }
+    }
+
+    /**
+     * Calls the matching op for [item] and returns whether it was updated. If [packages] is not
+     * null, the contents of predicted containers are limited to these packages.
+     */
+    private fun updateItem(
+        item: ItemInfo,
+        userHandle: UserHandle,
+        packages: Collection<String>?,
+        workspaceItemOp: (WorkspaceItemInfo) -> Boolean,
+        widgetItemOp: ((LauncherAppWidgetInfo) -> Boolean)?,
+    ): Boolean =
+        when {
+            item is WorkspaceItemInfo && userHandle == item.user -> workspaceItemOp.invoke(item)
+            widgetItemOp != null && item is LauncherAppWidgetInfo && userHandle == item.user ->
+                widgetItemOp.invoke(item)
+            item is PredictedContainerInfo -> {
+                // Do not use filter or any as we want to run the update on every item. If any
+                // single item was updated, we add the container to the list of updates
+                item.getContents().count { predictedItem ->
+                    predictedItem is WorkspaceItemInfo &&
+                        predictedItem.user == userHandle &&
+                        (packages == null || packages.contains(predictedItem.targetPackage)) &&
+                        workspaceItemOp.invoke(predictedItem)
+                } > 0
+            }
+            else -> false
+        }
+
+    /** Metrics of the snapshot reads and of the readers which still lock the model */
+    private class SnapshotMetrics {
+        val snapshotReads = AtomicInteger()
+
+        // Updated while holding the lock on the model
+        @Volatile var snapshotPublishes = 0
+        @Volatile var totalPublishNanos = 0L
+        @Volatile var lockedReads = 0
+        @Volatile var totalLockWaitNanos = 0L
+        @Volatile var maxLockWaitNanos = 0L
+
+        fun onSnapshotPublished(durationNanos: Long) {
+            snapshotPublishes++
+            totalPublishNanos += durationNanos
+        }
+
+        fun onLockAcquired(waitNanos: Long) {
+            lockedReads++
+            totalLockWaitNanos += waitNanos
+            maxLockWaitNanos = maxOf(maxLockWaitNanos, waitNanos)
+        }
+
+        fun dump(prefix: String, writer: PrintWriter) {
+            writer.println("$prefix ---- snapshots ")
+            writer.println(
+                "$prefix\tlock-free reads: ${snapshotReads.get()}, published: $snapshotPublishes" +
+                    ", publish time: ${NANOSECONDS.toMicros(totalPublishNanos)}us"
+            )
+            writer.println(
+                "$prefix\tlocked reads: $lockedReads" +
+                    ", total wait: ${NANOSECONDS.toMicros(totalLockWaitNanos)}us" +
+                    ", max wait: ${NANOSECONDS.toMicros(maxLockWaitNanos)}us"
+            )
+        }
+    }
+
     /** An object containing items corresponding to a fixed container */
     class FixedContainerItems(@JvmField val containerId: Int, items: List<ItemInfo>) {
 
@@ -63,7 +63,7 @@ public class CacheDataUpdatedTask implements ModelUpdateTask {
         ArrayList<ItemInfo> updatedItems = new ArrayList<>();
 
         synchronized (dataModel) {
-            dataModel.forAllWorkspaceItemInfos(mUser, si -> {
+            dataModel.forAllWorkspaceItemInfos(mPackages, mUser, si -> {
                 ComponentName cn = si.getTargetComponent();
                 if (si.itemType == LauncherSettings.Favorites.ITEM_TYPE_APPLICATION
                         && isValidShortcut(si) && cn != null
@@ -73,9 +73,8 @@ public class CacheDataUpdatedTask implements ModelUpdateTask {
                 }
             });
 
-            dataModel.itemsIdMap.stream()
+            dataModel.getItemsForPackages(mPackages, mUser).stream()
                     .filter(WIDGET_FILTER)
-                    .filter(item -> mUser.equals(item.user))
                     .map(item -> (LauncherAppWidgetInfo) item)
                     .filter(widget -> mPackages.contains(widget.providerName.getPackageName())
                             && widget.pendingItemInfo != null)
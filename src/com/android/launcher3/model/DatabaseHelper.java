@@ -28,9 +28,11 @@ import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
 import android.os.Process;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.provider.BaseColumns;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -55,7 +57,10 @@ import com.android.launcher3.widget.LauncherWidgetHolder;
 import java.io.File;
 import java.net.URISyntaxException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
@@ -469,6 +474,43 @@ public class DatabaseHelper extends NoLocaleSQLiteHelper implements
         return dbInsertAndCheck(db, Favorites.TABLE_NAME, values);
     }
 
+    @Override
+    public boolean insertAll(SQLiteDatabase db, Collection<ContentValues> items) {
+        // Items of the same kind have the same columns, so a statement is compiled once for each
+        // set of columns and reused for all the items having it
+        Map<String, SQLiteStatement> statements = new ArrayMap<>();
+        try {
+            for (ContentValues values : items) {
+                if (!values.containsKey(Favorites._ID)) {
+                    throw new RuntimeException(
+                            "Error: attempting to add item without specifying an id");
+                }
+                checkId(values);
+                String[] columns = values.keySet().toArray(new String[0]);
+                Arrays.sort(columns);
+                String columnList = TextUtils.join(",", columns);
+                SQLiteStatement statement = statements.get(columnList);
+                if (statement == null) {
+                    statement = db.compileStatement("INSERT INTO " + Favorites.TABLE_NAME
+                            + " (" + columnList + ") VALUES ("
+                            + TextUtils.join(",", Collections.nCopies(columns.length, "?"))
+                            + ")");
+                    statements.put(columnList, statement);
+                }
+                statement.clearBindings();
+                for (int i = 0; i < columns.length; i++) {
+                    DatabaseUtils.bindObjectToProgram(statement, i + 1, values.get(columns[i]));
+                }
+                if (statement.executeInsert() < 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            statements.values().forEach(SQLiteStatement::close);
+        }
+    }
+
     public int dbInsertAndCheck(SQLiteDatabase db, String table, ContentValues values) {
         if (values == null) {
             throw new RuntimeException("Error: attempting to insert null values");
@@ -502,11 +544,13 @@ public class DatabaseHelper extends NoLocaleSQLiteHelper implements
     }
 
     public int loadFavorites(SQLiteDatabase db, AutoInstallsLayout loader) {
-        // TODO: Use multiple loaders with fall-back and transaction.
+        long startTime = SystemClock.elapsedRealtime();
         int count = loader.loadLayout(db);
 
         // Ensure that the max ids are initialized
         mMaxItemId.set(initializeMaxItemId(db));
+        FileLog.d(TAG, "loadFavorites: loaded " + count + " items in "
+                + (SystemClock.elapsedRealtime() - startTime) + "ms");
         return count;
     }
 
@@ -87,7 +87,7 @@ class DbEntry : ItemInfo(), Comparable<DbEntry> {
      * entry on each workspace. For example two calculator icons would have the same migration id
      * even thought they have different database ids.
      */
-    private fun getEntryMigrationId(): String? {
+    internal fun getEntryMigrationId(): String? {
         when (itemType) {
             ITEM_TYPE_FOLDER,
             ITEM_TYPE_APP_PAIR -> return getFolderMigrationId()
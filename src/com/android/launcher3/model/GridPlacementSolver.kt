@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model
+
+import android.os.SystemClock
+import android.util.Log
+import androidx.annotation.VisibleForTesting
+import com.android.launcher3.util.CellAndSpan
+import com.android.launcher3.util.GridOccupancy
+
+/**
+ * Finds the placement of the workspace items that need to be added to the destination grid during
+ * a grid migration.
+ *
+ * The items are first placed in reading order, which is how the migration has always placed them
+ * and which is always fully computed. Within the given time budget, first-fit-decreasing bin
+ * packing arrangements are then tried, which backfill the gaps left by multi-span widgets. A
+ * packed arrangement is only used if it needs fewer screens than the reading order one, and when
+ * the budget runs out the best arrangement found so far is returned.
+ *
+ * @param trgX number of columns of the destination grid
+ * @param trgY number of rows of the destination grid
+ * @param firstScreenStartRow first row available on the first screen, used to skip smartspace
+ * @param timeBudgetMs time allowed for the packing arrangements
+ */
+class GridPlacementSolver(
+    private val trgX: Int,
+    private val trgY: Int,
+    private val firstScreenStartRow: Int,
+    private val timeBudgetMs: Long = DEFAULT_TIME_BUDGET_MS,
+) {
+
+    /**
+     * @param sortedItemsToPlace items to place, sorted in reading order
+     * @param existingEntries entries already present in the destination grid, by screen id
+     * @param lastScreenId last screen id used in the destination grid
+     */
+    fun solve(
+        sortedItemsToPlace: List<DbEntry>,
+        existingEntries: Map<Int, List<DbEntry>>,
+        lastScreenId: Int,
+    ): Solution {
+        val startTime = SystemClock.elapsedRealtime()
+        val items = sortedItemsToPlace.filter { it.minSpanX <= trgX && it.minSpanY <= trgY }
+        var best = solveInReadingOrder(items, existingEntries, lastScreenId)
+
+        for (comparator in PACKING_ORDERS) {
+            val deadline = startTime + timeBudgetMs
+            if (best.screenCount <= lastScreenId + 1 || SystemClock.elapsedRealtime() > deadline) {
+                // Nothing to gain over the screens that already exist, or out of time
+                break
+            }
+            val packed =
+                solveFirstFitDecreasing(
+                    items.sortedWith(comparator),
+                    existingEntries,
+                    lastScreenId,
+                    deadline,
+                ) ?: break
+            if (packed.screenCount < best.screenCount) {
+                best = packed
+            }
+        }
+
+        if (DEBUG) {
+            Log.d(
+                TAG,
+                "Placed ${best.placements.size} items on ${best.screenCount} screens in " +
+                    "${SystemClock.elapsedRealtime() - startTime}ms",
+            )
+        }
+        return best
+    }
+
+    /**
+     * Places the items screen by screen in reading order. The search on each screen continues
+     * after the last placed item, so items never end up before an item preceding them.
+     */
+    @VisibleForTesting
+    fun solveInReadingOrder(
+        items: List<DbEntry>,
+        existingEntries: Map<Int, List<DbEntry>>,
+        lastScreenId: Int,
+    ): Solution {
+        val placements = ArrayList<Placement>(items.size)
+        val remaining = ArrayList(items)
+        var screenId = 0
+        // All the items fit on an empty screen, so this always terminates
+        while (remaining.isNotEmpty()) {
+            val occupied = newOccupancy(existingEntries[screenId])
+            var nextX = 0
+            var nextY = startRow(screenId)
+            val iterator = remaining.iterator()
+            while (iterator.hasNext()) {
+                val entry = iterator.next()
+                val cell = findVacantRegion(entry, nextX, nextY, occupied) ?: continue
+                occupied.markCells(cell, true)
+                placements.add(Placement(entry, screenId, cell))
+                nextX = cell.cellX + cell.spanX
+                nextY = cell.cellY
+                iterator.remove()
+            }
+            screenId++
+        }
+        return Solution(placements, maxOf(screenId, lastScreenId + 1))
+    }
+
+    /**
+     * Places each item in the first vacant region of the first screen it fits, opening new screens
+     * as needed. Returns null if the deadline is reached before all items are placed.
+     */
+    private fun solveFirstFitDecreasing(
+        items: List<DbEntry>,
+        existingEntries: Map<Int, List<DbEntry>>,
+        lastScreenId: Int,
+        deadline: Long,
+    ): Solution? {
+        val screens = ArrayList<GridOccupancy>()
+        val placements = ArrayList<Placement>(items.size)
+        for (entry in items) {
+            if (SystemClock.elapsedRealtime() > deadline) {
+                return null
+            }
+            var screenId = 0
+            var cell: CellAndSpan? = null
+            while (cell == null) {
+                if (screenId == screens.size) {
+                    screens.add(newOccupancy(existingEntries[screenId]))
+                }
+                cell = findVacantRegion(entry, 0, startRow(screenId), screens[screenId])
+                if (cell == null) screenId++
+            }
+            screens[screenId].markCells(cell, true)
+            placements.add(Placement(entry, screenId, cell))
+        }
+        // Keep the reading order within each screen
+        placements.sortWith(
+            compareBy<Placement>({ it.screenId }, { it.cell.cellY }, { it.cell.cellX })
+        )
+        val usedScreens = (placements.maxOfOrNull { it.screenId } ?: -1) + 1
+        return Solution(placements, maxOf(usedScreens, lastScreenId + 1))
+    }
+
+    private fun newOccupancy(existingEntries: List<DbEntry>?) =
+        GridOccupancy(trgX, trgY).apply { existingEntries?.forEach { markCells(it, true) } }
+
+    private fun startRow(screenId: Int) = if (screenId == 0) firstScreenStartRow else 0
+
+    /** Returns the first vacant region fitting the min span of the entry, from (startX, startY) */
+    private fun findVacantRegion(
+        entry: DbEntry,
+        startX: Int,
+        startY: Int,
+        occupied: GridOccupancy,
+    ): CellAndSpan? {
+        var x0 = startX
+        for (y in startY..trgY - entry.minSpanY) {
+            for (x in x0..trgX - entry.minSpanX) {
+                if (occupied.isRegionVacant(x, y, entry.minSpanX, entry.minSpanY)) {
+                    return CellAndSpan(x, y, entry.minSpanX, entry.minSpanY)
+                }
+            }
+            x0 = 0
+        }
+        return null
+    }
+
+    /** Position of an entry in the destination grid */
+    class Placement(val entry: DbEntry, val screenId: Int, val cell: CellAndSpan) {
+
+        /** Updates the entry with this placement */
+        fun apply() {
+            entry.screenId = screenId
+            entry.cellX = cell.cellX
+            entry.cellY = cell.cellY
+            entry.spanX = cell.spanX
+            entry.spanY = cell.spanY
+        }
+    }
+
+    /** Placements of all the items and the number of screens needed by them */
+    class Solution(val placements: List<Placement>, val screenCount: Int)
+
+    companion object {
+        private const val TAG = "GridPlacementSolver"
+        private const val DEBUG = true
+
+        const val DEFAULT_TIME_BUDGET_MS = 100L
+
+        /** Orders tried for the packing arrangements, larger items first */
+        private val PACKING_ORDERS: List<Comparator<DbEntry>> =
+            listOf(
+                compareByDescending<DbEntry> { it.minSpanX * it.minSpanY },
+                compareByDescending<DbEntry> { it.minSpanY }.thenByDescending { it.minSpanX },
+            )
+    }
+}
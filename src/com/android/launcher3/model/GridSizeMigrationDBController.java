@@ -59,6 +59,7 @@ import com.android.launcher3.widget.LauncherAppWidgetProviderInfo;
 import com.android.launcher3.widget.WidgetManagerHelper;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -342,7 +343,7 @@ public class GridSizeMigrationDBController {
     }
 
     static void insertEntryInDb(DatabaseHelper helper, DbEntry entry,
-            String srcTableName, String destTableName, List<Integer> idsInUse) {
+            String srcTableName, String destTableName, Collection<Integer> idsInUse) {
         int id = copyEntryAndUpdate(helper, entry, srcTableName, destTableName, idsInUse);
         if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER
                 || entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_APP_PAIR) {
@@ -355,19 +356,19 @@ public class GridSizeMigrationDBController {
     }
 
     private static int copyEntryAndUpdate(DatabaseHelper helper,
-            DbEntry entry, String srcTableName, String destTableName, List<Integer> idsInUse) {
+            DbEntry entry, String srcTableName, String destTableName, Collection<Integer> idsInUse) {
         return copyEntryAndUpdate(
                 helper, entry, -1, -1, srcTableName, destTableName, idsInUse);
     }
 
     private static int copyEntryAndUpdate(DatabaseHelper helper, int id,
-            int folderId, String srcTableName, String destTableName, List<Integer> idsInUse) {
+            int folderId, String srcTableName, String destTableName, Collection<Integer> idsInUse) {
         return copyEntryAndUpdate(
                 helper, null, id, folderId, srcTableName, destTableName, idsInUse);
     }
 
     private static int copyEntryAndUpdate(DatabaseHelper helper, DbEntry entry, int id,
-            int folderId, String srcTableName, String destTableName, List<Integer> idsInUse) {
+            int folderId, String srcTableName, String destTableName, Collection<Integer> idsInUse) {
         int newId = -1;
         Cursor c = helper.getWritableDatabase().query(srcTableName, null,
                 LauncherSettings.Favorites._ID + " = '" + (entry != null ? entry.id : id) + "'",
@@ -520,6 +521,7 @@ public class GridSizeMigrationDBController {
             final int indexScreen = c.getColumnIndexOrThrow(LauncherSettings.Favorites.SCREEN);
 
             IntArray entriesToRemove = new IntArray();
+            Map<Integer, Map<String, Set<Integer>>> folderItems = loadFolderItems();
             while (c.moveToNext()) {
                 DbEntry entry = new DbEntry();
                 entry.id = c.getInt(indexId);
@@ -535,14 +537,14 @@ public class GridSizeMigrationDBController {
                             break;
                         }
                         case LauncherSettings.Favorites.ITEM_TYPE_FOLDER: {
-                            int total = getFolderItemsCount(entry);
+                            int total = getFolderItemsCount(entry, folderItems);
                             if (total == 0) {
                                 throw new Exception("Folder is empty");
                             }
                             break;
                         }
                         case LauncherSettings.Favorites.ITEM_TYPE_APP_PAIR: {
-                            int total = getFolderItemsCount(entry);
+                            int total = getFolderItemsCount(entry, folderItems);
                             if (total != 2) {
                                 throw new Exception("App pair contains fewer or more than 2 items");
                             }
@@ -596,6 +598,7 @@ public class GridSizeMigrationDBController {
                     LauncherSettings.Favorites.APPWIDGET_ID);
 
             IntArray entriesToRemove = new IntArray();
+            Map<Integer, Map<String, Set<Integer>>> folderItems = loadFolderItems();
             WidgetManagerHelper widgetManagerHelper = new WidgetManagerHelper(mContext);
             while (c.moveToNext()) {
                 DbEntry entry = new DbEntry();
@@ -638,14 +641,14 @@ public class GridSizeMigrationDBController {
                             break;
                         }
                         case LauncherSettings.Favorites.ITEM_TYPE_FOLDER: {
-                            int total = getFolderItemsCount(entry);
+                            int total = getFolderItemsCount(entry, folderItems);
                             if (total == 0) {
                                 throw new Exception("Folder is empty");
                             }
                             break;
                         }
                         case LauncherSettings.Favorites.ITEM_TYPE_APP_PAIR: {
-                            int total = getFolderItemsCount(entry);
+                            int total = getFolderItemsCount(entry, folderItems);
                             if (total != 2) {
                                 throw new Exception("App pair contains fewer or more than 2 items");
                             }
@@ -672,30 +675,54 @@ public class GridSizeMigrationDBController {
             return workspaceEntries;
         }
 
-        private int getFolderItemsCount(DbEntry entry) {
+        /**
+         * Loads the contents of all the folders and app pairs in a single pass, keyed by the
+         * container id, instead of querying the DB once per collection.
+         */
+        private Map<Integer, Map<String, Set<Integer>>> loadFolderItems() {
+            Map<Integer, Map<String, Set<Integer>>> folderItems = new HashMap<>();
             Cursor c = queryWorkspace(
-                    new String[]{LauncherSettings.Favorites._ID, LauncherSettings.Favorites.INTENT},
-                    LauncherSettings.Favorites.CONTAINER + " = " + entry.id);
+                    new String[]{
+                            LauncherSettings.Favorites._ID,                  // 0
+                            LauncherSettings.Favorites.INTENT,               // 1
+                            LauncherSettings.Favorites.CONTAINER},           // 2
+                    LauncherSettings.Favorites.CONTAINER + " > 0");
 
-            int total = 0;
+            IntArray entriesToRemove = new IntArray();
             while (c.moveToNext()) {
                 try {
                     int id = c.getInt(0);
                     String intent = c.getString(1);
-                    total++;
-                    if (!entry.mFolderItems.containsKey(intent)) {
-                        entry.mFolderItems.put(intent, new HashSet<>());
-                    }
-                    entry.mFolderItems.get(intent).add(id);
+                    folderItems.computeIfAbsent(c.getInt(2), k -> new HashMap<>())
+                            .computeIfAbsent(intent, k -> new HashSet<>())
+                            .add(id);
                 } catch (Exception e) {
-                    removeEntryFromDb(mDb, mTableName, IntArray.wrap(c.getInt(0)));
+                    entriesToRemove.add(c.getInt(0));
                 }
             }
             c.close();
+            if (!entriesToRemove.isEmpty()) {
+                removeEntryFromDb(mDb, mTableName, entriesToRemove);
+            }
+            return folderItems;
+        }
+
+        private int getFolderItemsCount(DbEntry entry,
+                Map<Integer, Map<String, Set<Integer>>> folderItems) {
+            Map<String, Set<Integer>> items = folderItems.get(entry.id);
+            if (items == null) {
+                return 0;
+            }
+            int total = 0;
+            for (Map.Entry<String, Set<Integer>> item : items.entrySet()) {
+                entry.mFolderItems.put(item.getKey(), item.getValue());
+                total += item.getValue().size();
+            }
             return total;
         }
 
-        private Cursor queryWorkspace(String[] columns, String where) {
+        @VisibleForTesting
+        protected Cursor queryWorkspace(String[] columns, String where) {
             return mDb.query(mTableName, columns, where, null, null, null, null);
         }
     }
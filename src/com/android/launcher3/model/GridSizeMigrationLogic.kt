@@ -41,9 +41,8 @@ import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction
 import com.android.launcher3.provider.LauncherDbUtils.copyTable
 import com.android.launcher3.provider.LauncherDbUtils.dropTable
 import com.android.launcher3.provider.LauncherDbUtils.shiftWorkspaceByXCells
-import com.android.launcher3.util.CellAndSpan
-import com.android.launcher3.util.GridOccupancy
 import com.android.launcher3.util.IntArray
+import com.android.launcher3.util.IntSet
 
 class GridSizeMigrationLogic {
     /**
@@ -117,7 +116,7 @@ class GridSizeMigrationLogic {
                 // an item that we want to add to the destination DB the same id as an already
                 // existing
                 // item.
-                val idsInUse = mutableListOf<Int>()
+                val idsInUse = HashSet<Int>()
 
                 // Migrate hotseat.
                 migrateHotseat(
@@ -164,7 +163,7 @@ class GridSizeMigrationLogic {
         srcReader: DbReader,
         destReader: DbReader,
         helper: DatabaseHelper,
-        idsInUse: MutableList<Int>,
+        idsInUse: MutableCollection<Int>,
     ) {
         val srcHotseatItems = srcReader.loadHotseatEntries()
         val dstHotseatItems = destReader.loadHotseatEntries()
@@ -177,14 +176,16 @@ class GridSizeMigrationLogic {
                 filteredDstHotseatItems.filter { entry -> entry.screenId < srcHotseatSize }
         }
 
-        val itemsToBeAdded = getItemsToBeAdded(srcHotseatItems, filteredDstHotseatItems)
-        val itemsToBeRemoved = getItemsToBeRemoved(srcHotseatItems, filteredDstHotseatItems)
+        val diff = calcDiff(srcHotseatItems, filteredDstHotseatItems)
+        val itemsToBeAdded = diff.toBeAdded
+        val itemsToBeRemoved = diff.toBeRemoved
 
         if (DEBUG) {
+            val removedIds = IntSet.wrap(itemsToBeRemoved)
             Log.d(
                 TAG,
                 """Start hotseat migration:
-            |Removing Hotseat Items: [${filteredDstHotseatItems.filter { itemsToBeRemoved.contains(it.id) }
+            |Removing Hotseat Items: [${filteredDstHotseatItems.filter { removedIds.contains(it.id) }
                 .joinToString(",\n") { it.toString() }}]
             |Adding Hotseat Items: [${itemsToBeAdded
                 .joinToString(",\n") { it.toString() }}]
@@ -222,7 +223,7 @@ class GridSizeMigrationLogic {
         helper: DatabaseHelper,
         srcReader: DbReader,
         destReader: DbReader,
-        idsInUse: MutableList<Int>,
+        idsInUse: MutableCollection<Int>,
     ) {
         if (hotseatToBeAdded.isEmpty()) {
             return
@@ -251,24 +252,24 @@ class GridSizeMigrationLogic {
         destReader: DbReader,
         helper: DatabaseHelper,
         targetSize: Point,
-        idsInUse: MutableList<Int>,
+        idsInUse: MutableCollection<Int>,
     ) {
         val srcWorkspaceItems = srcReader.loadAllWorkspaceEntries()
 
         val dstWorkspaceItems = destReader.loadAllWorkspaceEntries()
 
-        val toBeRemoved = IntArray()
-
-        val workspaceToBeAdded = getItemsToBeAdded(srcWorkspaceItems, dstWorkspaceItems)
-        toBeRemoved.addAll(getItemsToBeRemoved(srcWorkspaceItems, dstWorkspaceItems))
+        val diff = calcDiff(srcWorkspaceItems, dstWorkspaceItems)
+        val workspaceToBeAdded = diff.toBeAdded
+        val toBeRemoved = diff.toBeRemoved
 
         if (DEBUG) {
+            val removedIds = IntSet.wrap(toBeRemoved)
             Log.d(
                 TAG,
                 """Start workspace migration:
             |Source Device: [${srcWorkspaceItems.joinToString(",\n") { it.toString() }}]
             |Target Device: [${dstWorkspaceItems.joinToString(",\n") { it.toString() }}]
-            |Removing Workspace Items: [${dstWorkspaceItems.filter { toBeRemoved.contains(it.id) }
+            |Removing Workspace Items: [${dstWorkspaceItems.filter { removedIds.contains(it.id) }
                 .joinToString(",\n") { it.toString() }}]
             |Adding Workspace Items: [${workspaceToBeAdded
                 .joinToString(",\n") { it.toString() }}]
@@ -307,7 +308,7 @@ class GridSizeMigrationLogic {
         helper: DatabaseHelper,
         srcReader: DbReader,
         destReader: DbReader,
-        idsInUse: MutableList<Int>,
+        idsInUse: MutableCollection<Int>,
     ) {
         if (workspaceToBeAdded.isEmpty()) {
             return
@@ -317,71 +318,18 @@ class GridSizeMigrationLogic {
 
         workspaceToBeAdded.sort()
 
-        // First we create a collection of the screens
-        val screens: MutableList<Int> = ArrayList()
-        for (screenId in 0..destReader.mLastScreenId) {
-            screens.add(screenId)
-        }
-
-        // Then we place the items on the screens
-        var itemsToPlace = WorkspaceItemsToPlace(workspaceToBeAdded, mutableListOf())
-        for (screenId in screens) {
-            if (DEBUG) {
-                Log.d(TAG, "Migrating $screenId")
-            }
-            itemsToPlace =
-                solveGridPlacement(
-                    destReader.mContext,
-                    screenId,
-                    trgX,
-                    trgY,
-                    itemsToPlace.mRemainingItemsToPlace,
-                    destReader.mWorkspaceEntriesByScreenId[screenId],
-                )
-            placeItems(itemsToPlace, helper, srcReader, destReader, idsInUse)
-            while (itemsToPlace.mPlacementSolution.isNotEmpty()) {
-                GridSizeMigrationDBController.insertEntryInDb(
-                    helper,
-                    itemsToPlace.mPlacementSolution.removeAt(0),
-                    srcReader.mTableName,
-                    destReader.mTableName,
-                    idsInUse,
-                )
-            }
-            if (itemsToPlace.mRemainingItemsToPlace.isEmpty()) {
-                break
-            }
-        }
-
-        // In case the new grid is smaller, there might be some leftover items that don't fit on
-        // any of the screens, in this case we add them to new screens until all of them are placed.
-        var screenId = destReader.mLastScreenId + 1
-        while (itemsToPlace.mRemainingItemsToPlace.isNotEmpty()) {
-            itemsToPlace =
-                solveGridPlacement(
-                    destReader.mContext,
-                    screenId,
-                    trgX,
-                    trgY,
-                    itemsToPlace.mRemainingItemsToPlace,
-                    destReader.mWorkspaceEntriesByScreenId[screenId],
+        val solution =
+            GridPlacementSolver(trgX, trgY, getFirstScreenStartRow(destReader.mContext))
+                .solve(
+                    workspaceToBeAdded,
+                    destReader.mWorkspaceEntriesByScreenId,
+                    destReader.mLastScreenId,
                 )
-            placeItems(itemsToPlace, helper, srcReader, destReader, idsInUse)
-            screenId++
-        }
-    }
-
-    private fun placeItems(
-        itemsToPlace: WorkspaceItemsToPlace,
-        helper: DatabaseHelper,
-        srcReader: DbReader,
-        destReader: DbReader,
-        idsInUse: List<Int>,
-    ) {
-        while (itemsToPlace.mPlacementSolution.isNotEmpty()) {
+        for (placement in solution.placements) {
+            placement.apply()
             GridSizeMigrationDBController.insertEntryInDb(
                 helper,
-                itemsToPlace.mPlacementSolution.removeAt(0),
+                placement.entry,
                 srcReader.mTableName,
                 destReader.mTableName,
                 idsInUse,
@@ -401,65 +349,46 @@ class GridSizeMigrationLogic {
     }
 
     /**
-     * Finds all the items that are in the old grid which aren't in the new grid, meaning they need
-     * to be added to the new grid.
+     * Calculates the difference between the old and new grid items in terms of how many of each
+     * item there are. E.g. if the old grid had 2 Calculator icons but the new grid has 0, then both
+     * need to be added. While if the old grid has 0 Calculator icons and the new grid has 1, then
+     * it needs to be removed.
+     *
+     * The migration id of each entry is computed only once and used as the hash key, as computing
+     * it requires parsing the intent of the entry.
      *
-     * @return a list of DbEntry's which we need to add.
+     * @return the entries from the old grid which we need to add and the ids of the entries from
+     *   the new grid which we need to remove.
      */
-    private fun getItemsToBeAdded(src: List<DbEntry>, dest: List<DbEntry>): MutableList<DbEntry> {
-        val entryCountDiff = calcDiff(src, dest)
+    private fun calcDiff(src: List<DbEntry>, dest: List<DbEntry>): EntryDiff {
+        val srcIds = src.map { it.getEntryMigrationId() }
+        val destIds = dest.map { it.getEntryMigrationId() }
+        val entryCountDiff: MutableMap<String?, Int> = HashMap(src.size + dest.size)
+        srcIds.forEach { id -> entryCountDiff[id] = entryCountDiff.getOrDefault(id, 0) + 1 }
+        destIds.forEach { id -> entryCountDiff[id] = entryCountDiff.getOrDefault(id, 0) - 1 }
+
+        val addedCountDiff = HashMap(entryCountDiff)
         val toBeAdded: MutableList<DbEntry> = ArrayList()
-        src.forEach { entry ->
-            entryCountDiff[entry]?.let { entryDiff ->
-                if (entryDiff > 0) {
-                    toBeAdded.add(entry)
-                    entryCountDiff[entry] = entryDiff - 1
-                }
+        src.forEachIndexed { index, entry ->
+            val entryDiff = addedCountDiff.getValue(srcIds[index])
+            if (entryDiff > 0) {
+                toBeAdded.add(entry)
+                addedCountDiff[srcIds[index]] = entryDiff - 1
             }
         }
-        return toBeAdded
-    }
 
-    /**
-     * Finds all the items that are in the new grid which aren't in the old grid, meaning they need
-     * to be removed from the new grid.
-     *
-     * @return an IntArray of item id's which we need to remove.
-     */
-    private fun getItemsToBeRemoved(src: List<DbEntry>, dest: List<DbEntry>): IntArray {
-        val entryCountDiff = calcDiff(src, dest)
-        val toBeRemoved =
-            IntArray().apply {
-                dest.forEach { entry ->
-                    entryCountDiff[entry]?.let { entryDiff ->
-                        if (entryDiff < 0) {
-                            add(entry.id)
-                            if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER) {
-                                entry.mFolderItems.values.forEach { ids ->
-                                    ids.forEach { value -> add(value) }
-                                }
-                            }
-                        }
-                        entryCountDiff[entry] = entryDiff.plus(1)
-                    }
+        val toBeRemoved = IntArray()
+        dest.forEachIndexed { index, entry ->
+            val entryDiff = entryCountDiff.getValue(destIds[index])
+            if (entryDiff < 0) {
+                toBeRemoved.add(entry.id)
+                if (entry.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER) {
+                    entry.mFolderItems.values.forEach { ids -> ids.forEach { toBeRemoved.add(it) } }
                 }
             }
-        return toBeRemoved
-    }
-
-    /**
-     * Calculates the difference between the old and new grid items in terms of how many of each
-     * item there are. E.g. if the old grid had 2 Calculator icons but the new grid has 0, then the
-     * difference there would be 2. While if the old grid has 0 Calculator icons and the new grid
-     * has 1, then the difference would be -1.
-     *
-     * @return a Map with each DbEntry as a key and the count of said entry as the value.
-     */
-    private fun calcDiff(src: List<DbEntry>, dest: List<DbEntry>): MutableMap<DbEntry, Int> {
-        val entryCountDiff: MutableMap<DbEntry, Int> = HashMap()
-        src.forEach { entry -> entryCountDiff[entry] = entryCountDiff.getOrDefault(entry, 0) + 1 }
-        dest.forEach { entry -> entryCountDiff[entry] = entryCountDiff.getOrDefault(entry, 0) - 1 }
-        return entryCountDiff
+            entryCountDiff[destIds[index]] = entryDiff + 1
+        }
+        return EntryDiff(toBeAdded, toBeRemoved)
     }
 
     private fun solveHotseatPlacement(
@@ -491,87 +420,20 @@ class GridSizeMigrationLogic {
         return placementSolution
     }
 
-    private fun solveGridPlacement(
-        context: Context,
-        screenId: Int,
-        trgX: Int,
-        trgY: Int,
-        sortedItemsToPlace: MutableList<DbEntry>,
-        existedEntries: MutableList<DbEntry>?,
-    ): WorkspaceItemsToPlace {
-        val itemsToPlace = WorkspaceItemsToPlace(sortedItemsToPlace, mutableListOf())
-        val occupied = GridOccupancy(trgX, trgY)
-        val trg = Point(trgX, trgY)
-        val next: Point =
-            if (
-                screenId == 0 &&
-                    (FeatureFlags.QSB_ON_FIRST_SCREEN &&
-                        (!Flags.enableSmartspaceRemovalToggle() ||
-                            getPrefs(context)
-                                .getBoolean(LoaderTask.SMARTSPACE_ON_HOME_SCREEN, true)) &&
-                        !Utilities.SHOULD_SHOW_FIRST_PAGE_WIDGET)
-            ) {
-                Point(0, 1 /* smartspace */)
-            } else {
-                Point(0, 0)
-            }
-        if (existedEntries != null) {
-            for (entry in existedEntries) {
-                occupied.markCells(entry, true)
-            }
-        }
-        val iterator = itemsToPlace.mRemainingItemsToPlace.iterator()
-        while (iterator.hasNext()) {
-            val entry = iterator.next()
-            if (entry.minSpanX > trgX || entry.minSpanY > trgY) {
-                iterator.remove()
-                continue
-            }
-            findPlacementForEntry(entry, next.x, next.y, trg, occupied)?.let {
-                entry.screenId = screenId
-                entry.cellX = it.cellX
-                entry.cellY = it.cellY
-                entry.spanX = it.spanX
-                entry.spanY = it.spanY
-                occupied.markCells(entry, true)
-                next[entry.cellX + entry.spanX] = entry.cellY
-                itemsToPlace.mPlacementSolution.add(entry)
-                iterator.remove()
-            }
-        }
-        return itemsToPlace
-    }
-
-    /**
-     * Search for the next possible placement of an item. (mNextStartX, mNextStartY) serves as a
-     * memoization of last placement, we can start our search for next placement from there to speed
-     * up the search.
-     *
-     * @return NewEntryPlacement object if we found a valid placement, null if we didn't.
-     */
-    private fun findPlacementForEntry(
-        entry: DbEntry,
-        startPosX: Int,
-        startPosY: Int,
-        trg: Point,
-        occupied: GridOccupancy,
-    ): CellAndSpan? {
-        var newStartPosX = startPosX
-        for (y in startPosY until trg.y) {
-            for (x in newStartPosX until trg.x) {
-                if (occupied.isRegionVacant(x, y, entry.minSpanX, entry.minSpanY)) {
-                    return (CellAndSpan(x, y, entry.minSpanX, entry.minSpanY))
-                }
-            }
-            newStartPosX = 0
+    /** Returns the first row available on the first screen, skipping smartspace if present */
+    private fun getFirstScreenStartRow(context: Context): Int =
+        if (
+            FeatureFlags.QSB_ON_FIRST_SCREEN &&
+                (!Flags.enableSmartspaceRemovalToggle() ||
+                    getPrefs(context).getBoolean(LoaderTask.SMARTSPACE_ON_HOME_SCREEN, true)) &&
+                !Utilities.SHOULD_SHOW_FIRST_PAGE_WIDGET
+        ) {
+            1 /* smartspace */
+        } else {
+            0
         }
-        return null
-    }
 
-    private data class WorkspaceItemsToPlace(
-        val mRemainingItemsToPlace: MutableList<DbEntry>,
-        val mPlacementSolution: MutableList<DbEntry>,
-    )
+    private class EntryDiff(val toBeAdded: MutableList<DbEntry>, val toBeRemoved: IntArray)
 
     companion object {
         private const val TAG = "GridSizeMigrationLogic"
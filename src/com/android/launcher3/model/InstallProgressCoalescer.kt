@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model
+
+import android.os.SystemClock
+import android.os.UserHandle
+import android.util.Log
+import android.view.Choreographer
+import androidx.annotation.VisibleForTesting
+import com.android.launcher3.LauncherModel.ModelUpdateTask
+import com.android.launcher3.pm.PackageInstallInfo
+import com.android.launcher3.pm.PackageInstallInfo.STATUS_FAILED
+import com.android.launcher3.pm.PackageInstallInfo.STATUS_INSTALLED
+import com.android.launcher3.util.Executors.MAIN_EXECUTOR
+import com.android.launcher3.util.PackageUserKey
+import java.util.function.Consumer
+
+/**
+ * Merges the install progress updates of a package before they are sent to the model.
+ *
+ * Installers can report progress many times per second, and every update locks the model and binds
+ * the changes to the UI. Pending updates are merged per package and user, keeping only the latest
+ * one, and are flushed on a frame at most every [MIN_FLUSH_INTERVAL_MS]. Terminal states are sent
+ * right away and drop the pending updates of their package, so they are never overridden by an
+ * older progress.
+ */
+class InstallProgressCoalescer(private val taskExecutor: Consumer<ModelUpdateTask>) {
+
+    private val lock = Any()
+    private val pendingStates = LinkedHashMap<PackageUserKey, PackageInstallInfo>()
+    private val pendingDownloads = LinkedHashMap<PackageUserKey, Float>()
+    private val flushCallback = Choreographer.FrameCallback { flush() }
+
+    private var flushScheduled = false
+    private var lastFlushTime = 0L
+
+    /** Number of updates which were merged into a later update or dropped */
+    @Volatile
+    var coalescedCount = 0
+        private set
+
+    /** Called when the install session of a package is updated */
+    fun onPackageStateChanged(installInfo: PackageInstallInfo) {
+        val key = PackageUserKey(installInfo.packageName, installInfo.user)
+        synchronized(lock) {
+            if (installInfo.state == STATUS_INSTALLED || installInfo.state == STATUS_FAILED) {
+                discardLocked(key)
+                taskExecutor.accept(PackageInstallStateChangedTask(installInfo))
+            } else {
+                if (pendingStates.put(key, installInfo) != null) coalescedCount++
+                scheduleFlushLocked()
+            }
+        }
+    }
+
+    /** Called when the incremental download progress of a package is updated */
+    fun onPackageLoadingProgressChanged(packageName: String, user: UserHandle, progress: Float) {
+        val key = PackageUserKey(packageName, user)
+        synchronized(lock) {
+            if (progress >= 1 - LOADED_PROGRESS_TOLERANCE) {
+                discardLocked(key)
+                taskExecutor.accept(
+                    PackageIncrementalDownloadUpdatedTask(packageName, user, progress)
+                )
+            } else {
+                if (pendingDownloads.put(key, progress) != null) coalescedCount++
+                scheduleFlushLocked()
+            }
+        }
+    }
+
+    /**
+     * Drops the pending updates of a package, called when it is added, removed or its session
+     * failed.
+     */
+    fun discardPending(packageName: String, user: UserHandle) {
+        synchronized(lock) { discardLocked(PackageUserKey(packageName, user)) }
+    }
+
+    /** Sends all the pending updates to the model */
+    @VisibleForTesting
+    fun flush() {
+        synchronized(lock) {
+            flushScheduled = false
+            lastFlushTime = SystemClock.uptimeMillis()
+            if (DEBUG && (pendingStates.isNotEmpty() || pendingDownloads.isNotEmpty())) {
+                Log.d(
+                    TAG,
+                    "Flushing ${pendingStates.size + pendingDownloads.size} updates, " +
+                        "coalesced: $coalescedCount",
+                )
+            }
+            // Tasks are enqueued under the lock so that they keep the order of the terminal states
+            pendingStates.values.forEach { taskExecutor.accept(PackageInstallStateChangedTask(it)) }
+            pendingDownloads.forEach { (key, progress) ->
+                taskExecutor.accept(
+                    PackageIncrementalDownloadUpdatedTask(key.mPackageName, key.mUser, progress)
+                )
+            }
+            pendingStates.clear()
+            pendingDownloads.clear()
+        }
+    }
+
+    private fun discardLocked(key: PackageUserKey) {
+        if (pendingStates.remove(key) != null) coalescedCount++
+        if (pendingDownloads.remove(key) != null) coalescedCount++
+    }
+
+    private fun scheduleFlushLocked() {
+        if (flushScheduled) return
+        flushScheduled = true
+        val delay = maxOf(0L, lastFlushTime + MIN_FLUSH_INTERVAL_MS - SystemClock.uptimeMillis())
+        MAIN_EXECUTOR.execute {
+            Choreographer.getInstance().postFrameCallbackDelayed(flushCallback, delay)
+        }
+    }
+
+    companion object {
+        private const val TAG = "InstallProgressCoalescer"
+        private const val DEBUG = false
+
+        /** Minimum time between two flushes of the pending updates */
+        @VisibleForTesting const val MIN_FLUSH_INTERVAL_MS = 100L
+
+        /** Progress above which an incremental download is considered complete */
+        private const val LOADED_PROGRESS_TOLERANCE = 0.001f
+    }
+}
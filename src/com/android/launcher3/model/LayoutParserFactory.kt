@@ -29,8 +29,10 @@ import com.android.launcher3.AutoInstallsLayout
 import com.android.launcher3.AutoInstallsLayout.SourceResources
 import com.android.launcher3.DefaultLayoutParser
 import com.android.launcher3.DefaultLayoutParser.RES_PARTNER_DEFAULT_LAYOUT
+import com.android.launcher3.LauncherFiles
 import com.android.launcher3.LauncherSettings.Settings
 import com.android.launcher3.dagger.ApplicationContext
+import com.android.launcher3.util.BinaryLayout
 import com.android.launcher3.util.IOUtils
 import com.android.launcher3.util.Partner
 import com.android.launcher3.widget.LauncherWidgetHolder
@@ -87,6 +89,24 @@ constructor(@ApplicationContext private val context: Context) {
             return null
         }
 
+        if (systemLayoutProvider == Settings.BINARY_LAYOUT_PROVIDER) {
+            try {
+                val parser =
+                    BinaryLayout.open(context.getFileStreamPath(LauncherFiles.BINARY_LAYOUT))
+                return AutoInstallsLayout(
+                    context,
+                    widgetHolder,
+                    openHelper,
+                    object : SourceResources {},
+                    { parser },
+                    AutoInstallsLayout.TAG_WORKSPACE,
+                )
+            } catch (e: Exception) {
+                Log.e(TAG, "Error getting binary layout", e)
+                return null
+            }
+        }
+
         // Try the blob store first
         val blobManager = context.getSystemService(BlobStoreManager::class.java)
         if (systemLayoutProvider.startsWith(Settings.BLOB_KEY_PREFIX) && blobManager != null) {
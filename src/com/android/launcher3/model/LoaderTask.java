@@ -54,6 +54,7 @@ import android.os.UserManager;
 import android.provider.Settings;
 import android.util.Log;
 import android.util.LongSparseArray;
+import android.util.SparseArray;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -144,6 +145,7 @@ public class LoaderTask implements Runnable {
     private final AllAppsList mBgAllAppsList;
     protected final BgDataModel mBgDataModel;
     private final LoaderCursorFactory mLoaderCursorFactory;
+    private final ModelSnapshotStore mSnapshotStore;
 
     private final ModelDelegate mModelDelegate;
     private boolean mIsRestoreFromBackup;
@@ -185,6 +187,7 @@ public class LoaderTask implements Runnable {
             AllAppsList bgAllAppsList,
             BgDataModel bgModel,
             LoaderCursorFactory loaderCursorFactory,
+            ModelSnapshotStore snapshotStore,
             @Named("SAFE_MODE") boolean isSafeModeEnabled,
             @Assisted @NonNull BaseLauncherBinder launcherBinder,
             @Assisted UserManagerState userManagerState) {
@@ -197,6 +200,7 @@ public class LoaderTask implements Runnable {
         mModelDelegate = model.getModelDelegate();
         mLauncherBinder = launcherBinder;
         mLoaderCursorFactory = loaderCursorFactory;
+        mSnapshotStore = snapshotStore;
         mLauncherApps = mContext.getSystemService(LauncherApps.class);
         mUserManager = mContext.getSystemService(UserManager.class);
         mUserCache = userCache;
@@ -274,6 +278,8 @@ public class LoaderTask implements Runnable {
             restoreEventLogger = LauncherRestoreEventLogger.Companion.newInstance(mContext);
         }
         try (LauncherModel.LoaderTransaction transaction = mModel.beginLoader(this)) {
+            bindPersistedSnapshot();
+
             List<CacheableShortcutInfo> allShortcuts = new ArrayList<>();
             loadWorkspace(allShortcuts, "", new HashMap<>(), memoryLogger, restoreEventLogger);
 
@@ -394,6 +400,10 @@ public class LoaderTask implements Runnable {
 
             mModelDelegate.modelLoadComplete();
             transaction.commit();
+            if (Objects.equals(mIDP.dbFile, mDbName)) {
+                mSnapshotStore.write(mBgDataModel.getWorkspaceSnapshot());
+                logASplit("model snapshot persisted");
+            }
             memoryLogger.clearLogs();
             if (mIsRestoreFromBackup) {
                 mIsRestoreFromBackup = false;
@@ -413,6 +423,36 @@ public class LoaderTask implements Runnable {
         TraceHelper.INSTANCE.endSection();
     }
 
+    /**
+     * Binds the workspace persisted by the last load of a previous process, so that it can be shown
+     * before the DB is loaded. The items loaded from the DB are bound once loaded, replacing any
+     * outdated item.
+     */
+    private void bindPersistedSnapshot() {
+        if (mIsRestoreFromBackup || mIsSafeModeEnabled) {
+            return;
+        }
+        List<ModelSnapshotStore.Entry> entries = mSnapshotStore.readForColdStart();
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        SparseArray<ItemInfo> items = mSnapshotStore.createItems(entries);
+        List<IconRequestInfo<WorkspaceItemInfo>> iconRequestInfos = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (items.valueAt(i) instanceof WorkspaceItemInfo wii) {
+                // Only the workspace and hotseat icons need to be high res
+                iconRequestInfos.add(new IconRequestInfo<>(
+                        wii, /* launcherActivityInfo= */ null, wii.container >= 0));
+            }
+        }
+        mIconCache.getTitlesAndIconsInBulk(iconRequestInfos);
+
+        verifyNotStopped();
+        // The items are only bound, the model is loaded from the DB and its changes bound after
+        mLauncherBinder.bindWorkspaceItems(items);
+        logASplit("bindPersistedSnapshot finished with " + items.size() + " items");
+    }
+
     public synchronized void stopLocked() {
         FileLog.w(TAG, "stopLocked: Loader stopping");
         mStopped = true;
@@ -466,6 +506,7 @@ public class LoaderTask implements Runnable {
         }
         Log.d(TAG, "loadWorkspace: loading default favorites if necessary");
         dbController.loadDefaultFavoritesIfNecessary();
+        logASplit("loadDefaultFavoritesIfNecessary finished");
 
         synchronized (mBgDataModel) {
             mBgDataModel.clear();
@@ -890,7 +931,7 @@ public class LoaderTask implements Runnable {
 
     private void loadFolderNames() {
         FolderNameProvider provider = FolderNameProvider.newInstance(mContext,
-                mBgAllAppsList.data, FolderNameProvider.getCollectionForSuggestions(mBgDataModel));
+                mBgAllAppsList, FolderNameProvider.getCollectionForSuggestions(mBgDataModel));
 
         synchronized (mBgDataModel) {
             mBgDataModel.itemsIdMap.stream()
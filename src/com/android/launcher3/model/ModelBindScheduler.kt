@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.model
+
+import android.util.Log
+import android.view.Choreographer
+import androidx.annotation.MainThread
+import androidx.annotation.VisibleForTesting
+import com.android.launcher3.LauncherModel.CallbackTask
+import com.android.launcher3.dagger.LauncherAppSingleton
+import com.android.launcher3.model.BgDataModel.Callbacks
+import com.android.launcher3.model.data.ItemInfo
+import com.android.launcher3.util.Executors.MAIN_EXECUTOR
+import java.io.PrintWriter
+import java.util.concurrent.TimeUnit
+import javax.inject.Inject
+
+/**
+ * Collects the UI binds of model tasks and runs them on the main thread in batches.
+ *
+ * All the binds which are scheduled before the main thread picks them up are run in a single main
+ * thread message, in the order they were scheduled. Updates to the same items, and binds which only
+ * need the latest data (like the list of all apps) are merged with a pending bind as long as no
+ * other bind was scheduled in between. If a batch takes longer than [FRAME_BUDGET_NANOS], the
+ * remaining binds are deferred to the next frame.
+ */
+@LauncherAppSingleton
+class ModelBindScheduler @Inject constructor() {
+
+    private val lock = Any()
+    private val pendingBinds = ArrayDeque<PendingBind>()
+    // Pending binds which later binds can still be merged into, by merge key
+    private val openBinds = HashMap<Any, PendingBind>()
+    private val flushRunnable = Runnable { onFlush() }
+    private val frameCallback = Choreographer.FrameCallback { onFlush() }
+
+    private var nextSequence = 0L
+    private var flushScheduled = false
+
+    private var flushCount = 0
+    private var deferredFlushCount = 0
+    private var maxBindsPerFlush = 0
+    private var totalFlushTimeNanos = 0L
+    private var maxFlushTimeNanos = 0L
+
+    /** Number of binds which were run */
+    @Volatile
+    var bindCount = 0
+        private set
+
+    /** Number of binds which were merged into a pending bind */
+    @Volatile
+    var coalescedCount = 0
+        private set
+
+    /** Schedules [task] to be executed on [callbacks], after all the pending binds */
+    fun schedule(callbacks: Array<Callbacks>, task: CallbackTask) {
+        if (callbacks.isEmpty()) return
+        synchronized(lock) { enqueueLocked(PendingBind(callbacks, nextSequence++, task)) }
+    }
+
+    /**
+     * Schedules [task] to be executed on [callbacks], replacing any pending task with the same
+     * [key] which has not been followed by other binds.
+     */
+    fun scheduleLatest(key: Any, callbacks: Array<Callbacks>, task: CallbackTask) {
+        if (callbacks.isEmpty()) return
+        synchronized(lock) {
+            val openBind = openBinds[key]
+            if (openBind != null && openBind.callbacks.contentEquals(callbacks)) {
+                openBind.task = task
+                coalescedCount++
+                return
+            }
+            val bind = PendingBind(callbacks, nextSequence++, task)
+            enqueueLocked(bind)
+            openBinds[key] = bind
+        }
+    }
+
+    /** Schedules a bind of the updated [items], merged with any pending update of the same items */
+    fun scheduleItemsUpdated(callbacks: Array<Callbacks>, items: Collection<ItemInfo>) {
+        if (callbacks.isEmpty() || items.isEmpty()) return
+        synchronized(lock) {
+            val openBind = openBinds[ITEMS_UPDATED_KEY]
+            val updates =
+                if (openBind is ItemsUpdatedBind && openBind.callbacks.contentEquals(callbacks)) {
+                    openBind.items
+                } else {
+                    ItemsUpdatedBind(callbacks, nextSequence++)
+                        .also {
+                            enqueueLocked(it)
+                            openBinds[ITEMS_UPDATED_KEY] = it
+                        }
+                        .items
+                }
+            // Keep the latest info of each item
+            items.forEach { if (updates.put(it.id, it) != null) coalescedCount++ }
+        }
+    }
+
+    /**
+     * Returns a sequence number after all the binds scheduled so far, which can be passed to
+     * [flush]. Binds scheduled afterwards are not merged into the previous ones.
+     */
+    fun addBarrier(): Long =
+        synchronized(lock) {
+            openBinds.clear()
+            nextSequence
+        }
+
+    /**
+     * Runs all the pending binds scheduled before [barrier], regardless of the frame budget. This
+     * is used to keep the order of the binds posted to the main thread outside of this scheduler.
+     */
+    @MainThread
+    fun flush(barrier: Long = Long.MAX_VALUE) {
+        runPendingBinds(barrier, Long.MAX_VALUE)
+    }
+
+    private fun onFlush() {
+        synchronized(lock) { flushScheduled = false }
+        if (runPendingBinds(Long.MAX_VALUE, FRAME_BUDGET_NANOS)) {
+            synchronized(lock) {
+                deferredFlushCount++
+                if (!flushScheduled) {
+                    flushScheduled = true
+                    Choreographer.getInstance().postFrameCallback(frameCallback)
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the pending binds scheduled before [barrier] until [budgetNanos] is exceeded.
+     *
+     * @return true if some binds were left pending because of the budget
+     */
+    private fun runPendingBinds(barrier: Long, budgetNanos: Long): Boolean {
+        val startTime = System.nanoTime()
+        var count = 0
+        var budgetExceeded = false
+        while (true) {
+            val bind =
+                synchronized(lock) {
+                    val next = pendingBinds.firstOrNull()
+                    if (next == null || next.sequence >= barrier) {
+                        null
+                    } else if (count > 0 && System.nanoTime() - startTime > budgetNanos) {
+                        budgetExceeded = true
+                        null
+                    } else {
+                        pendingBinds.removeFirst()
+                        // The bind is about to run, nothing can be merged into it anymore
+                        openBinds.values.remove(next)
+                        next
+                    }
+                } ?: break
+            bind.callbacks.forEach { bind.task.execute(it) }
+            count++
+        }
+        if (count > 0) {
+            val flushTime = System.nanoTime() - startTime
+            synchronized(lock) {
+                flushCount++
+                bindCount += count
+                maxBindsPerFlush = maxOf(maxBindsPerFlush, count)
+                totalFlushTimeNanos += flushTime
+                maxFlushTimeNanos = maxOf(maxFlushTimeNanos, flushTime)
+            }
+            if (DEBUG) {
+                Log.d(TAG, "Ran $count binds in ${TimeUnit.NANOSECONDS.toMicros(flushTime)}us")
+            }
+        }
+        return budgetExceeded
+    }
+
+    /**
+     * Adds [bind] after all the pending binds. No later bind can be merged into the pending binds
+     * anymore, as it would then run before [bind].
+     */
+    private fun enqueueLocked(bind: PendingBind) {
+        openBinds.clear()
+        pendingBinds.addLast(bind)
+        if (!flushScheduled) {
+            flushScheduled = true
+            MAIN_EXECUTOR.execute(flushRunnable)
+        }
+    }
+
+    /** Returns true if there are binds waiting to be run */
+    @VisibleForTesting fun hasPendingBinds() = synchronized(lock) { pendingBinds.isNotEmpty() }
+
+    /** Dumps the bind metrics: binds per flush, time spent and merged binds */
+    fun dump(prefix: String, writer: PrintWriter) {
+        synchronized(lock) {
+            writer.println("${prefix}ModelBindScheduler:")
+            writer.println("$prefix  pending binds: ${pendingBinds.size}")
+            writer.println(
+                "$prefix  binds: $bindCount, coalesced: $coalescedCount, flushes: $flushCount, " +
+                    "deferred to next frame: $deferredFlushCount"
+            )
+            if (flushCount > 0) {
+                writer.println(
+                    "$prefix  binds per flush: avg=${bindCount / flushCount}, " +
+                        "max=$maxBindsPerFlush"
+                )
+                val avgTimeUs = TimeUnit.NANOSECONDS.toMicros(totalFlushTimeNanos / flushCount)
+                val maxTimeUs = TimeUnit.NANOSECONDS.toMicros(maxFlushTimeNanos)
+                writer.println("$prefix  flush time: avg=${avgTimeUs}us, max=${maxTimeUs}us")
+            }
+        }
+    }
+
+    private open class PendingBind(
+        val callbacks: Array<Callbacks>,
+        val sequence: Long,
+        var task: CallbackTask,
+    )
+
+    private class ItemsUpdatedBind(
+        callbacks: Array<Callbacks>,
+        sequence: Long,
+        val items: LinkedHashMap<Int, ItemInfo> = LinkedHashMap(),
+    ) :
+        PendingBind(
+            callbacks,
+            sequence,
+            CallbackTask { it.bindItemsUpdated(LinkedHashSet(items.values)) },
+        )
+
+    companion object {
+        private const val TAG = "ModelBindScheduler"
+        private const val DEBUG = false
+
+        private const val ITEMS_UPDATED_KEY = "items_updated"
+
+        /** Time the main thread can spend running binds before deferring to the next frame */
+        @VisibleForTesting val FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(4)
+    }
+}
@@ -38,6 +38,7 @@ import com.android.launcher3.icons.LauncherIcons.IconPool
 import com.android.launcher3.notification.NotificationListener
 import com.android.launcher3.pm.InstallSessionHelper
 import com.android.launcher3.pm.UserCache
+import com.android.launcher3.shortcuts.DeepShortcutCache
 import com.android.launcher3.util.DaggerSingletonTracker
 import com.android.launcher3.util.Executors.MODEL_EXECUTOR
 import com.android.launcher3.util.Executors.UI_HELPER_EXECUTOR
@@ -55,6 +56,7 @@ constructor(
     @ApplicationContext private val context: Context,
     private val iconPool: IconPool,
     private val iconCache: IconCache,
+    private val deepShortcutCache: DeepShortcutCache,
     private val idp: InvariantDeviceProfile,
     private val themeManager: ThemeManager,
     private val userCache: UserCache,
@@ -69,6 +71,7 @@ constructor(
         fun refreshAndReloadLauncher() {
             iconPool.clear()
             iconCache.updateIconParams(idp.fillResIconDpi, idp.iconBitmapSize)
+            deepShortcutCache.clear()
             model.forceReload()
         }
 
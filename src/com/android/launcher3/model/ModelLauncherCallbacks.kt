@@ -42,8 +42,11 @@ import java.util.function.Consumer
 class ModelLauncherCallbacks(private var taskExecutor: Consumer<ModelUpdateTask>) :
     LauncherApps.Callback(), InstallSessionTracker.Callback {
 
+    private val progressCoalescer = InstallProgressCoalescer(taskExecutor)
+
     override fun onPackageAdded(packageName: String, user: UserHandle) {
         FileLog.d(TAG, "onPackageAdded triggered for packageName=$packageName, user=$user")
+        progressCoalescer.discardPending(packageName, user)
         taskExecutor.accept(PackageUpdatedTask(OP_ADD, user, packageName))
     }
 
@@ -56,11 +59,12 @@ class ModelLauncherCallbacks(private var taskExecutor: Consumer<ModelUpdateTask>
         user: UserHandle,
         progress: Float,
     ) {
-        taskExecutor.accept(PackageIncrementalDownloadUpdatedTask(packageName, user, progress))
+        progressCoalescer.onPackageLoadingProgressChanged(packageName, user, progress)
     }
 
     override fun onPackageRemoved(packageName: String, user: UserHandle) {
         FileLog.d(TAG, "onPackageRemoved triggered for packageName=$packageName, user=$user")
+        progressCoalescer.discardPending(packageName, user)
         taskExecutor.accept(PackageUpdatedTask(OP_REMOVE, user, packageName))
     }
 
@@ -104,11 +108,12 @@ class ModelLauncherCallbacks(private var taskExecutor: Consumer<ModelUpdateTask>
     }
 
     override fun onSessionFailure(packageName: String, user: UserHandle) {
+        progressCoalescer.discardPending(packageName, user)
         taskExecutor.accept(SessionFailureTask(packageName, user))
     }
 
     override fun onPackageStateChanged(installInfo: PackageInstallInfo) {
-        taskExecutor.accept(PackageInstallStateChangedTask(installInfo))
+        progressCoalescer.onPackageStateChanged(installInfo)
     }
 
     override fun onUpdateSessionDisplay(key: PackageUserKey, info: SessionInfo) {
@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.model
+
+import android.content.ComponentName
+import android.content.Context
+import android.content.Intent
+import android.util.AtomicFile
+import android.util.Log
+import android.util.SparseArray
+import androidx.core.util.forEach
+import androidx.annotation.VisibleForTesting
+import androidx.annotation.WorkerThread
+import com.android.launcher3.InvariantDeviceProfile
+import com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP
+import com.android.launcher3.LauncherSettings.Favorites.CONTAINER_HOTSEAT
+import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION
+import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET
+import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_FOLDER
+import com.android.launcher3.dagger.ApplicationContext
+import com.android.launcher3.dagger.LauncherAppSingleton
+import com.android.launcher3.folder.Folder
+import com.android.launcher3.model.data.FolderInfo
+import com.android.launcher3.model.data.ItemInfo
+import com.android.launcher3.model.data.ItemInfoWithIcon.FLAG_DISABLED_MASK
+import com.android.launcher3.model.data.LauncherAppWidgetInfo
+import com.android.launcher3.model.data.LauncherAppWidgetInfo.RESTORE_COMPLETED
+import com.android.launcher3.model.data.WorkspaceItemInfo
+import com.android.launcher3.pm.UserCache
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileNotFoundException
+import java.io.IOException
+import java.net.URISyntaxException
+import javax.inject.Inject
+
+/**
+ * Persists a copy of the workspace items of the last completed load, so that the workspace can be
+ * bound on cold start before the favorites DB is read and the apps are resolved.
+ *
+ * The snapshot is versioned and tied to the DB and grid it was created from, and is written
+ * atomically. It only contains the items which can be created without querying the system, apps
+ * (whose icons are loaded from the icon cache), folders and bound widgets. Any change of the
+ * workspace after the load invalidates it, as the snapshot is only meant to match the DB until the
+ * next load validates it.
+ */
+@LauncherAppSingleton
+class ModelSnapshotStore
+@Inject
+constructor(
+    @ApplicationContext private val context: Context,
+    private val idp: InvariantDeviceProfile,
+    private val userCache: UserCache,
+) {
+
+    // Only the first load of the process can bind the snapshot, later loads are already fast
+    @Volatile private var coldStart = true
+    @Volatile private var isPersisted = false
+
+    /**
+     * Returns the persisted entries if this is the first load of the process and they were created
+     * for the current DB and grid, or null otherwise.
+     */
+    @WorkerThread
+    fun readForColdStart(): List<Entry>? {
+        if (!coldStart) return null
+        coldStart = false
+        val dbFile = idp.dbFile ?: return null
+        val file = getFile(dbFile)
+        try {
+            DataInputStream(file.openRead().buffered()).use { input ->
+                if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                    Log.d(TAG, "Ignoring snapshot with a different version")
+                    return null
+                }
+                if (
+                    input.readUTF() != dbFile ||
+                        input.readInt() != idp.numColumns ||
+                        input.readInt() != idp.numRows ||
+                        input.readInt() != idp.numDatabaseHotseatIcons
+                ) {
+                    Log.d(TAG, "Ignoring snapshot of a different grid")
+                    return null
+                }
+                val count = input.readInt()
+                if (count < 0) throw IOException("Invalid item count $count")
+                isPersisted = true
+                return List(count) { Entry.read(input) }
+            }
+        } catch (e: FileNotFoundException) {
+            return null
+        } catch (e: IOException) {
+            Log.e(TAG, "Unable to read model snapshot", e)
+            file.delete()
+            return null
+        }
+    }
+
+    /** Atomically replaces the persisted snapshot with the supported [items] */
+    @WorkerThread
+    fun write(items: Iterable<ItemInfo>) {
+        val dbFile = idp.dbFile ?: return
+        val entries = items.mapNotNull { toEntry(it) }
+        val file = getFile(dbFile)
+        val out =
+            try {
+                file.startWrite()
+            } catch (e: IOException) {
+                Log.e(TAG, "Unable to persist model snapshot", e)
+                return
+            }
+        try {
+            val data = DataOutputStream(out.buffered())
+            data.writeInt(MAGIC)
+            data.writeInt(VERSION)
+            data.writeUTF(dbFile)
+            data.writeInt(idp.numColumns)
+            data.writeInt(idp.numRows)
+            data.writeInt(idp.numDatabaseHotseatIcons)
+            data.writeInt(entries.size)
+            entries.forEach { it.write(data) }
+            data.flush()
+        } catch (e: IOException) {
+            file.failWrite(out)
+            Log.e(TAG, "Unable to persist model snapshot", e)
+            return
+        }
+        file.finishWrite(out)
+        isPersisted = true
+    }
+
+    /** Removes the persisted snapshot, called when the workspace is changed after a load */
+    fun invalidate() {
+        if (!isPersisted) return
+        isPersisted = false
+        idp.dbFile?.let { getFile(it).delete() }
+    }
+
+    /** Creates the items of the [entries], skipping the items whose container is missing */
+    fun createItems(entries: List<Entry>): SparseArray<ItemInfo> {
+        val items = SparseArray<ItemInfo>(entries.size)
+        entries.forEach { entry -> entry.createItem(userCache)?.let { items.put(it.id, it) } }
+        for (i in items.size() - 1 downTo 0) {
+            val item = items.valueAt(i)
+            if (item.container == CONTAINER_DESKTOP || item.container == CONTAINER_HOTSEAT) {
+                continue
+            }
+            val folder = items.get(item.container) as? FolderInfo
+            if (folder != null) folder.add(item) else items.removeAt(i)
+        }
+        items.forEach { _, item ->
+            (item as? FolderInfo)?.getContents()?.sortWith(Folder.ITEM_POS_COMPARATOR)
+        }
+        return items
+    }
+
+    private fun getFile(dbFile: String) =
+        AtomicFile(File(context.getDatabasePath(dbFile).path + FILE_SUFFIX))
+
+    private fun toEntry(item: ItemInfo): Entry? {
+        var runtimeStatusFlags = 0
+        var intent: Intent? = null
+        var appWidgetId = LauncherAppWidgetInfo.NO_ID
+        var providerName: ComponentName? = null
+        var options = 0
+        when {
+            item.itemType == ITEM_TYPE_APPLICATION && item is WorkspaceItemInfo -> {
+                if (item.isPromise || item.intent == null) return null
+                intent = item.intent
+                runtimeStatusFlags = item.runtimeStatusFlags and FLAG_DISABLED_MASK
+                options = item.options
+            }
+            item.itemType == ITEM_TYPE_FOLDER && item is FolderInfo -> options = item.options
+            item.itemType == ITEM_TYPE_APPWIDGET && item is LauncherAppWidgetInfo -> {
+                if (item.restoreStatus != RESTORE_COMPLETED) return null
+                appWidgetId = item.appWidgetId
+                providerName = item.providerName
+                options = item.options
+            }
+            // Deep shortcuts and app pairs need the system or other items to be loaded
+            else -> return null
+        }
+        return Entry(
+            id = item.id,
+            itemType = item.itemType,
+            container = item.container,
+            screenId = item.screenId,
+            cellX = item.cellX,
+            cellY = item.cellY,
+            spanX = item.spanX,
+            spanY = item.spanY,
+            minSpanX = item.minSpanX,
+            minSpanY = item.minSpanY,
+            rank = item.rank,
+            options = options,
+            userSerial = userCache.getSerialNumberForUser(item.user),
+            title = item.title?.toString(),
+            intent = intent?.toUri(0),
+            runtimeStatusFlags = runtimeStatusFlags,
+            appWidgetId = appWidgetId,
+            providerName = providerName?.flattenToString(),
+        )
+    }
+
+    /** A persisted workspace item */
+    data class Entry(
+        val id: Int,
+        val itemType: Int,
+        val container: Int,
+        val screenId: Int,
+        val cellX: Int,
+        val cellY: Int,
+        val spanX: Int,
+        val spanY: Int,
+        val minSpanX: Int,
+        val minSpanY: Int,
+        val rank: Int,
+        val options: Int,
+        val userSerial: Long,
+        val title: String?,
+        val intent: String?,
+        val runtimeStatusFlags: Int,
+        val appWidgetId: Int,
+        val providerName: String?,
+    ) {
+
+        fun write(out: DataOutputStream) {
+            out.writeInt(id)
+            out.writeInt(itemType)
+            out.writeInt(container)
+            out.writeInt(screenId)
+            out.writeInt(cellX)
+            out.writeInt(cellY)
+            out.writeInt(spanX)
+            out.writeInt(spanY)
+            out.writeInt(minSpanX)
+            out.writeInt(minSpanY)
+            out.writeInt(rank)
+            out.writeInt(options)
+            out.writeLong(userSerial)
+            out.writeNullableUTF(title)
+            out.writeNullableUTF(intent)
+            out.writeInt(runtimeStatusFlags)
+            out.writeInt(appWidgetId)
+            out.writeNullableUTF(providerName)
+        }
+
+        fun createItem(userCache: UserCache): ItemInfo? {
+            val user = userCache.getUserForSerialNumber(userSerial) ?: return null
+            val item: ItemInfo =
+                when (itemType) {
+                    ITEM_TYPE_APPLICATION ->
+                        WorkspaceItemInfo().also {
+                            it.intent =
+                                try {
+                                    Intent.parseUri(intent ?: return null, 0)
+                                } catch (e: URISyntaxException) {
+                                    return null
+                                }
+                            it.runtimeStatusFlags = runtimeStatusFlags
+                            it.options = options
+                        }
+                    ITEM_TYPE_FOLDER -> FolderInfo().also { it.options = options }
+                    ITEM_TYPE_APPWIDGET ->
+                        LauncherAppWidgetInfo(
+                                appWidgetId,
+                                ComponentName.unflattenFromString(providerName ?: return null),
+                            )
+                            .also { it.options = options }
+                    else -> return null
+                }
+            item.id = id
+            item.itemType = itemType
+            item.container = container
+            item.screenId = screenId
+            item.cellX = cellX
+            item.cellY = cellY
+            item.spanX = spanX
+            item.spanY = spanY
+            item.minSpanX = minSpanX
+            item.minSpanY = minSpanY
+            item.rank = rank
+            item.user = user
+            item.title = title
+            return item
+        }
+
+        companion object {
+
+            fun read(input: DataInputStream) =
+                Entry(
+                    id = input.readInt(),
+                    itemType = input.readInt(),
+                    container = input.readInt(),
+                    screenId = input.readInt(),
+                    cellX = input.readInt(),
+                    cellY = input.readInt(),
+                    spanX = input.readInt(),
+                    spanY = input.readInt(),
+                    minSpanX = input.readInt(),
+                    minSpanY = input.readInt(),
+                    rank = input.readInt(),
+                    options = input.readInt(),
+                    userSerial = input.readLong(),
+                    title = input.readNullableUTF(),
+                    intent = input.readNullableUTF(),
+                    runtimeStatusFlags = input.readInt(),
+                    appWidgetId = input.readInt(),
+                    providerName = input.readNullableUTF(),
+                )
+
+            private fun DataOutputStream.writeNullableUTF(value: String?) {
+                writeBoolean(value != null)
+                if (value != null) writeUTF(value)
+            }
+
+            private fun DataInputStream.readNullableUTF(): String? =
+                if (readBoolean()) readUTF() else null
+        }
+    }
+
+    companion object {
+        private const val TAG = "ModelSnapshotStore"
+
+        private const val FILE_SUFFIX = ".snapshot"
+        private const val MAGIC = 0x4c4d534e // "LMSN"
+        @VisibleForTesting const val VERSION = 1
+    }
+}
@@ -24,9 +24,7 @@ import com.android.launcher3.dagger.ApplicationContext
 import com.android.launcher3.icons.IconCache
 import com.android.launcher3.model.BgDataModel.FixedContainerItems
 import com.android.launcher3.model.data.ItemInfo
-import com.android.launcher3.util.Executors.MAIN_EXECUTOR
 import com.android.launcher3.util.PackageUserKey
-import com.android.launcher3.widget.model.WidgetsListBaseEntriesBuilder
 import java.util.Objects
 import java.util.function.Predicate
 import javax.inject.Inject
@@ -40,15 +38,12 @@ constructor(
     val dataModel: BgDataModel,
     val allAppsList: AllAppsList,
     val model: LauncherModel,
+    private val bindScheduler: ModelBindScheduler,
 ) {
 
-    private val uiExecutor = MAIN_EXECUTOR
-
     /** Schedules a {@param task} to be executed on the current callbacks. */
     fun scheduleCallbackTask(task: CallbackTask) {
-        for (cb in model.callbacks) {
-            uiExecutor.execute { task.execute(cb) }
-        }
+        bindScheduler.schedule(model.callbacks, task)
     }
 
     /**
@@ -59,9 +54,9 @@ constructor(
 
     fun bindUpdatedWorkspaceItems(allUpdates: Collection<ItemInfo>) {
         // Bind workspace items
-        val workspaceUpdates = allUpdates.filter { it.id != ItemInfo.NO_ID }.toSet()
+        val workspaceUpdates = allUpdates.filter { it.id != ItemInfo.NO_ID }
         if (workspaceUpdates.isNotEmpty()) {
-            scheduleCallbackTask { it.bindItemsUpdated(workspaceUpdates) }
+            bindScheduler.scheduleItemsUpdated(model.callbacks, workspaceUpdates)
         }
 
         // Bind extra items if any
@@ -75,19 +70,21 @@ constructor(
     }
 
     fun bindExtraContainerItems(item: FixedContainerItems) {
-        scheduleCallbackTask { it.bindExtraContainerItems(item) }
+        bindScheduler.scheduleLatest(EXTRA_ITEMS_KEY to item.containerId, model.callbacks) {
+            it.bindExtraContainerItems(item)
+        }
     }
 
     fun bindDeepShortcuts(dataModel: BgDataModel) {
         val shortcutMapCopy = HashMap(dataModel.deepShortcutMap)
-        scheduleCallbackTask { it.bindDeepShortcutMap(shortcutMapCopy) }
+        bindScheduler.scheduleLatest(DEEP_SHORTCUTS_KEY, model.callbacks) {
+            it.bindDeepShortcutMap(shortcutMapCopy)
+        }
     }
 
     fun bindUpdatedWidgets(dataModel: BgDataModel) {
-        val allWidgets =
-            WidgetsListBaseEntriesBuilder(context)
-                .build(dataModel.widgetsModel.widgetsByPackageItemForPicker)
-        scheduleCallbackTask { it.bindAllWidgets(allWidgets) }
+        val allWidgets = dataModel.widgetsModel.widgetsListForPicker
+        bindScheduler.scheduleLatest(WIDGETS_KEY, model.callbacks) { it.bindAllWidgets(allWidgets) }
     }
 
     fun deleteAndBindComponentsRemoved(matcher: Predicate<ItemInfo?>, reason: String?) {
@@ -106,7 +103,17 @@ constructor(
                     keySelector = { PackageUserKey(it.componentName!!.packageName, it.user) },
                     valueTransform = { it.uid },
                 )
-            scheduleCallbackTask { it.bindAllApplications(apps, flags, packageUserKeyToUidMap) }
+            bindScheduler.scheduleLatest(ALL_APPS_KEY, model.callbacks) {
+                it.bindAllApplications(apps, flags, packageUserKeyToUidMap)
+            }
         }
     }
+
+    companion object {
+        // Keys of the binds which only need the latest data
+        private const val EXTRA_ITEMS_KEY = "extra_items"
+        private const val DEEP_SHORTCUTS_KEY = "deep_shortcuts"
+        private const val WIDGETS_KEY = "widgets"
+        private const val ALL_APPS_KEY = "all_apps"
+    }
 }
@@ -454,6 +454,8 @@ public class ModelWriter {
             // Lock on mBgLock *after* the db operation
             synchronized (mBgDataModel) {
                 checkItemInfoLocked(itemId, item, mStackTrace);
+                // The item was changed in place, so the model doesn't publish a change for it
+                mBgDataModel.invalidatePersistedSnapshot();
 
                 if (item.container != Favorites.CONTAINER_DESKTOP &&
                         item.container != Favorites.CONTAINER_HOTSEAT) {
@@ -30,8 +30,10 @@ import com.android.launcher3.model.data.LauncherAppWidgetInfo;
 import com.android.launcher3.pm.PackageInstallInfo;
 import com.android.launcher3.util.InstantAppResolver;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Handles changes due to a sessions updates for a currently installing app.
@@ -79,7 +81,8 @@ public class PackageInstallStateChangedTask implements ModelUpdateTask {
 
         synchronized (dataModel) {
             final HashSet<ItemInfo> updates = new HashSet<>();
-            dataModel.forAllWorkspaceItemInfos(mInstallInfo.user, si -> {
+            Set<String> packages = Collections.singleton(mInstallInfo.packageName);
+            dataModel.forAllWorkspaceItemInfos(packages, mInstallInfo.user, si -> {
                 if (si.hasPromiseIconUi()
                         && mInstallInfo.packageName.equals(si.getTargetPackage())) {
                     si.setProgressLevel(mInstallInfo);
@@ -87,9 +90,8 @@ public class PackageInstallStateChangedTask implements ModelUpdateTask {
                 }
             });
 
-            dataModel.itemsIdMap.stream()
+            dataModel.getItemsForPackages(packages, mInstallInfo.user).stream()
                     .filter(WIDGET_FILTER)
-                    .filter(item -> mInstallInfo.user.equals(item.user))
                     .map(item -> (LauncherAppWidgetInfo) item)
                     .filter(widget -> widget.providerName.getPackageName()
                             .equals(mInstallInfo.packageName))
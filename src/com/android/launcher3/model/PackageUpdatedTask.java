@@ -48,6 +48,7 @@ import com.android.launcher3.model.data.LauncherAppWidgetInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.pm.PackageInstallInfo;
 import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.shortcuts.DeepShortcutCache;
 import com.android.launcher3.shortcuts.ShortcutRequest;
 import com.android.launcher3.util.ApiWrapper;
 import com.android.launcher3.util.FlagOp;
@@ -64,6 +65,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -122,6 +124,14 @@ public class PackageUpdatedTask implements ModelUpdateTask {
                     + " packages=" + Arrays.toString(packages)
                     + ", user=" + mUser);
         }
+        DeepShortcutCache shortcutCache = DeepShortcutCache.INSTANCE.get(context);
+        if (mOp == OP_USER_AVAILABILITY_CHANGE) {
+            shortcutCache.invalidate(null, mUser);
+        } else {
+            for (String packageName : packages) {
+                shortcutCache.invalidate(packageName, mUser);
+            }
+        }
         switch (mOp) {
             case OP_ADD: {
                 for (int i = 0; i < packageCount; i++) {
@@ -175,7 +185,7 @@ public class PackageUpdatedTask implements ModelUpdateTask {
             case OP_UNSUSPEND:
                 flagOp = FlagOp.NO_OP.setFlag(
                         WorkspaceItemInfo.FLAG_DISABLED_SUSPENDED, mOp == OP_SUSPEND);
-                appsList.updateDisabledFlags(matcher, flagOp);
+                appsList.updateDisabledFlags(packageSet, mUser, flagOp);
                 break;
             case OP_USER_AVAILABILITY_CHANGE: {
                 UserManagerState ums = new UserManagerState();
@@ -217,7 +227,7 @@ public class PackageUpdatedTask implements ModelUpdateTask {
             // For system apps, package manager send OP_UPDATE when an app is enabled.
             final boolean isNewApkAvailable = mOp == OP_ADD || mOp == OP_UPDATE;
             synchronized (dataModel) {
-                dataModel.forAllWorkspaceItemInfos(mUser, itemInfo -> {
+                Consumer<WorkspaceItemInfo> itemUpdater = itemInfo -> {
 
                     boolean infoUpdated = false;
                     boolean shortcutUpdated = false;
@@ -353,11 +363,16 @@ public class PackageUpdatedTask implements ModelUpdateTask {
                     if (infoUpdated && itemInfo.id != ItemInfo.NO_ID) {
                         taskController.getModelWriter().updateItemInDatabase(itemInfo);
                     }
-                });
+                };
+                if (mOp == OP_USER_AVAILABILITY_CHANGE) {
+                    dataModel.forAllWorkspaceItemInfos(mUser, itemUpdater);
+                } else {
+                    // Only visit the items of the updated packages
+                    dataModel.forAllWorkspaceItemInfos(packageSet, mUser, itemUpdater);
+                }
 
-                dataModel.itemsIdMap.stream()
+                dataModel.getItemsForPackages(packageSet, mUser).stream()
                         .filter(WIDGET_FILTER)
-                        .filter(item -> mUser.equals(item.user))
                         .map(item -> (LauncherAppWidgetInfo) item)
                         .filter(widget -> widget.hasRestoreFlag(FLAG_PROVIDER_NOT_READY)
                                 && packageSet.contains(widget.providerName.getPackageName()))
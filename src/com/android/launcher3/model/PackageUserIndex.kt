@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model
+
+import android.os.UserHandle
+import android.util.SparseArray
+import com.android.launcher3.model.data.ItemInfo
+import com.android.launcher3.model.data.PredictedContainerInfo
+import com.android.launcher3.util.IntSet
+import com.android.launcher3.util.PackageUserKey
+
+/**
+ * Index of the workspace items by the package and user they target, so that package events only
+ * visit the affected items.
+ *
+ * Items in folders and app pairs are indexed by themselves, as they are part of the workspace
+ * items, widgets are indexed by their provider package and predicted containers are indexed under
+ * every package of their contents.
+ *
+ * This class is not thread safe, it is guarded by the [BgDataModel] lock.
+ */
+class PackageUserIndex {
+
+    private val idsByKey = HashMap<PackageUserKey, IntSet>()
+    private val keysById = SparseArray<List<PackageUserKey>>()
+
+    /** Replaces the indexed items with [items] */
+    fun rebuild(items: Iterable<ItemInfo>) {
+        idsByKey.clear()
+        keysById.clear()
+        items.forEach { add(it) }
+    }
+
+    /** Indexes [item], replacing any previous entry with the same id */
+    fun add(item: ItemInfo) {
+        remove(item.id)
+        val keys =
+            if (item is PredictedContainerInfo) {
+                item.getContents().mapNotNull { toKey(it) }.distinct()
+            } else {
+                listOfNotNull(toKey(item))
+            }
+        if (keys.isEmpty()) return
+        keysById.put(item.id, keys)
+        keys.forEach { idsByKey.getOrPut(it) { IntSet() }.add(item.id) }
+    }
+
+    /** Removes the item with [id] from the index */
+    fun remove(id: Int) {
+        val keys = keysById.get(id) ?: return
+        keysById.remove(id)
+        keys.forEach { key ->
+            idsByKey[key]?.let {
+                it.remove(id)
+                if (it.isEmpty) idsByKey.remove(key)
+            }
+        }
+    }
+
+    /** Returns the ids of the items targeting any of the [packages] for [user] */
+    fun getItemIds(packages: Collection<String>, user: UserHandle): IntSet {
+        val result = IntSet()
+        packages.forEach { packageName ->
+            idsByKey[PackageUserKey(packageName, user)]?.let { result.addAll(it) }
+        }
+        return result
+    }
+
+    private fun toKey(item: ItemInfo): PackageUserKey? =
+        item.targetPackage?.let { PackageUserKey(it, item.user) }
+}
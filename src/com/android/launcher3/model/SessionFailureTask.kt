@@ -60,7 +60,7 @@ class SessionFailureTask(val packageName: String, val user: UserHandle) : ModelU
                 taskController.bindApplicationsIfNeeded()
             } else {
                 val removedItems =
-                    dataModel.itemsIdMap.filter { info ->
+                    dataModel.getItemsForPackages(setOf(packageName), user).filter { info ->
                         (info is WorkspaceItemInfo && info.hasPromiseIconUi()) &&
                             user == info.user &&
                             TextUtils.equals(packageName, info.intent.getPackage())
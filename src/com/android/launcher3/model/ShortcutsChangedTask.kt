@@ -22,6 +22,7 @@ import com.android.launcher3.LauncherModel.ModelUpdateTask
 import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_DEEP_SHORTCUT
 import com.android.launcher3.icons.CacheableShortcutInfo
 import com.android.launcher3.model.data.WorkspaceItemInfo
+import com.android.launcher3.shortcuts.DeepShortcutCache
 import com.android.launcher3.shortcuts.ShortcutKey
 import com.android.launcher3.shortcuts.ShortcutRequest
 import com.android.launcher3.util.ApplicationInfoWrapper
@@ -41,11 +42,14 @@ class ShortcutsChangedTask(
         apps: AllAppsList,
     ) {
         val context = taskController.context
+        // The popup shows the published shortcuts, which may have changed
+        DeepShortcutCache.INSTANCE[context].invalidate(packageName, user)
+
         // Find WorkspaceItemInfo's that have changed on the workspace.
         val matchingWorkspaceItems = ArrayList<WorkspaceItemInfo>()
 
         synchronized(dataModel) {
-            dataModel.forAllWorkspaceItemInfos(user) { wai: WorkspaceItemInfo ->
+            dataModel.forAllWorkspaceItemInfos(setOf(packageName), user) { wai: WorkspaceItemInfo ->
                 if (
                     (wai.itemType == ITEM_TYPE_DEEP_SHORTCUT) &&
                         packageName == wai.getIntent().getPackage()
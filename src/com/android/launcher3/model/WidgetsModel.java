@@ -38,7 +38,10 @@ import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.Preconditions;
 import com.android.launcher3.widget.LauncherAppWidgetProviderInfo;
 import com.android.launcher3.widget.WidgetManagerHelper;
+import com.android.launcher3.widget.WidgetPreviewCache;
 import com.android.launcher3.widget.WidgetSections;
+import com.android.launcher3.widget.model.WidgetsListBaseEntry;
+import com.android.launcher3.widget.model.WidgetsListEntriesCache;
 import com.android.wm.shell.Flags;
 
 import java.util.ArrayList;
@@ -70,28 +73,35 @@ public class WidgetsModel {
     /* Map of widgets and shortcuts that are tracked per package. */
     private final Map<PackageItemInfo, List<WidgetItem>> mWidgetsByPackageItem = new HashMap<>();
     @Nullable private WidgetValidityCheckForPicker mWidgetValidityCheckForPicker = null;
+    /* Picker entries of the widgets above, only rebuilt for the packages which changed. */
+    private final WidgetsListEntriesCache mPickerEntries;
 
     private final Context mContext;
     private final InvariantDeviceProfile mIdp;
     private final IconCache mIconCache;
     private final AppFilter mAppFilter;
+    private final WidgetPreviewCache mPreviewCache;
 
     @Inject
     public WidgetsModel(
             @ApplicationContext Context context,
             InvariantDeviceProfile idp,
             IconCache iconCache,
-            AppFilter appFilter) {
+            AppFilter appFilter,
+            WidgetPreviewCache previewCache) {
         mContext = context;
         mIdp = idp;
         mIconCache = iconCache;
         mAppFilter = appFilter;
+        mPreviewCache = previewCache;
+        mPickerEntries = new WidgetsListEntriesCache(context);
     }
 
     public WidgetsModel(Context context) {
         this(context,
                 LauncherAppState.getIDP(context),
-                LauncherAppState.getInstance(context).getIconCache(), new AppFilter(context));
+                LauncherAppState.getInstance(context).getIconCache(), new AppFilter(context),
+                WidgetPreviewCache.INSTANCE.get(context));
     }
 
     /**
@@ -150,6 +160,17 @@ public class WidgetsModel {
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
+    /**
+     * Returns the sorted entries of the widget picker. The returned list is immutable and is
+     * shared by all the callers until the widgets change.
+     */
+    public synchronized List<WidgetsListBaseEntry> getWidgetsListForPicker() {
+        if (!WIDGETS_ENABLED || mWidgetValidityCheckForPicker == null) {
+            return Collections.emptyList();
+        }
+        return mPickerEntries.getEntries(mWidgetsByPackageItem, mWidgetValidityCheckForPicker);
+    }
+
     /**
      * @param packageUser If null, all widgets and shortcuts are updated and returned, otherwise
      *                    only widgets and shortcuts associated with the package/user are.
@@ -159,6 +180,11 @@ public class WidgetsModel {
             return new ArrayList<>();
         }
         Preconditions.assertWorkerThread();
+        if (packageUser != null) {
+            // The previews of the package may have changed, the cache keys of a full update
+            // already include the package versions
+            mPreviewCache.invalidate(packageUser);
+        }
 
         final ArrayList<WidgetItem> widgetsAndShortcuts = new ArrayList<>();
         List<CachedObject> updatedItems = new ArrayList<>();
@@ -211,9 +237,13 @@ public class WidgetsModel {
         if (packageUser == null) {
             // Clear the list if this is an update on all widgets and shortcuts.
             mWidgetsByPackageItem.clear();
+            // The widgets hidden from the picker may have changed for any package
+            mPickerEntries.clear();
         } else {
             // Otherwise, only clear the widgets and shortcuts for the changed package.
             mWidgetsByPackageItem.remove(packageItemInfoCache.getOrCreate(packageUser));
+            // The entries of the other packages are reused, as their lists are not replaced
+            mPickerEntries.onWidgetsChanged();
         }
 
         // add and update.
@@ -229,12 +259,13 @@ public class WidgetsModel {
         }
     }
 
-    public void onPackageIconsUpdated(Set<String> packageNames, UserHandle user) {
+    public synchronized void onPackageIconsUpdated(Set<String> packageNames, UserHandle user) {
         if (!WIDGETS_ENABLED) {
             return;
         }
         for (Entry<PackageItemInfo, List<WidgetItem>> entry : mWidgetsByPackageItem.entrySet()) {
             if (packageNames.contains(entry.getKey().packageName)) {
+                mPickerEntries.invalidate(entry.getKey());
                 List<WidgetItem> items = entry.getValue();
                 int count = items.size();
                 for (int i = 0; i < count; i++) {
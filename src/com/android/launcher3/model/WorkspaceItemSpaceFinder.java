@@ -59,17 +59,15 @@ public class WorkspaceItemSpaceFinder {
             IntArray workspaceScreens, IntArray addedWorkspaceScreensFinal, int spanX, int spanY) {
         LongSparseArray<ArrayList<ItemInfo>> screenItems = new LongSparseArray<>();
 
-        // Use sBgItemsIdMap as all the items are already loaded.
-        synchronized (mDataModel) {
-            for (ItemInfo info : mDataModel.itemsIdMap) {
-                if (info.container == LauncherSettings.Favorites.CONTAINER_DESKTOP) {
-                    ArrayList<ItemInfo> items = screenItems.get(info.screenId);
-                    if (items == null) {
-                        items = new ArrayList<>();
-                        screenItems.put(info.screenId, items);
-                    }
-                    items.add(info);
+        // Use the workspace snapshot as all the items are already loaded, it doesn't need a lock.
+        for (ItemInfo info : mDataModel.getWorkspaceSnapshot()) {
+            if (info.container == LauncherSettings.Favorites.CONTAINER_DESKTOP) {
+                ArrayList<ItemInfo> items = screenItems.get(info.screenId);
+                if (items == null) {
+                    items = new ArrayList<>();
+                    screenItems.put(info.screenId, items);
                 }
+                items.add(info);
             }
         }
 
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.model.data
+
+import android.util.SparseArray
+import androidx.annotation.VisibleForTesting
+import java.util.Arrays
+
+/**
+ * Immutable map of [ItemInfo] by id, where every update returns a new map sharing most of its
+ * storage with the previous one.
+ *
+ * The items are sorted by id and split in chunks of at most [MAX_CHUNK_SIZE] items. An update only
+ * copies the chunk it changes and the array of chunks, so publishing a new version after every
+ * model change doesn't copy all the items.
+ */
+class SharedItemMap private constructor(private val chunks: Array<Chunk>, val size: Int) :
+    Iterable<ItemInfo> {
+
+    /** Number of chunks, exposed to verify how much of the storage is shared */
+    @VisibleForTesting
+    val chunkCount: Int
+        get() = chunks.size
+
+    operator fun get(id: Int): ItemInfo? {
+        if (chunks.isEmpty()) return null
+        val chunk = chunks[findChunk(id)]
+        val index = Arrays.binarySearch(chunk.ids, id)
+        return if (index >= 0) chunk.items[index] else null
+    }
+
+    /** Returns a map with [item] added, or replacing the item with the same id */
+    fun put(item: ItemInfo): SharedItemMap {
+        val id = item.id
+        if (chunks.isEmpty()) return SharedItemMap(arrayOf(Chunk(intArrayOf(id), arrayOf(item))), 1)
+
+        val chunkIndex = findChunk(id)
+        val chunk = chunks[chunkIndex]
+        val index = Arrays.binarySearch(chunk.ids, id)
+        if (index >= 0) {
+            if (chunk.items[index] === item) return this
+            val items = chunk.items.copyOf()
+            items[index] = item
+            return SharedItemMap(chunks.replace(chunkIndex, Chunk(chunk.ids, items)), size)
+        }
+
+        val insertIndex = -index - 1
+        val ids = chunk.ids.insert(insertIndex, id)
+        val items = chunk.items.insert(insertIndex, item)
+        if (ids.size <= MAX_CHUNK_SIZE) {
+            return SharedItemMap(chunks.replace(chunkIndex, Chunk(ids, items)), size + 1)
+        }
+        // Split the full chunk in two halves
+        val half = ids.size / 2
+        val newChunks = arrayOfNulls<Chunk>(chunks.size + 1)
+        System.arraycopy(chunks, 0, newChunks, 0, chunkIndex)
+        newChunks[chunkIndex] = Chunk(ids.copyOfRange(0, half), items.copyOfRange(0, half))
+        newChunks[chunkIndex + 1] =
+            Chunk(ids.copyOfRange(half, ids.size), items.copyOfRange(half, ids.size))
+        System.arraycopy(
+            chunks,
+            chunkIndex + 1,
+            newChunks,
+            chunkIndex + 2,
+            chunks.size - chunkIndex - 1,
+        )
+        @Suppress("UNCHECKED_CAST")
+        return SharedItemMap(newChunks as Array<Chunk>, size + 1)
+    }
+
+    /** Returns a map without the item with [id] */
+    fun remove(id: Int): SharedItemMap {
+        if (chunks.isEmpty()) return this
+        val chunkIndex = findChunk(id)
+        val chunk = chunks[chunkIndex]
+        val index = Arrays.binarySearch(chunk.ids, id)
+        if (index < 0) return this
+        if (chunk.ids.size == 1) {
+            val newChunks = chunks.copyOf(chunks.size - 1)
+            val moved = newChunks.size - chunkIndex
+            System.arraycopy(chunks, chunkIndex + 1, newChunks, chunkIndex, moved)
+            @Suppress("UNCHECKED_CAST")
+            return SharedItemMap(newChunks as Array<Chunk>, size - 1)
+        }
+        val newChunk = Chunk(chunk.ids.delete(index), chunk.items.delete(index))
+        return SharedItemMap(chunks.replace(chunkIndex, newChunk), size - 1)
+    }
+
+    /** Iterates over the items in the order of their ids */
+    override fun iterator(): Iterator<ItemInfo> =
+        object : Iterator<ItemInfo> {
+            private var chunkIndex = 0
+            private var index = 0
+
+            override fun hasNext() = chunkIndex < chunks.size
+
+            override fun next(): ItemInfo {
+                if (!hasNext()) throw NoSuchElementException()
+                val chunk = chunks[chunkIndex]
+                val item = chunk.items[index++]
+                if (index == chunk.items.size) {
+                    chunkIndex++
+                    index = 0
+                }
+                return item
+            }
+        }
+
+    /** Returns the index of the chunk which contains [id], or where it would be inserted */
+    private fun findChunk(id: Int): Int {
+        var low = 1
+        var high = chunks.size - 1
+        var result = 0
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            if (chunks[mid].ids[0] <= id) {
+                result = mid
+                low = mid + 1
+            } else {
+                high = mid - 1
+            }
+        }
+        return result
+    }
+
+    private class Chunk(val ids: IntArray, val items: Array<ItemInfo>)
+
+    companion object {
+
+        @VisibleForTesting const val MAX_CHUNK_SIZE = 64
+
+        @JvmField val EMPTY = SharedItemMap(emptyArray(), 0)
+
+        /** Creates a map of all the [items] */
+        @JvmStatic
+        fun of(items: SparseArray<ItemInfo>): SharedItemMap {
+            val count = items.size()
+            if (count == 0) return EMPTY
+            // Leave some room in every chunk, so that the first additions don't split them
+            val chunkSize = MAX_CHUNK_SIZE * 3 / 4
+            val chunks =
+                Array((count + chunkSize - 1) / chunkSize) { c ->
+                    val start = c * chunkSize
+                    val end = minOf(start + chunkSize, count)
+                    Chunk(
+                        IntArray(end - start) { items.keyAt(start + it) },
+                        Array(end - start) { items.valueAt(start + it) },
+                    )
+                }
+            return SharedItemMap(chunks, count)
+        }
+
+        private fun <T> Array<T>.replace(index: Int, value: T): Array<T> =
+            copyOf().also { it[index] = value }
+
+        private fun IntArray.insert(index: Int, value: Int): IntArray {
+            val result = IntArray(size + 1)
+            System.arraycopy(this, 0, result, 0, index)
+            result[index] = value
+            System.arraycopy(this, index, result, index + 1, size - index)
+            return result
+        }
+
+        private fun Array<ItemInfo>.insert(index: Int, value: ItemInfo): Array<ItemInfo> {
+            val result = arrayOfNulls<ItemInfo>(size + 1)
+            System.arraycopy(this, 0, result, 0, index)
+            result[index] = value
+            System.arraycopy(this, index, result, index + 1, size - index)
+            @Suppress("UNCHECKED_CAST")
+            return result as Array<ItemInfo>
+        }
+
+        private fun IntArray.delete(index: Int): IntArray {
+            val result = IntArray(size - 1)
+            System.arraycopy(this, 0, result, 0, index)
+            System.arraycopy(this, index + 1, result, index, size - index - 1)
+            return result
+        }
+
+        private fun Array<ItemInfo>.delete(index: Int): Array<ItemInfo> {
+            val result = arrayOfNulls<ItemInfo>(size - 1)
+            System.arraycopy(this, 0, result, 0, index)
+            System.arraycopy(this, index + 1, result, index, size - index - 1)
+            @Suppress("UNCHECKED_CAST")
+            return result as Array<ItemInfo>
+        }
+    }
+}
@@ -118,6 +118,23 @@ sealed class WorkspaceData : Iterable<ItemInfo> {
         override fun copy(): WorkspaceData = this
     }
 
+    /**
+     * An immutable implementation of [WorkspaceData] backed by a [SharedItemMap], so that creating
+     * the next version after a change doesn't copy all the items
+     */
+    class SharedWorkspaceData(
+        override val version: Int,
+        override val modificationId: Int,
+        val items: SharedItemMap,
+    ) : WorkspaceData() {
+
+        override fun iterator() = items.iterator()
+
+        override fun get(id: Int): ItemInfo? = items[id]
+
+        override fun copy(): WorkspaceData = this
+    }
+
     companion object {
         private val VERSION_COUNTER = AtomicInteger()
     }
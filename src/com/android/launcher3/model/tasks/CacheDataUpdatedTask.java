@@ -65,6 +65,7 @@ public class CacheDataUpdatedTask implements ModelUpdateTask {
 
         synchronized (dataModel) {
             updatedItems = dataModel.updateAndCollectWorkspaceItemInfos(
+                    mPackages,
                     mUser,
                     si -> {
                         ComponentName cn = si.getTargetComponent();
@@ -28,6 +28,7 @@ import com.android.launcher3.model.data.ItemInfoWithIcon;
 import com.android.launcher3.pm.PackageInstallInfo;
 import com.android.launcher3.util.FlagOp;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -68,14 +69,17 @@ public class PackageIncrementalDownloadUpdatedTask implements ModelUpdateTask {
 
         final List<ItemInfo> updatedWorkspaceItems;
         synchronized (dataModel) {
-            updatedWorkspaceItems = dataModel.updateAndCollectWorkspaceItemInfos(mUser, si -> {
-                if (mPackageName.equals(si.getTargetPackage())) {
-                    si.runtimeStatusFlags &= ~ItemInfoWithIcon.FLAG_INSTALL_SESSION_ACTIVE;
-                    si.setProgressLevel(downloadInfo);
-                    return true;
-                }
-                return false;
-            });
+            updatedWorkspaceItems = dataModel.updateAndCollectWorkspaceItemInfos(
+                    Collections.singleton(mPackageName),
+                    mUser,
+                    si -> {
+                        if (mPackageName.equals(si.getTargetPackage())) {
+                            si.runtimeStatusFlags &= ~ItemInfoWithIcon.FLAG_INSTALL_SESSION_ACTIVE;
+                            si.setProgressLevel(downloadInfo);
+                            return true;
+                        }
+                        return false;
+                    });
         }
         taskController.bindUpdatedWorkspaceItems(updatedWorkspaceItems);
     }
@@ -30,6 +30,7 @@ import com.android.launcher3.pm.PackageInstallInfo;
 import com.android.launcher3.util.FlagOp;
 import com.android.launcher3.util.InstantAppResolver;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -73,6 +74,7 @@ public class PackageInstallStateChangedTask implements ModelUpdateTask {
 
         synchronized (dataModel) {
             final List<ItemInfo> updates = dataModel.updateAndCollectWorkspaceItemInfos(
+                    Collections.singleton(mInstallInfo.packageName),
                     mInstallInfo.user,
                     si -> {
                         if (si.hasPromiseIconUi()
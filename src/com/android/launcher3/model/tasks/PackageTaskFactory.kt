@@ -86,7 +86,7 @@ object PackageTaskFactory {
         ModelUpdateTask { taskController, dataModel, apps ->
             val flagOp = FlagOp.NO_OP.addFlag(FLAG_DISABLED_SUSPENDED)
 
-            apps.updateDisabledFlags(ItemInfoMatcher.ofPackages(packages, user), flagOp)
+            apps.updateDisabledFlags(packages, user, flagOp)
             taskController.bindApplicationsIfNeeded()
 
             updateRuntimeStatus(taskController, dataModel, user, packages, flagOp)
@@ -97,7 +97,7 @@ object PackageTaskFactory {
         ModelUpdateTask { taskController, dataModel, apps ->
             val flagOp = FlagOp.NO_OP.removeFlag(FLAG_DISABLED_SUSPENDED)
 
-            apps.updateDisabledFlags(ItemInfoMatcher.ofPackages(packages, user), flagOp)
+            apps.updateDisabledFlags(packages, user, flagOp)
             taskController.bindApplicationsIfNeeded()
 
             updateRuntimeStatus(taskController, dataModel, user, packages, flagOp)
@@ -115,6 +115,7 @@ object PackageTaskFactory {
         // Update workspace items, widget suspension is handled by the platform itself
         val updatedItems =
             dataModel.updateAndCollectWorkspaceItemInfos(
+                packages,
                 user,
                 { itemInfo ->
                     val oldRuntimeFlags = itemInfo.runtimeStatusFlags
@@ -112,7 +112,7 @@ public class PackageUpdatedTask implements ModelUpdateTask {
 
         // Update shortcut infos
         List<ItemInfo> updatedItems = dataModel.updateAndCollectWorkspaceItemInfos(
-                mUser, itemInfo -> {
+                mPackages, mUser, itemInfo -> {
                     ComponentName cn = itemInfo.getTargetComponent();
                     if (cn == null) return false;
                     String packageName = cn.getPackageName();
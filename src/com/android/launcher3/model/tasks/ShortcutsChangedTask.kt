@@ -50,6 +50,7 @@ class ShortcutsChangedTask(
         // Find WorkspaceItemInfo's that have changed on the workspace.
         val matchingShortcutIds = mutableSetOf<String>()
         dataModel.updateAndCollectWorkspaceItemInfos(
+            setOf(packageName),
             user,
             {
                 if (itemFilter.invoke(it)) matchingShortcutIds.add(it.deepShortcutId)
@@ -80,6 +81,7 @@ class ShortcutsChangedTask(
             val nonPinnedIds = matchingShortcutIds.toMutableSet()
             val updatedWorkspaceItemInfos =
                 dataModel.updateAndCollectWorkspaceItemInfos(
+                    setOf(packageName),
                     user,
                     {
                         if (!itemFilter.invoke(it)) return@updateAndCollectWorkspaceItemInfos false
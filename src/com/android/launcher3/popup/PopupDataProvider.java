@@ -19,31 +19,37 @@ package com.android.launcher3.popup;
 import android.content.ComponentName;
 import android.service.notification.StatusBarNotification;
 import android.util.Log;
+import android.view.Choreographer;
+import android.view.View;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.BubbleTextView;
-import com.android.launcher3.allapps.ActivityAllAppsContainerView;
 import com.android.launcher3.dot.DotInfo;
-import com.android.launcher3.folder.Folder;
 import com.android.launcher3.folder.FolderIcon;
-import com.android.launcher3.model.data.FolderInfo;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.notification.NotificationKeyData;
 import com.android.launcher3.notification.NotificationListener;
 import com.android.launcher3.util.ComponentKey;
-import com.android.launcher3.util.LauncherBindableItemsContainer.ItemOperator;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.ShortcutUtil;
 import com.android.launcher3.views.ActivityContext;
 
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Predicate;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * Provides data for the popup menu that appears after long-clicking on apps.
@@ -58,6 +64,17 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
     /** Maps packages to their DotInfo's . */
     private final Map<PackageUserKey, DotInfo> mPackageUserToDotInfos = new HashMap<>();
 
+    /** Views showing the dots of each package, see {@link #registerDotView} */
+    private final Map<PackageUserKey, Set<View>> mDotViews = new HashMap<>();
+    /** Packages shown by each view in {@link #mDotViews} */
+    private final Map<View, Set<PackageUserKey>> mDotViewKeys = new WeakHashMap<>();
+
+    /** Packages whose notifications changed since the last frame */
+    private final Set<PackageUserKey> mPendingDotUpdates = new HashSet<>();
+    private final Choreographer.FrameCallback mDotUpdateCallback =
+            frameTimeNanos -> applyPendingDotUpdates();
+    private boolean mDotUpdateScheduled;
+
     /** Maps launcher activity components to a count of how many shortcuts they have. */
     private HashMap<ComponentKey, Integer> mDeepShortcutMap = new HashMap<>();
 
@@ -65,32 +82,87 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
         mContext = context;
     }
 
-    private void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
-        final PackageUserKey packageUserKey = new PackageUserKey(null, null);
-        Predicate<ItemInfo> matcher = info -> !packageUserKey.updateFromItemInfo(info)
-                || updatedDots.test(packageUserKey);
-
-        ItemOperator op = (info, v) -> {
-            if (v instanceof BubbleTextView && info != null && matcher.test(info)) {
-                ((BubbleTextView) v).applyDotState(info, true /* animate */);
-            } else if (v instanceof FolderIcon icon
-                    && info instanceof FolderInfo fi && fi.anyMatch(matcher)) {
-                icon.updateDotInfo();
+    /**
+     * Registers {@param view} as showing the dots of {@param items}, so that it is updated when
+     * the notifications of their packages change. A view is only registered for the items it was
+     * last bound to. Views register while they are attached, and only when the activity
+     * {@link ActivityContext#hasSharedPopupDataProvider has a shared provider}.
+     */
+    public void registerDotView(@NonNull View view, @NonNull Collection<ItemInfo> items) {
+        Set<PackageUserKey> keys = new HashSet<>();
+        for (ItemInfo info : items) {
+            PackageUserKey key = ShortcutUtil.supportsShortcuts(info)
+                    ? PackageUserKey.fromItemInfo(info) : null;
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        Set<PackageUserKey> oldKeys = keys.isEmpty()
+                ? mDotViewKeys.remove(view) : mDotViewKeys.put(view, keys);
+        if (keys.equals(oldKeys)) {
+            return;
+        }
+        if (oldKeys != null) {
+            for (PackageUserKey key : oldKeys) {
+                Set<View> views = mDotViews.get(key);
+                if (views != null) {
+                    views.remove(view);
+                    if (views.isEmpty()) {
+                        mDotViews.remove(key);
+                    }
+                }
             }
+        }
+        for (PackageUserKey key : keys) {
+            mDotViews.computeIfAbsent(key, k -> Collections.newSetFromMap(new WeakHashMap<>()))
+                    .add(view);
+        }
+    }
 
-            // process all the shortcuts
-            return false;
-        };
+    /** Stops updating the dots of {@param view}, see {@link #registerDotView} */
+    public void unregisterDotView(@NonNull View view) {
+        registerDotView(view, Collections.emptyList());
+    }
 
-        mContext.getContent().mapOverItems(op);
-        Folder folder = Folder.getOpen(mContext);
-        if (folder != null) {
-            folder.mapOverItems(op);
+    /** Updates the dots of the views bound to {@param key} on the next frame */
+    private void onDotChanged(PackageUserKey key) {
+        mPendingDotUpdates.add(key);
+        if (!mDotUpdateScheduled) {
+            mDotUpdateScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mDotUpdateCallback);
         }
+    }
 
-        ActivityAllAppsContainerView<?> appsView = mContext.getAppsView();
-        if (appsView != null) {
-            appsView.getAppsStore().updateNotificationDots(updatedDots);
+    /** Updates the dots of the views bound to the packages which changed since the last frame */
+    @VisibleForTesting
+    void applyPendingDotUpdates() {
+        if (mDotUpdateScheduled) {
+            mDotUpdateScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(mDotUpdateCallback);
+        }
+        if (mPendingDotUpdates.isEmpty()) {
+            return;
+        }
+        // A folder can be bound to several of the updated packages, only update it once
+        Set<View> views = new LinkedHashSet<>();
+        for (PackageUserKey key : mPendingDotUpdates) {
+            Set<View> keyViews = mDotViews.get(key);
+            if (keyViews != null && keyViews.isEmpty()) {
+                // All the views of the package were garbage collected
+                mDotViews.remove(key);
+            } else if (keyViews != null) {
+                views.addAll(keyViews);
+            }
+        }
+        if (LOGD) Log.d(TAG, "applyPendingDotUpdates: " + mPendingDotUpdates + ", " + views.size());
+        mPendingDotUpdates.clear();
+
+        for (View v : views) {
+            if (v instanceof BubbleTextView btv && v.getTag() instanceof ItemInfo info) {
+                btv.applyDotState(info, true /* animate */);
+            } else if (v instanceof FolderIcon icon) {
+                icon.updateDotInfo();
+            }
         }
     }
 
@@ -103,7 +175,7 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
             mPackageUserToDotInfos.put(postedPackageUserKey, dotInfo);
         }
         if (dotInfo.addOrUpdateNotificationKey(notificationKey)) {
-            updateNotificationDots(postedPackageUserKey::equals);
+            onDotChanged(postedPackageUserKey);
         }
     }
 
@@ -115,43 +187,55 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
             if (oldDotInfo.getNotificationKeys().size() == 0) {
                 mPackageUserToDotInfos.remove(removedPackageUserKey);
             }
-            updateNotificationDots(removedPackageUserKey::equals);
+            onDotChanged(removedPackageUserKey);
         }
     }
 
     @Override
     public void onNotificationFullRefresh(List<StatusBarNotification> activeNotifications) {
         if (activeNotifications == null) return;
-        // This will contain the PackageUserKeys which have updated dots.
-        HashMap<PackageUserKey, DotInfo> updatedDots = new HashMap<>(mPackageUserToDotInfos);
-        mPackageUserToDotInfos.clear();
+        Map<PackageUserKey, List<NotificationKeyData>> notificationsByPackage = new HashMap<>();
         for (StatusBarNotification notification : activeNotifications) {
-            PackageUserKey packageUserKey = PackageUserKey.fromNotification(notification);
-            DotInfo dotInfo = mPackageUserToDotInfos.get(packageUserKey);
-            if (dotInfo == null) {
-                dotInfo = new DotInfo();
-                mPackageUserToDotInfos.put(packageUserKey, dotInfo);
+            notificationsByPackage.computeIfAbsent(
+                    PackageUserKey.fromNotification(notification), k -> new ArrayList<>())
+                    .add(NotificationKeyData.fromNotification(notification));
+        }
+
+        // Update the existing dots in place, so that only the packages whose notifications
+        // actually changed have their views updated.
+        Iterator<Map.Entry<PackageUserKey, DotInfo>> iterator =
+                mPackageUserToDotInfos.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<PackageUserKey, DotInfo> entry = iterator.next();
+            List<NotificationKeyData> notifications = notificationsByPackage.remove(entry.getKey());
+            if (notifications == null) {
+                iterator.remove();
+                onDotChanged(entry.getKey());
+                continue;
             }
-            dotInfo.addOrUpdateNotificationKey(NotificationKeyData.fromNotification(notification));
-        }
-
-        // Add and remove from updatedDots so it contains the PackageUserKeys of updated dots.
-        for (PackageUserKey packageUserKey : mPackageUserToDotInfos.keySet()) {
-            DotInfo prevDot = updatedDots.get(packageUserKey);
-            DotInfo newDot = mPackageUserToDotInfos.get(packageUserKey);
-            if (prevDot == null
-                    || prevDot.getNotificationCount() != newDot.getNotificationCount()) {
-                updatedDots.put(packageUserKey, newDot);
-            } else {
-                // No need to update the dot if it already existed (no visual change).
-                // Note that if the dot was removed entirely, we wouldn't reach this point because
-                // this loop only includes active notifications added above.
-                updatedDots.remove(packageUserKey);
+            Set<String> notificationKeys = new HashSet<>();
+            for (NotificationKeyData notification : notifications) {
+                notificationKeys.add(notification.notificationKey);
+            }
+            DotInfo dotInfo = entry.getValue();
+            boolean changed = dotInfo.retainNotificationKeys(notificationKeys);
+            for (NotificationKeyData notification : notifications) {
+                changed |= dotInfo.addOrUpdateNotificationKey(notification);
+            }
+            if (changed) {
+                onDotChanged(entry.getKey());
             }
         }
 
-        if (!updatedDots.isEmpty()) {
-            updateNotificationDots(updatedDots::containsKey);
+        // The remaining packages didn't have any notification
+        for (Map.Entry<PackageUserKey, List<NotificationKeyData>> entry
+                : notificationsByPackage.entrySet()) {
+            DotInfo dotInfo = new DotInfo();
+            for (NotificationKeyData notification : entry.getValue()) {
+                dotInfo.addOrUpdateNotificationKey(notification);
+            }
+            mPackageUserToDotInfos.put(entry.getKey(), dotInfo);
+            onDotChanged(entry.getKey());
         }
     }
 
@@ -203,5 +287,7 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
     public void dump(String prefix, PrintWriter writer) {
         writer.println(prefix + "PopupDataProvider:");
         writer.println(prefix + "\tmPackageUserToDotInfos:" + mPackageUserToDotInfos);
+        writer.println(prefix + "\tdot views: " + mDotViewKeys.size()
+                + ", pending dot updates: " + mPendingDotUpdates);
     }
 }
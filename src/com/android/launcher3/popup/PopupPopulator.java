@@ -26,14 +26,11 @@ import android.os.UserHandle;
 
 import androidx.annotation.VisibleForTesting;
 
-import com.android.launcher3.LauncherAppState;
-import com.android.launcher3.icons.CacheableShortcutInfo;
-import com.android.launcher3.icons.IconCache;
 import com.android.launcher3.model.data.ItemInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
+import com.android.launcher3.shortcuts.DeepShortcutCache;
+import com.android.launcher3.shortcuts.DeepShortcutCache.PopupShortcut;
 import com.android.launcher3.shortcuts.DeepShortcutView;
-import com.android.launcher3.shortcuts.ShortcutRequest;
-import com.android.launcher3.util.ApplicationInfoWrapper;
 import com.android.launcher3.views.ActivityContext;
 
 import java.util.ArrayList;
@@ -116,19 +113,14 @@ public class PopupPopulator {
     ) {
         final ComponentName activity = originalInfo.getTargetComponent();
         final UserHandle user = originalInfo.user;
-        final String targetPackage = originalInfo.getTargetPackage();
         return () -> {
-            ApplicationInfoWrapper infoWrapper =
-                    new ApplicationInfoWrapper(context, targetPackage, user);
-            List<ShortcutInfo> shortcuts = new ShortcutRequest(context, user)
-                    .withContainer(activity)
-                    .query(ShortcutRequest.PUBLISHED);
-            shortcuts = PopupPopulator.sortAndFilterShortcuts(shortcuts);
-            IconCache cache = LauncherAppState.getInstance(context).getIconCache();
+            // Usually prefetched when the icon was touched
+            List<PopupShortcut> shortcuts = DeepShortcutCache.INSTANCE.get(context)
+                    .getShortcuts(activity, user);
             for (int i = 0; i < shortcuts.size() && i < shortcutViews.size(); i++) {
-                final ShortcutInfo shortcut = shortcuts.get(i);
+                final ShortcutInfo shortcut = shortcuts.get(i).getInfo();
                 final WorkspaceItemInfo si = new WorkspaceItemInfo(shortcut, context);
-                cache.getShortcutIcon(si, new CacheableShortcutInfo(shortcut, infoWrapper));
+                si.bitmap = shortcuts.get(i).getIcon();
                 si.rank = i;
                 si.container = CONTAINER_SHORTCUTS;
 
@@ -24,11 +24,13 @@ import static com.android.launcher3.InvariantDeviceProfile.TYPE_MULTI_DISPLAY;
 import static com.android.launcher3.LauncherPrefs.APP_WIDGET_IDS;
 import static com.android.launcher3.LauncherPrefs.IS_FIRST_LOAD_AFTER_RESTORE;
 import static com.android.launcher3.LauncherPrefs.OLD_APP_WIDGET_IDS;
+import static com.android.launcher3.LauncherPrefs.RESTORE_CHECKPOINT;
 import static com.android.launcher3.LauncherPrefs.RESTORE_DEVICE;
 import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE;
 import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
 import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET;
 import static com.android.launcher3.provider.LauncherDbUtils.dropTable;
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
 import static com.android.launcher3.widget.LauncherWidgetHolder.APPWIDGET_HOST_ID;
 
 import android.app.backup.BackupManager;
@@ -41,11 +43,11 @@ import android.content.Intent;
 import android.content.pm.LauncherActivityInfo;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.text.TextUtils;
 import android.util.Log;
 import android.util.LongSparseArray;
-import android.util.SparseLongArray;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
@@ -76,10 +78,13 @@ import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.LogConfig;
 
 import java.io.InvalidObjectException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -94,6 +99,15 @@ public class RestoreDbTask {
     private static final String TAG = "RestoreDbTask";
     public static final String RESTORED_DEVICE_TYPE = "restored_task_pending";
     public static final String FIRST_LOAD_AFTER_RESTORE_KEY = "first_load_after_restore";
+    public static final String RESTORE_CHECKPOINT_KEY = "restore_checkpoint";
+
+    // Phases of the restore, in order. Each phase is committed separately and recorded in
+    // RESTORE_CHECKPOINT, so that a restore interrupted midway resumes after the last phase which
+    // completed instead of running the completed phases again on an already updated db.
+    @VisibleForTesting
+    static final int PHASE_SANITIZE_DB = 1;
+    @VisibleForTesting
+    static final int PHASE_RESTORE_WIDGET_IDS = 2;
 
     private static final String INFO_COLUMN_NAME = "name";
     private static final String INFO_COLUMN_DEFAULT_VALUE = "dflt_value";
@@ -113,7 +127,7 @@ public class RestoreDbTask {
             Log.d(TAG, "No restore task pending, exiting RestoreDbTask");
             return;
         }
-        if (!performRestore(context, dbController)) {
+        if (!performRestore(context, dbController, new RestoreDbTask())) {
             dbController.createEmptyDB();
         }
 
@@ -123,7 +137,7 @@ public class RestoreDbTask {
 
         // Set is pending to false irrespective of the result, so that it doesn't get
         // executed again.
-        LauncherPrefs.get(context).removeSync(RESTORE_DEVICE);
+        LauncherPrefs.get(context).removeSync(RESTORE_DEVICE, RESTORE_CHECKPOINT);
 
         DeviceGridState deviceGridState = new DeviceGridState(context);
         FileLog.d(TAG, "restoreIfNeeded: deviceGridState from context: " + deviceGridState);
@@ -198,18 +212,30 @@ public class RestoreDbTask {
                 });
     }
 
-    private static boolean performRestore(Context context, ModelDbController controller) {
+    /**
+     * Runs the phases of the restore which have not completed yet on {@param task}.
+     *
+     * @return false if the restore failed
+     */
+    @VisibleForTesting
+    static boolean performRestore(Context context, ModelDbController controller,
+            RestoreDbTask task) {
         SQLiteDatabase db = controller.getDb();
-        FileLog.d(TAG, "performRestore: starting restore from db");
-        try (SQLiteTransaction t = new SQLiteTransaction(db)) {
-            RestoreDbTask task = new RestoreDbTask();
-            BackupManager backupManager = new BackupManager(context);
+        LauncherPrefs prefs = LauncherPrefs.get(context);
+        int checkpoint = prefs.get(RESTORE_CHECKPOINT);
+        FileLog.d(TAG, "performRestore: starting restore from db, checkpoint=" + checkpoint);
+        try {
             LauncherRestoreEventLogger restoreEventLogger =
                     LauncherRestoreEventLogger.Companion.newInstance(context);
-            task.sanitizeDB(context, controller, db, backupManager, restoreEventLogger);
-            task.restoreAppWidgetIdsIfExists(context, controller, restoreEventLogger,
-                    () -> new AppWidgetHost(context, APPWIDGET_HOST_ID));
-            t.commit();
+            if (checkpoint < PHASE_SANITIZE_DB) {
+                runPhase(prefs, db, PHASE_SANITIZE_DB, () -> task.sanitizeDB(context, controller,
+                        db, new BackupManager(context), restoreEventLogger));
+            }
+            if (checkpoint < PHASE_RESTORE_WIDGET_IDS) {
+                runPhase(prefs, db, PHASE_RESTORE_WIDGET_IDS, () ->
+                        task.restoreAppWidgetIdsIfExists(context, controller, restoreEventLogger,
+                                () -> new AppWidgetHost(context, APPWIDGET_HOST_ID)));
+            }
             return true;
         } catch (Exception e) {
             FileLog.e(TAG, "Failed to verify db", e);
@@ -217,6 +243,44 @@ public class RestoreDbTask {
         }
     }
 
+    /**
+     * Runs {@param phase} of the restore in its own transaction, and records it as completed once
+     * committed.
+     */
+    private static void runPhase(LauncherPrefs prefs, SQLiteDatabase db, int phase,
+            RestorePhase work) throws Exception {
+        long startTime = SystemClock.elapsedRealtime();
+        try (SQLiteTransaction t = new SQLiteTransaction(db)) {
+            work.run();
+            t.commit();
+        }
+        prefs.putSync(RESTORE_CHECKPOINT.to(phase));
+        FileLog.d(TAG, "performRestore: phase " + phase + " completed in "
+                + (SystemClock.elapsedRealtime() - startTime) + "ms");
+    }
+
+    /** A phase of the restore, run within a transaction */
+    private interface RestorePhase {
+        void run() throws Exception;
+    }
+
+    /**
+     * Returns the result of {@param lookup} for each of the {@param keys}, in order. The lookups
+     * are binder calls independent of each other, so they are made concurrently.
+     */
+    private static <K, V> List<V> lookupConcurrently(List<K> keys, Function<K, V> lookup) {
+        List<CompletableFuture<V>> futures = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            futures.add(CompletableFuture.supplyAsync(() -> lookup.apply(key),
+                    THREAD_POOL_EXECUTOR));
+        }
+        List<V> results = new ArrayList<>(keys.size());
+        for (CompletableFuture<V> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
     /**
      * Makes the following changes in the provider DB.
      *   1. Removes all entries belonging to any profiles that were not restored.
@@ -233,6 +297,11 @@ public class RestoreDbTask {
     protected int sanitizeDB(Context context, ModelDbController controller, SQLiteDatabase db,
             BackupManager backupManager, LauncherRestoreEventLogger restoreEventLogger)
             throws Exception {
+        // Shortcut overrides don't depend on the db, query them while the db is being updated
+        CompletableFuture<Map<String, LauncherActivityInfo>> activityOverrides =
+                CompletableFuture.supplyAsync(
+                        () -> ApiWrapper.INSTANCE.get(context).getActivityOverrides(),
+                        THREAD_POOL_EXECUTOR);
         logFavoritesTable(db, "Old Launcher Database before sanitizing:", null, null);
         // Primary user ids
         long myProfileId = controller.getSerialNumberForUser(myUserHandle());
@@ -245,9 +314,15 @@ public class RestoreDbTask {
 
         // Build mapping of restored profile ids to their new profile ids.
         profileMapping.put(oldProfileId, myProfileId);
+        List<Long> managedProfileIds = new ArrayList<>(oldManagedProfileIds.size());
         for (int i = oldManagedProfileIds.size() - 1; i >= 0; --i) {
-            long oldManagedProfileId = oldManagedProfileIds.keyAt(i);
-            UserHandle user = getUserForAncestralSerialNumber(backupManager, oldManagedProfileId);
+            managedProfileIds.add(oldManagedProfileIds.keyAt(i));
+        }
+        List<UserHandle> managedUsers = lookupConcurrently(managedProfileIds,
+                id -> getUserForAncestralSerialNumber(backupManager, id));
+        for (int i = 0; i < managedProfileIds.size(); i++) {
+            long oldManagedProfileId = managedProfileIds.get(i);
+            UserHandle user = managedUsers.get(i);
             if (user != null) {
                 long newManagedProfileId = controller.getSerialNumberForUser(user);
                 profileMapping.put(oldManagedProfileId, newManagedProfileId);
@@ -277,46 +352,19 @@ public class RestoreDbTask {
         int itemsDeletedCount = db.delete(Favorites.TABLE_NAME, where, profileIds);
         FileLog.d(TAG, itemsDeletedCount + " total items from unrestored user(s) were deleted");
 
-        // Mark all items as restored.
+        // Mark all items as restored, and widgets with appropriate restore flag.
         boolean keepAllIcons = Utilities.isPropertyEnabled(LogConfig.KEEP_ALL_ICONS);
-        ContentValues values = new ContentValues();
-        values.put(Favorites.RESTORED, WorkspaceItemInfo.FLAG_RESTORED_ICON
-                | (keepAllIcons ? WorkspaceItemInfo.FLAG_RESTORE_STARTED : 0));
-        db.update(Favorites.TABLE_NAME, values, null, null);
-
-        // Mark widgets with appropriate restore flag.
-        values.put(Favorites.RESTORED,  LauncherAppWidgetInfo.FLAG_ID_NOT_VALID
+        int itemFlags = WorkspaceItemInfo.FLAG_RESTORED_ICON
+                | (keepAllIcons ? WorkspaceItemInfo.FLAG_RESTORE_STARTED : 0);
+        int widgetFlags = LauncherAppWidgetInfo.FLAG_ID_NOT_VALID
                 | LauncherAppWidgetInfo.FLAG_PROVIDER_NOT_READY
                 | LauncherAppWidgetInfo.FLAG_UI_NOT_READY
-                | (keepAllIcons ? LauncherAppWidgetInfo.FLAG_RESTORE_STARTED : 0));
-        db.update(Favorites.TABLE_NAME, values, "itemType = ?",
-                new String[]{Integer.toString(Favorites.ITEM_TYPE_APPWIDGET)});
-
-        // Migrate ids. To avoid any overlap, we initially move conflicting ids to a temp
-        // location. Using Long.MIN_VALUE since profile ids can not be negative, so there will
-        // be no overlap.
-        final long tempLocationOffset = Long.MIN_VALUE;
-        SparseLongArray tempMigratedIds = new SparseLongArray(profileMapping.size());
-        int numTempMigrations = 0;
-        for (int i = profileMapping.size() - 1; i >= 0; --i) {
-            long oldId = profileMapping.keyAt(i);
-            long newId = profileMapping.valueAt(i);
+                | (keepAllIcons ? LauncherAppWidgetInfo.FLAG_RESTORE_STARTED : 0);
+        db.execSQL("UPDATE " + Favorites.TABLE_NAME + " SET " + Favorites.RESTORED
+                        + " = CASE WHEN " + Favorites.ITEM_TYPE + " = ? THEN ? ELSE ? END",
+                new Object[]{Favorites.ITEM_TYPE_APPWIDGET, widgetFlags, itemFlags});
 
-            if (oldId != newId) {
-                if (profileMapping.indexOfKey(newId) >= 0) {
-                    tempMigratedIds.put(numTempMigrations, newId);
-                    numTempMigrations++;
-                    newId = tempLocationOffset + newId;
-                }
-                migrateProfileId(db, oldId, newId);
-            }
-        }
-
-        // Migrate ids from their temporary id to their actual final id.
-        for (int i = tempMigratedIds.size() - 1; i >= 0; --i) {
-            long newId = tempMigratedIds.valueAt(i);
-            migrateProfileId(db, tempLocationOffset + newId, newId);
-        }
+        migrateProfileIds(db, profileMapping);
 
         if (myProfileId != oldProfileId) {
             changeDefaultColumn(db, myProfileId);
@@ -328,7 +376,7 @@ public class RestoreDbTask {
         }
 
         // Override shortcuts
-        maybeOverrideShortcuts(context, controller, db, myProfileId);
+        maybeOverrideShortcuts(controller, db, myProfileId, activityOverrides.join());
         return itemsDeletedCount;
     }
 
@@ -359,18 +407,30 @@ public class RestoreDbTask {
     }
 
     /**
-     * Updates profile id of all entries from {@param oldProfileId} to {@param newProfileId}.
+     * Updates the profile id of all entries from each key of {@param profileMapping} to its value,
+     * in a single statement. All the entries are mapped from their original profile id, so ids
+     * being swapped don't overlap.
      */
-    protected void migrateProfileId(SQLiteDatabase db, long oldProfileId, long newProfileId) {
-        FileLog.d(TAG, "Changing profile user id from " + oldProfileId + " to " + newProfileId);
-        // Update existing entries.
-        ContentValues values = new ContentValues();
-        values.put(Favorites.PROFILE_ID, newProfileId);
-        db.update(Favorites.TABLE_NAME, values, "profileId = ?",
-                new String[]{Long.toString(oldProfileId)});
+    protected void migrateProfileIds(SQLiteDatabase db, LongSparseArray<Long> profileMapping) {
+        StringBuilder cases = new StringBuilder();
+        List<String> oldIds = new ArrayList<>();
+        for (int i = 0; i < profileMapping.size(); i++) {
+            long oldId = profileMapping.keyAt(i);
+            long newId = profileMapping.valueAt(i);
+            if (oldId != newId) {
+                FileLog.d(TAG, "Changing profile user id from " + oldId + " to " + newId);
+                cases.append(" WHEN ").append(oldId).append(" THEN ").append(newId);
+                oldIds.add(Long.toString(oldId));
+            }
+        }
+        if (oldIds.isEmpty()) {
+            return;
+        }
+        db.execSQL("UPDATE " + Favorites.TABLE_NAME + " SET " + Favorites.PROFILE_ID
+                + " = CASE " + Favorites.PROFILE_ID + cases + " END WHERE " + Favorites.PROFILE_ID
+                + " IN (" + TextUtils.join(", ", oldIds) + ")");
     }
 
-
     /**
      * Changes the default value for the column.
      */
@@ -434,6 +494,7 @@ public class RestoreDbTask {
         DeviceGridState deviceGridState = new DeviceGridState(context);
         FileLog.d(TAG, "restore initiated from backup: DeviceGridState=" + deviceGridState);
         LauncherPrefs.get(context).putSync(RESTORE_DEVICE.to(deviceGridState.getDeviceType()));
+        LauncherPrefs.get(context).removeSync(RESTORE_CHECKPOINT);
         LauncherPrefs.get(context).putSync(IS_FIRST_LOAD_AFTER_RESTORE.to(true));
     }
 
@@ -488,10 +549,21 @@ public class RestoreDbTask {
         // TODO(b/234700507): Remove the logs after the bug is fixed
         logDatabaseWidgetInfo(controller);
 
+        List<AppWidgetProviderInfo> providers = lookupConcurrently(
+                Arrays.stream(newWidgetIds).boxed().collect(Collectors.toList()),
+                widgets::getAppWidgetInfo);
+        // b/135926478: Work profile widget restore is broken in platform. This forces us to
+        // recreate the widget during loading with the correct host provider.
+        long mainProfileId = UserCache.INSTANCE.get(context)
+                .getSerialNumberForUser(myUserHandle());
+        long controllerProfileId = controller.getSerialNumberForUser(myUserHandle());
+        String profileId = Long.toString(mainProfileId);
+        final String where = "appWidgetId=? and (restored & 1) = 1 and profileId=?";
+
         for (int i = 0; i < oldWidgetIds.length; i++) {
             FileLog.i(TAG, "migrating appWidgetId: " + oldWidgetIds[i] + " => " + newWidgetIds[i]);
 
-            final AppWidgetProviderInfo provider = widgets.getAppWidgetInfo(newWidgetIds[i]);
+            final AppWidgetProviderInfo provider = providers.get(i);
             final int state;
             if (LoaderTask.isValidProvider(provider)) {
                 // This will ensure that we show 'Click to setup' UI if required.
@@ -500,14 +572,7 @@ public class RestoreDbTask {
                 state = LauncherAppWidgetInfo.FLAG_PROVIDER_NOT_READY;
             }
 
-            // b/135926478: Work profile widget restore is broken in platform. This forces us to
-            // recreate the widget during loading with the correct host provider.
-            long mainProfileId = UserCache.INSTANCE.get(context)
-                    .getSerialNumberForUser(myUserHandle());
-            long controllerProfileId = controller.getSerialNumberForUser(myUserHandle());
             String oldWidgetId = Integer.toString(oldWidgetIds[i]);
-            final String where = "appWidgetId=? and (restored & 1) = 1 and profileId=?";
-            String profileId = Long.toString(mainProfileId);
             final String[] args = new String[] { oldWidgetId, profileId };
             FileLog.d(TAG, "restoreAppWidgetIds: querying profile id=" + profileId
                     + " with controller profile ID=" + controllerProfileId);
@@ -587,8 +652,12 @@ public class RestoreDbTask {
 
     protected static void maybeOverrideShortcuts(Context context, ModelDbController controller,
             SQLiteDatabase db, long currentUser) {
-        Map<String, LauncherActivityInfo> activityOverrides =
-                ApiWrapper.INSTANCE.get(context).getActivityOverrides();
+        maybeOverrideShortcuts(controller, db, currentUser,
+                ApiWrapper.INSTANCE.get(context).getActivityOverrides());
+    }
+
+    private static void maybeOverrideShortcuts(ModelDbController controller, SQLiteDatabase db,
+            long currentUser, Map<String, LauncherActivityInfo> activityOverrides) {
         if (activityOverrides == null || activityOverrides.isEmpty()) {
             return;
         }
@@ -16,7 +16,13 @@
 
 package com.android.launcher3.recyclerview
 
+import android.app.ActivityManager
+import android.app.ActivityManager.RunningAppProcessInfo
+import android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+import android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+import android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
 import android.content.Context
+import android.os.Looper
 import android.util.Log
 import android.view.ContextThemeWrapper
 import android.view.InflateException
@@ -27,6 +33,7 @@ import androidx.recyclerview.widget.RecyclerView.RecycledViewPool
 import androidx.recyclerview.widget.RecyclerView.ViewHolder
 import com.android.launcher3.BubbleTextView
 import com.android.launcher3.BuildConfig
+import com.android.launcher3.allapps.AlphabeticalAppsList
 import com.android.launcher3.allapps.BaseAllAppsAdapter
 import com.android.launcher3.config.FeatureFlags
 import com.android.launcher3.util.CancellableTask
@@ -42,6 +49,10 @@ const val EXTRA_ICONS_COUNT = 2
  * An [RecycledViewPool] that preinflates app icons ([ViewHolder] of [BubbleTextView]) of all apps
  * [RecyclerView]. The view inflation will happen on background thread and inflated [ViewHolder]s
  * will be added to [RecycledViewPool] on main thread.
+ *
+ * The number of icons to preinflate covers the first screen of all apps and the first fling, capped
+ * by the number of apps which are actually shown. Under memory pressure, only the first screen is
+ * preinflated.
  */
 class AllAppsRecyclerViewPool<T> : RecycledViewPool() where T : Context, T : ActivityContext {
 
@@ -49,10 +60,56 @@ class AllAppsRecyclerViewPool<T> : RecycledViewPool() where T : Context, T : Act
     @VisibleForTesting(otherwise = PROTECTED)
     var mCancellableTask: CancellableTask<List<ViewHolder>>? = null
 
+    /** Number of app icons which were not found in the pool and were inflated on main thread */
+    var mainThreadInflationCount = 0
+        private set
+
+    private var firstOpenReported = false
+    private var memoryPressure = false
+
     companion object {
         private const val TAG = "AllAppsRecyclerViewPool"
         private const val NULL_LAYOUT_MANAGER_ERROR_STRING =
             "activeRv's layoutManager should not be null"
+
+        /** Returns true if the trim [level] means that the device is running low on memory */
+        @VisibleForTesting
+        fun isMemoryPressure(level: Int) =
+            (level >= TRIM_MEMORY_RUNNING_LOW && level < TRIM_MEMORY_UI_HIDDEN) ||
+                level >= TRIM_MEMORY_BACKGROUND
+    }
+
+    override fun getRecycledView(viewType: Int): ViewHolder? {
+        val holder = super.getRecycledView(viewType)
+        if (
+            holder == null &&
+                viewType == BaseAllAppsAdapter.VIEW_TYPE_ICON &&
+                Looper.myLooper() == Looper.getMainLooper()
+        ) {
+            // RecyclerView will create a new view holder on main thread
+            mainThreadInflationCount++
+        }
+        return holder
+    }
+
+    /**
+     * Called when all apps has finished opening, to report how many app icons had to be inflated
+     * on main thread until the first open.
+     */
+    fun onAllAppsOpened() {
+        if (firstOpenReported) {
+            return
+        }
+        firstOpenReported = true
+        Log.d(TAG, "App icons inflated on main thread before first open: $mainThreadInflationCount")
+    }
+
+    /** Stops the ongoing preinflation if the device is running low on memory */
+    fun onTrimMemory(level: Int) {
+        memoryPressure = isMemoryPressure(level)
+        if (memoryPressure) {
+            mCancellableTask?.cancel()
+        }
     }
 
     /**
@@ -61,6 +118,7 @@ class AllAppsRecyclerViewPool<T> : RecycledViewPool() where T : Context, T : Act
     fun preInflateAllAppsViewHolders(context: T) {
         val appsView = context.appsView ?: return
         val activeRv: RecyclerView = appsView.activeRecyclerView ?: return
+        updateMemoryPressure(context)
         val preInflateCount = getPreinflateCount(context)
         if (preInflateCount <= 0) {
             return
@@ -178,17 +236,35 @@ class AllAppsRecyclerViewPool<T> : RecycledViewPool() where T : Context, T : Act
      * Note that if [FeatureFlags.ALL_APPS_GONE_VISIBILITY] is enabled, we need to preinfate extra
      * app icons in size of one all apps pages, so that opening all apps don't need to inflate app
      * icons.
+     *
+     * The count for each tab is capped by its number of apps, and only covers the first page of
+     * all apps under memory pressure.
      */
     fun getPreinflateCount(context: T): Int {
-        var targetPreinflateCount =
+        val grid = ActivityContext.lookupContext<T>(context).deviceProfile
+        val firstScreenCount = grid.maxAllAppsRowCount * grid.numShownAllAppsColumns
+        val firstFlingCount =
             PREINFLATE_ICONS_ROW_COUNT * context.deviceProfile.numShownAllAppsColumns +
                 EXTRA_ICONS_COUNT
-        val grid = ActivityContext.lookupContext<T>(context).deviceProfile
-        targetPreinflateCount += grid.maxAllAppsRowCount * grid.numShownAllAppsColumns
+        val countPerTab =
+            if (memoryPressure) firstScreenCount else firstScreenCount + firstFlingCount
+        val appsView = context.appsView
+        var targetPreinflateCount = capToAppCount(countPerTab, appsView?.personalAppList)
         if (hasWorkProfile) {
-            targetPreinflateCount *= 2
+            targetPreinflateCount += capToAppCount(countPerTab, appsView?.workAppList)
         }
         val existingPreinflateCount = getRecycledViewCount(BaseAllAppsAdapter.VIEW_TYPE_ICON)
         return targetPreinflateCount - existingPreinflateCount
     }
+
+    private fun capToAppCount(count: Int, appsList: AlphabeticalAppsList<*>?): Int =
+        if (appsList == null) count else minOf(count, appsList.numApps)
+
+    private fun updateMemoryPressure(context: Context) {
+        val processInfo = RunningAppProcessInfo()
+        ActivityManager.getMyMemoryState(processInfo)
+        memoryPressure =
+            isMemoryPressure(processInfo.lastTrimLevel) ||
+                context.getSystemService(ActivityManager::class.java)?.isLowRamDevice == true
+    }
 }
@@ -278,6 +278,11 @@ public class SecondaryDisplayLauncher extends BaseActivity
         return mPopupDataProvider;
     }
 
+    @Override
+    public boolean hasSharedPopupDataProvider() {
+        return true;
+    }
+
     @Override
     public OnClickListener getItemOnClickListener() {
         return this::onIconClicked;
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.shortcuts
+
+import android.content.ComponentName
+import android.content.Context
+import android.content.pm.ShortcutInfo
+import android.os.UserHandle
+import android.util.Log
+import android.util.LruCache
+import androidx.annotation.AnyThread
+import androidx.annotation.VisibleForTesting
+import androidx.annotation.WorkerThread
+import com.android.launcher3.dagger.ApplicationContext
+import com.android.launcher3.dagger.LauncherAppComponent
+import com.android.launcher3.dagger.LauncherAppSingleton
+import com.android.launcher3.icons.BitmapInfo
+import com.android.launcher3.icons.CacheableShortcutInfo
+import com.android.launcher3.icons.IconCache
+import com.android.launcher3.model.data.WorkspaceItemInfo
+import com.android.launcher3.popup.PopupPopulator
+import com.android.launcher3.util.ApplicationInfoWrapper
+import com.android.launcher3.util.ComponentKey
+import com.android.launcher3.util.DaggerSingletonObject
+import com.android.launcher3.util.Executors.MODEL_EXECUTOR
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.FutureTask
+import javax.inject.Inject
+
+/**
+ * Cache of the deep shortcuts shown in the long-press popup of an app, keyed by activity and user.
+ *
+ * The shortcuts of an icon are prefetched when it is pressed, so that the popup opened by the long
+ * press is filled without waiting for the shortcut service or the icon DB. The entries of a package
+ * are removed when its shortcuts or the package change, all the entries are removed when the icons
+ * change, and only the most recently used entries are kept.
+ */
+@LauncherAppSingleton
+class DeepShortcutCache
+@VisibleForTesting
+constructor(private val loader: (ComponentKey) -> List<PopupShortcut>) {
+
+    @Inject
+    constructor(
+        @ApplicationContext context: Context,
+        iconCache: IconCache,
+    ) : this({ key -> loadShortcuts(context, iconCache, key) })
+
+    private val entries = LruCache<ComponentKey, FutureTask<List<PopupShortcut>>>(MAX_ENTRIES)
+
+    /** Starts loading the shortcuts of [activity] on the model thread, if not already loaded */
+    @AnyThread
+    fun prefetch(activity: ComponentName, user: UserHandle) {
+        val key = ComponentKey(activity, user)
+        val task =
+            synchronized(entries) {
+                if (entries.get(key) != null) return
+                newTask(key).also { entries.put(key, it) }
+            }
+        MODEL_EXECUTOR.execute(task)
+    }
+
+    /**
+     * Returns the sorted and filtered shortcuts of [activity], waiting for a pending prefetch or
+     * loading them if they are not cached.
+     */
+    @WorkerThread
+    fun getShortcuts(activity: ComponentName?, user: UserHandle): List<PopupShortcut> {
+        if (activity == null) return emptyList()
+        val key = ComponentKey(activity, user)
+        val task =
+            synchronized(entries) { entries.get(key) ?: newTask(key).also { entries.put(key, it) } }
+        // No-op if the prefetch already ran
+        task.run()
+        val shortcuts =
+            try {
+                task.get()
+            } catch (e: ExecutionException) {
+                Log.e(TAG, "Unable to load shortcuts for $activity", e)
+                emptyList()
+            }
+        if (shortcuts.isEmpty()) {
+            // Shortcuts can be missing while the user is locked, load them again next time
+            synchronized(entries) { if (entries.get(key) === task) entries.remove(key) }
+        }
+        return shortcuts
+    }
+
+    /** Removes the shortcuts of [packageName], or of all packages if null, for [user] */
+    @AnyThread
+    fun invalidate(packageName: String?, user: UserHandle) {
+        synchronized(entries) {
+            entries.snapshot().keys.forEach {
+                if (
+                    it.user == user &&
+                        (packageName == null || it.componentName.packageName == packageName)
+                ) {
+                    entries.remove(it)
+                }
+            }
+        }
+    }
+
+    /** Removes the shortcuts of all packages, like when their icons need to be loaded again */
+    @AnyThread
+    fun clear() {
+        synchronized(entries) { entries.evictAll() }
+    }
+
+    private fun newTask(key: ComponentKey) = FutureTask { loader(key) }
+
+    /** A shortcut of the popup with its icon */
+    class PopupShortcut(val info: ShortcutInfo, val icon: BitmapInfo)
+
+    companion object {
+        private const val TAG = "DeepShortcutCache"
+
+        @VisibleForTesting const val MAX_ENTRIES = 16
+
+        @JvmField val INSTANCE = DaggerSingletonObject(LauncherAppComponent::getDeepShortcutCache)
+
+        @WorkerThread
+        private fun loadShortcuts(
+            context: Context,
+            iconCache: IconCache,
+            key: ComponentKey,
+        ): List<PopupShortcut> {
+            val shortcuts =
+                PopupPopulator.sortAndFilterShortcuts(
+                    ShortcutRequest(context, key.user)
+                        .withContainer(key.componentName)
+                        .query(ShortcutRequest.PUBLISHED)
+                )
+            if (shortcuts.isEmpty()) return emptyList()
+            val infoWrapper =
+                ApplicationInfoWrapper(context, key.componentName.packageName, key.user)
+            return shortcuts.map { shortcut ->
+                val info = WorkspaceItemInfo(shortcut, context)
+                iconCache.getShortcutIcon(info, CacheableShortcutInfo(shortcut, infoWrapper))
+                PopupShortcut(shortcut, info.bitmap)
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util
+
+import android.util.AtomicFile
+import androidx.annotation.VisibleForTesting
+import androidx.annotation.WorkerThread
+import com.android.launcher3.util.LauncherLayoutBuilder.Node
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.util.zip.CRC32
+import java.util.zip.CheckedOutputStream
+
+/**
+ * Compact binary encoding of a launcher layout, an alternative to the XML built by
+ * [LauncherLayoutBuilder] for layouts which are pushed to many devices.
+ *
+ * The layout starts with a header and a table of all the distinct strings of the layout. It is
+ * followed by the items in document order, where each item refers to its tag and attributes by
+ * their index in the table and is followed by its children, and ends with a CRC32 of everything
+ * before it:
+ * ```
+ * int magic, short version, short stringCount, stringCount * (short length, utf-8 bytes)
+ * int itemCount, itemCount * item
+ * int crc
+ *
+ * item: short tag, byte attrCount, attrCount * (short name, short value), short childCount,
+ *     childCount * item
+ * ```
+ *
+ * Layouts are read through a memory mapped file by [BinaryLayoutParser], which streams the items
+ * to [com.android.launcher3.AutoInstallsLayout] as XML pull events.
+ */
+object BinaryLayout {
+
+    @VisibleForTesting const val MAGIC = 0x4c33424c // "L3BL"
+    @VisibleForTesting const val VERSION = 1
+
+    // Workspace > folder > folder item
+    const val MAX_DEPTH = 3
+
+    private const val MAX_UNSIGNED_SHORT = 0xffff
+    private const val MAX_UNSIGNED_BYTE = 0xff
+    private const val CRC_SIZE = 4
+
+    /** Encodes the items of a layout, [nodes] being the children of the workspace */
+    @Throws(IOException::class)
+    fun encode(nodes: List<Node>): ByteArray {
+        val strings = LinkedHashMap<String, Int>()
+        nodes.forEach { collectStrings(it, strings, 2) }
+        if (strings.size > MAX_UNSIGNED_SHORT) {
+            throw IOException("Too many distinct strings: ${strings.size}")
+        }
+
+        val bytes = ByteArrayOutputStream()
+        val checked = CheckedOutputStream(bytes, CRC32())
+        DataOutputStream(checked).apply {
+            writeInt(MAGIC)
+            writeShort(VERSION)
+            writeShort(strings.size)
+            strings.keys.forEach { s ->
+                val utf8 = s.toByteArray(StandardCharsets.UTF_8)
+                if (utf8.size > MAX_UNSIGNED_SHORT) throw IOException("String too long: $s")
+                writeShort(utf8.size)
+                write(utf8)
+            }
+            writeInt(nodes.size)
+            nodes.forEach { writeNode(it, strings) }
+            flush()
+        }
+        DataOutputStream(bytes).apply {
+            writeInt(checked.checksum.value.toInt())
+            flush()
+        }
+        return bytes.toByteArray()
+    }
+
+    /** Atomically replaces the content of [file] with the encoded layout [data] */
+    @WorkerThread
+    @Throws(IOException::class)
+    fun write(file: File, data: ByteArray) {
+        val atomicFile = AtomicFile(file)
+        val out = atomicFile.startWrite()
+        try {
+            out.write(data)
+        } catch (e: IOException) {
+            atomicFile.failWrite(out)
+            throw e
+        }
+        atomicFile.finishWrite(out)
+    }
+
+    /** Returns a parser for the layout in [file], which is memory mapped */
+    @WorkerThread
+    @Throws(IOException::class)
+    fun open(file: File): BinaryLayoutParser =
+        RandomAccessFile(file, "r").use { f ->
+            // The mapping stays valid once the file is closed
+            BinaryLayoutParser(f.channel.map(FileChannel.MapMode.READ_ONLY, 0, f.length()))
+        }
+
+    /**
+     * Checks the header and checksum of the layout in [buffer], and returns the offset of its
+     * checksum, which is where the content ends. The position of the buffer is not changed.
+     */
+    @Throws(IOException::class)
+    fun validate(buffer: ByteBuffer): Int {
+        val size = buffer.limit()
+        if (size < 12 + CRC_SIZE) throw IOException("Layout too small: $size bytes")
+        if (buffer.getInt(0) != MAGIC) throw IOException("Not a binary layout")
+        val version = buffer.getShort(4).toInt() and MAX_UNSIGNED_SHORT
+        if (version != VERSION) throw IOException("Unsupported layout version $version")
+
+        val contentEnd = size - CRC_SIZE
+        val crc = CRC32()
+        crc.update(buffer.duplicate().apply { position(0).limit(contentEnd) })
+        if (crc.value.toInt() != buffer.getInt(contentEnd)) {
+            throw IOException("Layout checksum mismatch")
+        }
+        return contentEnd
+    }
+
+    private fun collectStrings(node: Node, out: MutableMap<String, Int>, depth: Int) {
+        if (depth > MAX_DEPTH) throw IOException("Layout is nested too deep")
+        out.getOrPut(node.name) { out.size }
+        node.attrs.forEach { (name, value) ->
+            out.getOrPut(name) { out.size }
+            out.getOrPut(value) { out.size }
+        }
+        node.children?.forEach { collectStrings(it, out, depth + 1) }
+    }
+
+    private fun DataOutputStream.writeNode(node: Node, strings: Map<String, Int>) {
+        val children = node.children ?: emptyList()
+        if (node.attrs.size > MAX_UNSIGNED_BYTE || children.size > MAX_UNSIGNED_SHORT) {
+            throw IOException("Too many attributes or children in ${node.name}")
+        }
+        writeShort(strings.getValue(node.name))
+        writeByte(node.attrs.size)
+        node.attrs.forEach { (name, value) ->
+            writeShort(strings.getValue(name))
+            writeShort(strings.getValue(value))
+        }
+        writeShort(children.size)
+        children.forEach { writeNode(it, strings) }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util
+
+import com.android.launcher3.AutoInstallsLayout.TAG_WORKSPACE
+import com.android.launcher3.util.BinaryLayout.MAX_DEPTH
+import java.io.IOException
+import java.io.InputStream
+import java.io.Reader
+import java.nio.BufferUnderflowException
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+import org.xmlpull.v1.XmlPullParser
+import org.xmlpull.v1.XmlPullParserException
+
+/**
+ * [XmlPullParser] over a layout encoded by [BinaryLayout], so that it can be loaded by the same
+ * tag parsers as XML layouts.
+ *
+ * The items are decoded from the buffer as they are pulled, only the string table and the
+ * attributes of the current item are kept in memory. The checksum is verified on creation, and any
+ * malformed content fails the parsing with an [XmlPullParserException].
+ */
+class BinaryLayoutParser @Throws(IOException::class) constructor(buffer: ByteBuffer) :
+    XmlPullParser {
+
+    private val buffer = buffer.duplicate()
+    private val contentEnd = BinaryLayout.validate(buffer)
+    private val strings: Array<String>
+
+    private var eventType = XmlPullParser.START_DOCUMENT
+    private var depth = 0
+    // Name and number of children left to read of the open items, by depth
+    private val names = arrayOfNulls<String>(MAX_DEPTH + 1)
+    private val remainingChildren = IntArray(MAX_DEPTH + 1)
+    private val attrNames = ArrayList<String>()
+    private val attrValues = ArrayList<String>()
+
+    init {
+        try {
+            this.buffer.position(6)
+            strings = Array(readUnsignedShort()) {
+                val bytes = ByteArray(readUnsignedShort())
+                this.buffer.get(bytes)
+                String(bytes, StandardCharsets.UTF_8)
+            }
+        } catch (e: BufferUnderflowException) {
+            throw IOException("Truncated string table", e)
+        }
+    }
+
+    @Throws(XmlPullParserException::class)
+    override fun next(): Int {
+        try {
+            when (eventType) {
+                XmlPullParser.START_DOCUMENT -> {
+                    attrNames.clear()
+                    attrValues.clear()
+                    openItem(TAG_WORKSPACE, buffer.getInt())
+                    return eventType
+                }
+                XmlPullParser.END_DOCUMENT -> throw XmlPullParserException("Already at the end")
+                XmlPullParser.END_TAG -> {
+                    depth--
+                    if (depth == 0) {
+                        if (buffer.position() != contentEnd) {
+                            throw XmlPullParserException("Unexpected data after the layout")
+                        }
+                        eventType = XmlPullParser.END_DOCUMENT
+                        return eventType
+                    }
+                }
+            }
+            if (remainingChildren[depth] > 0) {
+                remainingChildren[depth]--
+                readItem()
+            } else {
+                eventType = XmlPullParser.END_TAG
+            }
+            return eventType
+        } catch (e: BufferUnderflowException) {
+            throw XmlPullParserException("Truncated layout at ${buffer.position()}", this, e)
+        } catch (e: IndexOutOfBoundsException) {
+            throw XmlPullParserException("Invalid string at ${buffer.position()}", this, e)
+        }
+    }
+
+    private fun readItem() {
+        val name = strings[readUnsignedShort()]
+        attrNames.clear()
+        attrValues.clear()
+        repeat(buffer.get().toInt() and 0xff) {
+            attrNames.add(strings[readUnsignedShort()])
+            attrValues.add(strings[readUnsignedShort()])
+        }
+        openItem(name, readUnsignedShort())
+    }
+
+    private fun openItem(name: String, childCount: Int) {
+        if (depth == MAX_DEPTH) throw XmlPullParserException("Layout is nested too deep")
+        if (childCount < 0) throw XmlPullParserException("Invalid item count $childCount")
+        depth++
+        names[depth] = name
+        remainingChildren[depth] = childCount
+        eventType = XmlPullParser.START_TAG
+    }
+
+    private fun readUnsignedShort() = buffer.getShort().toInt() and 0xffff
+
+    override fun getEventType() = eventType
+
+    override fun getDepth() = depth
+
+    override fun getName(): String? =
+        if (eventType == XmlPullParser.START_TAG || eventType == XmlPullParser.END_TAG) names[depth]
+        else null
+
+    override fun getNamespace() = ""
+
+    override fun getPrefix(): String? = null
+
+    override fun isEmptyElementTag() = false
+
+    override fun getAttributeCount() =
+        if (eventType == XmlPullParser.START_TAG) attrNames.size else -1
+
+    override fun getAttributeName(index: Int): String = attrNames[index]
+
+    override fun getAttributeValue(index: Int): String = attrValues[index]
+
+    // Attributes are stored without namespace
+    override fun getAttributeValue(namespace: String?, name: String?): String? =
+        if (namespace.isNullOrEmpty() && eventType == XmlPullParser.START_TAG) {
+            attrNames.indexOf(name).let { if (it >= 0) attrValues[it] else null }
+        } else null
+
+    override fun getAttributeNamespace(index: Int) = ""
+
+    override fun getAttributePrefix(index: Int): String? = null
+
+    override fun getAttributeType(index: Int) = "CDATA"
+
+    override fun isAttributeDefault(index: Int) = false
+
+    @Throws(XmlPullParserException::class) override fun nextToken() = next()
+
+    @Throws(XmlPullParserException::class)
+    override fun nextTag(): Int {
+        next()
+        if (eventType != XmlPullParser.START_TAG && eventType != XmlPullParser.END_TAG) {
+            throw XmlPullParserException("Expected start or end tag", this, null)
+        }
+        return eventType
+    }
+
+    // Items never contain text
+    @Throws(XmlPullParserException::class)
+    override fun nextText(): String {
+        if (eventType != XmlPullParser.START_TAG) {
+            throw XmlPullParserException("Expected start tag", this, null)
+        }
+        if (next() != XmlPullParser.END_TAG) {
+            throw XmlPullParserException("Expected end tag", this, null)
+        }
+        return ""
+    }
+
+    @Throws(XmlPullParserException::class)
+    override fun require(type: Int, namespace: String?, name: String?) {
+        val nameMismatch = name != null && name != getName()
+        if (type != eventType || !namespace.isNullOrEmpty() || nameMismatch) {
+            throw XmlPullParserException("Expected ${XmlPullParser.TYPES[type]} $name", this, null)
+        }
+    }
+
+    override fun isWhitespace(): Boolean =
+        throw XmlPullParserException("No text in binary layouts")
+
+    override fun getText(): String? = null
+
+    override fun getTextCharacters(holderForStartAndLength: IntArray?): CharArray? = null
+
+    override fun getPositionDescription() =
+        "${XmlPullParser.TYPES[eventType]} ${getName()} at offset ${buffer.position()}"
+
+    override fun getLineNumber() = -1
+
+    override fun getColumnNumber() = -1
+
+    override fun getNamespaceCount(depth: Int) = 0
+
+    override fun getNamespacePrefix(pos: Int): String = throw IndexOutOfBoundsException()
+
+    override fun getNamespaceUri(pos: Int): String = throw IndexOutOfBoundsException()
+
+    override fun getNamespace(prefix: String?): String? = null
+
+    override fun setFeature(name: String?, state: Boolean) {
+        if (state) throw XmlPullParserException("Unsupported feature $name")
+    }
+
+    override fun getFeature(name: String?) = false
+
+    override fun setProperty(name: String?, value: Any?): Unit =
+        throw XmlPullParserException("Unsupported property $name")
+
+    override fun getProperty(name: String?): Any? = null
+
+    override fun setInput(reader: Reader?): Unit =
+        throw XmlPullParserException("Binary layouts are read from their buffer")
+
+    override fun setInput(inputStream: InputStream?, inputEncoding: String?): Unit =
+        throw XmlPullParserException("Binary layouts are read from their buffer")
+
+    override fun getInputEncoding(): String? = null
+
+    override fun defineEntityReplacementText(entityName: String?, replacementText: String?): Unit =
+        throw XmlPullParserException("Entities are not supported")
+}
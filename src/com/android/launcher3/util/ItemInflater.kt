@@ -18,17 +18,21 @@ package com.android.launcher3.util
 
 import android.appwidget.AppWidgetHostView
 import android.content.Context
+import android.os.SystemClock
 import android.view.LayoutInflater
 import android.view.View
 import android.view.View.OnClickListener
 import android.view.View.OnFocusChangeListener
 import android.view.ViewGroup
+import androidx.annotation.UiThread
+import androidx.annotation.WorkerThread
 import com.android.launcher3.BubbleTextView
 import com.android.launcher3.LauncherAppState
 import com.android.launcher3.LauncherSettings.Favorites
 import com.android.launcher3.R
 import com.android.launcher3.apppairs.AppPairIcon
 import com.android.launcher3.folder.FolderIcon
+import com.android.launcher3.logging.FileLog
 import com.android.launcher3.model.ModelWriter
 import com.android.launcher3.model.data.AppPairInfo
 import com.android.launcher3.model.data.FolderInfo
@@ -94,6 +98,31 @@ class ItemInflater<T>(
         }
     }
 
+    /**
+     * Prepares the inflation of the widgets in [items] on the calling background thread, by looking
+     * up their provider info and scheduling the views hosting them to be created ahead of binding.
+     */
+    @WorkerThread
+    fun prepareAppWidgets(items: List<ItemInfo>) {
+        val widgets =
+            items.filterIsInstance<LauncherAppWidgetInfo>().filter {
+                it.itemType == Favorites.ITEM_TYPE_APPWIDGET
+            }
+        if (widgets.isEmpty()) return
+        widgetInflater.prefetchProviderInfo(widgets)
+        widgetHolder.prewarmHostViews(widgets.size)
+    }
+
+    /**
+     * Drops the widget provider infos and host views prepared by [prepareAppWidgets] which were not
+     * used, called on the main thread once the widgets are bound
+     */
+    @UiThread
+    fun clearPreparedAppWidgets() {
+        widgetInflater.clearPrefetchedProviders()
+        widgetHolder.clearPrewarmedHostViews()
+    }
+
     /**
      * Creates a view representing a shortcut inflated from the specified resource.
      *
@@ -114,6 +143,7 @@ class ItemInflater<T>(
 
     private fun inflateAppWidget(item: LauncherAppWidgetInfo, writer: ModelWriter): View? {
         TraceHelper.INSTANCE.beginSection("BIND_WIDGET_id=" + item.appWidgetId)
+        val startTime = SystemClock.elapsedRealtime()
         try {
             val (type, reason, _, isUpdate, widgetInfo) = widgetInflater.inflateAppWidget(item)
             if (type == WidgetInflater.TYPE_DELETE) {
@@ -131,6 +161,15 @@ class ItemInflater<T>(
             return view
         } finally {
             TraceHelper.INSTANCE.endSection()
+            val inflationTime = SystemClock.elapsedRealtime() - startTime
+            if (inflationTime > SLOW_WIDGET_INFLATION_MS) {
+                FileLog.d(
+                    TAG,
+                    "Slow widget inflation: ${inflationTime}ms" +
+                        ", appWidgetId=${item.appWidgetId}" +
+                        ", provider=${item.providerName}",
+                )
+            }
         }
     }
 
@@ -139,4 +178,11 @@ class ItemInflater<T>(
         hostView.isFocusable = true
         hostView.onFocusChangeListener = focusListener
     }
+
+    companion object {
+        private const val TAG = "ItemInflater"
+
+        // Inflation time above which a widget is logged as slow, half a frame at 60Hz
+        private const val SLOW_WIDGET_INFLATION_MS = 8L
+    }
 }
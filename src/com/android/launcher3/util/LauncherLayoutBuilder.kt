@@ -66,6 +66,9 @@ class LauncherLayoutBuilder {
 
     @Throws(IOException::class) fun build() = StringWriter().apply { build(this) }.toString()
 
+    /** Builds the layout in the format of [BinaryLayout] */
+    @Throws(IOException::class) fun buildBinary() = BinaryLayout.encode(nodes)
+
     @Throws(IOException::class)
     fun build(writer: Writer) {
         Xml.newSerializer().apply {
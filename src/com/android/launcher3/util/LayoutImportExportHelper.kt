@@ -20,14 +20,17 @@ import android.app.blob.BlobStoreManager
 import android.content.Context
 import android.os.ParcelFileDescriptor.AutoCloseOutputStream
 import android.provider.Settings.Secure
+import android.util.Log
 import com.android.launcher3.AutoInstallsLayout
 import com.android.launcher3.LauncherAppState
+import com.android.launcher3.LauncherFiles.BINARY_LAYOUT
 import com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP
 import com.android.launcher3.LauncherSettings.Favorites.CONTAINER_HOTSEAT
 import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION
 import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET
 import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_DEEP_SHORTCUT
 import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_FOLDER
+import com.android.launcher3.LauncherSettings.Settings.BINARY_LAYOUT_PROVIDER
 import com.android.launcher3.LauncherSettings.Settings.LAYOUT_DIGEST_LABEL
 import com.android.launcher3.LauncherSettings.Settings.LAYOUT_DIGEST_TAG
 import com.android.launcher3.LauncherSettings.Settings.LAYOUT_PROVIDER_KEY
@@ -40,11 +43,15 @@ import com.android.launcher3.shortcuts.ShortcutKey
 import com.android.launcher3.util.Executors.MAIN_EXECUTOR
 import com.android.launcher3.util.Executors.MODEL_EXECUTOR
 import com.android.launcher3.util.Executors.ORDERED_BG_EXECUTOR
+import java.io.IOException
+import java.nio.ByteBuffer
 import java.nio.charset.StandardCharsets
 import java.security.MessageDigest
 import java.util.concurrent.CompletableFuture
 
 object LayoutImportExportHelper {
+    private const val TAG = "LayoutImportExportHelper"
+
     fun exportModelDbAsXmlFuture(context: Context): CompletableFuture<String> {
         val future = CompletableFuture<String>()
         exportModelDbAsXml(context) { xmlString -> future.complete(xmlString) }
@@ -52,6 +59,23 @@ object LayoutImportExportHelper {
     }
 
     fun exportModelDbAsXml(context: Context, callback: (String) -> Unit) {
+        buildLayout(context) { builder -> callback(builder.build()) }
+    }
+
+    /** Exports the workspace in the compact format of [BinaryLayout] */
+    fun exportModelDbAsBinaryFuture(context: Context): CompletableFuture<ByteArray> {
+        val future = CompletableFuture<ByteArray>()
+        buildLayout(context) { builder ->
+            try {
+                future.complete(builder.buildBinary())
+            } catch (e: IOException) {
+                future.completeExceptionally(e)
+            }
+        }
+        return future
+    }
+
+    private fun buildLayout(context: Context, callback: (LauncherLayoutBuilder) -> Unit) {
         val model = LauncherAppState.getInstance(context).model
 
         model.enqueueModelUpdateTask { _, dataModel, _ ->
@@ -67,9 +91,7 @@ object LayoutImportExportHelper {
                     }
                 loc.addItem(context, info)
             }
-
-            val layoutXml = builder.build()
-            callback(layoutXml)
+            callback(builder)
         }
     }
 
@@ -101,6 +123,33 @@ object LayoutImportExportHelper {
         }
     }
 
+    /**
+     * Replaces the workspace with the layout [data] encoded by [BinaryLayout]. The layout is
+     * validated before anything is changed, and written atomically to a file which is memory mapped
+     * when loading it.
+     */
+    @Throws(IOException::class)
+    fun importModelFromBinary(context: Context, data: ByteArray) {
+        BinaryLayout.validate(ByteBuffer.wrap(data))
+        val model = LauncherAppState.getInstance(context).model
+        val resolver = context.contentResolver
+
+        ORDERED_BG_EXECUTOR.execute {
+            try {
+                BinaryLayout.write(context.getFileStreamPath(BINARY_LAYOUT), data)
+            } catch (e: IOException) {
+                Log.e(TAG, "Unable to write binary layout", e)
+                return@execute
+            }
+            Secure.putString(resolver, LAYOUT_PROVIDER_KEY, BINARY_LAYOUT_PROVIDER)
+
+            MODEL_EXECUTOR.submit { model.modelDbController.createEmptyDB() }.get()
+            MAIN_EXECUTOR.submit { model.forceReload() }.get()
+            MODEL_EXECUTOR.submit {}.get()
+            Secure.putString(resolver, LAYOUT_PROVIDER_KEY, null)
+        }
+    }
+
     private fun LauncherLayoutBuilder.ItemTarget.addItem(context: Context, info: ItemInfo) {
         val userType: String? =
             when (UserCache.INSTANCE.get(context).getUserInfo(info.user).type) {
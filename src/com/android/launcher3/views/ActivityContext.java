@@ -291,6 +291,14 @@ public interface ActivityContext extends SavedStateRegistryOwner {
         return new PopupDataProvider(this);
     }
 
+    /**
+     * Returns true if {@link #getPopupDataProvider} always returns the same instance, so that views
+     * can register with it to get their dots updated.
+     */
+    default boolean hasSharedPopupDataProvider() {
+        return false;
+    }
+
     default DotInfo getDotInfoForItem(ItemInfo info) {
         return getPopupDataProvider().getDotInfoForItem(info);
     }
@@ -30,12 +30,12 @@ import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
-import android.os.Handler;
 import android.util.Log;
 import android.util.Size;
 import android.widget.RemoteViews;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.core.os.BuildCompat;
 
@@ -43,58 +43,87 @@ import com.android.launcher3.DeviceProfile;
 import com.android.launcher3.Flags;
 import com.android.launcher3.LauncherAppState;
 import com.android.launcher3.R;
-import com.android.launcher3.Utilities;
 import com.android.launcher3.icons.BitmapRenderer;
 import com.android.launcher3.icons.LauncherIcons;
 import com.android.launcher3.model.WidgetItem;
 import com.android.launcher3.pm.ShortcutConfigActivityInfo;
 import com.android.launcher3.util.CancellableTask;
-import com.android.launcher3.util.Executors;
-import com.android.launcher3.util.LooperExecutor;
 import com.android.launcher3.views.ActivityContext;
 import com.android.launcher3.widget.util.WidgetSizes;
 
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
 /**
  * Utility class to generate widget previews
  *
- * Note that it no longer uses database, all previews are freshly generated
+ * Note that it no longer uses database, bitmap previews are cached in {@link WidgetPreviewCache}
  */
 public class DatabaseWidgetPreviewLoader {
 
     private static final String TAG = "WidgetPreviewLoader";
 
     private final Context mContext;
+    private final WidgetPreviewCache mPreviewCache;
 
     public DatabaseWidgetPreviewLoader(Context context) {
         mContext = context;
+        mPreviewCache = WidgetPreviewCache.INSTANCE.get(context);
     }
 
     /**
-     * Generates the widget preview on {@link Executors#UI_HELPER_EXECUTOR}.
+     * Returns the preview of the item if it is already in memory, so that it can be applied
+     * without waiting for {@link #loadPreview}. Items with a generated preview or a preview layout
+     * always go through {@link #loadPreview}, as those take precedence over bitmap previews.
+     */
+    @Nullable
+    public WidgetPreviewInfo getCachedPreview(@NonNull WidgetItem item, @NonNull Size previewSize) {
+        if (hasGeneratedPreview(item.widgetInfo) || (item.widgetInfo != null
+                && item.widgetInfo.previewLayout != Resources.ID_NULL)) {
+            return null;
+        }
+        WidgetPreviewCache.PreviewKey key = mPreviewCache.getKeyIfKnown(item, previewSize);
+        Bitmap bitmap = key == null ? null : mPreviewCache.getFromMemory(key);
+        if (bitmap == null) {
+            return null;
+        }
+        WidgetPreviewInfo result = new WidgetPreviewInfo();
+        result.previewBitmap = bitmap;
+        return result;
+    }
+
+    /**
+     * Generates the widget preview on {@link WidgetPreviewScheduler}, before the previews which
+     * are not {@code visible}.
      *
-     * @return a request id which can be used to cancel the request.
+     * @return a request id which can be used to cancel the request, or to update its priority
+     * with {@link #setPreviewVisible}.
      */
     @NonNull
     public CancellableTask loadPreview(
             @NonNull WidgetItem item,
             @NonNull Size previewSize,
+            boolean visible,
             @NonNull Consumer<WidgetPreviewInfo> callback) {
-        Handler handler = getLoaderExecutor().getHandler();
         CancellableTask<WidgetPreviewInfo> request = new CancellableTask<>(
                 () -> generatePreviewInfoBg(item, previewSize.getWidth(), previewSize.getHeight()),
                 MAIN_EXECUTOR,
                 callback);
-        Utilities.postAsyncCallback(handler, request);
+        WidgetPreviewScheduler.INSTANCE.schedule(
+                item.componentName.getPackageName(), visible, request);
         return request;
     }
 
+    /** Moves a pending request before or after the other requests as its cell is shown or hidden */
+    public void setPreviewVisible(@NonNull CancellableTask request, boolean visible) {
+        WidgetPreviewScheduler.INSTANCE.setVisible(request, visible);
+    }
+
     @VisibleForTesting
     @NonNull
-    public static LooperExecutor getLoaderExecutor() {
-        return Executors.UI_HELPER_EXECUTOR;
+    public static ExecutorService getLoaderExecutor() {
+        return WidgetPreviewScheduler.INSTANCE;
     }
 
     /** Generated the preview object. This method must be called on a background thread */
@@ -105,8 +134,7 @@ public class DatabaseWidgetPreviewLoader {
         WidgetPreviewInfo result = new WidgetPreviewInfo();
 
         AppWidgetProviderInfo widgetInfo = item.widgetInfo;
-        if (BuildCompat.isAtLeastV() && Flags.enableGeneratedPreviews() && widgetInfo != null
-                && ((widgetInfo.generatedPreviewCategories & WIDGET_CATEGORY_HOME_SCREEN) != 0)) {
+        if (hasGeneratedPreview(widgetInfo)) {
             result.remoteViews = new WidgetManagerHelper(mContext)
                     .loadGeneratedPreview(widgetInfo, WIDGET_CATEGORY_HOME_SCREEN);
             if (result.remoteViews != null) {
@@ -125,11 +153,29 @@ public class DatabaseWidgetPreviewLoader {
 
         if (result.providerInfo == null) {
             // fallback to bitmap preview
-            result.previewBitmap = generatePreview(item, previewWidth, previewHeight);
+            result.previewBitmap = getOrGeneratePreview(item, previewWidth, previewHeight);
         }
         return result;
     }
 
+    private static boolean hasGeneratedPreview(@Nullable AppWidgetProviderInfo widgetInfo) {
+        return BuildCompat.isAtLeastV() && Flags.enableGeneratedPreviews() && widgetInfo != null
+                && ((widgetInfo.generatedPreviewCategories & WIDGET_CATEGORY_HOME_SCREEN) != 0);
+    }
+
+    private Bitmap getOrGeneratePreview(WidgetItem item, int previewWidth, int previewHeight) {
+        WidgetPreviewCache.PreviewKey key =
+                mPreviewCache.getKey(item, new Size(previewWidth, previewHeight));
+        Bitmap preview = key == null ? null : mPreviewCache.get(key);
+        if (preview == null) {
+            preview = generatePreview(item, previewWidth, previewHeight);
+            if (key != null) {
+                mPreviewCache.put(key, preview);
+            }
+        }
+        return preview;
+    }
+
     /**
      * Returns a generated preview for a widget and if the preview should be saved in persistent
      * storage.
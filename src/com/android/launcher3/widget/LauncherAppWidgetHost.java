@@ -22,7 +22,6 @@ import android.content.Context;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.annotation.VisibleForTesting;
 
 /**
  * Specific {@link AppWidgetHost} that creates our {@link LauncherAppWidgetHostView}
@@ -45,7 +44,9 @@ class LauncherAppWidgetHost extends ListenableAppWidgetHost {
         mViewToRecycle = viewToRecycle;
     }
 
-    @VisibleForTesting
+    /**
+     * Returns the view to be recycled for the next widget creation, if any.
+     */
     @Nullable ListenableHostView getViewToRecycle() {
         return mViewToRecycle;
     }
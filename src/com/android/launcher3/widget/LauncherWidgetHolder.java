@@ -31,12 +31,15 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Looper;
+import android.os.MessageQueue;
 import android.util.Log;
 import android.util.SparseArray;
 import android.widget.Toast;
 
+import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
@@ -56,6 +59,7 @@ import dagger.assisted.Assisted;
 import dagger.assisted.AssistedFactory;
 import dagger.assisted.AssistedInject;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -77,6 +81,10 @@ public class LauncherWidgetHolder {
     protected static final int FLAG_ACTIVITY_STARTED = 1 << 2;
     protected static final int FLAG_ACTIVITY_RESUMED = 1 << 3;
 
+    // Maximum number of host views kept ahead of binding, about the widgets of the first page
+    @VisibleForTesting
+    static final int MAX_PREWARMED_HOST_VIEWS = 4;
+
     private static final int FLAGS_SHOULD_LISTEN =
             FLAG_STATE_IS_NORMAL | FLAG_ACTIVITY_STARTED | FLAG_ACTIVITY_RESUMED;
 
@@ -94,6 +102,20 @@ public class LauncherWidgetHolder {
     @NonNull
     protected final SparseArray<LauncherAppWidgetHostView> mViews = new SparseArray<>();
 
+    // Host views created ahead of binding when the main thread is idle, only accessed on the main
+    // thread
+    private final ArrayDeque<LauncherAppWidgetHostView> mPrewarmedViews = new ArrayDeque<>();
+    // Number of host views left to be created by mPrewarmIdleHandler
+    private int mPendingPrewarmCount;
+    private final MessageQueue.IdleHandler mPrewarmIdleHandler = () -> {
+        // Create a single view per idle pass, to not delay the next messages
+        if (mPendingPrewarmCount > 0) {
+            mPrewarmedViews.add(newHostView());
+            mPendingPrewarmCount--;
+        }
+        return mPendingPrewarmCount > 0;
+    };
+
     /** package visibility */
     final List<ProviderChangedListener> mProviderChangedListeners = new ArrayList<>();
 
@@ -196,6 +218,7 @@ public class LauncherWidgetHolder {
         try {
             MAIN_EXECUTOR.submit(() -> {
                 clearViews();
+                clearPrewarmedHostViews();
                 mWidgetHost.getHolders().remove(this);
             }).get();
         } catch (Exception e) {
@@ -386,6 +409,52 @@ public class LauncherWidgetHolder {
         return view;
     }
 
+    /**
+     * Creates the host views for the next {@code count} widgets created on the main thread, up to
+     * {@link #MAX_PREWARMED_HOST_VIEWS}. The views are created on the main thread while it is idle,
+     * so that binding only needs to apply the widgets to them.
+     */
+    @AnyThread
+    public void prewarmHostViews(int count) {
+        MAIN_EXECUTOR.execute(() -> {
+            mPendingPrewarmCount =
+                    Math.min(count, MAX_PREWARMED_HOST_VIEWS) - mPrewarmedViews.size();
+            MessageQueue queue = Looper.myQueue();
+            queue.removeIdleHandler(mPrewarmIdleHandler);
+            if (mPendingPrewarmCount > 0) {
+                queue.addIdleHandler(mPrewarmIdleHandler);
+            }
+        });
+    }
+
+    /**
+     * Stops creating the views of {@link #prewarmHostViews} and drops the ones which were not used,
+     * called once the widgets are bound
+     */
+    @UiThread
+    public void clearPrewarmedHostViews() {
+        mPendingPrewarmCount = 0;
+        Looper.myQueue().removeIdleHandler(mPrewarmIdleHandler);
+        mPrewarmedViews.clear();
+    }
+
+    /**
+     * Creates a new view to host a widget of this holder
+     */
+    @NonNull
+    protected LauncherAppWidgetHostView newHostView() {
+        return new ListenableHostView(mContext);
+    }
+
+    /**
+     * Returns a view created by {@link #prewarmHostViews} if called on the main thread and there
+     * is one left, or null otherwise
+     */
+    @Nullable
+    protected LauncherAppWidgetHostView pollPrewarmedHostView() {
+        return Looper.myLooper() == Looper.getMainLooper() ? mPrewarmedViews.poll() : null;
+    }
+
     /**
      * Attaches an already inflated view to the host. If the view can't be attached, creates
      * and attaches a new view.
@@ -453,6 +522,11 @@ public class LauncherWidgetHolder {
                 hostView.setAppWidget(appWidgetId, appWidget);
                 return hostView;
             }
+            LauncherAppWidgetHost host = (LauncherAppWidgetHost) mWidgetHost;
+            if (host.getViewToRecycle() == null
+                    && pollPrewarmedHostView() instanceof ListenableHostView lhv) {
+                host.recycleViewForNextCreation(lhv);
+            }
             try {
                 return (LauncherAppWidgetHostView) mWidgetHost.createView(
                         mContext, appWidgetId, appWidget);
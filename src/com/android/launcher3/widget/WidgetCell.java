@@ -226,6 +226,23 @@ public class WidgetCell extends LinearLayout {
         showAppIconInWidgetTitle(false);
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mActiveRequest != null) {
+            mWidgetPreviewLoader.setPreviewVisible(mActiveRequest, true);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // The cell was scrolled away, load the previews of the visible cells first
+        if (mActiveRequest != null) {
+            mWidgetPreviewLoader.setPreviewVisible(mActiveRequest, false);
+        }
+    }
+
     public void setSourceContainer(int sourceContainer) {
         this.mSourceContainer = sourceContainer;
     }
@@ -269,9 +286,13 @@ public class WidgetCell extends LinearLayout {
             previewInfo.remoteViews = mRemoteViewsPreview;
             applyPreview(previewInfo);
         } else {
-            if (mActiveRequest == null) {
+            WidgetPreviewInfo cachedPreview =
+                    mWidgetPreviewLoader.getCachedPreview(mItem, mWidgetSize);
+            if (cachedPreview != null) {
+                applyPreview(cachedPreview);
+            } else if (mActiveRequest == null) {
                 mActiveRequest = mWidgetPreviewLoader.loadPreview(
-                        mItem, mWidgetSize, this::applyPreview);
+                        mItem, mWidgetSize, isAttachedToWindow(), this::applyPreview);
             }
         }
     }
@@ -17,6 +17,7 @@
 package com.android.launcher3.widget
 
 import android.content.Context
+import androidx.annotation.WorkerThread
 import com.android.launcher3.BuildConfig
 import com.android.launcher3.Launcher
 import com.android.launcher3.backuprestore.LauncherRestoreEventLogger.RestoreError
@@ -24,6 +25,7 @@ import com.android.launcher3.dagger.ApplicationContext
 import com.android.launcher3.logging.FileLog
 import com.android.launcher3.model.data.LauncherAppWidgetInfo
 import com.android.launcher3.qsb.QsbContainerView
+import java.util.concurrent.ConcurrentHashMap
 import javax.inject.Inject
 import javax.inject.Named
 
@@ -36,6 +38,35 @@ constructor(
 ) {
 
     private val widgetHelper = WidgetManagerHelper(context)
+    private val prefetchedProviders = ConcurrentHashMap<Int, LauncherAppWidgetProviderInfo>()
+
+    /**
+     * Looks up the provider info of the given widgets on the calling background thread, so that
+     * [inflateAppWidget] doesn't need to query the widget service for them. Only the widgets which
+     * are fully restored are looked up, as the other ones may still change their widget id.
+     */
+    @WorkerThread
+    fun prefetchProviderInfo(items: List<LauncherAppWidgetInfo>) {
+        for (item in items) {
+            if (
+                item.restoreStatus != LauncherAppWidgetInfo.RESTORE_COMPLETED ||
+                    item.hasOptionFlag(LauncherAppWidgetInfo.OPTION_SEARCH_WIDGET)
+            ) {
+                continue
+            }
+            widgetHelper.getLauncherAppWidgetInfo(item.appWidgetId, item.targetComponent)?.let {
+                prefetchedProviders[item.appWidgetId] = it
+            }
+        }
+    }
+
+    /**
+     * Drops the provider infos looked up by [prefetchProviderInfo] which were not used by
+     * [inflateAppWidget], as they may be outdated by the next bind.
+     */
+    fun clearPrefetchedProviders() {
+        prefetchedProviders.clear()
+    }
 
     fun inflateAppWidget(item: LauncherAppWidgetInfo): InflationResult {
         if (item.hasOptionFlag(LauncherAppWidgetInfo.OPTION_SEARCH_WIDGET)) {
@@ -74,7 +105,11 @@ constructor(
             }
         } else {
             appWidgetInfo =
-                widgetHelper.getLauncherAppWidgetInfo(item.appWidgetId, item.targetComponent)
+                prefetchedProviders.remove(item.appWidgetId)
+                    ?: widgetHelper.getLauncherAppWidgetInfo(
+                        item.appWidgetId,
+                        item.targetComponent,
+                    )
             if (appWidgetInfo == null) {
                 if (item.appWidgetId <= LauncherAppWidgetInfo.CUSTOM_WIDGET_ID) {
                     removalReason = "CustomWidgetManager cannot find provider from that widget id."
@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.widget
+
+import android.content.ComponentName
+import android.content.Context
+import android.content.pm.LauncherApps
+import android.content.pm.PackageManager.NameNotFoundException
+import android.content.res.Configuration.UI_MODE_NIGHT_MASK
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.os.Build
+import android.os.UserHandle
+import android.util.Log
+import android.util.LruCache
+import android.util.Size
+import androidx.annotation.AnyThread
+import androidx.annotation.VisibleForTesting
+import androidx.annotation.WorkerThread
+import com.android.launcher3.Utilities
+import com.android.launcher3.dagger.ApplicationContext
+import com.android.launcher3.dagger.LauncherAppComponent
+import com.android.launcher3.dagger.LauncherAppSingleton
+import com.android.launcher3.graphics.ThemeManager
+import com.android.launcher3.logging.DumpManager
+import com.android.launcher3.logging.DumpManager.LauncherDumpable
+import com.android.launcher3.model.WidgetItem
+import com.android.launcher3.pm.UserCache
+import com.android.launcher3.util.DaggerSingletonObject
+import com.android.launcher3.util.DaggerSingletonTracker
+import com.android.launcher3.util.Executors.ORDERED_BG_EXECUTOR
+import com.android.launcher3.util.PackageUserKey
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.PrintWriter
+import java.util.Objects
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+import javax.inject.Inject
+
+/**
+ * Two level cache of the bitmap widget previews shown in the widget picker.
+ *
+ * Previews are kept in a memory LRU cache while launcher is running, and on disk so that they
+ * survive a process restart. The previews are keyed by the component, the user, the preview size,
+ * the version of the package, the theme and the preview sources of the provider, so that any change
+ * which affects how a preview is rendered creates a new entry. The entries of a package are also
+ * removed when the widgets of the package are updated.
+ */
+@LauncherAppSingleton
+class WidgetPreviewCache
+@Inject
+constructor(
+    @ApplicationContext private val context: Context,
+    private val userCache: UserCache,
+    private val themeManager: ThemeManager,
+    dumpManager: DumpManager,
+    lifeCycle: DaggerSingletonTracker,
+) : LauncherDumpable {
+
+    private val memoryCache =
+        object : LruCache<PreviewKey, Bitmap>(MEMORY_CACHE_BYTES) {
+            override fun sizeOf(key: PreviewKey, value: Bitmap) = value.allocationByteCount
+        }
+    private val diskDir = File(context.cacheDir, DISK_DIR_NAME)
+    private val packageVersions = ConcurrentHashMap<PackageUserKey, Int>()
+
+    // Lazily computed on the first write, guarded by diskDir
+    private var diskBytes = -1L
+
+    private val memoryHits = AtomicInteger()
+    private val diskHits = AtomicInteger()
+    private val misses = AtomicInteger()
+
+    init {
+        lifeCycle.addCloseable(dumpManager.register(this))
+    }
+
+    /**
+     * Returns the key of the preview of [item] at [size] if the version of its package is already
+     * known, without querying the system.
+     */
+    @AnyThread
+    fun getKeyIfKnown(item: WidgetItem, size: Size): PreviewKey? {
+        val version = packageVersions[PackageUserKey(item.componentName.packageName, item.user)]
+        return version?.let { newKey(item, size, it) }
+    }
+
+    /** Returns the key of the preview of [item] at [size], or null if the package is not found */
+    @WorkerThread
+    fun getKey(item: WidgetItem, size: Size): PreviewKey? {
+        val packageUser = PackageUserKey(item.componentName.packageName, item.user)
+        val version =
+            packageVersions[packageUser]
+                ?: loadPackageVersion(packageUser)?.also { packageVersions[packageUser] = it }
+                ?: return null
+        return newKey(item, size, version)
+    }
+
+    /** Returns the preview for [key] if it is in memory */
+    @AnyThread
+    fun getFromMemory(key: PreviewKey): Bitmap? =
+        memoryCache.get(key)?.also { memoryHits.incrementAndGet() }
+
+    /** Returns the preview for [key] from memory or disk, or null if it needs to be generated */
+    @WorkerThread
+    fun get(key: PreviewKey): Bitmap? {
+        memoryCache.get(key)?.let {
+            memoryHits.incrementAndGet()
+            return it
+        }
+        val file = getFile(key)
+        val bitmap =
+            if (file.exists()) {
+                BitmapFactory.decodeFile(
+                    file.path,
+                    BitmapFactory.Options().apply { inPreferredConfig = Bitmap.Config.HARDWARE },
+                )
+            } else null
+        if (bitmap == null) {
+            misses.incrementAndGet()
+            return null
+        }
+        diskHits.incrementAndGet()
+        // Keep the recently used files when trimming the disk cache
+        file.setLastModified(System.currentTimeMillis())
+        memoryCache.put(key, bitmap)
+        return bitmap
+    }
+
+    /**
+     * Adds the generated [bitmap] for [key] to both levels of the cache. The bitmap is only added
+     * to memory inline, it is compressed and written to disk on [ORDERED_BG_EXECUTOR].
+     */
+    @AnyThread
+    fun put(key: PreviewKey, bitmap: Bitmap) {
+        memoryCache.put(key, bitmap)
+        ORDERED_BG_EXECUTOR.execute {
+            // Hardware bitmaps can't be compressed directly
+            val softwareBitmap =
+                if (bitmap.config == Bitmap.Config.HARDWARE) {
+                    bitmap.copy(Bitmap.Config.ARGB_8888, false) ?: return@execute
+                } else bitmap
+            synchronized(diskDir) { writeToDisk(key, softwareBitmap) }
+        }
+    }
+
+    @WorkerThread
+    private fun writeToDisk(key: PreviewKey, bitmap: Bitmap) {
+        val file = getFile(key)
+        file.parentFile?.mkdirs()
+        try {
+            FileOutputStream(file).use {
+                bitmap.compress(Bitmap.CompressFormat.WEBP_LOSSLESS, 100, it)
+            }
+        } catch (e: IOException) {
+            Log.e(TAG, "Unable to write widget preview for ${key.component}", e)
+            file.delete()
+            return
+        }
+        if (diskBytes < 0) {
+            diskBytes = diskDir.walkBottomUp().filter { it.isFile }.sumOf { it.length() }
+        } else {
+            diskBytes += file.length()
+        }
+        if (diskBytes > MAX_DISK_BYTES) trimDiskCache()
+    }
+
+    /** Removes all the previews of [packageUser], called when its widgets are updated */
+    @WorkerThread
+    fun invalidate(packageUser: PackageUserKey) {
+        packageVersions.remove(packageUser)
+        memoryCache.snapshot().keys.forEach { key ->
+            if (
+                key.user == packageUser.mUser &&
+                    key.component.packageName == packageUser.mPackageName
+            ) {
+                memoryCache.remove(key)
+            }
+        }
+        // Queued after the pending writes, so that they don't add back the removed previews
+        ORDERED_BG_EXECUTOR.execute {
+            synchronized(diskDir) {
+                getPackageDir(packageUser.mPackageName, packageUser.mUser).deleteRecursively()
+                // Recomputed on the next write
+                diskBytes = -1
+            }
+        }
+    }
+
+    /** Ratio of the previews which were found in the cache */
+    val hitRate: Float
+        @AnyThread
+        get() {
+            val hits = memoryHits.get() + diskHits.get()
+            val total = hits + misses.get()
+            return if (total == 0) 0f else hits.toFloat() / total
+        }
+
+    private fun newKey(item: WidgetItem, size: Size, version: Int) =
+        PreviewKey(
+            item.componentName,
+            item.user,
+            size.width,
+            size.height,
+            version,
+            getThemeKey(),
+            getPreviewSource(item),
+        )
+
+    /**
+     * Returns the state of the theme used to render the previews: the night mode, the density, the
+     * locales of the strings, the dynamic colors derived from the wallpaper and the icon state.
+     */
+    @VisibleForTesting
+    fun getThemeKey(): Int {
+        val config = context.resources.configuration
+        val dynamicColors =
+            if (Utilities.ATLEAST_S) DYNAMIC_COLORS.map { context.getColor(it) } else emptyList()
+        return Objects.hash(
+            config.uiMode and UI_MODE_NIGHT_MASK,
+            config.densityDpi,
+            config.locales.toLanguageTags(),
+            dynamicColors,
+            themeManager.iconState.toUniqueId(),
+        )
+    }
+
+    /**
+     * Returns the state of the preview sources of [item], so that a cached bitmap is not used once
+     * the provider publishes a generated preview or a preview layout.
+     */
+    private fun getPreviewSource(item: WidgetItem): Int {
+        val info = item.widgetInfo ?: return 0
+        val generatedCategories = if (Utilities.ATLEAST_V) info.generatedPreviewCategories else 0
+        return Objects.hash(info.previewImage, info.previewLayout, generatedCategories)
+    }
+
+    private fun loadPackageVersion(packageUser: PackageUserKey): Int? =
+        try {
+            val appInfo =
+                context
+                    .getSystemService(LauncherApps::class.java)!!
+                    .getApplicationInfo(packageUser.mPackageName, 0, packageUser.mUser)
+            // The source dir changes with every update of the package, and system apps can only
+            // change with a system update
+            "${appInfo.sourceDir},${Build.VERSION.INCREMENTAL}".hashCode()
+        } catch (e: NameNotFoundException) {
+            null
+        }
+
+    private fun getPackageDir(packageName: String, user: UserHandle) =
+        File(diskDir, "${userCache.getSerialNumberForUser(user)}_$packageName")
+
+    @VisibleForTesting
+    fun getFile(key: PreviewKey) =
+        File(
+            getPackageDir(key.component.packageName, key.user),
+            "${key.component.className}_${key.width}x${key.height}_" +
+                "${Integer.toHexString(key.packageVersion)}_${Integer.toHexString(key.theme)}_" +
+                Integer.toHexString(key.previewSource),
+        )
+
+    @WorkerThread
+    private fun trimDiskCache() {
+        val files = diskDir.walkBottomUp().filter { it.isFile }.sortedBy { it.lastModified() }
+        for (file in files) {
+            if (diskBytes <= MAX_DISK_BYTES * 3 / 4) break
+            val length = file.length()
+            if (file.delete()) diskBytes -= length
+        }
+    }
+
+    override fun dump(prefix: String, writer: PrintWriter, args: Array<String>?) {
+        writer.println("${prefix}WidgetPreviewCache:")
+        writer.println(
+            "$prefix  memory hits: ${memoryHits.get()}, disk hits: ${diskHits.get()}, " +
+                "misses: ${misses.get()}, hit rate: $hitRate"
+        )
+        writer.println(
+            "$prefix  memory size: ${memoryCache.size()}/${memoryCache.maxSize()} bytes, " +
+                "disk size: $diskBytes bytes"
+        )
+        WidgetPreviewScheduler.INSTANCE.dump("$prefix  ", writer)
+    }
+
+    /** Key of a widget preview, containing everything which can change how it is rendered */
+    data class PreviewKey(
+        val component: ComponentName,
+        val user: UserHandle,
+        val width: Int,
+        val height: Int,
+        val packageVersion: Int,
+        val theme: Int,
+        val previewSource: Int,
+    )
+
+    companion object {
+        private const val TAG = "WidgetPreviewCache"
+
+        private const val DISK_DIR_NAME = "widget_previews"
+        private const val MAX_DISK_BYTES = 32L * 1024 * 1024
+        private val MEMORY_CACHE_BYTES =
+            minOf(Runtime.getRuntime().maxMemory() / 32, 16L * 1024 * 1024).toInt()
+
+        // A color of each dynamic palette, which all change with the wallpaper colors
+        private val DYNAMIC_COLORS =
+            listOf(
+                android.R.color.system_accent1_500,
+                android.R.color.system_accent2_500,
+                android.R.color.system_accent3_500,
+                android.R.color.system_neutral1_500,
+                android.R.color.system_neutral2_500,
+            )
+
+        @JvmField val INSTANCE = DaggerSingletonObject(LauncherAppComponent::getWidgetPreviewCache)
+    }
+}
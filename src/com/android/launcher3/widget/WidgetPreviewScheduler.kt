@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.widget
+
+import android.os.Process.THREAD_PRIORITY_FOREGROUND
+import android.util.Log
+import androidx.annotation.AnyThread
+import androidx.annotation.VisibleForTesting
+import com.android.launcher3.util.CancellableTask
+import com.android.launcher3.util.Executors.SimpleThreadFactory
+import java.io.PrintWriter
+import java.util.concurrent.AbstractExecutorService
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+/**
+ * Runs the widget preview requests on a small pool of background threads.
+ *
+ * Requests of the cells which are on screen run before the others, and the request of a cell which
+ * is scrolled away goes back behind them until the cell is recycled and the request canceled. A
+ * worker also takes the other pending requests of the same package with the request it picks, so
+ * that the previews of a package are loaded together while its resources are warm.
+ *
+ * Runnables passed to [execute] run after all the requests scheduled before them are done, which
+ * allows waiting for the pending previews.
+ */
+class WidgetPreviewScheduler @VisibleForTesting constructor(private val poolSize: Int) :
+    AbstractExecutorService() {
+
+    private val lock = Any()
+    private val pendingJobs = ArrayList<Job>()
+    private val runningJobs = ArrayList<Job>()
+    private val threadPool =
+        ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                LinkedBlockingQueue(),
+                SimpleThreadFactory("widget-preview", THREAD_PRIORITY_FOREGROUND),
+            )
+            .apply { allowCoreThreadTimeOut(true) }
+    private val workerRunnable = Runnable { runJobs() }
+
+    private var nextSequence = 0L
+    private var workerCount = 0
+
+    // Visible jobs which are pending or running, since visibleStartNanos
+    private var visibleCount = 0
+    private var visibleStartNanos = 0L
+
+    private var jobCount = 0
+    private var batchCount = 0
+    private var maxBatchSize = 0
+    private var visibleLoadCount = 0
+    private var totalVisibleLoadNanos = 0L
+    private var maxVisibleLoadNanos = 0L
+
+    /**
+     * Time it took to load all the previews which were visible, from the first visible request to
+     * the last one, or -1 if no visible preview was loaded yet.
+     */
+    @Volatile
+    var lastVisibleLoadTimeMs = -1L
+        private set
+
+    /**
+     * Schedules [task], which generates a preview for [packageName]. Visible tasks run before the
+     * others, and the ones which are canceled before running are dropped.
+     */
+    @AnyThread
+    fun schedule(packageName: String, visible: Boolean, task: CancellableTask<*>) {
+        enqueue(Job(task, packageName, visible, isBarrier = false))
+    }
+
+    /** Updates the priority of [task] when its cell is attached to or detached from the window */
+    @AnyThread
+    fun setVisible(task: CancellableTask<*>, visible: Boolean) {
+        synchronized(lock) {
+            val job = pendingJobs.firstOrNull { it.task === task } ?: return
+            if (job.visible == visible) return
+            job.visible = visible
+            if (visible) onVisibleJobAddedLocked() else onVisibleJobRemovedLocked(loaded = false)
+        }
+    }
+
+    /** Runs [command] once all the previews scheduled before it are loaded */
+    override fun execute(command: Runnable) {
+        enqueue(Job(command, null, visible = false, isBarrier = true))
+    }
+
+    private fun enqueue(job: Job) {
+        synchronized(lock) {
+            job.sequence = nextSequence++
+            pendingJobs.add(job)
+            if (job.visible) onVisibleJobAddedLocked()
+            if (workerCount < poolSize) {
+                workerCount++
+                threadPool.execute(workerRunnable)
+            }
+        }
+    }
+
+    private fun runJobs() {
+        var batch = emptyList<Job>()
+        while (true) {
+            synchronized(lock) {
+                batch.forEach { onJobDoneLocked(it) }
+                batch = pollBatchLocked()
+                if (batch.isEmpty()) {
+                    // Any job left is waiting for the running ones, whose workers pick it up
+                    workerCount--
+                    return
+                }
+                runningJobs.addAll(batch)
+            }
+            batch.forEach { it.task.run() }
+        }
+    }
+
+    /** Removes the next jobs to run from the pending ones */
+    private fun pollBatchLocked(): List<Job> {
+        pendingJobs.removeAll {
+            val canceled = (it.task as? CancellableTask<*>)?.canceled == true
+            if (canceled && it.visible) onVisibleJobRemovedLocked(loaded = false)
+            canceled
+        }
+        val next =
+            pendingJobs
+                .filter { !it.isBarrier || canRunBarrierLocked(it) }
+                .minWithOrNull(JOB_ORDER)
+                ?: return emptyList()
+        if (next.isBarrier) {
+            pendingJobs.remove(next)
+            return listOf(next)
+        }
+        val batch =
+            pendingJobs
+                .filter {
+                    !it.isBarrier &&
+                        it.packageName == next.packageName &&
+                        it.visible == next.visible
+                }
+                .sortedBy { it.sequence }
+                .take(MAX_BATCH_SIZE)
+        pendingJobs.removeAll(batch)
+        jobCount += batch.size
+        batchCount++
+        maxBatchSize = maxOf(maxBatchSize, batch.size)
+        return batch
+    }
+
+    private fun canRunBarrierLocked(barrier: Job) =
+        pendingJobs.none { !it.isBarrier && it.sequence < barrier.sequence } &&
+            runningJobs.none { it.sequence < barrier.sequence }
+
+    private fun onJobDoneLocked(job: Job) {
+        runningJobs.remove(job)
+        if (job.visible) onVisibleJobRemovedLocked(loaded = true)
+    }
+
+    private fun onVisibleJobAddedLocked() {
+        if (visibleCount++ == 0) {
+            visibleStartNanos = System.nanoTime()
+        }
+    }
+
+    /**
+     * Records the load time once no visible job is left, only if the last one was [loaded] rather
+     * than hidden or canceled before running.
+     */
+    private fun onVisibleJobRemovedLocked(loaded: Boolean) {
+        if (--visibleCount > 0 || !loaded) return
+        val loadTime = System.nanoTime() - visibleStartNanos
+        visibleLoadCount++
+        totalVisibleLoadNanos += loadTime
+        maxVisibleLoadNanos = maxOf(maxVisibleLoadNanos, loadTime)
+        lastVisibleLoadTimeMs = TimeUnit.NANOSECONDS.toMillis(loadTime)
+        if (DEBUG) {
+            Log.d(TAG, "Loaded visible previews in ${lastVisibleLoadTimeMs}ms")
+        }
+    }
+
+    /** Returns true if there are previews waiting to be loaded or being loaded */
+    @VisibleForTesting
+    fun hasPendingJobs() =
+        synchronized(lock) { pendingJobs.isNotEmpty() || runningJobs.isNotEmpty() }
+
+    /** Dumps the scheduling metrics: batches and time to load the visible previews */
+    fun dump(prefix: String, writer: PrintWriter) {
+        synchronized(lock) {
+            writer.println("${prefix}WidgetPreviewScheduler:")
+            writer.println(
+                "$prefix  pending: ${pendingJobs.size}, running: ${runningJobs.size}, " +
+                    "workers: $workerCount/$poolSize"
+            )
+            writer.println(
+                "$prefix  previews: $jobCount, batches: $batchCount, max batch: $maxBatchSize"
+            )
+            if (visibleLoadCount > 0) {
+                val avgTimeMs =
+                    TimeUnit.NANOSECONDS.toMillis(totalVisibleLoadNanos / visibleLoadCount)
+                val maxTimeMs = TimeUnit.NANOSECONDS.toMillis(maxVisibleLoadNanos)
+                writer.println(
+                    "$prefix  visible previews load time: last=${lastVisibleLoadTimeMs}ms, " +
+                        "avg=${avgTimeMs}ms, max=${maxTimeMs}ms"
+                )
+            }
+        }
+    }
+
+    override fun shutdown() {
+        throw UnsupportedOperationException()
+    }
+
+    override fun shutdownNow(): List<Runnable> {
+        throw UnsupportedOperationException()
+    }
+
+    override fun isShutdown() = false
+
+    override fun isTerminated() = false
+
+    @Deprecated("Not supported and throws an exception when used.")
+    override fun awaitTermination(l: Long, timeUnit: TimeUnit): Boolean {
+        throw UnsupportedOperationException()
+    }
+
+    private class Job(
+        val task: Runnable,
+        val packageName: String?,
+        var visible: Boolean,
+        val isBarrier: Boolean,
+    ) {
+        var sequence = 0L
+    }
+
+    companion object {
+        private const val TAG = "WidgetPreviewScheduler"
+        private const val DEBUG = false
+
+        private const val POOL_SIZE = 2
+        private const val KEEP_ALIVE_SECONDS = 1L
+        @VisibleForTesting const val MAX_BATCH_SIZE = 8
+
+        // Barriers which can run go first, as they only wait for earlier jobs
+        private val JOB_ORDER =
+            compareBy<Job>({ !it.isBarrier }, { !it.visible }, { it.sequence })
+
+        @JvmField val INSTANCE = WidgetPreviewScheduler(POOL_SIZE)
+    }
+}
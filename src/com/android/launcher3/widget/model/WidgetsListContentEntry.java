@@ -15,11 +15,17 @@
  */
 package com.android.launcher3.widget.model;
 
+import android.content.Context;
+import android.util.SparseArray;
+
 import androidx.annotation.Px;
 
+import com.android.launcher3.DeviceProfile;
 import com.android.launcher3.model.WidgetItem;
 import com.android.launcher3.model.data.PackageItemInfo;
+import com.android.launcher3.widget.util.WidgetsTableUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -29,6 +35,8 @@ import java.util.List;
 public final class WidgetsListContentEntry extends WidgetsListBaseEntry {
 
     @Px private final int mMaxSpanSize;
+    // Table rows of the widgets by max span size, shared by the copies of this entry
+    private final SparseArray<TableRows> mTableRows;
 
     /**
      * Constructor for {@link WidgetsListContentEntry}.
@@ -53,13 +61,20 @@ public final class WidgetsListContentEntry extends WidgetsListBaseEntry {
      */
     public WidgetsListContentEntry(PackageItemInfo pkgItem, String titleSectionName,
             List<WidgetItem> items, @Px int maxSpanSize) {
+        this(pkgItem, titleSectionName, items, maxSpanSize, new SparseArray<>());
+    }
+
+    private WidgetsListContentEntry(PackageItemInfo pkgItem, String titleSectionName,
+            List<WidgetItem> items, @Px int maxSpanSize, SparseArray<TableRows> tableRows) {
         super(pkgItem, titleSectionName, items);
         mMaxSpanSize = maxSpanSize;
+        mTableRows = tableRows;
     }
 
     @Override
     public WidgetsListBaseEntry copy() {
-        return new WidgetsListContentEntry(mPkgItem, mTitleSectionName, mWidgets, mMaxSpanSize);
+        return new WidgetsListContentEntry(
+                mPkgItem, mTitleSectionName, mWidgets, mMaxSpanSize, mTableRows);
     }
 
     @Override
@@ -80,7 +95,8 @@ public final class WidgetsListContentEntry extends WidgetsListBaseEntry {
                 mPkgItem,
                 mTitleSectionName,
                 mWidgets,
-                /* maxSpanSize= */ maxSpanSize);
+                /* maxSpanSize= */ maxSpanSize,
+                mTableRows);
     }
 
     /**
@@ -92,12 +108,44 @@ public final class WidgetsListContentEntry extends WidgetsListBaseEntry {
         return mMaxSpanSize;
     }
 
+    /**
+     * Returns the widgets grouped in table rows, see
+     * {@link WidgetsTableUtils#groupWidgetItemsUsingRowPxWithReordering}. The rows are only
+     * grouped once for each max span size, as the entries of unchanged packages are kept across
+     * updates of the widgets.
+     */
+    public List<ArrayList<WidgetItem>> getTableRows(
+            Context context, DeviceProfile dp, @Px int cellPadding) {
+        TableRows rows = mTableRows.get(mMaxSpanSize);
+        if (rows == null || rows.mDeviceProfile != dp || rows.mCellPadding != cellPadding) {
+            rows = new TableRows(dp, cellPadding,
+                    WidgetsTableUtils.groupWidgetItemsUsingRowPxWithReordering(
+                            mWidgets, context, dp, mMaxSpanSize, cellPadding));
+            mTableRows.put(mMaxSpanSize, rows);
+        }
+        return rows.mRows;
+    }
+
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) return true;
         if (!(obj instanceof WidgetsListContentEntry)) return false;
         WidgetsListContentEntry otherEntry = (WidgetsListContentEntry) obj;
         return mWidgets.equals(otherEntry.mWidgets) && mPkgItem.equals(otherEntry.mPkgItem)
                 && mTitleSectionName.equals(otherEntry.mTitleSectionName)
                 && mMaxSpanSize == otherEntry.mMaxSpanSize;
     }
+
+    private static final class TableRows {
+        final DeviceProfile mDeviceProfile;
+        @Px final int mCellPadding;
+        final List<ArrayList<WidgetItem>> mRows;
+
+        TableRows(DeviceProfile deviceProfile, @Px int cellPadding,
+                List<ArrayList<WidgetItem>> rows) {
+            mDeviceProfile = deviceProfile;
+            mCellPadding = cellPadding;
+            mRows = rows;
+        }
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.widget.model
+
+import android.content.Context
+import androidx.annotation.VisibleForTesting
+import com.android.launcher3.model.WidgetItem
+import com.android.launcher3.model.data.PackageItemInfo
+import com.android.launcher3.widget.picker.WidgetsListAdapter.WidgetListBaseRowEntryComparator
+import java.util.Collections
+import java.util.function.Predicate
+
+/**
+ * Keeps the widget picker entries of each package across updates of the widgets model, so that
+ * only the entries of the packages whose widgets changed are rebuilt.
+ *
+ * The entries are sorted in the order the picker shows them and returned as an immutable snapshot,
+ * which is reused until the widgets change. This way opening the picker doesn't build or sort any
+ * entries on the main thread. This class is not thread safe, the owner is expected to guard it.
+ */
+class WidgetsListEntriesCache(context: Context) {
+
+    private val builder = WidgetsListBaseEntriesBuilder(context)
+    private val entriesByPackage = HashMap<PackageItemInfo, PackageEntries>()
+    private var snapshot: List<WidgetsListBaseEntry>? = null
+
+    /** Number of times the entries of a package were built */
+    @VisibleForTesting
+    var buildCount = 0
+        private set
+
+    /**
+     * Returns the sorted entries of [widgetsByPackageItem], rebuilding only the entries of the
+     * packages whose widget list or package item was replaced since the last call.
+     */
+    fun getEntries(
+        widgetsByPackageItem: Map<PackageItemInfo, List<WidgetItem>>,
+        widgetFilter: Predicate<WidgetItem>,
+    ): List<WidgetsListBaseEntry> {
+        snapshot?.let {
+            return it
+        }
+        val packages = ArrayList<PackageEntries>(widgetsByPackageItem.size)
+        for ((pkgItem, widgets) in widgetsByPackageItem) {
+            var cached = entriesByPackage[pkgItem]
+            if (cached == null || cached.pkgItem !== pkgItem || cached.widgets !== widgets) {
+                val entries = builder.build(mapOf(pkgItem to widgets), widgetFilter)
+                cached = PackageEntries(pkgItem, widgets, entries)
+                entriesByPackage[pkgItem] = cached
+                buildCount++
+            }
+            if (cached.entries.isNotEmpty()) packages.add(cached)
+        }
+        entriesByPackage.keys.retainAll(widgetsByPackageItem.keys)
+
+        val comparator = WidgetListBaseRowEntryComparator()
+        packages.sortWith { a, b -> comparator.compare(a.entries.first(), b.entries.first()) }
+        return Collections.unmodifiableList(packages.flatMap { it.entries }).also { snapshot = it }
+    }
+
+    /** Drops the snapshot, called when the widgets of some packages were replaced */
+    fun onWidgetsChanged() {
+        snapshot = null
+    }
+
+    /** Rebuilds the entries of [pkgItem] on the next read, as its widgets were updated in place */
+    fun invalidate(pkgItem: PackageItemInfo) {
+        entriesByPackage.remove(pkgItem)
+        snapshot = null
+    }
+
+    /** Rebuilds all the entries on the next read, as the widgets shown in the picker may change */
+    fun clear() {
+        entriesByPackage.clear()
+        snapshot = null
+    }
+
+    private class PackageEntries(
+        val pkgItem: PackageItemInfo,
+        val widgets: List<WidgetItem>,
+        val entries: List<WidgetsListBaseEntry>,
+    )
+}
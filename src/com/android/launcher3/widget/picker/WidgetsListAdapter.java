@@ -58,6 +58,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.OptionalInt;
 import java.util.function.IntSupplier;
 import java.util.function.Predicate;
@@ -189,13 +190,13 @@ public class WidgetsListAdapter extends Adapter<ViewHolder> implements OnHeaderC
             List<WidgetsListBaseEntry> tempDefaultEntries) {
         mAllEntries.clear();
         mAllEntries.add(new WidgetListSpaceEntry());
-        tempEntries.stream().sorted(mRowComparator).forEach(mAllEntries::add);
+        addSorted(tempEntries, mAllEntries);
 
         mAllDefaultEntries.clear();
 
         if (mShowOnlyDefaultList && !tempDefaultEntries.isEmpty()) {
             mAllDefaultEntries.add(new WidgetListSpaceEntry());
-            tempDefaultEntries.stream().sorted(mRowComparator).forEach(mAllDefaultEntries::add);
+            addSorted(tempDefaultEntries, mAllDefaultEntries);
             // Include view all action when default entries exist.
             mAllDefaultEntries.add(new WidgetsListExpandActionEntry());
         }
@@ -203,6 +204,17 @@ public class WidgetsListAdapter extends Adapter<ViewHolder> implements OnHeaderC
         updateVisibleEntries();
     }
 
+    private void addSorted(List<WidgetsListBaseEntry> entries, List<WidgetsListBaseEntry> out) {
+        // Entries from the model are already sorted, see WidgetsModel#getWidgetsListForPicker
+        for (int i = 1; i < entries.size(); i++) {
+            if (mRowComparator.compare(entries.get(i - 1), entries.get(i)) > 0) {
+                entries.stream().sorted(mRowComparator).forEach(out::add);
+                return;
+            }
+        }
+        out.addAll(entries);
+    }
+
     /** Updates the widget list based on {@code searchResults}. */
     public void setWidgetsOnSearch(List<WidgetsListBaseEntry> searchResults) {
         // Forget the expanded package every time widget list is refreshed in search mode.
@@ -492,7 +504,8 @@ public class WidgetsListAdapter extends Adapter<ViewHolder> implements OnHeaderC
 
         @Override
         public int compare(WidgetsListBaseEntry a, WidgetsListBaseEntry b) {
-            int i = mComparator.compare(a.mPkgItem.title.toString(), b.mPkgItem.title.toString());
+            int i = mComparator.compare(Objects.toString(a.mPkgItem.title, ""),
+                    Objects.toString(b.mPkgItem.title, ""));
             if (i != 0) {
                 return i;
             }
@@ -39,7 +39,6 @@ import com.android.launcher3.views.ActivityContext;
 import com.android.launcher3.widget.WidgetCell;
 import com.android.launcher3.widget.WidgetTableRow;
 import com.android.launcher3.widget.model.WidgetsListContentEntry;
-import com.android.launcher3.widget.util.WidgetsTableUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -101,12 +100,8 @@ public final class WidgetsListTableViewHolderBinder
                         (position & POSITION_FIRST) != 0,
                         (position & POSITION_LAST) != 0));
 
-        List<ArrayList<WidgetItem>> widgetItemsTable =
-                WidgetsTableUtils.groupWidgetItemsUsingRowPxWithReordering(entry.mWidgets,
-                        mContext,
-                        mActivityContext.getDeviceProfile(),
-                        entry.getMaxSpanSize(),
-                        mCellPadding);
+        List<ArrayList<WidgetItem>> widgetItemsTable = entry.getTableRows(
+                mContext, mActivityContext.getDeviceProfile(), mCellPadding);
         recycleTableBeforeBinding(table, widgetItemsTable);
 
         // Bind the widget items.
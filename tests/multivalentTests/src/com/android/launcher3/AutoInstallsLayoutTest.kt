@@ -18,6 +18,8 @@ package com.android.launcher3
 
 import android.content.ComponentName
 import android.content.ContentValues
+import android.content.Context
+import android.content.Intent
 import android.database.sqlite.SQLiteDatabase
 import android.os.Process.myUserHandle
 import android.os.UserHandle
@@ -38,6 +40,7 @@ import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION
 import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET
 import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_FOLDER
 import com.android.launcher3.LauncherSettings.Favorites.PROFILE_ID
+import com.android.launcher3.LauncherSettings.Favorites.SCREEN
 import com.android.launcher3.LauncherSettings.Favorites.SPANX
 import com.android.launcher3.LauncherSettings.Favorites.SPANY
 import com.android.launcher3.LauncherSettings.Favorites._ID
@@ -66,9 +69,15 @@ import org.junit.Test
 import org.junit.runner.RunWith
 import org.mockito.Mock
 import org.mockito.MockitoAnnotations
+import org.mockito.kotlin.any
 import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.inOrder
 import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.spy
+import org.mockito.kotlin.verify
 import org.mockito.kotlin.whenever
+import org.xmlpull.v1.XmlPullParser
 
 /** Tests for [AutoInstallsLayout] */
 @SmallTest
@@ -164,6 +173,118 @@ class AutoInstallsLayoutTest {
         assertThat(callback.items[3][CONTAINER]).isEqualTo(folderId)
     }
 
+    @Test
+    fun single_item_folder_replaced_by_item() {
+        LauncherLayoutBuilder()
+            .atHotseat(1)
+            .putFolder("Test")
+            .addApp("p1", "c")
+            .addApp("p2", null)
+            .build()
+            .toAutoInstallsLayout()
+            .loadLayout(db)
+
+        assertThat(callback.items.size).isEqualTo(1)
+        assertThat(callback.items[0][ITEM_TYPE]).isEqualTo(ITEM_TYPE_APPLICATION)
+        assertThat(callback.items[0][CONTAINER]).isEqualTo(CONTAINER_HOTSEAT)
+        assertThat(callback.items[0][SCREEN]).isEqualTo(1)
+    }
+
+    @Test
+    fun nothing_added_when_layout_is_invalid() {
+        val count =
+            LauncherLayoutBuilder()
+                .atWorkspace(1, 1, 0)
+                .putApp("p1", "c1")
+                .build()
+                .replace("</workspace>", "<folder screen=\"0\"><invalid /></folder></workspace>")
+                .toAutoInstallsLayout()
+                .loadLayout(db)
+
+        assertThat(count).isEqualTo(-1)
+        assertThat(callback.items).isEmpty()
+    }
+
+    @Test
+    fun bound_widget_ids_deleted_when_insert_fails() {
+        callback.failInsert = true
+
+        val count =
+            LauncherLayoutBuilder()
+                .atWorkspace(1, 1, 0)
+                .putApp("p1", "c1")
+                .build()
+                .toAutoInstallsLayout(boundWidgetId = BOUND_WIDGET_ID)
+                .loadLayout(db)
+
+        assertThat(count).isEqualTo(-1)
+        verify(widgetHolder).deleteAppWidgetId(BOUND_WIDGET_ID)
+    }
+
+    @Test
+    fun bound_widget_ids_deleted_when_parsing_fails() {
+        val count =
+            LauncherLayoutBuilder()
+                .atWorkspace(1, 1, 0)
+                .putApp("p1", "c1")
+                .build()
+                .replace("</workspace>", "<folder screen=\"0\"><invalid /></folder></workspace>")
+                .toAutoInstallsLayout(boundWidgetId = BOUND_WIDGET_ID)
+                .loadLayout(db)
+
+        assertThat(count).isEqualTo(-1)
+        verify(widgetHolder).deleteAppWidgetId(BOUND_WIDGET_ID)
+    }
+
+    @Test
+    fun bound_widget_ids_kept_when_layout_is_loaded() {
+        val count =
+            LauncherLayoutBuilder()
+                .atWorkspace(1, 1, 0)
+                .putApp("p1", "c1")
+                .build()
+                .toAutoInstallsLayout(boundWidgetId = BOUND_WIDGET_ID)
+                .loadLayout(db)
+
+        assertThat(count).isEqualTo(1)
+        verify(widgetHolder, never()).deleteAppWidgetId(any())
+    }
+
+    @Test
+    fun broadcasts_sent_once_layout_is_written() {
+        val context = spy(targetContext)
+        val count =
+            LauncherLayoutBuilder()
+                .atWorkspace(1, 1, 0)
+                .putApp("p1", "c1")
+                .build()
+                .toAutoInstallsLayout(broadcast = BROADCAST, context = context)
+                .loadLayout(db)
+
+        assertThat(count).isEqualTo(1)
+        inOrder(db, context) {
+            verify(db).endTransaction()
+            verify(context).sendBroadcast(BROADCAST)
+        }
+    }
+
+    @Test
+    fun broadcasts_not_sent_when_insert_fails() {
+        callback.failInsert = true
+        val context = spy(targetContext)
+
+        val count =
+            LauncherLayoutBuilder()
+                .atWorkspace(1, 1, 0)
+                .putApp("p1", "c1")
+                .build()
+                .toAutoInstallsLayout(broadcast = BROADCAST, context = context)
+                .loadLayout(db)
+
+        assertThat(count).isEqualTo(-1)
+        verify(context, never()).sendBroadcast(any())
+    }
+
     @Test
     fun work_item_added_to_home() {
         val original = ApiWrapper.INSTANCE[targetContext]
@@ -200,28 +321,54 @@ class AutoInstallsLayoutTest {
         assertThat(callback.items[0][PROFILE_ID]).isEqualTo(20)
     }
 
-    private fun LauncherLayoutBuilder.toAutoInstallsLayout() =
-        AutoInstallsLayout(
-            targetContext,
-            widgetHolder,
-            callback,
-            SourceResources.wrap(targetContext.resources),
-            { Xml.newPullParser().also { it.setInput(StringReader(build())) } },
-            TAG_WORKSPACE,
-        )
+    private fun LauncherLayoutBuilder.toAutoInstallsLayout() = build().toAutoInstallsLayout()
+
+    /**
+     * Returns a layout for this xml, which binds [boundWidgetId] and queues [broadcast] before
+     * parsing like the parsers of app widgets do
+     */
+    private fun String.toAutoInstallsLayout(
+        boundWidgetId: Int? = null,
+        broadcast: Intent? = null,
+        context: Context = targetContext,
+    ) =
+        object :
+            AutoInstallsLayout(
+                context,
+                widgetHolder,
+                callback,
+                SourceResources.wrap(targetContext.resources),
+                { Xml.newPullParser().also { it.setInput(StringReader(this)) } },
+                TAG_WORKSPACE,
+            ) {
+            override fun parseLayout(parser: XmlPullParser): Int {
+                boundWidgetId?.let { addBoundAppWidgetId(it) }
+                broadcast?.let { sendBroadcastOnceLoaded(it) }
+                return super.parseLayout(parser)
+            }
+        }
 
     class MyCallback : LayoutParserCallback {
 
         val items = ArrayList<ContentValues>()
+        var failInsert = false
+        private var nextId = 0
 
-        override fun generateNewItemId() = items.size
+        // Items are only inserted once the whole layout is parsed
+        override fun generateNewItemId() = nextId++
 
         override fun insertAndCheck(db: SQLiteDatabase?, values: ContentValues): Int {
+            if (failInsert) return -1
             val id = values[_ID]
             items.add(ContentValues(values))
             return if (id is Int) id else 0
         }
     }
+
+    companion object {
+        private const val BOUND_WIDGET_ID = 42
+        private val BROADCAST = Intent("com.android.launcher3.test.CONFIGURE")
+    }
 }
 
 class MyApiWrapper : ApiWrapper(null)
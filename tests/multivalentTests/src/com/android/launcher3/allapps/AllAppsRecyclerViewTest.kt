@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.allapps
+
+import android.view.View
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.BubbleTextView
+import com.android.launcher3.util.ActivityContextWrapper
+import com.android.launcher3.util.LauncherModelHelper.SandboxModelContext
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for deferring high-res icon loads in [AllAppsRecyclerView] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class AllAppsRecyclerViewTest {
+
+    private val modelContext = SandboxModelContext()
+    private val context = ActivityContextWrapper(modelContext)
+    private val children = mutableListOf<View>()
+    private val requests = mutableListOf<View>()
+
+    private val recyclerView =
+        object : AllAppsRecyclerView(context) {
+            override fun getChildCount() = children.size
+
+            override fun getChildAt(index: Int) = children[index]
+        }
+
+    // Laid out above, inside and below the visible area of the list
+    private val above = TestIcon(-200, -100)
+    private val first = TestIcon(0, 100)
+    private val second = TestIcon(100, 200)
+    private val below = TestIcon(300, 400)
+
+    @After
+    fun tearDown() {
+        modelContext.onDestroy()
+    }
+
+    @Test
+    fun scrollSettles_requestsVisibleIconsFirst() {
+        layOutChildren()
+        recyclerView.setHighResLoadDeferred(true, FAST_DY)
+        assertThat(requests).isEmpty()
+
+        recyclerView.setHighResLoadDeferred(false, 0)
+
+        assertThat(requests).containsExactly(first, second, above, below).inOrder()
+    }
+
+    @Test
+    fun scrollSlowsDown_requestsFromLeadingEdge() {
+        layOutChildren()
+        recyclerView.setHighResLoadDeferred(true, FAST_DY)
+
+        recyclerView.setHighResLoadDeferred(false, 1)
+
+        assertThat(requests).containsExactly(second, first, below, above).inOrder()
+    }
+
+    @Test
+    fun reattachedIcon_requestedOnlyWhenNotDeferred() {
+        val cached = TestIcon(0, 100)
+        cached.setHighResLoadDeferred(true)
+        recyclerView.setHighResLoadDeferred(true, FAST_DY)
+
+        recyclerView.onChildAttachedToWindow(cached)
+        assertThat(requests).isEmpty()
+
+        // The icon isn't a child when scrolling settles, so it is only requested when reattached
+        recyclerView.setHighResLoadDeferred(false, 0)
+        assertThat(requests).isEmpty()
+
+        recyclerView.onChildAttachedToWindow(cached)
+        assertThat(requests).containsExactly(cached)
+    }
+
+    private fun layOutChildren() {
+        recyclerView.bottom = LIST_HEIGHT
+        children.addAll(listOf(above, first, second, below))
+    }
+
+    private inner class TestIcon(top: Int, bottom: Int) : BubbleTextView(context) {
+
+        init {
+            this.top = top
+            this.bottom = bottom
+        }
+
+        override fun requestHighResIfNeeded() {
+            requests.add(this)
+        }
+    }
+
+    private companion object {
+        const val LIST_HEIGHT = 250
+        const val FAST_DY = 1000
+    }
+}
@@ -52,6 +52,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Stream;
@@ -218,6 +219,21 @@ public class AlphabeticalAppsListTest {
                         && item.itemInfo.user.equals(PRIVATE_HANDLE)).toList().size());
     }
 
+    @Test
+    public void numApps_ignoresSearchResults() {
+        AppInfo[] apps = createAppInfoListForMainAndPrivateUser();
+        when(mAllAppsStore.getApps()).thenReturn(apps);
+        mAlphabeticalAppsList.updateItemFilter(info -> info != null
+                && info.user.equals(MAIN_HANDLE));
+
+        ArrayList<BaseAllAppsAdapter.AdapterItem> results = new ArrayList<>();
+        results.add(BaseAllAppsAdapter.AdapterItem.asApp(apps[0]));
+        mAlphabeticalAppsList.setSearchResults(results);
+
+        assertEquals(1, mAlphabeticalAppsList.getNumFilteredApps());
+        assertEquals(MAIN_USER_APP_COUNT, mAlphabeticalAppsList.getNumApps());
+    }
+
     @Test
     public void privateProfileNotPresent_onlyMainUserViewsArePresent() {
         mSetFlagsRule.enableFlags(Flags.FLAG_ENABLE_PRIVATE_SPACE);
@@ -237,6 +253,29 @@ public class AlphabeticalAppsListTest {
                 .toList().size());
     }
 
+    @Test
+    public void nonIconItemCount_countsHeadersUpToPosition() {
+        mSetFlagsRule.enableFlags(Flags.FLAG_ENABLE_PRIVATE_SPACE);
+        when(mAllAppsStore.getApps()).thenReturn(createAppInfoListForMainAndPrivateUser());
+        when(mPrivateProfileManager.addPrivateSpaceHeader(any()))
+                .thenAnswer(answer(this::addPrivateSpaceHeader));
+        when(mPrivateProfileManager.getCurrentState()).thenReturn(STATE_DISABLED);
+        int sectionsVersion = mAlphabeticalAppsList.getFastScrollerSectionsVersion();
+
+        mAlphabeticalAppsList.updateItemFilter(info -> info != null
+                && info.user.equals(MAIN_HANDLE));
+
+        // Main apps, followed by the private space header and the view at the end
+        assertEquals(0, mAlphabeticalAppsList.getNonIconItemCount(MAIN_USER_APP_COUNT - 1));
+        assertEquals(1, mAlphabeticalAppsList.getNonIconItemCount(MAIN_USER_APP_COUNT));
+        assertEquals(2, mAlphabeticalAppsList.getNonIconItemCount(MAIN_USER_APP_COUNT + 1));
+        assertEquals(sectionsVersion + 1,
+                mAlphabeticalAppsList.getFastScrollerSectionsVersion());
+
+        mAlphabeticalAppsList.removeAdapterItem(0);
+        assertEquals(1, mAlphabeticalAppsList.getNonIconItemCount(MAIN_USER_APP_COUNT - 1));
+    }
+
     @Test
     public void getRoundRegions_whenIndexIsMiddleOfLastRow_roundNothing() {
         int index = 3;
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps
+
+import android.content.ComponentName
+import android.os.Process
+import androidx.test.core.app.ApplicationProvider.getApplicationContext
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.model.data.AppInfo
+import com.android.launcher3.util.ActivityContextWrapper
+import com.google.common.truth.Truth.assertThat
+import kotlin.random.Random
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [SortedAppList] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class SortedAppListTest {
+
+    private val context = ActivityContextWrapper(getApplicationContext())
+    private val comparator = AppInfoComparator(context)
+
+    @Test
+    fun appsAreSortedLikeComparator() {
+        val apps = listOf(newApp("b", "Beta"), newApp("a", "alpha"), newApp("c", "#hash"))
+        val list = SortedAppList(context)
+
+        list.setApps(apps.toTypedArray())
+
+        assertThat(list.apps).containsExactlyElementsIn(apps.sortedWith(comparator)).inOrder()
+    }
+
+    @Test
+    fun unchangedAppsAreNotInsertedAgain() {
+        val apps = List(100) { newApp("p$it", "App $it") }
+        val list = SortedAppList(context)
+        list.setApps(apps.toTypedArray())
+
+        // Updated copies of the same apps, one of which is renamed
+        val updated = apps.map { newApp(it.componentName.packageName, it.title.toString()) }
+        updated[10].title = "Renamed"
+        list.setApps(updated.toTypedArray())
+
+        assertThat(list.lastInsertionCount).isEqualTo(1)
+        assertThat(list.apps).containsExactlyElementsIn(updated.sortedWith(comparator)).inOrder()
+    }
+
+    @Test
+    fun randomUpdatesKeepOrder() {
+        val random = Random(42)
+        var apps = List(500) { newApp("p$it", "App ${random.nextInt(1000)}") }
+        val list = SortedAppList(context)
+        list.setApps(apps.toTypedArray())
+
+        var nextId = apps.size
+        repeat(50) {
+            val newApps = List(random.nextInt(3)) { newApp("p${nextId++}", "New $it") }
+            apps = apps.filter { random.nextInt(50) != 0 }.plus(newApps)
+            val array = apps.toTypedArray()
+
+            list.setApps(array)
+
+            // Removed and unchanged apps don't need any insertion
+            assertThat(list.lastInsertionCount).isEqualTo(newApps.size)
+            assertThat(list.apps).containsExactlyElementsIn(array.sortedWith(comparator)).inOrder()
+        }
+    }
+
+    private fun newApp(packageName: String, title: String) =
+        AppInfo().apply {
+            componentName = ComponentName(packageName, "$packageName.Activity")
+            this.title = title
+            user = Process.myUserHandle()
+        }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.celllayout
+
+import android.view.View
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.CellLayout
+import com.android.launcher3.util.ActivityContextWrapper
+import com.google.common.truth.Truth.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [ReorderSolutionCache] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class ReorderSolutionCacheTest {
+
+    @JvmField @Rule var cellLayoutBuilder = UnitTestCellLayoutBuilderRule()
+
+    private val context = ActivityContextWrapper(ApplicationProvider.getApplicationContext())
+
+    @Test
+    fun sameDragOverReusesRearrangement() {
+        val cl = createDenseCellLayout()
+        val first = solve(cl, intArrayOf(1, 0))
+        val cache = cl.reorderSolutionCache
+        val misses = cache.missCount
+
+        val second = solve(cl, intArrayOf(1, 0))
+
+        assertThat(cache.hitCount).isGreaterThan(0)
+        assertThat(cache.missCount).isEqualTo(misses)
+        assertSameSolution(first, second)
+    }
+
+    @Test
+    fun directionChangeMatchesFullSolve() {
+        val cl = createDenseCellLayout()
+        solve(cl, intArrayOf(1, 0))
+        val incremental = solve(cl, intArrayOf(0, 1))
+
+        cl.reorderSolutionCache.clear()
+        val full = solve(cl, intArrayOf(0, 1))
+
+        assertSameSolution(incremental, full)
+    }
+
+    @Test
+    fun layoutChangeInvalidatesCache() {
+        val cl = createDenseCellLayout()
+        solve(cl, intArrayOf(1, 0))
+        val cache = cl.reorderSolutionCache
+        val misses = cache.missCount
+
+        addView(cl, 3, 3, 1, 1)
+        solve(cl, intArrayOf(1, 0))
+
+        assertThat(cache.missCount).isGreaterThan(misses)
+    }
+
+    private fun createDenseCellLayout(): CellLayout =
+        cellLayoutBuilder.createCellLayout(4, 4, false).apply {
+            addView(this, 0, 0, 2, 2)
+            addView(this, 2, 0, 1, 1)
+            addView(this, 2, 1, 2, 1)
+            addView(this, 0, 2, 1, 1)
+        }
+
+    private fun addView(cl: CellLayout, cellX: Int, cellY: Int, spanX: Int, spanY: Int) {
+        val view = View(context)
+        val lp = CellLayoutLayoutParams(cellX, cellY, spanX, spanY)
+        view.layoutParams = lp
+        cl.addViewToCellLayout(view, -1, view.id, lp, true)
+    }
+
+    /** Solves dropping a 2x2 item on the top left corner of [cl] */
+    private fun solve(cl: CellLayout, direction: IntArray): ItemConfiguration {
+        val pixel = IntArray(2)
+        cl.regionToCenterPoint(0, 0, 2, 2, pixel)
+        val configuration = ItemConfiguration()
+        cl.copyCurrentStateToSolution(configuration)
+        return cl.createReorderAlgorithm()
+            .findReorderSolution(
+                ReorderParameters(pixel[0], pixel[1], 2, 2, 1, 1, null, configuration),
+                direction,
+                true,
+            )
+    }
+
+    private fun assertSameSolution(expected: ItemConfiguration, actual: ItemConfiguration) {
+        assertThat(actual.isSolution).isEqualTo(expected.isSolution)
+        assertThat(actual.toString()).isEqualTo(expected.toString())
+        expected.map.forEach { (view, cell) ->
+            assertThat(actual.map[view].toString()).isEqualTo(cell.toString())
+        }
+    }
+}
@@ -19,6 +19,15 @@ import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import android.content.ComponentName;
 import android.content.Context;
@@ -29,20 +38,29 @@ import android.os.UserHandle;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.SmallTest;
 
+import com.android.launcher3.AppFilter;
+import com.android.launcher3.icons.IconCache;
+import com.android.launcher3.model.AllAppsList;
 import com.android.launcher3.model.data.AppInfo;
 import com.android.launcher3.model.data.WorkspaceItemInfo;
 import com.android.launcher3.util.ActivityContextWrapper;
 import com.android.launcher3.util.Executors;
+import com.android.launcher3.util.IntSparseArrayMap;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.ArrayList;
+import java.util.List;
 
 @SmallTest
 @RunWith(AndroidJUnit4.class)
 public final class FolderNameProviderTest {
+    private static final int APP_COUNT = 1000;
+    private static final int FOLDER_COUNT = 200;
+    private static final int FOLDER_SIZE = 3;
+
     private Context mContext;
     private WorkspaceItemInfo mItem1;
     private WorkspaceItemInfo mItem2;
@@ -84,4 +102,76 @@ public final class FolderNameProviderTest {
         assertTrue(nameInfos.hasSuggestions());
         assertTrue(nameInfos.hasPrimary());
     }
+
+    @Test
+    public void getSuggestedFolderName_samePackage_suggestsAppTitle() throws Exception {
+        AllAppsList apps = newAllAppsList();
+        addApp(apps, "a.b.c", "App title", mItem1.user);
+        addApp(apps, "a.b.c", "Other user title", Process.myUserHandle());
+        FolderNameProvider provider = new FolderNameProvider();
+        provider.load(apps, new IntSparseArrayMap<>());
+
+        ArrayList<WorkspaceItemInfo> list = new ArrayList<>();
+        list.add(mItem1);
+        list.add(mItem2);
+        FolderNameInfos nameInfos = new FolderNameInfos();
+        Executors.MODEL_EXECUTOR.submit(() ->
+                provider.getSuggestedFolderName(mContext, list, nameInfos)).get();
+
+        assertEquals("App title", nameInfos.getLabels()[0]);
+        assertEquals("Work", nameInfos.getLabels()[1]);
+    }
+
+    @Test
+    public void getSuggestedFolderName_1kApps_looksUpPackageOnce() throws Exception {
+        UserHandle user = Process.myUserHandle();
+        AllAppsList allApps = newAllAppsList();
+        for (int i = 0; i < APP_COUNT; i++) {
+            addApp(allApps, "package" + i, "App " + i, user);
+        }
+        AllAppsList apps = spy(allApps);
+        FolderNameProvider provider = new FolderNameProvider();
+        provider.load(apps, new IntSparseArrayMap<>());
+
+        List<ArrayList<WorkspaceItemInfo>> folders = new ArrayList<>();
+        for (int i = 0; i < FOLDER_COUNT; i++) {
+            String packageName = "package" + (i * APP_COUNT / FOLDER_COUNT);
+            ArrayList<WorkspaceItemInfo> items = new ArrayList<>();
+            for (int j = 0; j < FOLDER_SIZE; j++) {
+                WorkspaceItemInfo item = new WorkspaceItemInfo();
+                item.user = user;
+                item.intent = new Intent().setComponent(
+                        new ComponentName(packageName, packageName + ".Main"));
+                items.add(item);
+            }
+            folders.add(items);
+        }
+
+        Executors.MODEL_EXECUTOR.submit(() -> {
+            for (int i = 0; i < folders.size(); i++) {
+                FolderNameInfos nameInfos = new FolderNameInfos();
+                provider.getSuggestedFolderName(mContext, folders.get(i), nameInfos);
+                assertEquals("App " + (i * APP_COUNT / FOLDER_COUNT), nameInfos.getLabels()[0]);
+            }
+        }).get();
+
+        // Every suggestion is a single index lookup, the apps are never copied or scanned
+        verify(apps, times(FOLDER_COUNT)).findAppInfoForPackage(anyString(), eq(user));
+        verify(apps, never()).copyData();
+    }
+
+    private static AllAppsList newAllAppsList() {
+        AppFilter appFilter = mock(AppFilter.class);
+        when(appFilter.shouldShowApp(any())).thenReturn(true);
+        return new AllAppsList(mock(IconCache.class), appFilter);
+    }
+
+    private static void addApp(AllAppsList apps, String packageName, String title,
+            UserHandle user) {
+        AppInfo info = new AppInfo();
+        info.componentName = new ComponentName(packageName, packageName + ".Main");
+        info.user = user;
+        apps.add(info, null, false);
+        info.title = title;
+    }
 }
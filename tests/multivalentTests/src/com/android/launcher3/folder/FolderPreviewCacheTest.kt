@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.folder
+
+import android.graphics.Canvas
+import android.graphics.Color
+import android.graphics.ColorFilter
+import android.graphics.PixelFormat
+import android.graphics.Rect
+import android.graphics.drawable.ColorDrawable
+import android.graphics.drawable.Drawable
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import androidx.test.platform.app.InstrumentationRegistry.getInstrumentation
+import com.android.launcher3.folder.FolderPreviewCache.Snapshot
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [FolderPreviewCache] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class FolderPreviewCacheTest {
+
+    private val res = getInstrumentation().targetContext.resources
+
+    @Test
+    fun snapshot_coversAllItems() {
+        val params =
+            listOf(
+                newParams(ColorDrawable(Color.RED), 10f, 5f),
+                newParams(ColorDrawable(Color.BLUE), 30f, 20f),
+            )
+
+        val snapshot = Snapshot.create(res, params, ICON_SIZE)
+
+        assertThat(snapshot).isNotNull()
+        assertThat(snapshot!!.mBounds).isEqualTo(Rect(10, 5, 50, 40))
+    }
+
+    @Test
+    fun snapshot_roundsOutFractionalBounds() {
+        val snapshot = Snapshot.create(res, listOf(newParams(ColorDrawable(), 0.5f, 1.5f)), 15f)
+
+        assertThat(snapshot!!.mBounds).isEqualTo(Rect(0, 1, 8, 9))
+    }
+
+    @Test
+    fun snapshot_withDrawableWhichCannotBeCopied_isNull() {
+        val params =
+            listOf(newParams(ColorDrawable(), 0f, 0f), newParams(UncopyableDrawable(), 10f, 10f))
+
+        assertThat(Snapshot.create(res, params, ICON_SIZE)).isNull()
+    }
+
+    private fun newParams(drawable: Drawable, transX: Float, transY: Float) =
+        PreviewItemDrawingParams(transX, transY, 0.5f).apply {
+            this.drawable = drawable.apply { setBounds(0, 0, 100, 100) }
+        }
+
+    private class UncopyableDrawable : Drawable() {
+        override fun draw(canvas: Canvas) {}
+
+        override fun setAlpha(alpha: Int) {}
+
+        override fun setColorFilter(colorFilter: ColorFilter?) {}
+
+        @Deprecated("Deprecated in Java")
+        override fun getOpacity() = PixelFormat.TRANSLUCENT
+    }
+
+    companion object {
+        private const val ICON_SIZE = 40f
+    }
+}
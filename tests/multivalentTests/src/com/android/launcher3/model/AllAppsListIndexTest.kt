@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model
+
+import android.content.ComponentName
+import android.os.Process
+import android.os.UserHandle
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.AppFilter
+import com.android.launcher3.icons.IconCache
+import com.android.launcher3.model.data.AppInfo
+import com.android.launcher3.model.data.ItemInfoWithIcon.FLAG_DISABLED_SUSPENDED
+import com.android.launcher3.util.FlagOp
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+
+/** Tests for the package index of [AllAppsList] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class AllAppsListIndexTest {
+
+    private val user = Process.myUserHandle()
+    private val otherUser = UserHandle.of(user.identifier + 1)
+
+    private val appFilter = mock<AppFilter> { on { shouldShowApp(any()) } doReturn true }
+    private val iconCache = mock<IconCache>()
+    private val appsList = AllAppsList(iconCache, appFilter)
+
+    @Test
+    fun findAppInfo_usesComponentAndUser() {
+        val app = addApp("a", "Main", user)
+        addApp("a", "Main", otherUser)
+
+        assertThat(appsList.findAppInfo(app.componentName, user)).isSameInstanceAs(app)
+        assertThat(appsList.findAppInfo(ComponentName("a", "Other"), user)).isNull()
+    }
+
+    @Test
+    fun removePackage_keepsOrderOfOtherApps() {
+        val a = addApp("a", "Main", user)
+        addApp("b", "Main", user)
+        addApp("b", "Second", user)
+        val c = addApp("c", "Main", user)
+        val otherUserApp = addApp("b", "Main", otherUser)
+        appsList.getAndResetChangeFlag()
+
+        appsList.removePackage("b", user)
+
+        assertThat(appsList.getAndResetChangeFlag()).isTrue()
+        assertThat(appsList.data).containsExactly(a, c, otherUserApp).inOrder()
+        assertThat(appsList.findAppInfo(ComponentName("b", "Main"), user)).isNull()
+    }
+
+    @Test
+    fun updateDisabledFlags_onlyUpdatesPackageApps() {
+        val a = addApp("a", "Main", user)
+        val b = addApp("b", "Main", user)
+
+        val op = FlagOp.NO_OP.addFlag(FLAG_DISABLED_SUSPENDED)
+        appsList.updateDisabledFlags(setOf("a"), user, op)
+
+        assertThat(a.runtimeStatusFlags and FLAG_DISABLED_SUSPENDED).isNotEqualTo(0)
+        assertThat(b.runtimeStatusFlags and FLAG_DISABLED_SUSPENDED).isEqualTo(0)
+    }
+
+    @Test
+    fun packageUpdateBurst_onlyVisitsUpdatedApps() {
+        repeat(APP_COUNT) { addApp("package$it", "Main", user) }
+        val updatedPackages = List(UPDATE_COUNT) { "package${it * APP_COUNT / UPDATE_COUNT}" }
+        var visitCount = 0
+        val op = FlagOp {
+            visitCount++
+            it or FLAG_DISABLED_SUSPENDED
+        }
+
+        updatedPackages.forEach { appsList.updateDisabledFlags(setOf(it), user, op) }
+        updatedPackages.forEach { appsList.updateIconsAndLabels(hashSetOf(it), user) }
+
+        // Every update only visits the app of its package, where a scan visits all the apps
+        assertThat(visitCount).isEqualTo(UPDATE_COUNT)
+        verify(iconCache, times(UPDATE_COUNT)).updateTitleAndIcon(any())
+
+        updatedPackages.forEach { appsList.removePackage(it, user) }
+
+        assertThat(appsList.data).hasSize(APP_COUNT - UPDATE_COUNT)
+        // The removed packages were the suspended ones
+        assertThat(appsList.data.none { (it.runtimeStatusFlags and FLAG_DISABLED_SUSPENDED) != 0 })
+            .isTrue()
+    }
+
+    private fun addApp(packageName: String, className: String, user: UserHandle): AppInfo {
+        val info =
+            AppInfo().apply {
+                componentName = ComponentName(packageName, className)
+                this.user = user
+            }
+        appsList.add(info, null, false)
+        return info
+    }
+
+    companion object {
+        private const val APP_COUNT = 500
+        private const val UPDATE_COUNT = 200
+    }
+}
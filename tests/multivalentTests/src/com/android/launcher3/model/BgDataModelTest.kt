@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model
+
+import android.util.SparseArray
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.logging.DumpManager
+import com.android.launcher3.model.data.ItemInfo
+import com.android.launcher3.model.data.WorkspaceData.SharedWorkspaceData
+import com.android.launcher3.util.LauncherModelHelper.SandboxModelContext
+import com.google.common.truth.Truth.assertThat
+import javax.inject.Provider
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.clearInvocations
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.verify
+
+/** Unit tests for the workspace snapshots published by [BgDataModel] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class BgDataModelTest {
+
+    private val context = SandboxModelContext()
+    private val snapshotStore = mock<ModelSnapshotStore>()
+    private val model =
+        BgDataModel(mock(), Provider { mock() }, snapshotStore, DumpManager(), mock())
+
+    @After
+    fun tearDown() {
+        context.destroy()
+    }
+
+    @Test
+    fun snapshot_isNotChangedByLaterUpdates() {
+        model.dataLoadComplete(newItems(1, 2, 3))
+        val snapshot = model.workspaceSnapshot
+
+        model.addItem(context, newItem(4))
+        model.removeItem(context, model.itemsIdMap[1]!!)
+
+        assertThat(snapshot.map { it.id }).containsExactly(1, 2, 3).inOrder()
+        assertThat(snapshot[4]).isNull()
+        assertThat(model.workspaceSnapshot.map { it.id }).containsExactly(2, 3, 4).inOrder()
+    }
+
+    @Test
+    fun snapshot_matchesModelAfterEveryChange() {
+        model.dataLoadComplete(newItems(*(1..200).toList().toIntArray()))
+        assertThat(model.workspaceSnapshot.toList()).isEqualTo(model.itemsIdMap.toList())
+
+        val replacement = newItem(50)
+        model.updateAndDispatchItem(replacement, null)
+        assertThat(model.workspaceSnapshot[50]).isSameInstanceAs(replacement)
+
+        model.addItems(context, (300 until 400).map { newItem(it) })
+        model.removeItem(context, (1..100).map { model.itemsIdMap[it]!! })
+
+        assertThat(model.workspaceSnapshot.toList()).isEqualTo(model.itemsIdMap.toList())
+        assertThat(model.workspaceSnapshot).isEqualTo(model.itemsIdMap)
+    }
+
+    @Test
+    fun inPlaceUpdate_publishesNewVersionSharingItems() {
+        model.dataLoadComplete(newItems(1, 2))
+        val snapshot = model.workspaceSnapshot as SharedWorkspaceData
+
+        model.updateItems(listOf(model.itemsIdMap[1]!!), null)
+
+        val updated = model.workspaceSnapshot as SharedWorkspaceData
+        assertThat(updated).isNotEqualTo(snapshot)
+        assertThat(updated.items).isSameInstanceAs(snapshot.items)
+    }
+
+    @Test
+    fun changes_invalidatePersistedSnapshot() {
+        model.dataLoadComplete(newItems(1, 2))
+        clearInvocations(snapshotStore)
+        model.addItem(context, newItem(3))
+        verify(snapshotStore).invalidate()
+
+        clearInvocations(snapshotStore)
+        model.updateItems(listOf(model.itemsIdMap[3]!!), null)
+        verify(snapshotStore).invalidate()
+
+        clearInvocations(snapshotStore)
+        model.invalidatePersistedSnapshot()
+        verify(snapshotStore).invalidate()
+    }
+
+    private fun newItems(vararg ids: Int) =
+        SparseArray<ItemInfo>().apply { ids.forEach { put(it, newItem(it)) } }
+
+    private fun newItem(id: Int) = ItemInfo().apply { this.id = id }
+}
@@ -1,11 +1,13 @@
 package com.android.launcher3.model
 
+import android.content.ContentValues
 import android.content.Context
 import android.database.sqlite.SQLiteDatabase
 import android.os.UserHandle
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.SmallTest
 import androidx.test.platform.app.InstrumentationRegistry
+import com.android.launcher3.LauncherSettings.Favorites
 import com.android.launcher3.LauncherSettings.Favorites.TABLE_NAME
 import com.android.launcher3.LauncherSettings.Favorites.TMP_TABLE
 import com.android.launcher3.LauncherSettings.Favorites.addTableToDb
@@ -16,6 +18,7 @@ import java.util.function.ToLongFunction
 import org.junit.After
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -83,6 +86,89 @@ class DatabaseHelperTest {
         c2.close()
     }
 
+    /**
+     * Inserts a layout with icons, a folder and a widget, which have different columns and so use
+     * different compiled statements, and verifies the rows and the next item id.
+     */
+    @Test
+    fun insertAll_items_of_mixed_kinds() {
+        val userSerialProvider =
+            ToLongFunction<UserHandle> {
+                UserCache.INSTANCE.get(context).getSerialNumberForUser(it)
+            }
+        val dbHelper = DatabaseHelper(context, null, userSerialProvider) {}
+        val helperDb = dbHelper.writableDatabase
+        val items =
+            listOf(
+                newItem(1, Favorites.ITEM_TYPE_APPLICATION, Favorites.CONTAINER_DESKTOP) {
+                    put(Favorites.INTENT, "#Intent;component=com.test/.A;end")
+                },
+                newItem(2, Favorites.ITEM_TYPE_FOLDER, Favorites.CONTAINER_DESKTOP) {
+                    put(Favorites.TITLE, "Folder")
+                },
+                newItem(3, Favorites.ITEM_TYPE_APPLICATION, 2) {
+                    put(Favorites.INTENT, "#Intent;component=com.test/.B;end")
+                },
+                newItem(7, Favorites.ITEM_TYPE_APPWIDGET, Favorites.CONTAINER_DESKTOP) {
+                    put(Favorites.APPWIDGET_ID, 42)
+                    put(Favorites.APPWIDGET_PROVIDER, "com.test/.Widget")
+                    put(Favorites.SPANX, 2)
+                    put(Favorites.SPANY, 2)
+                },
+                newItem(5, Favorites.ITEM_TYPE_APPLICATION, Favorites.CONTAINER_HOTSEAT) {
+                    put(Favorites.INTENT, "#Intent;component=com.test/.C;end")
+                },
+            )
+
+        assertTrue(dbHelper.insertAll(helperDb, items))
+
+        val columns =
+            arrayOf(
+                Favorites._ID,
+                Favorites.ITEM_TYPE,
+                Favorites.CONTAINER,
+                Favorites.TITLE,
+                Favorites.APPWIDGET_ID,
+            )
+        val rows =
+            helperDb.query(TABLE_NAME, columns, null, null, null, null, Favorites._ID).use { c ->
+                buildList {
+                    while (c.moveToNext()) {
+                        add(
+                            listOf(
+                                c.getInt(0),
+                                c.getInt(1),
+                                c.getInt(2),
+                                c.getString(3),
+                                c.getInt(4),
+                            )
+                        )
+                    }
+                }
+            }
+        assertEquals(
+            listOf(
+                listOf(1, Favorites.ITEM_TYPE_APPLICATION, Favorites.CONTAINER_DESKTOP, null, -1),
+                listOf(2, Favorites.ITEM_TYPE_FOLDER, Favorites.CONTAINER_DESKTOP, "Folder", -1),
+                listOf(3, Favorites.ITEM_TYPE_APPLICATION, 2, null, -1),
+                listOf(5, Favorites.ITEM_TYPE_APPLICATION, Favorites.CONTAINER_HOTSEAT, null, -1),
+                listOf(7, Favorites.ITEM_TYPE_APPWIDGET, Favorites.CONTAINER_DESKTOP, null, 42),
+            ),
+            rows,
+        )
+        // The max item id follows the inserted ids
+        assertEquals(8, dbHelper.generateNewItemId())
+        dbHelper.close()
+    }
+
+    private fun newItem(id: Int, itemType: Int, container: Int, extras: ContentValues.() -> Unit) =
+        ContentValues().apply {
+            put(Favorites._ID, id)
+            put(Favorites.ITEM_TYPE, itemType)
+            put(Favorites.CONTAINER, container)
+            extras()
+        }
+
     private fun hasFavoritesColumn(db: SQLiteDatabase, columnName: String): Boolean {
         db.query(TABLE_NAME, null, null, null, null, null, null).use { c ->
             return c.getColumnIndex(columnName) >= 0
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION
+import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPWIDGET
+import com.android.launcher3.util.GridOccupancy
+import com.google.common.truth.Truth.assertThat
+import kotlin.random.Random
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [GridPlacementSolver] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class GridPlacementSolverTest {
+
+    @Test
+    fun readingOrderKeepsItemOrder() {
+        val items = List(6) { newEntry(1, 1) }
+        val solution = GridPlacementSolver(4, 4, 1).solve(items, emptyMap(), -1)
+
+        assertThat(solution.placements.map { it.entry }).containsExactlyElementsIn(items).inOrder()
+        assertThat(solution.placements.map { it.cell.cellY }).containsExactly(1, 1, 1, 1, 2, 2)
+        assertThat(solution.screenCount).isEqualTo(1)
+    }
+
+    @Test
+    fun itemsLargerThanTheGridAreDropped() {
+        val solution =
+            GridPlacementSolver(4, 4, 0).solve(listOf(newEntry(5, 1), newEntry(1, 1)), mapOf(), -1)
+
+        assertThat(solution.placements).hasSize(1)
+    }
+
+    @Test
+    fun packingFillsGapsLeftByWidgets() {
+        // In reading order the search continues after the widget, so the last two cells of the
+        // first row are never used and the icons move to a second screen
+        val items = listOf(newEntry(2, 1), newEntry(4, 3), newEntry(1, 1), newEntry(1, 1))
+        val solver = GridPlacementSolver(4, 4, 0)
+
+        assertThat(solver.solveInReadingOrder(items, emptyMap(), -1).screenCount).isEqualTo(2)
+        val solution = solver.solve(items, emptyMap(), -1)
+        assertThat(solution.screenCount).isEqualTo(1)
+        assertThat(solution.placements).hasSize(4)
+        assertNoOverlap(solution, 4, 4)
+    }
+
+    @Test
+    fun existingEntriesAreNotOverlapped() {
+        val existing = newEntry(4, 2).apply { screenId = 0 }
+        val items = List(10) { newEntry(1, 1) }
+        val solution = GridPlacementSolver(4, 4, 0).solve(items, mapOf(0 to listOf(existing)), 0)
+
+        assertThat(solution.placements).hasSize(10)
+        assertThat(solution.placements.filter { it.screenId == 0 }.all { it.cell.cellY >= 2 })
+            .isTrue()
+    }
+
+    @Test
+    fun exhaustedBudgetKeepsReadingOrder() {
+        val items = listOf(newEntry(2, 1), newEntry(4, 3), newEntry(1, 1), newEntry(1, 1))
+
+        // The deadline has passed before the first packing arrangement is tried
+        val solution = GridPlacementSolver(4, 4, 0, timeBudgetMs = -1).solve(items, emptyMap(), -1)
+
+        assertThat(solution.screenCount).isEqualTo(2)
+        assertThat(solution.placements.map { it.entry }).containsExactlyElementsIn(items).inOrder()
+    }
+
+    @Test
+    fun randomizedLayoutsNeverUseMoreScreens() {
+        val random = Random(42)
+        var readingOrderScreens = 0
+        var solvedScreens = 0
+        repeat(50) {
+            val items =
+                List(300) {
+                    if (random.nextInt(5) == 0) {
+                        newEntry(random.nextInt(2, 5), random.nextInt(1, 4))
+                    } else {
+                        newEntry(1, 1)
+                    }
+                }
+            // Large enough budget for every arrangement to be tried, so the result is stable
+            val solver = GridPlacementSolver(5, 6, 1, timeBudgetMs = 10_000)
+
+            val readingOrder = solver.solveInReadingOrder(items, emptyMap(), -1)
+            val solution = solver.solve(items, emptyMap(), -1)
+
+            assertThat(solution.placements).hasSize(items.size)
+            assertThat(solution.screenCount).isAtMost(readingOrder.screenCount)
+            assertNoOverlap(solution, 5, 6)
+            readingOrderScreens += readingOrder.screenCount
+            solvedScreens += solution.screenCount
+        }
+        // Packing must actually save screens on layouts with widgets
+        assertThat(solvedScreens).isLessThan(readingOrderScreens)
+    }
+
+    private fun assertNoOverlap(solution: GridPlacementSolver.Solution, trgX: Int, trgY: Int) {
+        solution.placements
+            .groupBy { it.screenId }
+            .values
+            .forEach { placements ->
+                val occupancy = GridOccupancy(trgX, trgY)
+                placements.forEach {
+                    val cell = it.cell
+                    assertThat(
+                            occupancy.isRegionVacant(
+                                cell.cellX,
+                                cell.cellY,
+                                cell.spanX,
+                                cell.spanY,
+                            )
+                        )
+                        .isTrue()
+                    occupancy.markCells(cell, true)
+                }
+            }
+    }
+
+    private fun newEntry(spanX: Int, spanY: Int) =
+        DbEntry().apply {
+            id = nextId++
+            itemType = if (spanX * spanY > 1) ITEM_TYPE_APPWIDGET else ITEM_TYPE_APPLICATION
+            this.spanX = spanX
+            this.spanY = spanY
+            minSpanX = spanX
+            minSpanY = spanY
+        }
+
+    private var nextId = 1
+}
@@ -19,6 +19,7 @@ import android.content.ContentValues
 import android.content.Context
 import android.content.Intent
 import android.database.Cursor
+import android.database.DatabaseUtils
 import android.database.sqlite.SQLiteDatabase
 import android.graphics.Point
 import android.os.Process
@@ -1052,6 +1053,123 @@ class GridSizeMigrationTest {
         assertThat(locMap[testPackage5]).isEqualTo(0)
     }
 
+    @Test
+    @Throws(Exception::class)
+    @EnableFlags(Flags.FLAG_GRID_MIGRATION_REFACTOR)
+    fun migrateDenseLayoutRefactorFlagOn() {
+        migrateDenseLayout()
+    }
+
+    @Test
+    @Throws(Exception::class)
+    @DisableFlags(Flags.FLAG_GRID_MIGRATION_REFACTOR)
+    fun migrateDenseLayoutRefactorFlagOff() {
+        migrateDenseLayout()
+    }
+
+    /** Migrating a synthetic layout with 500+ items keeps every item and folder content */
+    @Throws(Exception::class)
+    fun migrateDenseLayout() {
+        enableNewMigrationLogic("5,5")
+
+        // Setup src grid: 20 full 5x5 screens, each with one folder of 4 items
+        var id = 100
+        var packageIndex = 0
+        for (screen in 0 until 20) {
+            for (cell in 0 until 25) {
+                if (cell == 0) {
+                    val folderId = id++
+                    addFolder(screen, folderId)
+                    repeat(4) {
+                        addItem(
+                            ITEM_TYPE_APPLICATION,
+                            0,
+                            folderId,
+                            0,
+                            0,
+                            "com.android.launcher3.dense${packageIndex++}",
+                            id++,
+                            TMP_TABLE,
+                        )
+                    }
+                } else {
+                    addItem(
+                        ITEM_TYPE_APPLICATION,
+                        screen,
+                        CONTAINER_DESKTOP,
+                        cell % 5,
+                        cell / 5,
+                        "com.android.launcher3.dense${packageIndex++}",
+                        id++,
+                        TMP_TABLE,
+                    )
+                }
+            }
+        }
+
+        idp.numDatabaseHotseatIcons = 4
+        idp.numColumns = 4
+        idp.numRows = 4
+        val srcReader = CountingDbReader(TMP_TABLE)
+        val destReader = CountingDbReader(TABLE_NAME)
+        migrateGrid(
+            dbHelper,
+            srcReader,
+            destReader,
+            5,
+            idp.numDatabaseHotseatIcons,
+            idp.numColumns,
+            idp.numRows,
+        )
+
+        val workspaceCount =
+            DatabaseUtils.queryNumEntries(db, TABLE_NAME, "container=$CONTAINER_DESKTOP")
+        val folderContentCount = DatabaseUtils.queryNumEntries(db, TABLE_NAME, "container>0")
+        assertThat(workspaceCount).isEqualTo(20 * 25)
+        assertThat(folderContentCount).isEqualTo(20 * 4)
+
+        // Every load reads the items and the contents of all the 20 folders with one query each,
+        // instead of one query per folder
+        for (reader in listOf(srcReader, destReader)) {
+            assertThat(reader.loadCount).isGreaterThan(0)
+            assertThat(reader.queryCount).isEqualTo(2 * reader.loadCount)
+        }
+    }
+
+    /** [DbReader] counting its loads and the queries they make */
+    private inner class CountingDbReader(tableName: String) : DbReader(db, tableName, context) {
+        var loadCount = 0
+        var queryCount = 0
+
+        override fun loadHotseatEntries(): MutableList<DbEntry> {
+            loadCount++
+            return super.loadHotseatEntries()
+        }
+
+        override fun loadAllWorkspaceEntries(): MutableList<DbEntry> {
+            loadCount++
+            return super.loadAllWorkspaceEntries()
+        }
+
+        override fun queryWorkspace(columns: Array<String>, where: String): Cursor {
+            queryCount++
+            return super.queryWorkspace(columns, where)
+        }
+    }
+
+    private fun addFolder(screen: Int, id: Int) {
+        val values = ContentValues()
+        values.put(_ID, id)
+        values.put(CONTAINER, CONTAINER_DESKTOP)
+        values.put(SCREEN, screen)
+        values.put(CELLX, 0)
+        values.put(CELLY, 0)
+        values.put(SPANX, 1)
+        values.put(SPANY, 1)
+        values.put(ITEM_TYPE, ITEM_TYPE_FOLDER)
+        db.insert(TMP_TABLE, null, values)
+    }
+
     private fun enableNewMigrationLogic(srcGridSize: String) {
         LauncherPrefs.get(context).putSync(WORKSPACE_SIZE.to(srcGridSize))
     }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model
+
+import android.os.Process.myUserHandle
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.LauncherModel.ModelUpdateTask
+import com.android.launcher3.pm.PackageInstallInfo
+import com.android.launcher3.pm.PackageInstallInfo.STATUS_FAILED
+import com.android.launcher3.pm.PackageInstallInfo.STATUS_INSTALLED
+import com.android.launcher3.pm.PackageInstallInfo.STATUS_INSTALLING
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [InstallProgressCoalescer] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class InstallProgressCoalescerTest {
+
+    private val tasks = mutableListOf<ModelUpdateTask>()
+    private val coalescer = InstallProgressCoalescer { tasks.add(it) }
+
+    @Test
+    fun progressUpdatesAreMergedPerPackage() {
+        repeat(10) { coalescer.onPackageStateChanged(newInfo(PACKAGE_1, STATUS_INSTALLING, it)) }
+        repeat(5) { coalescer.onPackageStateChanged(newInfo(PACKAGE_2, STATUS_INSTALLING, it)) }
+        assertThat(tasks).isEmpty()
+
+        coalescer.flush()
+
+        assertThat(tasks).hasSize(2)
+        assertThat(coalescer.coalescedCount).isEqualTo(13)
+    }
+
+    @Test
+    fun terminalStatesBypassThrottle() {
+        coalescer.onPackageStateChanged(newInfo(PACKAGE_1, STATUS_INSTALLING, 50))
+        coalescer.onPackageStateChanged(newInfo(PACKAGE_1, STATUS_INSTALLED, 100))
+        coalescer.onPackageStateChanged(newInfo(PACKAGE_2, STATUS_FAILED, 0))
+
+        assertThat(tasks).hasSize(2)
+        assertThat(coalescer.coalescedCount).isEqualTo(1)
+
+        // The pending progress was dropped by the terminal state
+        coalescer.flush()
+        assertThat(tasks).hasSize(2)
+    }
+
+    @Test
+    fun completedDownloadBypassesThrottle() {
+        coalescer.onPackageLoadingProgressChanged(PACKAGE_1, myUserHandle(), 0.2f)
+        coalescer.onPackageLoadingProgressChanged(PACKAGE_1, myUserHandle(), 0.5f)
+        assertThat(tasks).isEmpty()
+
+        coalescer.onPackageLoadingProgressChanged(PACKAGE_1, myUserHandle(), 1f)
+
+        assertThat(tasks).hasSize(1)
+        assertThat(tasks[0]).isInstanceOf(PackageIncrementalDownloadUpdatedTask::class.java)
+        coalescer.flush()
+        assertThat(tasks).hasSize(1)
+    }
+
+    @Test
+    fun discardPendingDropsUpdates() {
+        coalescer.onPackageLoadingProgressChanged(PACKAGE_1, myUserHandle(), 0.2f)
+        coalescer.onPackageStateChanged(newInfo(PACKAGE_2, STATUS_INSTALLING, 20))
+
+        coalescer.discardPending(PACKAGE_1, myUserHandle())
+        coalescer.flush()
+
+        assertThat(tasks).hasSize(1)
+        assertThat(tasks[0]).isInstanceOf(PackageInstallStateChangedTask::class.java)
+    }
+
+    private fun newInfo(packageName: String, state: Int, progress: Int) =
+        PackageInstallInfo(packageName, state, progress, myUserHandle())
+
+    companion object {
+        private const val PACKAGE_1 = "com.test.pending1"
+        private const val PACKAGE_2 = "com.test.pending2"
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model
+
+import android.view.Choreographer
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.model.BgDataModel.Callbacks
+import com.android.launcher3.model.ModelBindScheduler.Companion.FRAME_BUDGET_NANOS
+import com.android.launcher3.model.data.AppInfo
+import com.android.launcher3.model.data.ItemInfo
+import com.android.launcher3.model.data.WorkspaceItemInfo
+import com.android.launcher3.util.Executors.MAIN_EXECUTOR
+import com.android.launcher3.util.TestUtil
+import com.google.common.truth.Truth.assertThat
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.inOrder
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.verify
+
+/** Unit tests for [ModelBindScheduler] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class ModelBindSchedulerTest {
+
+    private val callbacks = mock<Callbacks>()
+    private val scheduler = ModelBindScheduler()
+
+    @Test
+    fun itemUpdatesAreMergedById() {
+        val item1 = newItem(1)
+        val item2 = newItem(2)
+        val item1Updated = newItem(1)
+
+        scheduler.scheduleItemsUpdated(arrayOf(callbacks), listOf(item1, item2))
+        scheduler.scheduleItemsUpdated(arrayOf(callbacks), listOf(item1Updated))
+        waitForMainThread()
+
+        val captor = argumentCaptor<Set<ItemInfo>>()
+        verify(callbacks).bindItemsUpdated(captor.capture())
+        assertThat(captor.firstValue).containsExactly(item1Updated, item2)
+        assertThat(scheduler.coalescedCount).isEqualTo(1)
+        assertThat(scheduler.bindCount).isEqualTo(1)
+    }
+
+    @Test
+    fun latestBindReplacesPendingOne() {
+        val oldApps = arrayOf<AppInfo>()
+        val newApps = arrayOf(AppInfo())
+
+        scheduler.scheduleLatest(KEY, arrayOf(callbacks)) {
+            it.bindAllApplications(oldApps, 0, emptyMap())
+        }
+        scheduler.scheduleLatest(KEY, arrayOf(callbacks)) {
+            it.bindAllApplications(newApps, 0, emptyMap())
+        }
+        waitForMainThread()
+
+        verify(callbacks).bindAllApplications(newApps, 0, emptyMap())
+        verify(callbacks, never()).bindAllApplications(oldApps, 0, emptyMap())
+    }
+
+    @Test
+    fun bindsAreNotMergedAcrossOtherBinds() {
+        val oldApps = arrayOf<AppInfo>()
+        val newApps = arrayOf(AppInfo())
+
+        scheduler.scheduleLatest(KEY, arrayOf(callbacks)) {
+            it.bindAllApplications(oldApps, 0, emptyMap())
+        }
+        scheduler.schedule(arrayOf(callbacks)) { it.bindWorkspaceComponentsRemoved { false } }
+        scheduler.scheduleLatest(KEY, arrayOf(callbacks)) {
+            it.bindAllApplications(newApps, 0, emptyMap())
+        }
+        waitForMainThread()
+
+        val order = inOrder(callbacks)
+        order.verify(callbacks).bindAllApplications(oldApps, 0, emptyMap())
+        order.verify(callbacks).bindWorkspaceComponentsRemoved(any())
+        order.verify(callbacks).bindAllApplications(newApps, 0, emptyMap())
+    }
+
+    @Test
+    fun keyedBindsAreNotMergedAcrossOtherKeyedBinds() {
+        val oldApps = arrayOf<AppInfo>()
+        val newApps = arrayOf(AppInfo())
+        val item = newItem(1)
+
+        scheduler.scheduleLatest(KEY, arrayOf(callbacks)) {
+            it.bindAllApplications(oldApps, 0, emptyMap())
+        }
+        scheduler.scheduleItemsUpdated(arrayOf(callbacks), listOf(item))
+        scheduler.scheduleLatest(KEY, arrayOf(callbacks)) {
+            it.bindAllApplications(newApps, 0, emptyMap())
+        }
+        waitForMainThread()
+
+        val order = inOrder(callbacks)
+        order.verify(callbacks).bindAllApplications(oldApps, 0, emptyMap())
+        order.verify(callbacks).bindItemsUpdated(setOf(item))
+        order.verify(callbacks).bindAllApplications(newApps, 0, emptyMap())
+        assertThat(scheduler.coalescedCount).isEqualTo(0)
+    }
+
+    @Test
+    fun flush_onlyRunsBindsBeforeBarrier() {
+        TestUtil.runOnExecutorSync(MAIN_EXECUTOR) {
+            scheduler.scheduleItemsUpdated(arrayOf(callbacks), listOf(newItem(1)))
+            val barrier = scheduler.addBarrier()
+            scheduler.schedule(arrayOf(callbacks)) { it.bindWorkspaceComponentsRemoved { false } }
+
+            scheduler.flush(barrier)
+
+            verify(callbacks).bindItemsUpdated(any())
+            verify(callbacks, never()).bindWorkspaceComponentsRemoved(any())
+            assertThat(scheduler.hasPendingBinds()).isTrue()
+        }
+        waitForMainThread()
+
+        verify(callbacks).bindWorkspaceComponentsRemoved(any())
+        assertThat(scheduler.hasPendingBinds()).isFalse()
+    }
+
+    @Test
+    fun bindsOverBudget_areDeferredToNextFrame() {
+        // Schedule both binds before the main thread can run the first one
+        TestUtil.runOnExecutorSync(MAIN_EXECUTOR) {
+            scheduler.schedule(arrayOf(callbacks)) {
+                Thread.sleep(TimeUnit.NANOSECONDS.toMillis(FRAME_BUDGET_NANOS) + 1)
+                it.bindWorkspaceComponentsRemoved { false }
+            }
+            scheduler.scheduleItemsUpdated(arrayOf(callbacks), listOf(newItem(1)))
+        }
+        waitForMainThread()
+
+        verify(callbacks).bindWorkspaceComponentsRemoved(any())
+        verify(callbacks, never()).bindItemsUpdated(any())
+        assertThat(scheduler.hasPendingBinds()).isTrue()
+
+        waitForFrame()
+        verify(callbacks).bindItemsUpdated(any())
+        assertThat(scheduler.hasPendingBinds()).isFalse()
+    }
+
+    /** Waits until the messages posted to the main thread so far have run */
+    private fun waitForMainThread() = TestUtil.runOnExecutorSync(MAIN_EXECUTOR) {}
+
+    /** Waits until the frame callbacks posted so far have run */
+    private fun waitForFrame() {
+        val latch = CountDownLatch(1)
+        MAIN_EXECUTOR.execute {
+            Choreographer.getInstance().postFrameCallback { latch.countDown() }
+        }
+        assertThat(latch.await(1, TimeUnit.SECONDS)).isTrue()
+    }
+
+    private fun newItem(itemId: Int) = WorkspaceItemInfo().apply { id = itemId }
+
+    companion object {
+        private const val KEY = "test_key"
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model
+
+import android.content.ComponentName
+import android.content.Intent
+import android.os.Process.myUserHandle
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.InvariantDeviceProfile
+import com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP
+import com.android.launcher3.LauncherSettings.Favorites.CONTAINER_HOTSEAT
+import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_DEEP_SHORTCUT
+import com.android.launcher3.model.data.FolderInfo
+import com.android.launcher3.model.data.ItemInfo
+import com.android.launcher3.model.data.LauncherAppWidgetInfo
+import com.android.launcher3.model.data.WorkspaceItemInfo
+import com.android.launcher3.pm.UserCache
+import com.android.launcher3.util.LauncherModelHelper.SandboxModelContext
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+
+/** Unit tests for [ModelSnapshotStore] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class ModelSnapshotStoreTest {
+
+    private val context = SandboxModelContext()
+    private val idp =
+        mock<InvariantDeviceProfile>().apply {
+            dbFile = "snapshot_test.db"
+            numColumns = 5
+            numRows = 5
+            numDatabaseHotseatIcons = 5
+        }
+    private val userCache =
+        mock<UserCache> {
+            on { getSerialNumberForUser(any()) } doReturn 0L
+            on { getUserForSerialNumber(0L) } doReturn myUserHandle()
+        }
+
+    @After
+    fun tearDown() {
+        context.destroy()
+    }
+
+    @Test
+    fun writtenItemsAreRestoredOnColdStart() {
+        val folder = newFolder(id = 2)
+        newStore()
+            .write(
+                listOf(
+                    newApp(id = 1, container = CONTAINER_DESKTOP, cellX = 3),
+                    folder,
+                    newApp(id = 3, container = folder.id, rank = 1),
+                    newApp(id = 4, container = folder.id, rank = 0),
+                    newApp(id = 5, container = CONTAINER_HOTSEAT),
+                    newWidget(id = 6),
+                )
+            )
+
+        val store = newStore()
+        val items = store.createItems(store.readForColdStart()!!)
+
+        assertThat(items.size()).isEqualTo(6)
+        val app = items.get(1) as WorkspaceItemInfo
+        assertThat(app.cellX).isEqualTo(3)
+        assertThat(app.title.toString()).isEqualTo("App 1")
+        assertThat(app.targetComponent).isEqualTo(ComponentName("pkg1", "Activity"))
+        assertThat((items.get(2) as FolderInfo).getContents().map { it.id })
+            .containsExactly(4, 3)
+            .inOrder()
+        val widget = items.get(6) as LauncherAppWidgetInfo
+        assertThat(widget.appWidgetId).isEqualTo(42)
+        assertThat(widget.spanX).isEqualTo(4)
+        assertThat(widget.minSpanY).isEqualTo(2)
+    }
+
+    @Test
+    fun snapshotIsOnlyReadOnce() {
+        newStore().write(listOf(newApp(id = 1, container = CONTAINER_DESKTOP)))
+
+        val store = newStore()
+        assertThat(store.readForColdStart()).hasSize(1)
+        assertThat(store.readForColdStart()).isNull()
+    }
+
+    @Test
+    fun snapshotOfOtherGridIsIgnored() {
+        newStore().write(listOf(newApp(id = 1, container = CONTAINER_DESKTOP)))
+
+        idp.numColumns = 4
+
+        assertThat(newStore().readForColdStart()).isNull()
+    }
+
+    @Test
+    fun unsupportedItemsAreSkipped() {
+        val shortcut =
+            newApp(id = 2, container = CONTAINER_DESKTOP).apply {
+                itemType = ITEM_TYPE_DEEP_SHORTCUT
+            }
+        newStore().write(listOf(newApp(id = 1, container = CONTAINER_DESKTOP), shortcut))
+
+        assertThat(newStore().readForColdStart()!!.map { it.id }).containsExactly(1)
+    }
+
+    @Test
+    fun invalidateRemovesSnapshot() {
+        val store = newStore()
+        store.write(listOf(newApp(id = 1, container = CONTAINER_DESKTOP)))
+
+        store.invalidate()
+
+        assertThat(newStore().readForColdStart()).isNull()
+    }
+
+    private fun newStore() = ModelSnapshotStore(context, idp, userCache)
+
+    private fun newApp(id: Int, container: Int, cellX: Int = 0, rank: Int = 0) =
+        WorkspaceItemInfo().apply {
+            this.id = id
+            this.container = container
+            this.cellX = cellX
+            this.rank = rank
+            title = "App $id"
+            intent = Intent(Intent.ACTION_MAIN).setComponent(ComponentName("pkg$id", "Activity"))
+            user = myUserHandle()
+        }
+
+    private fun newFolder(id: Int) =
+        FolderInfo().apply {
+            this.id = id
+            container = CONTAINER_DESKTOP
+            title = "Folder"
+            user = myUserHandle()
+        }
+
+    private fun newWidget(id: Int): ItemInfo =
+        LauncherAppWidgetInfo(42, ComponentName("widget", "Provider")).apply {
+            this.id = id
+            container = CONTAINER_DESKTOP
+            spanX = 4
+            spanY = 2
+            minSpanX = 2
+            minSpanY = 2
+            user = myUserHandle()
+        }
+}
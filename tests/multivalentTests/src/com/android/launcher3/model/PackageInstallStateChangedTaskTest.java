@@ -24,6 +24,9 @@ import static com.android.launcher3.util.TestUtil.runOnExecutorSync;
 
 import static org.junit.Assert.assertEquals;
 
+import android.content.ComponentName;
+import android.content.Intent;
+
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.SmallTest;
 
@@ -122,6 +125,35 @@ public class PackageInstallStateChangedTaskTest {
         });
     }
 
+    @Test
+    public void testSessionUpdate_onlyVisitsItemsOfPackage() {
+        int[] visitCount = new int[1];
+        WorkspaceItemInfo otherItem = new WorkspaceItemInfo() {
+            @Override
+            public String getTargetPackage() {
+                visitCount[0]++;
+                return super.getTargetPackage();
+            }
+        };
+        otherItem.id = 100;
+        otherItem.user = android.os.Process.myUserHandle();
+        otherItem.intent = new Intent().setComponent(
+                new ComponentName(PENDING_APP_2, TEST_ACTIVITY));
+
+        // Run on model executor so that no other task runs in the middle.
+        runOnExecutorSync(MODEL_EXECUTOR, () -> {
+            mModelHelper.getBgDataModel().updateAndDispatchItem(otherItem, null);
+            visitCount[0] = 0;
+
+            mModelHelper.getModel().enqueueModelUpdateTask(newTask(PENDING_APP_1, 30));
+
+            // The items of other packages are not visited
+            assertEquals(0, visitCount[0]);
+            assertEquals(30, ((WorkspaceItemInfo) mModelHelper.getBgDataModel().itemsIdMap
+                    .get(4)).getProgressLevel());
+        });
+    }
+
     private void verifyProgressUpdate(int progress, int... idsUpdated) {
         IntSet updates = IntSet.wrap(idsUpdated);
         for (ItemInfo info : mModelHelper.getBgDataModel().itemsIdMap) {
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model
+
+import android.content.ComponentName
+import android.content.Intent
+import android.os.Process
+import android.os.UserHandle
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.model.data.PredictedContainerInfo
+import com.android.launcher3.model.data.WorkspaceItemInfo
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [PackageUserIndex] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class PackageUserIndexTest {
+
+    private val user = Process.myUserHandle()
+    private val otherUser = UserHandle.of(user.identifier + 1)
+
+    @Test
+    fun itemsAreFoundByPackageAndUser() {
+        val index = PackageUserIndex()
+        index.rebuild(
+            listOf(newItem(1, "a", user), newItem(2, "b", user), newItem(3, "a", otherUser))
+        )
+
+        assertThat(index.getItemIds(listOf("a"), user).array.toArray()).asList().containsExactly(1)
+        assertThat(index.getItemIds(listOf("a", "b"), user).size()).isEqualTo(2)
+        assertThat(index.getItemIds(listOf("c"), user).isEmpty).isTrue()
+    }
+
+    @Test
+    fun updatedItemIsReindexed() {
+        val index = PackageUserIndex()
+        index.add(newItem(1, "a", user))
+
+        index.add(newItem(1, "b", user))
+
+        assertThat(index.getItemIds(listOf("a"), user).isEmpty).isTrue()
+        assertThat(index.getItemIds(listOf("b"), user).contains(1)).isTrue()
+    }
+
+    @Test
+    fun removedItemIsNotFound() {
+        val index = PackageUserIndex()
+        index.add(newItem(1, "a", user))
+
+        index.remove(1)
+
+        assertThat(index.getItemIds(listOf("a"), user).isEmpty).isTrue()
+    }
+
+    @Test
+    fun predictedContainerIsIndexedByContents() {
+        val index = PackageUserIndex()
+        index.add(
+            PredictedContainerInfo(10, listOf(newItem(11, "a", user), newItem(12, "b", user)))
+        )
+
+        assertThat(index.getItemIds(listOf("a"), user).contains(10)).isTrue()
+        assertThat(index.getItemIds(listOf("b"), user).contains(10)).isTrue()
+    }
+
+    @Test
+    fun indexLookupDoesNotVisitItems() {
+        var visitCount = 0
+        val items =
+            List(ITEM_COUNT) {
+                object : WorkspaceItemInfo() {
+                        override fun getTargetPackage(): String? {
+                            visitCount++
+                            return super.getTargetPackage()
+                        }
+                    }
+                    .apply {
+                        id = it
+                        user = this@PackageUserIndexTest.user
+                        intent = newIntent("package${it % PACKAGE_COUNT}")
+                    }
+            }
+        val index = PackageUserIndex()
+        index.rebuild(items)
+        assertThat(visitCount).isEqualTo(ITEM_COUNT)
+
+        visitCount = 0
+        repeat(PACKAGE_COUNT) { i ->
+            val indexed = index.getItemIds(setOf("package$i"), user)
+            assertThat(indexed.array.toArray())
+                .asList()
+                .containsExactlyElementsIn((i until ITEM_COUNT step PACKAGE_COUNT).toList())
+        }
+        // A full scan would visit every item for every package
+        assertThat(visitCount).isEqualTo(0)
+    }
+
+    private fun newItem(id: Int, packageName: String, user: UserHandle) =
+        WorkspaceItemInfo().apply {
+            this.id = id
+            this.user = user
+            intent = newIntent(packageName)
+        }
+
+    private fun newIntent(packageName: String) =
+        Intent().setComponent(ComponentName(packageName, "$packageName.Activity"))
+
+    companion object {
+        private const val ITEM_COUNT = 1000
+        private const val PACKAGE_COUNT = 100
+    }
+}
@@ -38,7 +38,6 @@ import com.android.launcher3.model.data.ItemInfo
 import com.android.launcher3.model.data.WorkspaceItemInfo
 import com.android.launcher3.shortcuts.ShortcutKey
 import com.android.launcher3.util.ComponentKey
-import com.android.launcher3.util.IntSparseArrayMap
 import com.android.launcher3.util.LauncherModelHelper
 import com.android.launcher3.util.LauncherModelHelper.SandboxModelContext
 import com.google.common.truth.Truth.assertThat
@@ -114,8 +113,7 @@ class ShortcutsChangedTaskTest {
                     whenever(id).thenReturn(expectedShortcutId)
                 }
             )
-        val items: IntSparseArrayMap<ItemInfo> = modelHelper.bgDataModel.itemsIdMap
-        items.put(expectedWai.id, expectedWai)
+        modelHelper.bgDataModel.updateAndDispatchItem(expectedWai, null)
         doReturn(
                 ApplicationInfo().apply {
                     enabled = true
@@ -144,8 +142,7 @@ class ShortcutsChangedTaskTest {
                     whenever(id).thenReturn(expectedShortcutId)
                 }
             )
-        val items: IntSparseArrayMap<ItemInfo> = modelHelper.bgDataModel.itemsIdMap
-        items.put(expectedWai.id, expectedWai)
+        modelHelper.bgDataModel.updateAndDispatchItem(expectedWai, null)
         doReturn(
                 ApplicationInfo().apply {
                     enabled = true
@@ -177,8 +174,7 @@ class ShortcutsChangedTaskTest {
                     whenever(id).thenReturn(expectedShortcutId)
                 }
             )
-        val items: IntSparseArrayMap<ItemInfo> = modelHelper.bgDataModel.itemsIdMap
-        items.put(expectedWai.id, expectedWai)
+        modelHelper.bgDataModel.updateAndDispatchItem(expectedWai, null)
         doReturn(
                 ApplicationInfo().apply {
                     enabled = true
@@ -206,8 +202,7 @@ class ShortcutsChangedTaskTest {
                     whenever(id).thenReturn(expectedShortcutId)
                 }
             )
-        val items: IntSparseArrayMap<ItemInfo> = modelHelper.bgDataModel.itemsIdMap
-        items.put(expectedWai.id, expectedWai)
+        modelHelper.bgDataModel.updateAndDispatchItem(expectedWai, null)
         doReturn(
                 ApplicationInfo().apply {
                     enabled = true
@@ -236,8 +231,7 @@ class ShortcutsChangedTaskTest {
                     whenever(id).thenReturn(expectedShortcutId)
                 }
             )
-        val items: IntSparseArrayMap<ItemInfo> = modelHelper.bgDataModel.itemsIdMap
-        items.put(expectedWai.id, expectedWai)
+        modelHelper.bgDataModel.updateAndDispatchItem(expectedWai, null)
         doReturn(
                 ApplicationInfo().apply {
                     enabled = true
@@ -266,8 +260,7 @@ class ShortcutsChangedTaskTest {
                     whenever(id).thenReturn(expectedShortcutId)
                 }
             )
-        val items: IntSparseArrayMap<ItemInfo> = modelHelper.bgDataModel.itemsIdMap
-        items.put(expectedWai.id, expectedWai)
+        modelHelper.bgDataModel.updateAndDispatchItem(expectedWai, null)
         doReturn(
                 ApplicationInfo().apply {
                     enabled = true
@@ -356,8 +349,7 @@ class ShortcutsChangedTaskTest {
                     whenever(id).thenReturn(expectedShortcutId)
                 }
             )
-        val items: IntSparseArrayMap<ItemInfo> = modelHelper.bgDataModel.itemsIdMap
-        items.put(expectedWai.id, expectedWai)
+        modelHelper.bgDataModel.updateAndDispatchItem(expectedWai, null)
         doReturn(
                 ApplicationInfo().apply {
                     enabled = true
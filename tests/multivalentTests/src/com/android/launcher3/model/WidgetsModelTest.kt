@@ -38,6 +38,7 @@ import com.android.launcher3.util.IntSet
 import com.android.launcher3.util.PackageUserKey
 import com.android.launcher3.util.WidgetUtils.createAppWidgetProviderInfo
 import com.android.launcher3.widget.LauncherAppWidgetProviderInfo
+import com.android.launcher3.widget.WidgetPreviewCache
 import com.android.launcher3.widget.WidgetSections
 import com.android.launcher3.widget.WidgetSections.NO_CATEGORY
 import com.google.common.truth.Truth.assertThat
@@ -63,6 +64,7 @@ class WidgetsModelTest {
 
     @Mock private lateinit var appWidgetManager: AppWidgetManager
     @Mock private lateinit var iconCacheMock: IconCache
+    @Mock private lateinit var previewCacheMock: WidgetPreviewCache
 
     private lateinit var context: Context
     private lateinit var idp: InvariantDeviceProfile
@@ -124,7 +126,7 @@ class WidgetsModelTest {
         val userCache = spy(UserCache.INSTANCE.get(context))
         whenever(userCache.userProfiles).thenReturn(listOf(UserHandle.CURRENT))
 
-        underTest = WidgetsModel(context, idp, iconCacheMock, AppFilter(context))
+        underTest = WidgetsModel(context, idp, iconCacheMock, AppFilter(context), previewCacheMock)
     }
 
     @Test
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.model.data
+
+import android.util.SparseArray
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.model.data.SharedItemMap.Companion.MAX_CHUNK_SIZE
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [SharedItemMap] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class SharedItemMapTest {
+
+    @Test
+    fun items_are_iterated_in_id_order() {
+        var map = SharedItemMap.EMPTY
+        listOf(5, 1, 3, 2, 4).forEach { map = map.put(newItem(it)) }
+
+        assertThat(map.map { it.id }).containsExactly(1, 2, 3, 4, 5).inOrder()
+        assertThat(map.size).isEqualTo(5)
+        assertThat(map[3]!!.id).isEqualTo(3)
+        assertThat(map[6]).isNull()
+    }
+
+    @Test
+    fun previous_version_is_unchanged_by_updates() {
+        val first = SharedItemMap.of(newItems(100))
+        val replacement = newItem(10)
+
+        val second = first.put(replacement).remove(20).put(newItem(500))
+
+        assertThat(first.size).isEqualTo(100)
+        assertThat(first[10]).isNotSameInstanceAs(replacement)
+        assertThat(first[20]).isNotNull()
+        assertThat(first[500]).isNull()
+        assertThat(second.size).isEqualTo(100)
+        assertThat(second[10]).isSameInstanceAs(replacement)
+        assertThat(second[20]).isNull()
+        assertThat(second[500]).isNotNull()
+    }
+
+    @Test
+    fun putting_same_item_returns_same_map() {
+        val map = SharedItemMap.of(newItems(10))
+
+        assertThat(map.put(map[5]!!)).isSameInstanceAs(map)
+        assertThat(map.remove(50)).isSameInstanceAs(map)
+    }
+
+    @Test
+    fun full_chunk_is_split() {
+        var map = SharedItemMap.EMPTY
+        for (id in 0..MAX_CHUNK_SIZE) map = map.put(newItem(id))
+
+        assertThat(map.chunkCount).isEqualTo(2)
+        assertThat(map.map { it.id }).isEqualTo((0..MAX_CHUNK_SIZE).toList())
+    }
+
+    @Test
+    fun removing_all_items_leaves_empty_map() {
+        var map = SharedItemMap.of(newItems(200))
+        for (id in 0 until 200) map = map.remove(id)
+
+        assertThat(map.size).isEqualTo(0)
+        assertThat(map.chunkCount).isEqualTo(0)
+        assertThat(map.iterator().hasNext()).isFalse()
+    }
+
+    @Test
+    fun adding_to_created_map_does_not_split_chunks() {
+        val map = SharedItemMap.of(newItems(1000))
+
+        assertThat(map.put(newItem(2000)).chunkCount).isEqualTo(map.chunkCount)
+    }
+
+    private fun newItems(count: Int) =
+        SparseArray<ItemInfo>().apply { for (i in 0 until count) put(i, newItem(i)) }
+
+    private fun newItem(id: Int) = ItemInfo().apply { this.id = id }
+}
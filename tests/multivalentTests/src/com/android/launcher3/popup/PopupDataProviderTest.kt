@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.popup
+
+import android.content.ComponentName
+import android.content.Intent
+import android.os.Process.myUserHandle
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.BubbleTextView
+import com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION
+import com.android.launcher3.folder.FolderIcon
+import com.android.launcher3.model.data.ItemInfo
+import com.android.launcher3.model.data.WorkspaceItemInfo
+import com.android.launcher3.notification.NotificationKeyData
+import com.android.launcher3.util.Executors.MAIN_EXECUTOR
+import com.android.launcher3.util.PackageUserKey
+import com.android.launcher3.util.TestUtil
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.whenever
+
+/** Unit tests for the notification dots of [PopupDataProvider] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class PopupDataProviderTest {
+
+    private val provider = PopupDataProvider(mock())
+    private val appA = newApp(PACKAGE_A)
+    private val appB = newApp(PACKAGE_B)
+    private val keyA = PackageUserKey.fromItemInfo(appA)
+
+    @Test
+    fun notificationChanges_areAppliedOncePerFrame() {
+        val iconA = newIcon(appA)
+        val iconB = newIcon(appB)
+
+        TestUtil.runOnExecutorSync(MAIN_EXECUTOR) {
+            provider.onNotificationPosted(keyA, NotificationKeyData("n1"))
+            provider.onNotificationPosted(keyA, NotificationKeyData("n2"))
+            provider.onNotificationRemoved(keyA, NotificationKeyData("n1"))
+            provider.applyPendingDotUpdates()
+        }
+
+        verify(iconA, times(1)).applyDotState(appA, true)
+        verify(iconB, never()).applyDotState(any(), any())
+        assertThat(provider.getDotInfoForItem(appA)!!.notificationCount).isEqualTo(1)
+    }
+
+    @Test
+    fun unchangedNotification_doesNotUpdateIcons() {
+        val iconA = newIcon(appA)
+        TestUtil.runOnExecutorSync(MAIN_EXECUTOR) {
+            provider.onNotificationPosted(keyA, NotificationKeyData("n1"))
+            provider.applyPendingDotUpdates()
+        }
+
+        TestUtil.runOnExecutorSync(MAIN_EXECUTOR) {
+            provider.onNotificationPosted(keyA, NotificationKeyData("n1"))
+            provider.onNotificationRemoved(keyA, NotificationKeyData("unknown"))
+            provider.applyPendingDotUpdates()
+        }
+
+        verify(iconA, times(1)).applyDotState(appA, true)
+    }
+
+    @Test
+    fun reboundIcon_isOnlyUpdatedForItsNewPackage() {
+        val icon = newIcon(appA)
+        whenever(icon.tag).thenReturn(appB)
+        provider.registerDotView(icon, listOf<ItemInfo>(appB))
+
+        TestUtil.runOnExecutorSync(MAIN_EXECUTOR) {
+            provider.onNotificationPosted(keyA, NotificationKeyData("n1"))
+            provider.applyPendingDotUpdates()
+        }
+        verify(icon, never()).applyDotState(any(), any())
+
+        TestUtil.runOnExecutorSync(MAIN_EXECUTOR) {
+            provider.onNotificationPosted(
+                PackageUserKey.fromItemInfo(appB),
+                NotificationKeyData("n2"),
+            )
+            provider.applyPendingDotUpdates()
+        }
+        verify(icon, times(1)).applyDotState(appB, true)
+    }
+
+    @Test
+    fun folderIcon_isUpdatedOnceForAllItsPackages() {
+        val folderIcon = mock<FolderIcon>()
+        provider.registerDotView(folderIcon, listOf<ItemInfo>(appA, appB))
+
+        TestUtil.runOnExecutorSync(MAIN_EXECUTOR) {
+            provider.onNotificationPosted(keyA, NotificationKeyData("n1"))
+            provider.onNotificationPosted(
+                PackageUserKey.fromItemInfo(appB),
+                NotificationKeyData("n2"),
+            )
+            provider.applyPendingDotUpdates()
+        }
+
+        verify(folderIcon, times(1)).updateDotInfo()
+    }
+
+    private fun newIcon(info: ItemInfo): BubbleTextView =
+        mock<BubbleTextView>().also {
+            whenever(it.tag).thenReturn(info)
+            provider.registerDotView(it, listOf(info))
+        }
+
+    private fun newApp(packageName: String) =
+        WorkspaceItemInfo().apply {
+            itemType = ITEM_TYPE_APPLICATION
+            user = myUserHandle()
+            intent = Intent().setComponent(ComponentName(packageName, "$packageName.Main"))
+        }
+
+    companion object {
+        private const val PACKAGE_A = "com.test.dots.a"
+        private const val PACKAGE_B = "com.test.dots.b"
+    }
+}
@@ -21,6 +21,7 @@ import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentat
 
 import static com.android.launcher3.LauncherPrefs.APP_WIDGET_IDS;
 import static com.android.launcher3.LauncherPrefs.OLD_APP_WIDGET_IDS;
+import static com.android.launcher3.LauncherPrefs.RESTORE_CHECKPOINT;
 import static com.android.launcher3.LauncherPrefs.RESTORE_DEVICE;
 import static com.android.launcher3.LauncherSettings.Favorites.CONTAINER_DESKTOP;
 import static com.android.launcher3.LauncherSettings.Favorites.ITEM_TYPE_APPLICATION;
@@ -29,10 +30,12 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -48,6 +51,7 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.os.UserHandle;
 import android.os.UserManager;
+import android.util.LongSparseArray;
 
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.SmallTest;
@@ -136,7 +140,7 @@ public class RestoreDbTaskTest {
             mWidgetHost.deleteHost();
         }
         mModelHelper.destroy();
-        LauncherPrefs.get(mContext).removeSync(RESTORE_DEVICE);
+        LauncherPrefs.get(mContext).removeSync(RESTORE_DEVICE, RESTORE_CHECKPOINT);
     }
 
     @Test
@@ -146,7 +150,7 @@ public class RestoreDbTaskTest {
     }
 
     @Test
-    public void testMigrateProfileId() throws Exception {
+    public void testMigrateProfileIds() throws Exception {
         mDb = getModelDbController(42).getDb();
         // Add some mock data
         for (int i = 0; i < 5; i++) {
@@ -158,13 +162,51 @@ public class RestoreDbTaskTest {
         // Verify item add
         assertEquals(5, getCount(mDb, "select * from favorites where profileId = 42"));
 
-        new RestoreDbTask().migrateProfileId(mDb, 42, 33);
+        LongSparseArray<Long> profileMapping = new LongSparseArray<>();
+        profileMapping.put(42, 33L);
+        new RestoreDbTask().migrateProfileIds(mDb, profileMapping);
 
         // verify data migrated
         assertEquals(0, getCount(mDb, "select * from favorites where profileId = 42"));
         assertEquals(5, getCount(mDb, "select * from favorites where profileId = 33"));
     }
 
+    @Test
+    public void testMigrateProfileIds_swappedIds() throws Exception {
+        mDb = getModelDbController(42).getDb();
+        // Add some mock data, 3 items in profile 42 and 2 in profile 33
+        for (int i = 0; i < 5; i++) {
+            ContentValues values = new ContentValues();
+            values.put(Favorites._ID, i);
+            values.put(Favorites.TITLE, "item " + i);
+            values.put(Favorites.PROFILE_ID, i < 3 ? 42 : 33);
+            mDb.insert(Favorites.TABLE_NAME, null, values);
+        }
+
+        LongSparseArray<Long> profileMapping = new LongSparseArray<>();
+        profileMapping.put(42, 33L);
+        profileMapping.put(33, 42L);
+        new RestoreDbTask().migrateProfileIds(mDb, profileMapping);
+
+        // verify ids swapped
+        assertEquals(2, getCount(mDb, "select * from favorites where profileId = 42"));
+        assertEquals(3, getCount(mDb, "select * from favorites where profileId = 33"));
+    }
+
+    @Test
+    public void testPerformRestore_resumesAfterCheckpoint() throws Exception {
+        ModelDbController controller = getModelDbController(42);
+        mPrefs.putSync(RESTORE_CHECKPOINT.to(RestoreDbTask.PHASE_SANITIZE_DB));
+        RestoreDbTask task = spy(new RestoreDbTask());
+
+        assertTrue(RestoreDbTask.performRestore(mContext, controller, task));
+
+        // The db was already sanitized, only the widget ids are restored
+        verify(task, never()).sanitizeDB(any(), any(), any(), any(), any());
+        verify(task).restoreAppWidgetIdsIfExists(eq(mContext), eq(controller), any(), any());
+        assertEquals(RestoreDbTask.PHASE_RESTORE_WIDGET_IDS, (int) mPrefs.get(RESTORE_CHECKPOINT));
+    }
+
     @Test
     public void testChangeDefaultColumn() throws Exception {
         mDb = getModelDbController(42).getDb();
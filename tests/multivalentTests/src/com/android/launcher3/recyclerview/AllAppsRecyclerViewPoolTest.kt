@@ -16,6 +16,10 @@
 
 package com.android.launcher3.recyclerview
 
+import android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+import android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+import android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE
+import android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
 import android.content.Context
 import android.view.View
 import android.view.ViewGroup
@@ -24,6 +28,7 @@ import androidx.recyclerview.widget.RecyclerView.LayoutManager
 import androidx.recyclerview.widget.RecyclerView.ViewHolder
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.SmallTest
+import com.android.launcher3.allapps.BaseAllAppsAdapter.VIEW_TYPE_ICON
 import com.android.launcher3.util.Executors
 import com.android.launcher3.views.ActivityContext
 import com.google.common.truth.Truth.assertThat
@@ -109,6 +114,39 @@ class AllAppsRecyclerViewPoolTest<T> where T : Context, T : ActivityContext {
         assertThat(underTest.getRecycledViewCount(VIEW_TYPE)).isEqualTo(0)
     }
 
+    @Test
+    fun mainThreadInflation_countedOnlyOnPoolMiss() {
+        underTest.setMaxRecycledViews(VIEW_TYPE_ICON, 20)
+
+        Executors.MAIN_EXECUTOR.submit { underTest.getRecycledView(VIEW_TYPE_ICON) }.get()
+        assertThat(underTest.mainThreadInflationCount).isEqualTo(1)
+
+        underTest.preInflateAllAppsViewHolders(adapter, VIEW_TYPE_ICON, parent, 5) { 5 }
+        awaitTasksCompleted()
+        Executors.MAIN_EXECUTOR.submit { underTest.getRecycledView(VIEW_TYPE_ICON) }.get()
+
+        assertThat(underTest.mainThreadInflationCount).isEqualTo(1)
+        assertThat(underTest.getRecycledViewCount(VIEW_TYPE_ICON)).isEqualTo(4)
+    }
+
+    @Test
+    fun trimMemory_cancelsPreinflationUnderPressure() {
+        underTest.preInflateAllAppsViewHolders(adapter, VIEW_TYPE, parent, 10) { 10 }
+
+        underTest.onTrimMemory(TRIM_MEMORY_UI_HIDDEN)
+        assertThat(underTest.mCancellableTask!!.canceled).isFalse()
+
+        underTest.onTrimMemory(TRIM_MEMORY_RUNNING_CRITICAL)
+        assertThat(underTest.mCancellableTask!!.canceled).isTrue()
+    }
+
+    @Test
+    fun memoryPressureLevels() {
+        assertThat(AllAppsRecyclerViewPool.isMemoryPressure(TRIM_MEMORY_RUNNING_MODERATE)).isFalse()
+        assertThat(AllAppsRecyclerViewPool.isMemoryPressure(TRIM_MEMORY_RUNNING_LOW)).isTrue()
+        assertThat(AllAppsRecyclerViewPool.isMemoryPressure(TRIM_MEMORY_UI_HIDDEN)).isFalse()
+    }
+
     private fun awaitTasksCompleted() {
         Executors.VIEW_PREINFLATION_EXECUTOR.submit<Any> { null }.get()
         Executors.MAIN_EXECUTOR.submit<Any> { null }.get()
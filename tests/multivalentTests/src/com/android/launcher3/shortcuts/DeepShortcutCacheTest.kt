@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.shortcuts
+
+import android.content.ComponentName
+import android.content.pm.ShortcutInfo
+import android.os.Process.myUserHandle
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import androidx.test.platform.app.InstrumentationRegistry.getInstrumentation
+import com.android.launcher3.icons.BitmapInfo
+import com.android.launcher3.shortcuts.DeepShortcutCache.PopupShortcut
+import com.android.launcher3.util.ComponentKey
+import com.android.launcher3.util.Executors.MODEL_EXECUTOR
+import com.android.launcher3.util.TestUtil
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [DeepShortcutCache] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class DeepShortcutCacheTest {
+
+    private val loadedKeys = ArrayList<ComponentKey>()
+    private var shortcutCount = 1
+    private val cache = DeepShortcutCache { key ->
+        loadedKeys.add(key)
+        List(shortcutCount) { PopupShortcut(newShortcut("s$it"), BitmapInfo.LOW_RES_INFO) }
+    }
+    private val user = myUserHandle()
+
+    @Test
+    fun prefetchedShortcutsAreNotLoadedAgain() {
+        cache.prefetch(ACTIVITY_A, user)
+
+        val shortcuts = getShortcuts(ACTIVITY_A)
+
+        assertThat(shortcuts).hasSize(1)
+        assertThat(loadedKeys).containsExactly(ComponentKey(ACTIVITY_A, user))
+    }
+
+    @Test
+    fun invalidateRemovesShortcutsOfPackage() {
+        getShortcuts(ACTIVITY_A)
+        getShortcuts(ACTIVITY_B)
+
+        cache.invalidate(ACTIVITY_A.packageName, user)
+        getShortcuts(ACTIVITY_A)
+        getShortcuts(ACTIVITY_B)
+
+        assertThat(loadedKeys.map { it.componentName })
+            .containsExactly(ACTIVITY_A, ACTIVITY_B, ACTIVITY_A)
+            .inOrder()
+    }
+
+    @Test
+    fun clearRemovesShortcutsOfAllPackages() {
+        getShortcuts(ACTIVITY_A)
+        getShortcuts(ACTIVITY_B)
+
+        cache.clear()
+        getShortcuts(ACTIVITY_A)
+        getShortcuts(ACTIVITY_B)
+
+        assertThat(loadedKeys.map { it.componentName })
+            .containsExactly(ACTIVITY_A, ACTIVITY_B, ACTIVITY_A, ACTIVITY_B)
+            .inOrder()
+    }
+
+    @Test
+    fun emptyResultIsLoadedAgain() {
+        shortcutCount = 0
+        getShortcuts(ACTIVITY_A)
+        shortcutCount = 2
+
+        assertThat(getShortcuts(ACTIVITY_A)).hasSize(2)
+        assertThat(loadedKeys).hasSize(2)
+    }
+
+    @Test
+    fun cacheIsBounded() {
+        repeat(DeepShortcutCache.MAX_ENTRIES + 1) {
+            getShortcuts(ComponentName(ACTIVITY_A.packageName, "Activity$it"))
+        }
+
+        // The first entry was evicted
+        getShortcuts(ComponentName(ACTIVITY_A.packageName, "Activity0"))
+
+        assertThat(loadedKeys).hasSize(DeepShortcutCache.MAX_ENTRIES + 2)
+    }
+
+    private fun getShortcuts(activity: ComponentName): List<PopupShortcut> {
+        var shortcuts = emptyList<PopupShortcut>()
+        TestUtil.runOnExecutorSync(MODEL_EXECUTOR) {
+            shortcuts = cache.getShortcuts(activity, user)
+        }
+        return shortcuts
+    }
+
+    private fun newShortcut(id: String) =
+        ShortcutInfo.Builder(getInstrumentation().targetContext, id).setShortLabel(id).build()
+
+    companion object {
+        private val ACTIVITY_A = ComponentName("com.test.a", "Activity")
+        private val ACTIVITY_B = ComponentName("com.test.b", "Activity")
+    }
+}
@@ -526,4 +526,23 @@ public class BubbleTextViewTest {
         assertThat(mBubbleTextView.getIcon()).isNotInstanceOf(PreloadIconDrawable.class);
     }
 
+    @Test
+    public void deferredHighResLoad_waitsForRequest() throws Exception {
+        TestUtil.runOnExecutorSync(MAIN_EXECUTOR, () -> {
+            mBubbleTextView.setHighResLoadDeferred(true);
+            mBubbleTextView.applyFromApplicationInfo(mGmailAppInfo);
+            assertThat(mBubbleTextView.isHighResLoadPending()).isFalse();
+
+            mBubbleTextView.requestHighResIfNeeded();
+            assertThat(mBubbleTextView.isHighResLoadPending()).isTrue();
+        });
+    }
+
+    @Test
+    public void highResLoad_requestedWhenApplyingLowResIcon() throws Exception {
+        TestUtil.runOnExecutorSync(MAIN_EXECUTOR, () -> {
+            mBubbleTextView.applyFromApplicationInfo(mGmailAppInfo);
+            assertThat(mBubbleTextView.isHighResLoadPending()).isTrue();
+        });
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util
+
+import android.util.Xml
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import androidx.test.platform.app.InstrumentationRegistry.getInstrumentation
+import com.android.launcher3.AutoInstallsLayout.USER_TYPE_WORK
+import com.google.common.truth.Truth.assertThat
+import java.io.File
+import java.io.IOException
+import java.io.StringReader
+import java.nio.ByteBuffer
+import org.junit.After
+import org.junit.Assert.assertThrows
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.xmlpull.v1.XmlPullParser
+import org.xmlpull.v1.XmlPullParserException
+
+/** Unit tests for [BinaryLayout] and [BinaryLayoutParser] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class BinaryLayoutTest {
+
+    private val file = File(getInstrumentation().targetContext.cacheDir, "binary_layout_test.bin")
+
+    @After
+    fun tearDown() {
+        file.delete()
+    }
+
+    @Test
+    fun binaryLayout_hasSameEventsAsXml() {
+        val builder = newLayout()
+
+        val events = BinaryLayoutParser(ByteBuffer.wrap(builder.buildBinary())).readEvents()
+
+        assertThat(events).isEqualTo(builder.toXmlParser().readEvents())
+        assertThat(events).contains("START autoinstall 3 [className=c3, packageName=p3]")
+    }
+
+    @Test
+    fun binaryLayout_writtenToFile_isReadThroughMapping() {
+        val builder = newLayout()
+
+        BinaryLayout.write(file, builder.buildBinary())
+
+        assertThat(BinaryLayout.open(file).readEvents())
+            .isEqualTo(builder.toXmlParser().readEvents())
+    }
+
+    @Test
+    fun corruptedLayout_failsValidation() {
+        val data = newLayout().buildBinary()
+        data[data.size / 2] = (data[data.size / 2] + 1).toByte()
+
+        assertThrows(IOException::class.java) { BinaryLayoutParser(ByteBuffer.wrap(data)) }
+    }
+
+    @Test
+    fun unknownVersion_failsValidation() {
+        val data = newLayout().buildBinary()
+        data[5] = (BinaryLayout.VERSION + 1).toByte()
+
+        assertThrows(IOException::class.java) { BinaryLayoutParser(ByteBuffer.wrap(data)) }
+    }
+
+    @Test
+    fun truncatedLayout_failsValidation() {
+        val data = newLayout().buildBinary().copyOf(10)
+
+        assertThrows(IOException::class.java) { BinaryLayoutParser(ByteBuffer.wrap(data)) }
+    }
+
+    @Test
+    fun parserAtEnd_throws() {
+        val parser = BinaryLayoutParser(ByteBuffer.wrap(newLayout().buildBinary()))
+        parser.readEvents()
+
+        assertThrows(XmlPullParserException::class.java) { parser.next() }
+    }
+
+    @Test
+    fun layout_1kItems_hasSameEventsAsXmlInLessThanHalfTheSize() {
+        val builder = LauncherLayoutBuilder()
+        repeat(ITEM_COUNT) { i ->
+            builder.atWorkspace(i % 5, (i / 5) % 5, i / 25).putApp("com.test.p$i", "Main")
+        }
+
+        val xml = builder.build()
+        val binary = builder.buildBinary()
+
+        assertThat(BinaryLayoutParser(ByteBuffer.wrap(binary)).readEvents())
+            .isEqualTo(parseXml(xml).readEvents())
+        assertThat(binary.size).isLessThan(xml.length / 2)
+    }
+
+    @Test
+    fun repeatedStrings_areOnlyEncodedOnce() {
+        // Every batch of 100 items uses the same strings, so each batch adds the same bytes
+        val sizes = (1..3).map { newRepeatedLayout(it * 100).buildBinary().size }
+
+        val batchSize = sizes[1] - sizes[0]
+        assertThat(sizes[2] - sizes[1]).isEqualTo(batchSize)
+        // Only the references to the strings are repeated, an app takes a few bytes per attribute
+        assertThat(batchSize).isAtMost(100 * MAX_APP_BYTES)
+    }
+
+    private fun newRepeatedLayout(itemCount: Int) =
+        LauncherLayoutBuilder().apply {
+            repeat(itemCount) { i ->
+                atWorkspace(i % 5, (i / 5) % 5, (i / 25) % 4).putApp("com.test.p", "Main")
+            }
+        }
+
+    private fun newLayout() =
+        LauncherLayoutBuilder()
+            .atHotseat(0)
+            .putApp("p1", "c1")
+            .atWorkspace(1, 2, 0)
+            .putWidget("p2", "c2", 2, 3)
+            .atWorkspace(0, 0, 1)
+            .putFolder("Folder")
+            .addApp("p3", "c3")
+            .addShortcut("p4", "s4")
+            .build()
+            .atWorkspace(3, 3, 1)
+            .putApp("p5", "c5", USER_TYPE_WORK)
+
+    private fun LauncherLayoutBuilder.toXmlParser() = parseXml(build())
+
+    private fun parseXml(xml: String) =
+        Xml.newPullParser().apply { setInput(StringReader(xml)) }
+
+    /** Returns the tags of the layout, in order, ignoring whitespace */
+    private fun XmlPullParser.readEvents(): List<String> {
+        val events = ArrayList<String>()
+        while (next() != XmlPullParser.END_DOCUMENT) {
+            when (eventType) {
+                XmlPullParser.START_TAG -> {
+                    val attrs =
+                        (0 until attributeCount)
+                            .map { "${getAttributeName(it)}=${getAttributeValue(it)}" }
+                            .sorted()
+                    events.add("START $name $depth $attrs")
+                }
+                XmlPullParser.END_TAG -> events.add("END $name $depth")
+            }
+        }
+        return events
+    }
+
+    companion object {
+        private const val ITEM_COUNT = 1000
+        private const val MAX_APP_BYTES = 40
+    }
+}
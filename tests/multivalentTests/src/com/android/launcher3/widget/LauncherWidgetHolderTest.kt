@@ -27,6 +27,8 @@ import com.android.launcher3.widget.LauncherWidgetHolder.FLAG_STATE_IS_NORMAL
 import org.junit.After
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
 import org.junit.Assert.assertSame
 import org.junit.Assert.assertTrue
 import org.junit.Before
@@ -115,6 +117,41 @@ class LauncherWidgetHolderTest {
         assertEquals(0, widgetHolder.mViews.size())
     }
 
+    @Test
+    fun widget_holder_prewarm_host_views() {
+        widgetHolder.prewarmHostViews(2)
+        // A single view is created each time the main thread is idle
+        repeat(2) { getInstrumentation().waitForIdleSync() }
+        // Prewarmed views are only handed out on the main thread
+        assertNull(widgetHolder.pollPrewarmedHostView())
+        getInstrumentation().runOnMainSync {
+            assertNotNull(widgetHolder.pollPrewarmedHostView())
+            assertNotNull(widgetHolder.pollPrewarmedHostView())
+            assertNull(widgetHolder.pollPrewarmedHostView())
+        }
+    }
+
+    @Test
+    fun widget_holder_prewarm_host_views_is_capped() {
+        val count = LauncherWidgetHolder.MAX_PREWARMED_HOST_VIEWS + 2
+        widgetHolder.prewarmHostViews(count)
+        repeat(count) { getInstrumentation().waitForIdleSync() }
+        getInstrumentation().runOnMainSync {
+            repeat(LauncherWidgetHolder.MAX_PREWARMED_HOST_VIEWS) {
+                assertNotNull(widgetHolder.pollPrewarmedHostView())
+            }
+            assertNull(widgetHolder.pollPrewarmedHostView())
+        }
+    }
+
+    @Test
+    fun widget_holder_clear_prewarmed_host_views() {
+        widgetHolder.prewarmHostViews(2)
+        getInstrumentation().runOnMainSync { widgetHolder.clearPrewarmedHostViews() }
+        repeat(2) { getInstrumentation().waitForIdleSync() }
+        getInstrumentation().runOnMainSync { assertNull(widgetHolder.pollPrewarmedHostView()) }
+    }
+
     @Test
     fun holder_add_provider_change_listener() {
         val listener = ListenableAppWidgetHost.ProviderChangedListener {}
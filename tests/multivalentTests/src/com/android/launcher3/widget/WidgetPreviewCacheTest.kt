@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget
+
+import android.content.ComponentName
+import android.content.Context
+import android.content.res.Configuration
+import android.graphics.Bitmap
+import android.os.Process.myUserHandle
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.graphics.ThemeManager
+import com.android.launcher3.logging.DumpManager
+import com.android.launcher3.pm.UserCache
+import com.android.launcher3.util.Executors.ORDERED_BG_EXECUTOR
+import com.android.launcher3.util.LauncherModelHelper.SandboxModelContext
+import com.android.launcher3.util.PackageUserKey
+import com.android.launcher3.util.TestUtil.runOnExecutorSync
+import com.android.launcher3.widget.WidgetPreviewCache.PreviewKey
+import com.google.common.truth.Truth.assertThat
+import java.util.Locale
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [WidgetPreviewCache] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class WidgetPreviewCacheTest {
+
+    private val context = SandboxModelContext()
+    private val key =
+        PreviewKey(ComponentName(PACKAGE, "Provider"), myUserHandle(), 20, 10, 1, 0, 0)
+
+    @After
+    fun tearDown() {
+        WidgetPreviewCache.INSTANCE.get(context).invalidate(PackageUserKey(PACKAGE, myUserHandle()))
+        waitForDiskWrites()
+        context.destroy()
+    }
+
+    @Test
+    fun putPreview_isReturnedFromMemory() {
+        val cache = newCache()
+        val bitmap = newBitmap()
+
+        cache.put(key, bitmap)
+
+        assertThat(cache.getFromMemory(key)).isSameInstanceAs(bitmap)
+        assertThat(cache.getFromMemory(key.copy(width = 40))).isNull()
+    }
+
+    @Test
+    fun putPreview_isReturnedFromDiskAfterRestart() {
+        newCache().put(key, newBitmap())
+        waitForDiskWrites()
+
+        val cache = newCache()
+        assertThat(cache.getFromMemory(key)).isNull()
+        val bitmap = cache.get(key)
+
+        assertThat(bitmap).isNotNull()
+        assertThat(bitmap!!.width).isEqualTo(20)
+        assertThat(cache.get(key.copy(packageVersion = 2))).isNull()
+        assertThat(cache.hitRate).isEqualTo(0.5f)
+    }
+
+    @Test
+    fun invalidate_removesBothLevels() {
+        val cache = newCache()
+        cache.put(key, newBitmap())
+
+        cache.invalidate(PackageUserKey(PACKAGE, myUserHandle()))
+        waitForDiskWrites()
+
+        assertThat(cache.get(key)).isNull()
+        assertThat(cache.getFile(key).exists()).isFalse()
+    }
+
+    @Test
+    fun changedPreviewSource_missesCachedPreview() {
+        val cache = newCache()
+        cache.put(key, newBitmap())
+        waitForDiskWrites()
+
+        val generatedKey = key.copy(previewSource = 1)
+        assertThat(cache.getFromMemory(generatedKey)).isNull()
+        assertThat(cache.get(generatedKey)).isNull()
+        assertThat(cache.getFile(generatedKey)).isNotEqualTo(cache.getFile(key))
+    }
+
+    @Test
+    fun changedLocale_changesThemeKey() {
+        val japaneseKey = newCache(localizedContext(Locale.JAPAN)).getThemeKey()
+        val koreanKey = newCache(localizedContext(Locale.KOREA)).getThemeKey()
+
+        assertThat(japaneseKey).isNotEqualTo(koreanKey)
+        assertThat(newCache(localizedContext(Locale.JAPAN)).getThemeKey()).isEqualTo(japaneseKey)
+    }
+
+    private fun localizedContext(locale: Locale) =
+        context.createConfigurationContext(
+            Configuration(context.resources.configuration).apply { setLocale(locale) }
+        )
+
+    private fun waitForDiskWrites() = runOnExecutorSync(ORDERED_BG_EXECUTOR) {}
+
+    private fun newCache(cacheContext: Context = context) =
+        WidgetPreviewCache(
+            cacheContext,
+            UserCache.INSTANCE.get(context),
+            ThemeManager.INSTANCE.get(context),
+            DumpManager(),
+            context.appComponent.daggerSingletonTracker,
+        )
+
+    private fun newBitmap() = Bitmap.createBitmap(20, 10, Bitmap.Config.ARGB_8888)
+
+    companion object {
+        private const val PACKAGE = "com.test.widgetpreview"
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import com.android.launcher3.util.CancellableTask
+import com.google.common.truth.Truth.assertThat
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+import java.util.function.Supplier
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for [WidgetPreviewScheduler] */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+class WidgetPreviewSchedulerTest {
+
+    private val scheduler = WidgetPreviewScheduler(1)
+    private val loaded = Collections.synchronizedList(ArrayList<String>())
+    private val blocker = CountDownLatch(1)
+
+    @Before
+    fun setUp() {
+        // Keep the only worker busy while the previews are scheduled
+        scheduler.execute { blocker.await(TIMEOUT_SECONDS, TimeUnit.SECONDS) }
+    }
+
+    @After
+    fun tearDown() {
+        blocker.countDown()
+    }
+
+    @Test
+    fun visiblePreviewsLoadFirst_batchedByPackage() {
+        schedule("a1", PACKAGE_A, visible = false)
+        schedule("b1", PACKAGE_B, visible = true)
+        schedule("a2", PACKAGE_A, visible = true)
+        schedule("b2", PACKAGE_B, visible = true)
+
+        awaitPreviews()
+
+        assertThat(loaded).containsExactly("b1", "b2", "a2", "a1").inOrder()
+        assertThat(scheduler.lastVisibleLoadTimeMs).isAtLeast(0)
+    }
+
+    @Test
+    fun hiddenPreviewMovesBehindVisibleOnes() {
+        val first = schedule("a1", PACKAGE_A, visible = true)
+        schedule("b1", PACKAGE_B, visible = true)
+
+        scheduler.setVisible(first, false)
+        awaitPreviews()
+
+        assertThat(loaded).containsExactly("b1", "a1").inOrder()
+    }
+
+    @Test
+    fun hiddenPreviewDoesNotRecordVisibleLoadTime() {
+        val first = schedule("a1", PACKAGE_A, visible = true)
+
+        scheduler.setVisible(first, false)
+        awaitPreviews()
+
+        assertThat(loaded).containsExactly("a1")
+        assertThat(scheduler.lastVisibleLoadTimeMs).isEqualTo(-1)
+    }
+
+    @Test
+    fun canceledPreviewIsNotLoaded() {
+        schedule("a1", PACKAGE_A, visible = true).cancel()
+        schedule("a2", PACKAGE_A, visible = true)
+
+        awaitPreviews()
+
+        assertThat(loaded).containsExactly("a2")
+    }
+
+    @Test
+    fun executeWaitsForEarlierPreviews() {
+        schedule("a1", PACKAGE_A, visible = false)
+        val barrier = scheduler.submit { loaded.add("barrier") }
+        schedule("a2", PACKAGE_A, visible = true)
+
+        blocker.countDown()
+        barrier.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        awaitPreviews()
+
+        assertThat(loaded.indexOf("barrier")).isGreaterThan(loaded.indexOf("a1"))
+        assertThat(scheduler.hasPendingJobs()).isFalse()
+    }
+
+    private fun schedule(name: String, packageName: String, visible: Boolean) =
+        CancellableTask(Supplier { loaded.add(name) }, Executor { it.run() }, {}).also {
+            scheduler.schedule(packageName, visible, it)
+        }
+
+    private fun awaitPreviews() {
+        blocker.countDown()
+        scheduler.submit {}.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+    }
+
+    companion object {
+        private const val PACKAGE_A = "com.test.a"
+        private const val PACKAGE_B = "com.test.b"
+        private const val TIMEOUT_SECONDS = 5L
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.widget.model
+
+import android.content.ComponentName
+import android.content.Context
+import android.os.UserHandle
+import android.platform.test.rule.AllowedDevices
+import android.platform.test.rule.DeviceProduct
+import android.platform.test.rule.LimitDevicesRule
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.launcher3.LauncherAppState
+import com.android.launcher3.icons.IconCache
+import com.android.launcher3.icons.cache.CachedObject
+import com.android.launcher3.model.WidgetItem
+import com.android.launcher3.model.data.PackageItemInfo
+import com.android.launcher3.util.ActivityContextWrapper
+import com.android.launcher3.util.WidgetUtils
+import com.android.launcher3.widget.LauncherAppWidgetProviderInfo
+import com.google.common.truth.Truth.assertThat
+import java.util.function.Predicate
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mock
+import org.mockito.junit.MockitoJUnit
+import org.mockito.junit.MockitoRule
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doAnswer
+
+@RunWith(AndroidJUnit4::class)
+@AllowedDevices(allowed = [DeviceProduct.ROBOLECTRIC])
+class WidgetsListEntriesCacheTest {
+    @Rule @JvmField val limitDevicesRule = LimitDevicesRule()
+    @Rule @JvmField val mockitoRule: MockitoRule = MockitoJUnit.rule()
+
+    @Mock private lateinit var iconCache: IconCache
+
+    private lateinit var context: Context
+    private lateinit var underTest: WidgetsListEntriesCache
+
+    private val allWidgets = LinkedHashMap<PackageItemInfo, List<WidgetItem>>()
+    private val showAll = Predicate<WidgetItem> { true }
+
+    @Before
+    fun setUp() {
+        context = ActivityContextWrapper(ApplicationProvider.getApplicationContext())
+        doAnswer { (it.getArgument<Any>(0) as CachedObject).getComponent().shortClassName }
+            .`when`(iconCache)
+            .getTitleNoCache(any<CachedObject>())
+        underTest = WidgetsListEntriesCache(context)
+
+        allWidgets[packageItem(APP_2_PACKAGE, "SomeApp2")] = listOf(widgetItem(APP_2_PACKAGE))
+        allWidgets[packageItem(APP_1_PACKAGE, "App1")] = listOf(widgetItem(APP_1_PACKAGE))
+    }
+
+    @Test
+    fun entriesAreSortedByPackageTitle() {
+        val entries = underTest.getEntries(allWidgets, showAll)
+
+        assertThat(entries.map { it.mPkgItem.packageName })
+            .containsExactly(APP_1_PACKAGE, APP_1_PACKAGE, APP_2_PACKAGE, APP_2_PACKAGE)
+            .inOrder()
+        assertThat(entries[0]).isInstanceOf(WidgetsListHeaderEntry::class.java)
+        assertThat(entries[1]).isInstanceOf(WidgetsListContentEntry::class.java)
+    }
+
+    @Test
+    fun unchangedWidgets_returnSameSnapshot() {
+        val entries = underTest.getEntries(allWidgets, showAll)
+
+        assertThat(underTest.getEntries(allWidgets, showAll)).isSameInstanceAs(entries)
+        assertThat(underTest.buildCount).isEqualTo(2)
+    }
+
+    @Test
+    fun changedPackage_onlyRebuildsItsEntries() {
+        val entries = underTest.getEntries(allWidgets, showAll)
+
+        allWidgets[allWidgets.keys.first { it.packageName == APP_2_PACKAGE }] =
+            listOf(widgetItem(APP_2_PACKAGE), widgetItem(APP_2_PACKAGE, "OtherProvider"))
+        underTest.onWidgetsChanged()
+        val newEntries = underTest.getEntries(allWidgets, showAll)
+
+        assertThat(underTest.buildCount).isEqualTo(3)
+        // App 1 entries are reused
+        assertThat(newEntries[0]).isSameInstanceAs(entries[0])
+        assertThat(newEntries[1]).isSameInstanceAs(entries[1])
+        assertThat(newEntries[3].mWidgets).hasSize(2)
+    }
+
+    @Test
+    fun removedPackage_isRemovedFromEntries() {
+        underTest.getEntries(allWidgets, showAll)
+
+        allWidgets.keys.removeIf { it.packageName == APP_1_PACKAGE }
+        underTest.onWidgetsChanged()
+
+        assertThat(underTest.getEntries(allWidgets, showAll).map { it.mPkgItem.packageName })
+            .containsExactly(APP_2_PACKAGE, APP_2_PACKAGE)
+    }
+
+    @Test
+    fun filteredPackage_hasNoEntries() {
+        val entries =
+            underTest.getEntries(allWidgets) { it.componentName.packageName == APP_2_PACKAGE }
+
+        assertThat(entries.map { it.mPkgItem.packageName })
+            .containsExactly(APP_2_PACKAGE, APP_2_PACKAGE)
+    }
+
+    private fun packageItem(packageName: String, title: String) =
+        PackageItemInfo(packageName, UserHandle.CURRENT).apply { this.title = title }
+
+    private fun widgetItem(packageName: String, className: String = "Provider"): WidgetItem {
+        val providerInfo =
+            WidgetUtils.createAppWidgetProviderInfo(
+                ComponentName.createRelative(packageName, className)
+            )
+        return WidgetItem(
+            LauncherAppWidgetProviderInfo.fromProviderInfo(context, providerInfo),
+            LauncherAppState.getIDP(context),
+            iconCache,
+            context,
+        )
+    }
+
+    companion object {
+        private const val APP_1_PACKAGE = "com.example.app1"
+        private const val APP_2_PACKAGE = "com.example.app2"
+    }
+}